@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2013 International Digital Publishing Forum
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of
+ *  this software and associated documentation files (the "Software"), to deal in
+ *  the Software without restriction, including without limitation the rights to
+ *  use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ *  the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ *  FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ *  COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ *  IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *  CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.adobe.epubcheck.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+/**
+ * Access to the EpubCheck test fixtures, and generation of synthetic
+ * documents and books.
+ * <p>
+ * The fixtures are read from the directory given by the
+ * {@value #FIXTURES_PROPERTY} system property, which defaults to the test
+ * resources of the parent project.
+ * </p>
+ */
+final class Fixtures {
+
+	static final String FIXTURES_PROPERTY = "epubcheck.fixtures";
+
+	private static final String STRING_FMT = "%05d";
+
+	private static final String LOREM = "Lorem ipsum <a href=\"#p0\">dolor sit amet</a>, "
+			+ "consectetur adipiscing elit. Aliquam vel purus mauris, ut auctor massa. "
+			+ "Pellentesque non nunc risus. Fusce a massa augue. Nunc erat ante, auctor "
+			+ "id varius ac, vestibulum non purus. Quisque non dui in sem consectetur "
+			+ "condimentum non ac quam.";
+
+	private Fixtures() {
+
+	}
+
+	static File getFile(String path) {
+		File dir = new File(System.getProperty(FIXTURES_PROPERTY,
+				"../src/test/resources"));
+		File file = new File(dir, path);
+		if (!file.exists()) {
+			throw new IllegalStateException("Fixture not found: " + file
+					+ " (set -D" + FIXTURES_PROPERTY
+					+ " to the EpubCheck test resources directory)");
+		}
+		return file;
+	}
+
+	static byte[] read(String path) throws IOException {
+		return Files.toByteArray(getFile(path));
+	}
+
+	static String readString(String path) throws IOException {
+		return Files.toString(getFile(path), Charsets.UTF_8);
+	}
+
+	/**
+	 * An EPUB 3 XHTML content document with the given number of paragraphs,
+	 * each with an ID and a link to the first one.
+	 */
+	static byte[] xhtml(int paragraphs) {
+		StringBuilder sb = new StringBuilder(paragraphs * (LOREM.length() + 20) + 500);
+		sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		sb.append("<html xmlns=\"http://www.w3.org/1999/xhtml\" xml:lang=\"la\" lang=\"la\"\n");
+		sb.append("\txmlns:epub=\"http://www.idpf.org/2007/ops\">\n");
+		sb.append("\t<head>\n\t\t<title>Lorem Ipsum</title>\n\t</head>\n");
+		sb.append("\t<body>\n\t\t<section id=\"ch1\">\n\t\t\t<h1>Chapter 1</h1>\n");
+		for (int i = 0; i < paragraphs; i++) {
+			sb.append("\t\t\t<p id=\"p").append(i).append("\">").append(LOREM)
+					.append("</p>\n");
+		}
+		sb.append("\t\t</section>\n\t</body>\n</html>\n");
+		return sb.toString().getBytes(Charsets.UTF_8);
+	}
+
+	/**
+	 * Create a valid EPUB 3 file in a temporary file, grown from the
+	 * <code>stress</code> fixture the same way <code>StressTest.build()</code>
+	 * does: each step adds a copy of the image, the stylesheet and the content
+	 * document, declares them in the manifest and adds the content document to
+	 * the spine and to the navigation document.
+	 * 
+	 * @param grow
+	 *            the number of steps.
+	 * @return the created file, to be deleted by the caller.
+	 */
+	static File stressBook(int grow) throws IOException {
+		String opf = readString("stress/EPUB/package.opf");
+		String nav = readString("stress/EPUB/nav.xhtml");
+		String content = readString("stress/EPUB/content_00000.xhtml");
+		byte[] css = read("stress/EPUB/style_00000.css");
+		byte[] image = read("stress/EPUB/image_00000.png");
+
+		File file = File.createTempFile("stress", ".epub");
+		OutputStream out = new FileOutputStream(file);
+		try {
+			ZipOutputStream zip = new ZipOutputStream(out);
+			storeMimetype(zip);
+			add(zip, "META-INF/container.xml",
+					read("stress/META-INF/container.xml"));
+			add(zip, "EPUB/content_00000.xhtml", content.getBytes(Charsets.UTF_8));
+			add(zip, "EPUB/style_00000.css", css);
+			add(zip, "EPUB/image_00000.png", image);
+
+			StringBuilder items = new StringBuilder();
+			StringBuilder itemrefs = new StringBuilder();
+			StringBuilder navItems = new StringBuilder();
+			for (int i = 1; i <= grow; i++) {
+				String n = String.format(STRING_FMT, i);
+				add(zip, "EPUB/image_" + n + ".png", image);
+				add(zip, "EPUB/style_" + n + ".css", css);
+				String chapter = content
+						.replace("style_00000.css", "style_" + n + ".css")
+						.replace("Lorem Ipsum 00000", "Lorem Ipsum " + n)
+						.replace("image_00000.png", "image_" + n + ".png");
+				add(zip, "EPUB/content_" + n + ".xhtml",
+						chapter.getBytes(Charsets.UTF_8));
+				items.append("<item id=\"img_").append(n)
+						.append("\" href=\"image_").append(n)
+						.append(".png\" media-type=\"image/png\"/>\n")
+						.append("<item id=\"css_").append(n)
+						.append("\" href=\"style_").append(n)
+						.append(".css\" media-type=\"text/css\"/>\n")
+						.append("<item id=\"t_").append(n)
+						.append("\" href=\"content_").append(n)
+						.append(".xhtml\" media-type=\"application/xhtml+xml\"/>\n");
+				itemrefs.append("<itemref idref=\"t_").append(n).append("\"/>\n");
+				navItems.append("<li><a href=\"content_").append(n)
+						.append(".xhtml\">Lorem Ipsum ").append(n)
+						.append("</a></li>\n");
+			}
+			add(zip, "EPUB/package.opf", opf
+					.replace("</manifest>", items + "</manifest>")
+					.replace("</spine>", itemrefs + "</spine>")
+					.getBytes(Charsets.UTF_8));
+			add(zip, "EPUB/nav.xhtml", nav.replace("</ol>", navItems + "</ol>")
+					.getBytes(Charsets.UTF_8));
+			zip.close();
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+	private static void storeMimetype(ZipOutputStream zip) throws IOException {
+		byte[] mimetype = "application/epub+zip".getBytes(Charsets.US_ASCII);
+		ZipEntry entry = new ZipEntry("mimetype");
+		entry.setMethod(ZipEntry.STORED);
+		entry.setSize(mimetype.length);
+		CRC32 crc = new CRC32();
+		crc.update(mimetype);
+		entry.setCrc(crc.getValue());
+		zip.putNextEntry(entry);
+		zip.write(mimetype);
+		zip.closeEntry();
+	}
+
+	private static void add(ZipOutputStream zip, String name, byte[] data)
+			throws IOException {
+		zip.putNextEntry(new ZipEntry(name));
+		zip.write(data);
+		zip.closeEntry();
+	}
+}
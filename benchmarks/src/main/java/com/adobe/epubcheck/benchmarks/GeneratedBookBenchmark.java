@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2013 International Digital Publishing Forum
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of
+ *  this software and associated documentation files (the "Software"), to deal in
+ *  the Software without restriction, including without limitation the rights to
+ *  use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ *  the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ *  FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ *  COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ *  IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *  CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.adobe.epubcheck.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.adobe.epubcheck.api.EpubCheck;
+import com.adobe.epubcheck.util.CountingReportImpl;
+import com.adobe.epubcheck.util.EPUBVersion;
+import com.adobe.epubcheck.util.EpubGenerator;
+
+/**
+ * End-to-end {@link EpubCheck#validate()} on publications created by
+ * {@link EpubGenerator}, growing along one axis at a time. Run with
+ * <code>-p</code> to explore other combinations, for instance
+ * <code>-p chapters=2000 -p links=1000</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GeneratedBookBenchmark {
+
+	@Param({ "3" })
+	public int version;
+
+	@Param({ "10", "100", "1000" })
+	public int chapters;
+
+	@Param({ "20" })
+	public int paragraphs;
+
+	@Param({ "10" })
+	public int links;
+
+	@Param({ "0" })
+	public int ids;
+
+	@Param({ "20" })
+	public int cssRules;
+
+	@Param({ "0" })
+	public int inlineStyles;
+
+	@Param({ "0" })
+	public int images;
+
+	@Param({ "1" })
+	public int navDepth;
+
+	@Param({ "0" })
+	public int mediaOverlays;
+
+	private File epub;
+
+	@Setup
+	public void setup() throws IOException {
+		EpubGenerator generator = new EpubGenerator(
+				version == 2 ? EPUBVersion.VERSION_2 : EPUBVersion.VERSION_3);
+		generator.setChapters(chapters);
+		generator.setParagraphs(paragraphs);
+		generator.setLinks(links);
+		generator.setIds(ids);
+		generator.setCssRules(cssRules);
+		generator.setInlineStyles(inlineStyles);
+		generator.setImages(images);
+		generator.setNavDepth(navDepth);
+		generator.setMediaOverlays(mediaOverlays);
+		epub = File.createTempFile("generated", ".epub");
+		generator.generate(epub);
+	}
+
+	@TearDown
+	public void tearDown() {
+		epub.delete();
+	}
+
+	@Benchmark
+	public int validate() {
+		CountingReportImpl report = new CountingReportImpl();
+		new EpubCheck(epub, report).validate();
+		if (report.getErrorCount() > 0) {
+			throw new IllegalStateException("The generated book is not valid");
+		}
+		return report.getWarningCount();
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2013 International Digital Publishing Forum
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of
+ *  this software and associated documentation files (the "Software"), to deal in
+ *  the Software without restriction, including without limitation the rights to
+ *  use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ *  the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ *  FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ *  COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ *  IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *  CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.adobe.epubcheck.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.adobe.epubcheck.util.PathUtil;
+
+/**
+ * {@link PathUtil#resolveRelativeReference(String, String, String)} on the
+ * typical kinds of references found in content documents.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class PathUtilBenchmark {
+
+	@Benchmark
+	public String sibling() {
+		return PathUtil.resolveRelativeReference("EPUB/xhtml/chapter_01.xhtml",
+				"chapter_02.xhtml", null);
+	}
+
+	@Benchmark
+	public String fragment() {
+		return PathUtil.resolveRelativeReference("EPUB/xhtml/chapter_01.xhtml",
+				"#section_12", null);
+	}
+
+	@Benchmark
+	public String parent() {
+		return PathUtil.resolveRelativeReference("EPUB/xhtml/chapter_01.xhtml",
+				"../images/figure_01.png", null);
+	}
+
+	@Benchmark
+	public String escaped() {
+		return PathUtil.resolveRelativeReference("EPUB/xhtml/chapter_01.xhtml",
+				"../css/main%20style.css", null);
+	}
+
+	@Benchmark
+	public String rebased() {
+		return PathUtil.resolveRelativeReference("EPUB/xhtml/chapter_01.xhtml",
+				"notes.xhtml#n1", "EPUB/notes/");
+	}
+}
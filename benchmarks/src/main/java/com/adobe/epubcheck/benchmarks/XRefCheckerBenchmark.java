@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2013 International Digital Publishing Forum
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of
+ *  this software and associated documentation files (the "Software"), to deal in
+ *  the Software without restriction, including without limitation the rights to
+ *  use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ *  the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ *  FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ *  COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ *  IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *  CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.adobe.epubcheck.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.adobe.epubcheck.opf.XRefChecker;
+import com.adobe.epubcheck.util.CountingReportImpl;
+import com.adobe.epubcheck.util.EPUBVersion;
+
+/**
+ * {@link XRefChecker#checkReferences()} on a synthetic link graph: each
+ * content document declares an ID per link and links to random IDs of random
+ * documents. All the references resolve, so the container is never accessed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class XRefCheckerBenchmark {
+
+	@Param({ "100", "1000" })
+	public int documents;
+
+	@Param({ "10", "100" })
+	public int linksPerDocument;
+
+	private XRefChecker xrefChecker;
+	private CountingReportImpl report;
+
+	@Setup
+	public void setup() {
+		report = new CountingReportImpl();
+		xrefChecker = new XRefChecker(null, report, EPUBVersion.VERSION_3);
+		for (int i = 0; i < documents; i++) {
+			String resource = "EPUB/content_" + i + ".xhtml";
+			xrefChecker.registerResource(resource, "application/xhtml+xml",
+					true, false, false);
+			for (int j = 0; j < linksPerDocument; j++) {
+				xrefChecker.registerAnchor(resource, j + 1, 1, "p" + j,
+						XRefChecker.RT_GENERIC);
+			}
+		}
+		Random random = new Random(42);
+		for (int i = 0; i < documents; i++) {
+			String resource = "EPUB/content_" + i + ".xhtml";
+			for (int j = 0; j < linksPerDocument; j++) {
+				xrefChecker.registerReference(resource, j + 1, 10,
+						"EPUB/content_" + random.nextInt(documents) + ".xhtml#p"
+								+ random.nextInt(linksPerDocument),
+						XRefChecker.RT_HYPERLINK);
+			}
+		}
+	}
+
+	@Benchmark
+	public int checkReferences() {
+		xrefChecker.checkReferences();
+		return report.getErrorCount();
+	}
+}
@@ -35,12 +35,17 @@ import com.adobe.epubcheck.ocf.OCFChecker;
 import com.adobe.epubcheck.ocf.OCFPackage;
 import com.adobe.epubcheck.ocf.OCFZipPackage;
 import com.adobe.epubcheck.opf.DocumentValidator;
+import com.adobe.epubcheck.util.AggregatingReportImpl;
 import com.adobe.epubcheck.util.CheckUtil;
 import com.adobe.epubcheck.util.DefaultReportImpl;
 import com.adobe.epubcheck.util.EPUBVersion;
+import com.adobe.epubcheck.util.FailFastReportImpl;
 import com.adobe.epubcheck.util.Messages;
+import com.adobe.epubcheck.util.MetricsReportImpl;
+import com.adobe.epubcheck.util.ReportUtil;
 import com.adobe.epubcheck.util.ResourceUtil;
 import com.adobe.epubcheck.util.WriterReportImpl;
+import com.adobe.epubcheck.xml.XMLParser;
 
 /**
  * Public interface to epub validator.
@@ -76,6 +81,9 @@ public class EpubCheck implements DocumentValidator {
 	private File epubFile;
 	private Report report;
 	private EPUBVersion version;
+	private int failFast;
+	private int maxOccurrences;
+	private ValidationMetrics metrics;
 
 	/*
 	 * Create an epub validator to validate the given file. Issues will be
@@ -143,13 +151,70 @@ public class EpubCheck implements DocumentValidator {
 		}
 	}
 
+	/**
+	 * Stop the validation once the given number of errors has been reported,
+	 * leaving a partial report.
+	 * 
+	 * @param maxErrors
+	 *            the number of errors, or 0 to validate the whole file.
+	 */
+	public void setFailFast(int maxErrors) {
+		this.failFast = maxErrors;
+	}
+
+	/**
+	 * Pass at most the given number of occurrences of each message to the
+	 * report, and summarize the others.
+	 * 
+	 * @param maxOccurrences
+	 *            the number of occurrences of each message in each resource,
+	 *            or 0 to report all of them.
+	 * @see AggregatingReportImpl
+	 */
+	public void setMaxOccurrences(int maxOccurrences) {
+		this.maxOccurrences = maxOccurrences;
+	}
+
+	/**
+	 * Time the phases of the validation in the given metrics object.
+	 * 
+	 * @param metrics
+	 *            the metrics, or null to disable timing.
+	 */
+	public void setMetrics(ValidationMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	public ValidationMetrics getMetrics() {
+		return metrics;
+	}
+
 	/**
 	 * Validate the file. Return true if no errors or warnings found.
 	 */
 	public boolean validate() {
+		long bookStart = 0;
+		Report report = this.report;
+		AggregatingReportImpl aggregatingReport = null;
+		if (maxOccurrences > 0) {
+			aggregatingReport = new AggregatingReportImpl(report,
+					maxOccurrences, 0);
+			report = aggregatingReport;
+		}
+		if (ValidationMetrics.hasListeners()) {
+			bookStart = System.nanoTime();
+			report = new MetricsReportImpl(report);
+		}
+		if (failFast > 0) {
+			report = new FailFastReportImpl(report, failFast);
+		}
+		ValidationMetrics previousMetrics = metrics != null ? ValidationMetrics
+				.setCurrent(metrics) : null;
+		XMLParser.startValidation(report);
 		ZipFile zip = null;
 		FileInputStream epubIn = null;
 		try {		
+			long start = ValidationMetrics.start();
 			String extension = ResourceUtil.getExtension(epubFile.getName());
 			if(extension != null) {
 				if(!extension.equals("epub")) {
@@ -188,27 +253,28 @@ public class EpubCheck implements DocumentValidator {
 				} else if (!CheckUtil.checkString(header, 30, "mimetype")) {
 					report.error(null, 0, 0, Messages.MIMETYPE_ENTRY_MISSING);
 				} else if (extsize != 0) {
-					report.error(null, 0, 0,
-							String.format(Messages.EXTRA_FIELD_LENGTH, extsize));
+					ReportUtil.error(report, null, 0, 0,
+							Messages.EXTRA_FIELD_LENGTH, extsize);
 				} else if (!CheckUtil.checkString(header, 38,
 						"application/epub+zip")) {
-					report.error(null, 0, 0, String.format(
-							Messages.MIMETYPE_WRONG_TYPE,
-							"application/epub+zip"));
+					ReportUtil.error(report, null, 0, 0, Messages.MIMETYPE_WRONG_TYPE, "application/epub+zip");
 				}
 			}
+			ValidationMetrics.stop(ValidationMetrics.HEADER_CHECK, start);
 		
-			zip = new ZipFile(epubFile);
+			if (!ReportUtil.isCancelled(report)) {
+				zip = new ZipFile(epubFile);
 
-			OCFPackage ocf = new OCFZipPackage(zip);
+				OCFPackage ocf = new OCFZipPackage(zip);
 
-			OCFChecker checker = new OCFChecker(ocf, report, version);
+				OCFChecker checker = new OCFChecker(ocf, report, version);
 
-			checker.runChecks();
+				checker.runChecks();
+			}
 			
 		} catch (IOException e) {
-			report.error(null, 0, 0,
-					String.format(Messages.IO_ERROR, e.getMessage()));
+			ReportUtil.error(report, null, 0, 0,
+					Messages.IO_ERROR, e.getMessage());
 		} finally {
 			try{
 				epubIn.close();
@@ -216,8 +282,20 @@ public class EpubCheck implements DocumentValidator {
 			}catch (Exception e) {
 				
 			}
+			if (metrics != null) {
+				ValidationMetrics.setCurrent(previousMetrics);
+			}
+			if (aggregatingReport != null) {
+				aggregatingReport.flush();
+			}
+		}
+		boolean valid = report.getWarningCount() == 0
+				&& report.getErrorCount() == 0;
+		if (bookStart != 0) {
+			ValidationMetrics.bookValidated(epubFile.getName(), valid,
+					System.nanoTime() - bookStart);
 		}
-		return report.getWarningCount() == 0 && report.getErrorCount() == 0;
+		return valid;
 	}
 
 	private int getIntFromBytes(byte[] bytes, int offset) {
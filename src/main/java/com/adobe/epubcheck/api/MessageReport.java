@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2013 International Digital Publishing Forum
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of
+ *  this software and associated documentation files (the "Software"), to deal in
+ *  the Software without restriction, including without limitation the rights to
+ *  use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ *  the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ *  FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ *  COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ *  IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *  CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.adobe.epubcheck.api;
+
+/**
+ * A {@link Report} that accepts messages in structured form, with the message
+ * pattern and its arguments kept apart.
+ * <p>
+ * Checkers deliver messages through
+ * {@link com.adobe.epubcheck.util.ReportUtil}, which invokes
+ * {@link #message(Severity, String, int, int, String, Object...)} on reports
+ * implementing this interface, and formats the message for the plain
+ * {@link Report} methods otherwise. This lets a report skip formatting
+ * altogether for messages it does not output, and identify a message by its
+ * pattern (see {@link com.adobe.epubcheck.util.Messages#getId(String)})
+ * rather than by its text.
+ * </p>
+ */
+public interface MessageReport extends Report {
+
+	/**
+	 * Called when an error, a warning or a hint is found in the epub.
+	 * 
+	 * @param severity
+	 *            the severity of the message.
+	 * @param resource
+	 *            name of the resource in the epub zip container, or null if
+	 *            the message is on the container level.
+	 * @param line
+	 *            line number in the resource, non-positive number if not
+	 *            available.
+	 * @param column
+	 *            column number in the resource, non-positive number if not
+	 *            available.
+	 * @param pattern
+	 *            the message pattern, usually one of the
+	 *            {@link com.adobe.epubcheck.util.Messages} constants.
+	 * @param args
+	 *            the arguments of the pattern, as for
+	 *            {@link String#format(String, Object...)}; if empty, the pattern
+	 *            is the message text as is.
+	 */
+	public void message(Severity severity, String resource, int line,
+			int column, String pattern, Object... args);
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2013 International Digital Publishing Forum
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of
+ *  this software and associated documentation files (the "Software"), to deal in
+ *  the Software without restriction, including without limitation the rights to
+ *  use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ *  the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ *  FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ *  COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ *  IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *  CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.adobe.epubcheck.api;
+
+/**
+ * Receives metrics events from all the validations run in this JVM.
+ * <p>
+ * Listeners are registered with
+ * {@link ValidationMetrics#addListener(MetricsListener)}. They are notified
+ * on the validating threads, and must therefore be thread-safe and return
+ * quickly.
+ * </p>
+ */
+public interface MetricsListener {
+
+	/**
+	 * An EPUB file was validated by {@link EpubCheck}.
+	 * 
+	 * @param name
+	 *            the file name.
+	 * @param valid
+	 *            whether no errors or warnings were found.
+	 * @param nanos
+	 *            the validation time, in nanoseconds.
+	 */
+	public void bookValidated(String name, boolean valid, long nanos);
+
+	/**
+	 * A validation phase was timed.
+	 * 
+	 * @param phase
+	 *            one of the phase names defined in {@link ValidationMetrics}.
+	 * @param nanos
+	 *            the time spent in the phase, in nanoseconds.
+	 */
+	public void phaseTimed(String phase, long nanos);
+
+	/**
+	 * A document was parsed.
+	 * 
+	 * @param mediaType
+	 *            the media type of the document, or the parser mode (such
+	 *            as "opf" or "xml") for container files.
+	 */
+	public void documentParsed(String mediaType);
+
+	/**
+	 * A compressed entry of the container was opened for reading.
+	 * 
+	 * @param resource
+	 *            the entry name.
+	 * @param size
+	 *            the uncompressed size of the entry, in bytes.
+	 */
+	public void bytesInflated(String resource, long size);
+
+	/**
+	 * A message was reported.
+	 */
+	public void messageReported(Severity severity);
+
+	/**
+	 * An exception was reported.
+	 */
+	public void exceptionReported();
+}
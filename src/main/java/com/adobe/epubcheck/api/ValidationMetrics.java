@@ -0,0 +1,463 @@
+/*
+ * Copyright (c) 2013 International Digital Publishing Forum
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of
+ *  this software and associated documentation files (the "Software"), to deal in
+ *  the Software without restriction, including without limitation the rights to
+ *  use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ *  the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ *  FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ *  COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ *  IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *  CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.adobe.epubcheck.api;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects the time spent in each phase of a validation run.
+ * <p>
+ * A metrics object is bound to the validating thread with
+ * {@link #setCurrent(ValidationMetrics)}, which {@link EpubCheck} does when it
+ * is given one with {@link EpubCheck#setMetrics(ValidationMetrics)}. Checkers
+ * time their phases as follows:
+ * </p>
+ * 
+ * <pre>
+ * long start = ValidationMetrics.start();
+ * ...
+ * ValidationMetrics.stop(ValidationMetrics.XREF_CHECK, start);
+ * </pre>
+ * <p>
+ * Phase timings and other events are also passed on to the
+ * {@link MetricsListener}s registered with
+ * {@link #addListener(MetricsListener)}.
+ * </p>
+ * <p>
+ * When no metrics object is bound to any thread and no listener is
+ * registered, {@link #start()} returns 0 after reading a single field, and
+ * {@link #stop(String, long)} returns immediately.
+ * </p>
+ * <p>
+ * Phases are timed inclusively: the time spent parsing a CSS file is also
+ * counted in the time of the content checker that parses it.
+ * </p>
+ * <p>
+ * When {@link #setTrackAllocations(boolean)} is enabled, the bytes allocated
+ * by the validating thread in each phase are also counted, and checkers
+ * record the peak number of entries of their main structures with
+ * {@link #recordSize(String, long)}.
+ * </p>
+ */
+public class ValidationMetrics {
+
+	public static final String HEADER_CHECK = "header check";
+	public static final String OCF_PARSING = "OCF parsing";
+	public static final String OCF_VALIDATION = "OCF validation";
+	public static final String VERSION_RETRIEVAL = "version retrieval";
+	public static final String OPF_VALIDATION = "OPF validation";
+	public static final String CONTENT_CHECK = "content check: ";
+	public static final String CSS_PARSING = "CSS parsing";
+	public static final String XREF_CHECK = "cross-reference check";
+	/**
+	 * Schemas are compiled once per JVM, when the checker classes holding
+	 * them are loaded. This phase is therefore timed in the validation that
+	 * first loads a checker class, and does not appear in later validations.
+	 */
+	public static final String SCHEMA_COMPILATION = "schema compilation";
+
+	public static final String XREF_RESOURCES = "XRefChecker resources";
+	public static final String XREF_ANCHORS = "XRefChecker anchors";
+	public static final String XREF_REFERENCES = "XRefChecker references";
+	public static final String OPF_ITEMS = "OPFHandler items";
+	public static final String OPF_SPINE_ITEMS = "OPFHandler spine items";
+	public static final String OPF_REFERENCES = "OPFHandler references";
+
+	private static final ThreadLocal<ValidationMetrics> current = new ThreadLocal<ValidationMetrics>();
+
+	private static final List<MetricsListener> listeners = new CopyOnWriteArrayList<MetricsListener>();
+
+	// the number of threads with bound metrics, plus the number of listeners
+	private static final AtomicInteger active = new AtomicInteger();
+
+	private final Map<String, long[]> timings = new LinkedHashMap<String, long[]>();
+
+	private final Map<String, Long> sizes = new LinkedHashMap<String, Long>();
+
+	private volatile boolean trackAllocations;
+
+	/**
+	 * Bind the given metrics to the current thread.
+	 * 
+	 * @param metrics
+	 *            the metrics, or null to unbind the current metrics.
+	 * @return the previously bound metrics, or null.
+	 */
+	public static ValidationMetrics setCurrent(ValidationMetrics metrics) {
+		ValidationMetrics previous = current.get();
+		if (metrics == null) {
+			if (previous != null) {
+				current.remove();
+				active.decrementAndGet();
+			}
+		} else {
+			current.set(metrics);
+			if (previous == null) {
+				active.incrementAndGet();
+			}
+		}
+		return previous;
+	}
+
+	/**
+	 * The metrics bound to the current thread, or null.
+	 */
+	public static ValidationMetrics getCurrent() {
+		return active.get() == 0 ? null : current.get();
+	}
+
+	/**
+	 * Register a listener notified of the metrics of all validations.
+	 */
+	public static void addListener(MetricsListener listener) {
+		if (listener == null) {
+			throw new NullPointerException();
+		}
+		listeners.add(listener);
+		active.incrementAndGet();
+	}
+
+	public static void removeListener(MetricsListener listener) {
+		if (listeners.remove(listener)) {
+			active.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Whether a listener is registered. Callers test this before computing
+	 * the arguments of a notification.
+	 */
+	public static boolean hasListeners() {
+		return active.get() != 0 && !listeners.isEmpty();
+	}
+
+	/**
+	 * Start timing a phase.
+	 * 
+	 * @return the start time to pass to {@link #stop(String, long)}, or 0 if
+	 *         no metrics are bound to the current thread and no listener is
+	 *         registered.
+	 */
+	public static long start() {
+		if (active.get() == 0) {
+			return 0;
+		}
+		ValidationMetrics metrics = current.get();
+		if (metrics == null && listeners.isEmpty()) {
+			return 0;
+		}
+		long start = System.nanoTime();
+		if (metrics != null && metrics.trackAllocations) {
+			Allocations.get().push(start);
+		}
+		return start;
+	}
+
+	/**
+	 * Stop timing a phase, add its duration to the metrics bound to the
+	 * current thread and notify the listeners.
+	 * 
+	 * @param phase
+	 *            the name of the phase.
+	 * @param start
+	 *            the value returned by {@link #start()}.
+	 */
+	public static void stop(String phase, long start) {
+		if (start == 0) {
+			return;
+		}
+		long duration = System.nanoTime() - start;
+		ValidationMetrics metrics = current.get();
+		if (metrics != null) {
+			long bytes = metrics.trackAllocations ? Allocations.get().pop(start)
+					: -1;
+			metrics.add(phase, duration, bytes);
+		}
+		for (MetricsListener listener : listeners) {
+			listener.phaseTimed(phase, duration);
+		}
+	}
+
+	/**
+	 * Notify the listeners that a book was validated.
+	 */
+	public static void bookValidated(String name, boolean valid, long nanos) {
+		for (MetricsListener listener : listeners) {
+			listener.bookValidated(name, valid, nanos);
+		}
+	}
+
+	/**
+	 * Notify the listeners that a document was parsed.
+	 */
+	public static void documentParsed(String mediaType) {
+		for (MetricsListener listener : listeners) {
+			listener.documentParsed(mediaType);
+		}
+	}
+
+	/**
+	 * Notify the listeners that a compressed entry was opened.
+	 */
+	public static void bytesInflated(String resource, long size) {
+		for (MetricsListener listener : listeners) {
+			listener.bytesInflated(resource, size);
+		}
+	}
+
+	/**
+	 * Notify the listeners that a message was reported.
+	 */
+	public static void messageReported(Severity severity) {
+		for (MetricsListener listener : listeners) {
+			listener.messageReported(severity);
+		}
+	}
+
+	/**
+	 * Notify the listeners that an exception was reported.
+	 */
+	public static void exceptionReported() {
+		for (MetricsListener listener : listeners) {
+			listener.exceptionReported();
+		}
+	}
+
+	/**
+	 * Whether the JVM can count the bytes allocated by a thread.
+	 */
+	public static boolean isAllocationTrackingSupported() {
+		try {
+			return Allocations.BEAN != null;
+		} catch (LinkageError e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Count the bytes allocated in each phase by the threads this metrics
+	 * object is bound to. This is ignored if allocation tracking is not
+	 * supported.
+	 */
+	public void setTrackAllocations(boolean trackAllocations) {
+		this.trackAllocations = trackAllocations
+				&& isAllocationTrackingSupported();
+	}
+
+	public boolean isTrackingAllocations() {
+		return trackAllocations;
+	}
+
+	/**
+	 * Add a timed occurrence of the given phase.
+	 */
+	public void add(String phase, long nanos) {
+		add(phase, nanos, -1);
+	}
+
+	/**
+	 * Add a timed occurrence of the given phase, which allocated the given
+	 * number of bytes, or -1 if unknown.
+	 */
+	public synchronized void add(String phase, long nanos, long bytes) {
+		long[] timing = timings.get(phase);
+		if (timing == null) {
+			timing = new long[3];
+			timings.put(phase, timing);
+		}
+		timing[0]++;
+		timing[1] += nanos;
+		if (bytes > 0) {
+			timing[2] += bytes;
+		}
+	}
+
+	/**
+	 * Record the current number of entries of a structure, keeping the
+	 * largest value recorded.
+	 */
+	public synchronized void recordSize(String structure, long size) {
+		Long peak = sizes.get(structure);
+		if (peak == null || peak.longValue() < size) {
+			sizes.put(structure, Long.valueOf(size));
+		}
+	}
+
+	/**
+	 * The phases timed so far, in the order they were first timed.
+	 */
+	public synchronized List<String> getPhases() {
+		return Collections.unmodifiableList(new ArrayList<String>(timings
+				.keySet()));
+	}
+
+	/**
+	 * The number of times the given phase was timed.
+	 */
+	public synchronized long getCount(String phase) {
+		long[] timing = timings.get(phase);
+		return timing == null ? 0 : timing[0];
+	}
+
+	/**
+	 * The total time spent in the given phase, in nanoseconds.
+	 */
+	public synchronized long getTime(String phase) {
+		long[] timing = timings.get(phase);
+		return timing == null ? 0 : timing[1];
+	}
+
+	/**
+	 * The total number of bytes allocated in the given phase, or 0 if
+	 * allocations are not tracked.
+	 */
+	public synchronized long getAllocatedBytes(String phase) {
+		long[] timing = timings.get(phase);
+		return timing == null ? 0 : timing[2];
+	}
+
+	/**
+	 * The structures whose size was recorded, in the order they were first
+	 * recorded.
+	 */
+	public synchronized List<String> getStructures() {
+		return Collections.unmodifiableList(new ArrayList<String>(sizes
+				.keySet()));
+	}
+
+	/**
+	 * The peak number of entries recorded for the given structure.
+	 */
+	public synchronized long getPeakSize(String structure) {
+		Long peak = sizes.get(structure);
+		return peak == null ? 0 : peak.longValue();
+	}
+
+	public synchronized void reset() {
+		timings.clear();
+		sizes.clear();
+	}
+
+	/**
+	 * A table with one line per phase, giving its total time in milliseconds
+	 * and its number of occurrences.
+	 */
+	@Override
+	public synchronized String toString() {
+		int width = 0;
+		for (String phase : timings.keySet()) {
+			width = Math.max(width, phase.length());
+		}
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, long[]> entry : timings.entrySet()) {
+			long[] timing = entry.getValue();
+			sb.append(String.format("%-" + width + "s %10.1f ms %6d%n",
+					entry.getKey(), timing[1] / 1e6, timing[0]));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * The allocated bytes of the current thread at the start of each phase
+	 * being timed. Phases are nested, but an exception may skip the end of an
+	 * inner phase, so {@link #pop(long)} drops the entries above the one it
+	 * looks for.
+	 */
+	private static class Allocations {
+
+		static final com.sun.management.ThreadMXBean BEAN = lookup();
+
+		private static final ThreadLocal<Allocations> stacks = new ThreadLocal<Allocations>() {
+			@Override
+			protected Allocations initialValue() {
+				return new Allocations();
+			}
+		};
+
+		private long[] starts = new long[16];
+		private long[] bytes = new long[16];
+		private int size;
+
+		static Allocations get() {
+			return stacks.get();
+		}
+
+		private static com.sun.management.ThreadMXBean lookup() {
+			try {
+				java.lang.management.ThreadMXBean bean = ManagementFactory
+						.getThreadMXBean();
+				if (bean instanceof com.sun.management.ThreadMXBean) {
+					com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+					if (sunBean.isThreadAllocatedMemorySupported()) {
+						if (!sunBean.isThreadAllocatedMemoryEnabled()) {
+							sunBean.setThreadAllocatedMemoryEnabled(true);
+						}
+						return sunBean;
+					}
+				}
+			} catch (Throwable t) {
+				// not a HotSpot JVM, or not allowed
+			}
+			return null;
+		}
+
+		private static long allocatedBytes() {
+			return BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+
+		void push(long start) {
+			if (size == starts.length) {
+				long[] larger = new long[size * 2];
+				System.arraycopy(starts, 0, larger, 0, size);
+				starts = larger;
+				larger = new long[size * 2];
+				System.arraycopy(bytes, 0, larger, 0, size);
+				bytes = larger;
+			}
+			starts[size] = start;
+			bytes[size] = allocatedBytes();
+			size++;
+		}
+
+		/**
+		 * The bytes allocated since the phase started at the given time, or -1
+		 * if its start was not pushed.
+		 */
+		long pop(long start) {
+			for (int i = size - 1; i >= 0; i--) {
+				if (starts[i] == start) {
+					size = i;
+					return allocatedBytes() - bytes[i];
+				}
+			}
+			return -1;
+		}
+	}
+}
@@ -28,11 +28,13 @@ import org.idpf.epubcheck.util.css.CssParser;
 import org.idpf.epubcheck.util.css.CssSource;
 
 import com.adobe.epubcheck.api.Report;
+import com.adobe.epubcheck.api.ValidationMetrics;
 import com.adobe.epubcheck.ocf.OCFPackage;
 import com.adobe.epubcheck.opf.ContentChecker;
 import com.adobe.epubcheck.opf.XRefChecker;
 import com.adobe.epubcheck.util.EPUBVersion;
 import com.adobe.epubcheck.util.Messages;
+import com.adobe.epubcheck.util.ReportUtil;
 
 public class CSSChecker implements ContentChecker {
 
@@ -86,23 +88,26 @@ public class CSSChecker implements ContentChecker {
 		try {
 			
 			if (this.mode == Mode.FILE && !ocf.hasEntry(path)) {
-				report.error(null, 0, 0, String.format(Messages.MISSING_FILE, path));
+				ReportUtil.error(report, null, 0, 0, Messages.MISSING_FILE, path);
 				return;
 			}
 									
 			if(this.mode == Mode.FILE) {				
+				if (ValidationMetrics.hasListeners()) {
+					ValidationMetrics.documentParsed("text/css");
+				}
 				source = new CssSource(this.path, ocf.getInputStream(this.path));				
 				String charset;				
 				if(source.getInputStream().getBomCharset().isPresent()) {
 					charset = source.getInputStream().getBomCharset().get().toLowerCase();					
 					if(!charset.equals("utf-8") && !charset.startsWith("utf-16")) {
-						report.error(path, -1, -1, String.format(Messages.UTF_NOT_SUPPORTED_BOM, charset));
+						ReportUtil.error(report, path, -1, -1, Messages.UTF_NOT_SUPPORTED_BOM, charset);
 					}
 				}				
 				if(source.getInputStream().getCssCharset().isPresent()) {
 					charset = source.getInputStream().getCssCharset().get().toLowerCase();
 					if(!charset.equals("utf-8") && !charset.startsWith("utf-16")) {
-						report.error(path, 0, 0, String.format(Messages.UTF_NOT_SUPPORTED, charset));
+						ReportUtil.error(report, path, 0, 0, Messages.UTF_NOT_SUPPORTED, charset);
 					}
 				}
 			} // Mode.FILE
@@ -116,6 +121,7 @@ public class CSSChecker implements ContentChecker {
 				handler.setLineOffset(this.line);
 			}
 			
+			long start = ValidationMetrics.start();
 			if(!isStyleAttribute) {
 				if(this.mode == Mode.FILE) {
 					new CssParser().parse(source, handler, handler);	
@@ -126,6 +132,7 @@ public class CSSChecker implements ContentChecker {
 			} else {
 				new CssParser().parseStyleAttribute(new StringReader(this.value), this.path, handler, handler);
 			}
+			ValidationMetrics.stop(ValidationMetrics.CSS_PARSING, start);
 						
 		} catch (Exception e) {
 			report.error(path, -1, 0, e.getMessage());
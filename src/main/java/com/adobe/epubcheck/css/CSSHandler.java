@@ -3,6 +3,7 @@ package com.adobe.epubcheck.css;
 import java.util.List;
 
 import org.idpf.epubcheck.util.css.CssContentHandler;
+import org.idpf.epubcheck.util.css.CssContentHandler.CssContentFilter;
 import org.idpf.epubcheck.util.css.CssErrorHandler;
 import org.idpf.epubcheck.util.css.CssExceptions.CssException;
 import org.idpf.epubcheck.util.css.CssGrammar.CssAtRule;
@@ -19,9 +20,10 @@ import com.adobe.epubcheck.util.EPUBVersion;
 import com.adobe.epubcheck.util.FeatureEnum;
 import com.adobe.epubcheck.util.Messages;
 import com.adobe.epubcheck.util.PathUtil;
+import com.adobe.epubcheck.util.ReportUtil;
 import com.google.common.base.CharMatcher;
 
-public class CSSHandler implements CssContentHandler, CssErrorHandler {
+public class CSSHandler implements CssContentHandler, CssContentFilter, CssErrorHandler {
 	private final String path;
 	private final XRefChecker xrefChecker;
 	private final Report report;
@@ -105,6 +107,22 @@ public class CSSHandler implements CssContentHandler, CssErrorHandler {
 	public void selectors(List<CssSelector> selectors) {
 		
 	}
+	
+	@Override
+	public boolean wantsSelectors() {
+		return false;
+	}
+
+	@Override
+	public boolean wantsComponents(String propertyName) {
+		//only the properties inspected in #declaration need their values,
+		//for all others the parser retains URIs only
+		return propertyName == "position" 
+				|| propertyName == "font-family"
+				|| propertyName == "font-style"
+				|| propertyName == "font-weight"
+				|| propertyName == "src";
+	}
 
 	@Override
 	public void declaration(CssDeclaration declaration) {
@@ -129,7 +147,7 @@ public class CSSHandler implements CssContentHandler, CssErrorHandler {
 				}
 				
 			} else if (propertyName == "direction" || propertyName == "unicode-bidi") {
-				report.error(path, line, col, String.format(Messages.CSS_PROPERTY_NOT_ALLOWED, propertyName));						
+				ReportUtil.error(report, path, line, col, Messages.CSS_PROPERTY_NOT_ALLOWED, propertyName);						
 			}
 		}
 		
@@ -161,10 +179,9 @@ public class CSSHandler implements CssContentHandler, CssErrorHandler {
 								blessed = OPFChecker30.isBlessedFontType(fontMimeType);
 							}							
 							if(!blessed) {
-								report.warning(path, declaration.getLocation().getLine(), 
+								ReportUtil.warning(report, path, declaration.getLocation().getLine(), 
 				                		   declaration.getLocation().getColumn(), 
-				                		   String.format(Messages.CSS_FONT_MIMETYPE, 
-				                				   fontUri, fontMimeType));
+				                		   Messages.CSS_FONT_MIMETYPE, fontUri, fontMimeType);
 							}						
 						} else {
 							//errors sb reported elsewhere
@@ -34,6 +34,7 @@ import com.adobe.epubcheck.ops.OPSHandler30;
 import com.adobe.epubcheck.util.EPUBVersion;
 import com.adobe.epubcheck.util.GenericResourceProvider;
 import com.adobe.epubcheck.util.Messages;
+import com.adobe.epubcheck.util.ReportUtil;
 import com.adobe.epubcheck.xml.XMLHandler;
 import com.adobe.epubcheck.xml.XMLParser;
 import com.adobe.epubcheck.xml.XMLValidator;
@@ -43,11 +44,9 @@ public class NavChecker implements ContentChecker, DocumentValidator {
 	static XMLValidator navValidator_30_RNC = new XMLValidator(
 			"schema/30/epub-nav-30.rnc");
 
+	// the XHTML and nav rules, checked in a single pass
 	static XMLValidator navValidator_30_ISOSCH = new XMLValidator(
-			"schema/30/epub-nav-30.sch");
-
-	static XMLValidator xhtmlValidator_30_ISOSCH = new XMLValidator(
-			"schema/30/epub-xhtml-30.sch");
+			"schema/30/epub-xhtml-30.sch", "schema/30/epub-nav-30.sch");
 
 	OCFPackage ocf;
 
@@ -93,7 +92,7 @@ public class NavChecker implements ContentChecker, DocumentValidator {
 
 	public void runChecks() {
 		if (!ocf.hasEntry(path))
-			report.error(null, 0, 0, String.format(Messages.MISSING_FILE, path));
+			ReportUtil.error(report, null, 0, 0, Messages.MISSING_FILE, path);
 		else if (!ocf.canDecrypt(path))
 			report.error(null, 0, 0, "Nav file " + path
 					+ " cannot be decrypted");
@@ -103,6 +102,10 @@ public class NavChecker implements ContentChecker, DocumentValidator {
 	}
 
 	public boolean validate() {
+		if (ocf == null) {
+			// a single file validation
+			XMLParser.startValidation(report);
+		}
 		int errors = report.getErrorCount();
 		int warnings = report.getWarningCount();
 		InputStream in = null;
@@ -115,7 +118,6 @@ public class NavChecker implements ContentChecker, DocumentValidator {
 					properties, xrefChecker, navParser, report, version);
 			navParser.addXMLHandler(navHandler);
 			navParser.addValidator(navValidator_30_RNC);
-			navParser.addValidator(xhtmlValidator_30_ISOSCH);
 			navParser.addValidator(navValidator_30_ISOSCH);
 			navParser.process();
 		} catch (IOException e) {
@@ -31,6 +31,7 @@ import com.adobe.epubcheck.opf.ContentChecker;
 import com.adobe.epubcheck.opf.XRefChecker;
 import com.adobe.epubcheck.util.EPUBVersion;
 import com.adobe.epubcheck.util.Messages;
+import com.adobe.epubcheck.util.ReportUtil;
 import com.adobe.epubcheck.xml.XMLParser;
 import com.adobe.epubcheck.xml.XMLValidator;
 
@@ -81,8 +82,8 @@ public class NCXChecker implements ContentChecker {
 				ncxParser.process();
 				
 				if (ocf.getUniqueIdentifier() != null && !ocf.getUniqueIdentifier().equals(ncxHandler.getUid())) {
-					report.warning(path, 0, 0, 
-						String.format(Messages.NCX_BAD_UID, ncxHandler.getUid(), ocf.getUniqueIdentifier()));
+					ReportUtil.warning(report, path, 0, 0, 
+						Messages.NCX_BAD_UID, ncxHandler.getUid(), ocf.getUniqueIdentifier());
 				}
 
 			} catch (IOException e) {
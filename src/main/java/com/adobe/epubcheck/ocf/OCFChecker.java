@@ -33,9 +33,11 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 
 import com.adobe.epubcheck.api.Report;
+import com.adobe.epubcheck.api.ValidationMetrics;
 import com.adobe.epubcheck.opf.OPFChecker;
 import com.adobe.epubcheck.opf.OPFChecker30;
 import com.adobe.epubcheck.opf.OPFData;
@@ -46,6 +48,7 @@ import com.adobe.epubcheck.util.FeatureEnum;
 import com.adobe.epubcheck.util.InvalidVersionException;
 import com.adobe.epubcheck.util.Messages;
 import com.adobe.epubcheck.util.OPSType;
+import com.adobe.epubcheck.util.ReportUtil;
 import com.adobe.epubcheck.xml.XMLHandler;
 import com.adobe.epubcheck.xml.XMLParser;
 import com.adobe.epubcheck.xml.XMLValidator;
@@ -121,7 +124,9 @@ public class OCFChecker {
 		    String formattedDate = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'").format(d);
     		report.info(OCFData.containerEntry, FeatureEnum.CREATION_DATE, formattedDate);
 		}
+		long start = ValidationMetrics.start();
 		OCFData containerHandler = ocf.getOcfData(report);
+		ValidationMetrics.stop(ValidationMetrics.OCF_PARSING, start);
 
 		// retrieve the paths of root files
 		List<String> opfPaths = containerHandler.getEntries(OPFData.OPF_MIME_TYPE);
@@ -175,12 +180,12 @@ public class OCFChecker {
 			// missing file will be reported later
 		}
 		if (version == null && detectedVersion == null) {
-			report.warning(opfPaths.get(0),-1,-1,
-					String.format(Messages.VERSION_NOT_FOUND, EPUBVersion.VERSION_3));
+			ReportUtil.warning(report, opfPaths.get(0),-1,-1,
+					Messages.VERSION_NOT_FOUND, EPUBVersion.VERSION_3);
 			validationVersion = EPUBVersion.VERSION_3;
 		} else if (version != null && version != detectedVersion) {
-			report.warning(opfPaths.get(0), -1, -1, 
-					String.format(Messages.VERSION_MISMATCH, version, detectedVersion));
+			ReportUtil.warning(report, opfPaths.get(0), -1, -1, 
+					Messages.VERSION_MISMATCH, version, detectedVersion);
 			validationVersion = version;
 		} else {
 			validationVersion = detectedVersion;
@@ -215,12 +220,20 @@ public class OCFChecker {
 		
 
 		// Validate the OCF files against the schema definitions
+		if (ReportUtil.isCancelled(report)) {
+			return;
+		}
+		start = ValidationMetrics.start();
 		validate(validationVersion);
+		ValidationMetrics.stop(ValidationMetrics.OCF_VALIDATION, start);
 				
 		
 		// Validate each OPF and keep a reference of the OPFHandler
 		List<OPFHandler> opfHandlers = new LinkedList<OPFHandler>();
 		for (String opfPath : opfPaths) {
+			if (ReportUtil.isCancelled(report)) {
+				return;
+			}
 			if (!ocf.hasEntry(opfPath)) {
 				report.error(OCFData.containerEntry, -1, -1,
 						"Entry '" + opfPath + "' not found in the container.");
@@ -241,52 +254,57 @@ public class OCFChecker {
 		
 		
 		// Check all file and directory entries in the container
+		if (ReportUtil.isCancelled(report)) {
+			return;
+		}
 		try {
-			// Check that the container does not contain duplicate entries
-			Set<String> entriesSet = new HashSet<String>();
+			Set<String> fileEntries = ocf.getFileEntries();
+			Set<String> directoryEntries = ocf.getDirectoryEntries();
+			OCFEntryIndex index = new OCFEntryIndex(fileEntries);
+			Set<String> rootfiles = new HashSet<String>(containerHandler.getEntries());
+			// lower-cased names, mapped to the first entry with that name
+			Map<String, String> entriesMap = new HashMap<String, String>();
 			Set<String> normalizedEntriesSet = new HashSet<String>();
 			for (String entry : ocf.getEntries()) {
-				if (!entriesSet.add(entry.toLowerCase(Locale.ENGLISH))) {
+				// Check that the container does not contain duplicate entries
+				String lowerCase = entry.toLowerCase(Locale.ENGLISH);
+				String previous = entriesMap.get(lowerCase);
+				if (previous == null) {
+					entriesMap.put(lowerCase, entry);
+					if (!normalizedEntriesSet.add(OCFEntryIndex.isASCII(entry) ? entry
+							: Normalizer.normalize(entry, Form.NFC))) {
+						report.warning(null, -1, -1, "Duplicate entry in the ZIP file (after Unicode NFC normalization): "+entry);
+					}
+				} else {
 					report.error(null, -1, -1, "Duplicate entry in the ZIP file: "+entry);
-				} else if (!normalizedEntriesSet.add(Normalizer.normalize(entry, Form.NFC))) {
-					report.warning(null, -1, -1, "Duplicate entry in the ZIP file (after Unicode NFC normalization): "+entry);
-				}
-			}
-			
-			
-			for (String entry : ocf.getFileEntries()) {
-				if (!entry.startsWith("META-INF/")
-						&& !entry.startsWith("META-INF\\")
-						&& !entry.equals("mimetype")
-						&& !containerHandler.getEntries().contains(entry)) {
-					boolean isDeclared = false;
-					for (OPFHandler opfHandler : opfHandlers) {
-						if (opfHandler.getItemByPath(entry) !=null) {
-							isDeclared = true;
-							break;
-						}
+					if (previous.equals(entry)) {
+						// the entry itself was already checked
+						continue;
 					}
-					if (!isDeclared)
-						report.warning(null,-1,-1,
-								"item ("+ entry
-										+ ") exists in the zip file, but is not declared in the OPF file");
 				}
-				OCFFilenameChecker.checkCompatiblyEscaped(entry, report, validationVersion);
-			}
 
-			for (String directory : ocf.getDirectoryEntries()) {
-				boolean hasContents = false;
-				for (String file : ocf.getFileEntries()) {
-					if (file.startsWith(directory)) {
-						hasContents = true;
-						break;
+				if (fileEntries.contains(entry)) {
+					if (!entry.startsWith("META-INF/")
+							&& !entry.startsWith("META-INF\\")
+							&& !entry.equals("mimetype")
+							&& !rootfiles.contains(entry)) {
+						boolean isDeclared = false;
+						for (OPFHandler opfHandler : opfHandlers) {
+							if (opfHandler.getItemByPath(entry) !=null) {
+								isDeclared = true;
+								break;
+							}
+						}
+						if (!isDeclared)
+							ReportUtil.warning(report, null, -1, -1,
+									Messages.OCF_ITEM_NOT_DECLARED, entry);
 					}
-				}
-				if (!hasContents) {
+					OCFFilenameChecker.checkCompatiblyEscaped(entry, report, validationVersion);
+				} else if (directoryEntries.contains(entry)
+						&& !index.hasEntriesUnder(entry)) {
 					report.warning(null, -1, -1,
-							"zip file contains empty directory " + directory);
+							"zip file contains empty directory " + entry);
 				}
-
 			}
 
 		} catch (IOException e) {
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2013 International Digital Publishing Forum
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of
+ *  this software and associated documentation files (the "Software"), to deal in
+ *  the Software without restriction, including without limitation the rights to
+ *  use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ *  the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ *  FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ *  COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ *  IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *  CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.adobe.epubcheck.ocf;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A sorted index of the file entries of a container, built once to answer
+ * the container checks without nested loops over the entries.
+ */
+final class OCFEntryIndex {
+
+	private final String[] files;
+
+	OCFEntryIndex(Collection<String> fileEntries) {
+		files = fileEntries.toArray(new String[fileEntries.size()]);
+		Arrays.sort(files);
+	}
+
+	/**
+	 * Whether the name of a file entry starts with the given directory name.
+	 * The names starting with a prefix are contiguous in the sorted index,
+	 * starting at the insertion point of the prefix.
+	 */
+	boolean hasEntriesUnder(String directory) {
+		int i = Arrays.binarySearch(files, directory);
+		if (i >= 0) {
+			return true;
+		}
+		i = -i - 1;
+		return i < files.length && files[i].startsWith(directory);
+	}
+
+	/**
+	 * Whether the given name only contains ASCII characters, and so needs no
+	 * Unicode normalization.
+	 */
+	static boolean isASCII(String name) {
+		for (int i = 0; i < name.length(); i++) {
+			if (name.charAt(i) >= 0x80) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
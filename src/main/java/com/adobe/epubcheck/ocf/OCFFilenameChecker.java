@@ -5,6 +5,7 @@ import java.util.HashSet;
 import com.adobe.epubcheck.api.Report;
 import com.adobe.epubcheck.util.EPUBVersion;
 import com.adobe.epubcheck.util.Messages;
+import com.adobe.epubcheck.util.ReportUtil;
 
 public final class OCFFilenameChecker {
 	
@@ -21,94 +22,172 @@ public final class OCFFilenameChecker {
 		set.add("TAGS");
 		restricted30CharacterSet = set;
 	}
-	
+
+	// character classes, as bit flags
+	private static final int NON_ASCII = 1;
+	private static final int DISALLOWED = 2; // ASCII graphic characters
+	private static final int SPACE = 4;
+	private static final int CONTROL = 8;
+	private static final int RESTRICTED_30 = 16;
+
+	/**
+	 * The classes of each BMP character, computed once so that a file name
+	 * is checked in a single scan. Supplementary characters are classified
+	 * as they are found.
+	 */
+	private static final byte[] characterClasses = new byte[0x10000];
+
+	static {
+		final char[] ascciGraphic = new char[] { '<', '>', '"', '{', '}', '|',
+				'^', '`', '*', '?' /* , ':','/', '\\' */};
+		for (char a : ascciGraphic) {
+			characterClasses[a] |= DISALLOWED;
+		}
+		for (int c = 0; c < characterClasses.length; c++) {
+			if (c >= 0x80) {
+				characterClasses[c] |= NON_ASCII;
+			}
+			if (Character.isSpaceChar((char) c)) {
+				characterClasses[c] |= SPACE;
+			}
+			if (Character.isISOControl((char) c)) {
+				characterClasses[c] |= CONTROL;
+			}
+			if (isRestricted30Block(c)) {
+				characterClasses[c] |= RESTRICTED_30;
+			}
+		}
+	}
+
 	private OCFFilenameChecker() {
 		// static util
 	}
-	
-	
+
+	private static boolean isRestricted30Block(int codePoint) {
+		Character.UnicodeBlock block = Character.UnicodeBlock.of(codePoint);
+		return block != null && restricted30CharacterSet.contains(block.toString());
+	}
+
+	private static int classOf(int codePoint) {
+		if (codePoint < characterClasses.length) {
+			return characterClasses[codePoint];
+		}
+		return NON_ASCII | (isRestricted30Block(codePoint) ? RESTRICTED_30 : 0);
+	}
+
+	/**
+	 * Whether the string is an absolute URL, that is if it matches
+	 * <code>^[^:/?#]+://.*</code>.
+	 */
+	private static boolean isRemote(String str) {
+		int scheme = str.indexOf("://");
+		if (scheme <= 0) {
+			return false;
+		}
+		for (int i = 0; i < scheme; i++) {
+			char c = str.charAt(i);
+			if (c == ':' || c == '/' || c == '?' || c == '#') {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	public static String checkCompatiblyEscaped(final String str, Report report, EPUBVersion version) {
 		// don't check remote resources
-		if (str.matches("^[^:/?#]+://.*"))
+		if (isRemote(str))
 			return "";
 
+		// find the classes of characters in the name; messages are only built
+		// if one of them needs to be reported
+		int classes = 0;
+		for (int i = 0; i < str.length(); i++) {
+			classes |= characterClasses[str.charAt(i)];
+		}
+		if (version == EPUBVersion.VERSION_3 && (classes & NON_ASCII) != 0) {
+			// look for restricted supplementary characters
+			for (int i = 0; i < str.length(); i += Character.charCount(str.codePointAt(i))) {
+				classes |= classOf(str.codePointAt(i));
+			}
+		}
+		if (classes == 0 && !str.endsWith(".")) {
+			return "";
+		}
+
 		// the test string will be used to compare test result
-		String test = checkNonAsciiFilename(str, report);
+		StringBuilder test = new StringBuilder();
+		if ((classes & NON_ASCII) != 0) {
+			checkNonAsciiFilename(str, report, test);
+		}
 
 		if (str.endsWith(".")) {
 			report.error(str, 0, 0, Messages.FILENAME_ENDS_IN_DOT);
-			test += ".";
+			test.append('.');
 		}
 
-		boolean spaces = false;
-		final char[] ascciGraphic = new char[] { '<', '>', '"', '{', '}', '|',
-				'^', '`', '*', '?' /* , ':','/', '\\' */};
-		String result = "";
-		char[] chars = str.toCharArray();
-		for (int i = 0; i < chars.length; i++) {
-			char c = chars[i];
-			for (char a : ascciGraphic) {
-				if (c == a) {
-					result += "\"" + Character.toString(c) + "\",";
-					test += Character.toString(c);
+		if ((classes & (DISALLOWED | SPACE)) != 0) {
+			StringBuilder result = new StringBuilder();
+			for (int i = 0; i < str.length(); i++) {
+				char c = str.charAt(i);
+				int charClass = characterClasses[c];
+				if ((charClass & DISALLOWED) != 0) {
+					appendQuoted(result, c);
+					test.append(c);
+				}
+				if ((charClass & SPACE) != 0) {
+					test.append(c);
 				}
 			}
-			if (Character.isSpaceChar(c)) {
-				spaces = true;
-				test += Character.toString(c);
+			if (result.length() > 0) {
+				report.error(str, 0, 0, Messages.FILENAME_DISALLOWED_CHARACTERS
+						+ result);
 			}
+			if ((classes & SPACE) != 0)
+				report.warning(str, 0, 0, Messages.SPACES_IN_FILENAME);
 		}
-		if (result.length() > 1) {
-			result = result.substring(0, result.length() - 1);
-			report.error(str, 0, 0, Messages.FILENAME_DISALLOWED_CHARACTERS
-					+ result);
-		}
-		if (spaces)
-			report.warning(str, 0, 0, Messages.SPACES_IN_FILENAME);
 		
-		if (version == EPUBVersion.VERSION_3) {
-			checkCompatiblyEscaped30(str, test, report);
+		if (version == EPUBVersion.VERSION_3
+				&& (classes & (CONTROL | RESTRICTED_30)) != 0) {
+			checkCompatiblyEscaped30(str, report);
 		}
-		return test;
+		return test.toString();
 	}
 	
-	private static String checkNonAsciiFilename(final String str, Report report) {
+	private static void checkNonAsciiFilename(final String str, Report report, StringBuilder test) {
 		// TODO change this from warning to a compatibility hint message level
-	
-		String nonAscii = str.replaceAll("[\\p{ASCII}]", "");
-		if (nonAscii.length() > 0)
-			report.warning(str, 0, 0,
-					String.format(Messages.FILENAME_NON_ASCII, nonAscii));
-		return nonAscii; 
-		
-	}
-	
-	private static String checkCompatiblyEscaped30(String str, String test, Report report) {
-		String result = "";
-
-		char[] chars = str.toCharArray();
-		for (int i = 0; i < chars.length; i++) {
-			char c = chars[i];
 
-			if (Character.isISOControl(c)) {
-				result += "\"" + Character.toString(c) + "\",";
-				test += Character.toString(c);
+		int start = test.length();
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			if (c >= 0x80) {
+				test.append(c);
 			}
-
-			// DEL (U+007F)
-			if (c == '\u007F') {
-				result += "\"" + Character.toString(c) + "\",";
-				test += Character.toString(c);
+		}
+		ReportUtil.warning(report, str, 0, 0,
+				Messages.FILENAME_NON_ASCII, test.substring(start));
+	}
+	
+	private static void checkCompatiblyEscaped30(String str, Report report) {
+		StringBuilder result = new StringBuilder();
+		for (int i = 0; i < str.length();) {
+			int codePoint = str.codePointAt(i);
+			// control characters include DEL (U+007F)
+			if ((classOf(codePoint) & (CONTROL | RESTRICTED_30)) != 0) {
+				appendQuoted(result, codePoint);
 			}
-			String unicodeType = Character.UnicodeBlock.of(c).toString();
-			if (restricted30CharacterSet.contains(unicodeType))
-				result += "\"" + Character.toString(c) + "\",";
+			i += Character.charCount(codePoint);
 		}
-		if (result.length() > 1) {
-			result = result.substring(0, result.length() - 1);
-			report.error(str, 0, 0, Messages.FILENAME_DISALLOWED_CHARACTERS
-					+ result);
+		report.error(str, 0, 0, Messages.FILENAME_DISALLOWED_CHARACTERS
+				+ result);
+	}
+
+	/**
+	 * Append a quoted character to a comma-separated list.
+	 */
+	private static void appendQuoted(StringBuilder list, int codePoint) {
+		if (list.length() > 0) {
+			list.append(',');
 		}
-		return test;
+		list.append('"').appendCodePoint(codePoint).append('"');
 	}
 }
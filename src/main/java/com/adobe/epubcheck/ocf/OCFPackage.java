@@ -10,6 +10,7 @@ import java.util.Map;
 import java.util.Set;
 
 import com.adobe.epubcheck.api.Report;
+import com.adobe.epubcheck.api.ValidationMetrics;
 import com.adobe.epubcheck.opf.OPFData;
 import com.adobe.epubcheck.opf.OPFDataImpl;
 import com.adobe.epubcheck.opf.VersionRetriever;
@@ -133,7 +134,9 @@ public abstract class OCFPackage implements GenericResourceProvider {
     		EPUBVersion version = null;
     		try{
     			inv=getInputStream(opfPath);
+    			long start = ValidationMetrics.start();
     			version = new VersionRetriever(opfPath, reporter).retrieveOpfVersion(inv);
+    			ValidationMetrics.stop(ValidationMetrics.VERSION_RETRIEVAL, start);
     			result.put(opfPath, new OPFDataImpl(version));
     		}finally{
     			try {
@@ -11,6 +11,8 @@ import java.util.Set;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
+import com.adobe.epubcheck.api.ValidationMetrics;
+
 public class OCFZipPackage extends OCFPackage {
 
 	private ZipFile zip;
@@ -67,6 +69,10 @@ public class OCFZipPackage extends OCFPackage {
 	        if (entry == null)
 	            return null;
 	        InputStream in = zip.getInputStream(entry);
+	        if (entry.getMethod() == ZipEntry.DEFLATED
+	        		&& ValidationMetrics.hasListeners()) {
+	        	ValidationMetrics.bytesInflated(name, entry.getSize());
+	        }
 	        EncryptionFilter filter = (EncryptionFilter) enc.get(name);
 	        if (filter == null)
 	            return in;
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2013 International Digital Publishing Forum
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of
+ *  this software and associated documentation files (the "Software"), to deal in
+ *  the Software without restriction, including without limitation the rights to
+ *  use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ *  the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ *  FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ *  COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ *  IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *  CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.adobe.epubcheck.opf;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import com.adobe.epubcheck.util.EPUBVersion;
+
+/**
+ * The graph of the <code>fallback</code> attributes of the manifest items,
+ * built once after the package document is parsed.
+ * <p>
+ * Each item falls back to at most one item, so the strongly connected
+ * components of the graph are single items and simple cycles. They are found
+ * in a single pass, which also computes, for each item, whether its fallback
+ * chain contains a blessed content document or a blessed image, whether an
+ * item of its chain (itself included) has a blessed <code>fallback-style</code>,
+ * and which cycle the chain ends in, if any. The chain of an item stops at a
+ * missing item or at an item with no media type.
+ * </p>
+ */
+final class FallbackGraph {
+
+	private static final int UNVISITED = 0;
+	private static final int ON_PATH = 1;
+	private static final int DONE = 2;
+
+	private final OPFItem[] items;
+	private final Map<OPFItem, Integer> indexes = new IdentityHashMap<OPFItem, Integer>();
+
+	// index of the item each item falls back to, or -1
+	private final int[] next;
+	// index of the first item of the chain that is in a cycle, or -1
+	private final int[] cycleEntry;
+	// for an item in a cycle, the index of the item of the cycle falling back to it, or -1
+	private final int[] cyclePredecessor;
+	private final boolean[] resolvesToItem;
+	private final boolean[] resolvesToImage;
+	private final boolean[] resolvesToStyle;
+
+	FallbackGraph(OPFHandler opfHandler, EPUBVersion version) {
+		int count = opfHandler.getItemCount();
+		items = new OPFItem[count];
+		next = new int[count];
+		cycleEntry = new int[count];
+		cyclePredecessor = new int[count];
+		resolvesToItem = new boolean[count];
+		resolvesToImage = new boolean[count];
+		resolvesToStyle = new boolean[count];
+		for (int i = 0; i < count; i++) {
+			items[i] = opfHandler.getItem(i);
+			indexes.put(items[i], Integer.valueOf(i));
+		}
+
+		boolean[] blessedItem = new boolean[count];
+		boolean[] blessedImage = new boolean[count];
+		boolean[] blessedStyle = new boolean[count];
+		for (int i = 0; i < count; i++) {
+			OPFItem item = items[i];
+			String mimeType = item.getMimeType();
+			if (mimeType != null) {
+				blessedItem[i] = OPFChecker.isBlessedItemType(mimeType, version)
+						|| OPFChecker.isDeprecatedBlessedItemType(mimeType);
+				blessedImage[i] = OPFChecker.isBlessedImageType(mimeType);
+			}
+			next[i] = -1;
+			String fallback = item.getFallback();
+			if (fallback != null) {
+				OPFItem fallbackItem = opfHandler.getItemById(fallback.trim());
+				if (fallbackItem != null && fallbackItem.getMimeType() != null) {
+					next[i] = indexes.get(fallbackItem).intValue();
+				}
+			}
+			String fallbackStyle = item.getFallbackStyle();
+			if (fallbackStyle != null) {
+				OPFItem fallbackStyleItem = opfHandler.getItemById(fallbackStyle);
+				if (fallbackStyleItem != null) {
+					String styleType = fallbackStyleItem.getMimeType();
+					blessedStyle[i] = styleType != null
+							&& (OPFChecker.isBlessedStyleType(styleType) || OPFChecker
+									.isDeprecatedBlessedStyleType(styleType));
+				}
+			}
+			cyclePredecessor[i] = -1;
+		}
+
+		int[] state = new int[count];
+		int[] path = new int[count];
+		int[] position = new int[count];
+		for (int start = 0; start < count; start++) {
+			if (state[start] != UNVISITED) {
+				continue;
+			}
+			// follow the chain until its end, a visited item, or a cycle
+			int length = 0;
+			int node = start;
+			while (node >= 0 && state[node] == UNVISITED) {
+				state[node] = ON_PATH;
+				position[node] = length;
+				path[length++] = node;
+				node = next[node];
+			}
+			if (node >= 0 && state[node] == ON_PATH) {
+				// the chain ends in a new cycle, from its position on the path
+				boolean toItem = false, toImage = false, toStyle = false;
+				for (int i = position[node]; i < length; i++) {
+					int member = path[i];
+					toItem |= blessedItem[member];
+					toImage |= blessedImage[member];
+					toStyle |= blessedStyle[member];
+				}
+				for (int i = position[node]; i < length; i++) {
+					int member = path[i];
+					resolvesToItem[member] = toItem;
+					resolvesToImage[member] = toImage;
+					resolvesToStyle[member] = toStyle;
+					cycleEntry[member] = next[member];
+					cyclePredecessor[next[member]] = member;
+					state[member] = DONE;
+				}
+				length = position[node];
+			}
+			// resolve the rest of the path backwards
+			for (int i = length - 1; i >= 0; i--) {
+				int member = path[i];
+				int target = next[member];
+				if (target < 0) {
+					cycleEntry[member] = -1;
+				} else {
+					resolvesToItem[member] = blessedItem[target]
+							|| resolvesToItem[target];
+					resolvesToImage[member] = blessedImage[target]
+							|| resolvesToImage[target];
+					resolvesToStyle[member] = resolvesToStyle[target];
+					cycleEntry[member] = cyclePredecessor[target] >= 0 ? target
+							: cycleEntry[target];
+				}
+				resolvesToStyle[member] |= blessedStyle[member];
+				state[member] = DONE;
+			}
+		}
+	}
+
+	private int indexOf(OPFItem item) {
+		Integer index = indexes.get(item);
+		if (index == null) {
+			throw new IllegalArgumentException("unknown item: " + item.getId());
+		}
+		return index.intValue();
+	}
+
+	/**
+	 * Whether the fallback chain of the item contains a blessed content
+	 * document.
+	 */
+	boolean resolvesToItem(OPFItem item) {
+		return resolvesToItem[indexOf(item)];
+	}
+
+	/**
+	 * Whether the fallback chain of the item contains a blessed image.
+	 */
+	boolean resolvesToImage(OPFItem item) {
+		return resolvesToImage[indexOf(item)];
+	}
+
+	/**
+	 * Whether the item, or an item of its fallback chain, has a blessed
+	 * style sheet as <code>fallback-style</code>.
+	 */
+	boolean resolvesToStyle(OPFItem item) {
+		return resolvesToStyle[indexOf(item)];
+	}
+
+	/**
+	 * If the fallback chain of the item ends in a cycle, the item of the
+	 * cycle whose fallback closes the chain, else null.
+	 */
+	OPFItem getCircularReference(OPFItem item) {
+		int entry = cycleEntry[indexOf(item)];
+		return entry < 0 ? null : items[cyclePredecessor[entry]];
+	}
+}
@@ -25,6 +25,7 @@ package com.adobe.epubcheck.opf;
 import com.adobe.epubcheck.api.Report;
 import com.adobe.epubcheck.ocf.OCFPackage;
 import com.adobe.epubcheck.util.Messages;
+import com.adobe.epubcheck.util.ReportUtil;
 
 public class GenericContentChecker implements ContentChecker {
 
@@ -40,9 +41,9 @@ public class GenericContentChecker implements ContentChecker {
 
 	public void runChecks() {
 		if (!ocf.hasEntry(path))
-			report.error(null, 0, 0, String.format(Messages.MISSING_RESOURCE, path));
+			ReportUtil.error(report, null, 0, 0, Messages.MISSING_RESOURCE, path);
 		else if (!ocf.canDecrypt(path))
-			report.warning(null, 0, 0, String.format(Messages.RESOURCE_CANNOT_BE_DECRYPTED, path));
+			ReportUtil.warning(report, null, 0, 0, Messages.RESOURCE_CANNOT_BE_DECRYPTED, path);
 	}
 
 }
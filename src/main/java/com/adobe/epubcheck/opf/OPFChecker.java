@@ -25,28 +25,22 @@ package com.adobe.epubcheck.opf;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Hashtable;
-import java.util.List;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Set;
 
 import com.adobe.epubcheck.api.Report;
-import com.adobe.epubcheck.bitmap.BitmapCheckerFactory;
-import com.adobe.epubcheck.css.CSSCheckerFactory;
-import com.adobe.epubcheck.dtbook.DTBookCheckerFactory;
-import com.adobe.epubcheck.nav.NavCheckerFactory;
-import com.adobe.epubcheck.ncx.NCXCheckerFactory;
+import com.adobe.epubcheck.api.ValidationMetrics;
 import com.adobe.epubcheck.ocf.OCFFilenameChecker;
 import com.adobe.epubcheck.ocf.OCFPackage;
-import com.adobe.epubcheck.ops.OPSCheckerFactory;
+import com.adobe.epubcheck.opf.ValidationPlan.ResourceType;
 import com.adobe.epubcheck.util.EPUBVersion;
 import com.adobe.epubcheck.util.FeatureEnum;
 import com.adobe.epubcheck.util.GenericResourceProvider;
 import com.adobe.epubcheck.util.Messages;
 import com.adobe.epubcheck.util.PathUtil;
+import com.adobe.epubcheck.util.ReportUtil;
 import com.adobe.epubcheck.xml.XMLParser;
-import com.adobe.epubcheck.xml.XMLValidator;
 
 public class OPFChecker implements DocumentValidator {
 
@@ -56,39 +50,18 @@ public class OPFChecker implements DocumentValidator {
 
 	String path;
 
-	protected XMLValidator opfValidator = new XMLValidator(
-			"schema/20/rng/opf.rng");
-
-	protected XMLValidator opfSchematronValidator = new XMLValidator(
-			"schema/20/sch/opf.sch");
-
 	XRefChecker xrefChecker;
 
-	protected Hashtable<String, ContentCheckerFactory> contentCheckerFactoryMap;
-
 	OPFHandler opfHandler = null;
 
+	private FallbackGraph fallbackGraph = null;
+
 	protected EPUBVersion version;
 
 	protected GenericResourceProvider resourceProvider = null;
 
 	XMLParser opfParser = null;
 
-	private void initContentCheckerFactoryMap() {
-		Hashtable<String, ContentCheckerFactory> map = new Hashtable<String, ContentCheckerFactory>();
-		map.put("application/xhtml+xml", OPSCheckerFactory.getInstance());
-		map.put("text/html", OPSCheckerFactory.getInstance());
-		map.put("text/x-oeb1-document", OPSCheckerFactory.getInstance());
-		map.put("image/jpeg", BitmapCheckerFactory.getInstance());
-		map.put("image/gif", BitmapCheckerFactory.getInstance());
-		map.put("image/png", BitmapCheckerFactory.getInstance());
-		map.put("image/svg+xml", OPSCheckerFactory.getInstance());
-		map.put("application/x-dtbook+xml", DTBookCheckerFactory.getInstance());
-		map.put("text/css", CSSCheckerFactory.getInstance());
-
-		contentCheckerFactoryMap = map;
-	}
-
 	public OPFChecker(OCFPackage ocf, Report report, String path,
 			EPUBVersion version) {
 		this.ocf = ocf;
@@ -97,7 +70,6 @@ public class OPFChecker implements DocumentValidator {
 		this.path = path;
 		this.xrefChecker = new XRefChecker(ocf, report, version);
 		this.version = version;
-		initContentCheckerFactoryMap();
 	}
 
 	public OPFChecker(String path, GenericResourceProvider resourceProvider,
@@ -107,15 +79,26 @@ public class OPFChecker implements DocumentValidator {
 		this.report = report;
 		this.path = path;
 		this.version = EPUBVersion.VERSION_2;
-		initContentCheckerFactoryMap();
 	}
 
 	public void runChecks() {
 		if (!ocf.hasEntry(path)) {
-			report.error(null, 0, 0, String.format(Messages.OPF_FILE_MISSING, path));
+			ReportUtil.error(report, null, 0, 0, Messages.OPF_FILE_MISSING, path);
 			return;
 		}
 		validate();
+		if (ReportUtil.isCancelled(report)) {
+			return;
+		}
+		ValidationMetrics metrics = ValidationMetrics.getCurrent();
+		if (metrics != null) {
+			metrics.recordSize(ValidationMetrics.OPF_ITEMS,
+					opfHandler.getItemCount());
+			metrics.recordSize(ValidationMetrics.OPF_SPINE_ITEMS,
+					opfHandler.getSpineItemCount());
+			metrics.recordSize(ValidationMetrics.OPF_REFERENCES,
+					opfHandler.getReferenceCount());
+		}
 
 		if (!opfHandler.checkUniqueIdentExists()) {
 			report.error(
@@ -127,8 +110,8 @@ public class OPFChecker implements DocumentValidator {
 			ocf.setUniqueIdentifier(opfHandler.getUid());
 		}
 		if (opfHandler.imageCover != null && !opfHandler.foundImageCover) {
-			report.hint(path,  0, 0, 
-					String.format(Messages.OPF_ID_COVER_NOT_FOUND, opfHandler.imageCover)); 
+			ReportUtil.hint(report, path,  0, 0, 
+					Messages.OPF_ID_COVER_NOT_FOUND, opfHandler.imageCover); 
 		}
 		
 		int itemCount = opfHandler.getItemCount();
@@ -138,8 +121,8 @@ public class OPFChecker implements DocumentValidator {
 			try {
 				xrefChecker.registerResource(item.getPath(),
 						item.getMimeType(), item.isInSpine(),
-						new FallbackChecker().checkItemFallbacks(item, opfHandler, true),
-						new FallbackChecker().checkImageFallbacks(item, opfHandler));
+						checkItemFallbacks(item, true),
+						checkImageFallbacks(item));
 			} catch (IllegalArgumentException e) {
 				report.error(path, item.getLineNumber(),
 						item.getColumnNumber(), e.getMessage());
@@ -153,6 +136,9 @@ public class OPFChecker implements DocumentValidator {
 		checkBindings();
 
 		for (int i = 0; i < itemCount; i++) {
+			if (ReportUtil.isCancelled(report)) {
+				return;
+			}
 			OPFItem item = opfHandler.getItem(i);
 
 			if (!item.path.matches("^[^:/?#]+://.*"))
@@ -197,18 +183,25 @@ public class OPFChecker implements DocumentValidator {
 
 	@Override
 	public boolean validate() {
+		if (ocf == null) {
+			// a single file validation
+			XMLParser.startValidation(report);
+		}
 		int errorsSoFar = report.getErrorCount();
 		int warningsSoFar = report.getWarningCount();
 		
+		long start = ValidationMetrics.start();
 		InputStream in = null;
 		try {
 			in = resourceProvider.getInputStream(path);
 			opfParser = new XMLParser(new BufferedInputStream(in), path, "opf", report, version);
 			initHandler();
+			fallbackGraph = null;
 			opfParser.addXMLHandler(opfHandler);
 
-			opfParser.addValidator(opfValidator);
-			opfParser.addValidator(opfSchematronValidator);
+			ValidationPlan plan = ValidationPlan.get(version);
+			opfParser.addValidator(plan.getPackageValidator());
+			opfParser.addValidator(plan.getPackageSchematronValidator());
 
 			opfParser.process();
 		} catch (IOException e) {
@@ -219,6 +212,7 @@ public class OPFChecker implements DocumentValidator {
 			}catch (Exception e) {
 
 			}
+			ValidationMetrics.stop(ValidationMetrics.OPF_VALIDATION, start);
 		}
 
 		
@@ -255,14 +249,12 @@ public class OPFChecker implements DocumentValidator {
 		if (version == EPUBVersion.VERSION_2) {
 			// check for >1 itemrefs to any given spine item
 			// http://code.google.com/p/epubcheck/issues/detail?id=182
-			List<OPFItem> seen = new ArrayList<OPFItem>();
+			Set<OPFItem> seen = Collections.newSetFromMap(new IdentityHashMap<OPFItem, Boolean>());
 			for (int i = 0; i < opfHandler.getSpineItemCount(); i++) {
 				OPFItem item = opfHandler.getSpineItem(i);
-				if(seen.contains(item)) {
-					report.error(path, item.getLineNumber(), item.getLineNumber(), 
-							String.format(Messages.OPF_SPINE_MULTI_REFS_TO_SAME_ID, item.getId()));
-				} else {
-					seen.add(item);
+				if (!seen.add(item)) {
+					ReportUtil.error(report, path, item.getLineNumber(), item.getLineNumber(), 
+							Messages.OPF_SPINE_MULTI_REFS_TO_SAME_ID, item.getId());
 				}
 			}
 		}
@@ -335,19 +327,19 @@ public class OPFChecker implements DocumentValidator {
 						Messages.OPF_MIMETYPE_TEXTHTML_WRONG_FOR_OEBPS_12);
 				
 			} else if (opfHandler.getOpf20PackageFile()) {
-				report.warning(path, item.getLineNumber(), item.getColumnNumber(),
-						String.format(Messages.OPF_MIMETYPE_DEPRECATED, mimeType));
+				ReportUtil.warning(report, path, item.getLineNumber(), item.getColumnNumber(),
+						Messages.OPF_MIMETYPE_DEPRECATED, mimeType);
 			}
 		}
 		
 		if (opfHandler.getOpf12PackageFile() && fallback == null) {
 			if (isBlessedItemType(mimeType, version)) {
-				report.warning(path, item.getLineNumber(), item.getColumnNumber(),
-						String.format(Messages.OPF_MIMETYPE_IS_BLESSED_ITEM_TYPE, mimeType));
+				ReportUtil.warning(report, path, item.getLineNumber(), item.getColumnNumber(),
+						Messages.OPF_MIMETYPE_IS_BLESSED_ITEM_TYPE, mimeType);
 				
 			} else if (isBlessedStyleType(mimeType)) {
-				report.warning(path, item.getLineNumber(), item.getColumnNumber(),
-						String.format(Messages.OPF_MIMETYPE_IS_BLESSED_STYLE_TYPE, mimeType));
+				ReportUtil.warning(report, path, item.getLineNumber(), item.getColumnNumber(),
+						Messages.OPF_MIMETYPE_IS_BLESSED_STYLE_TYPE, mimeType);
 			}
 		}
 		
@@ -375,23 +367,15 @@ public class OPFChecker implements DocumentValidator {
 		String properties = item.getProperties();
 		
 		if (mimeType != null) {
-			ContentCheckerFactory checkerFactory;
-			if (item.isNcx()) {
-				checkerFactory = NCXCheckerFactory.getInstance();
-			} else if (item.isNav()) {
-				checkerFactory = NavCheckerFactory.getInstance();	
-			} else {
-				checkerFactory = (ContentCheckerFactory) contentCheckerFactoryMap.get(mimeType);
-			}
-			
-			if (checkerFactory == null) {
-				checkerFactory = GenericContentCheckerFactory.getInstance();
-			}
-			if (checkerFactory != null) {
-				ContentChecker checker = checkerFactory.newInstance(ocf,
-						report, path, mimeType, properties, xrefChecker,
-						version);
-				checker.runChecks();
+			ContentCheckerFactory checkerFactory = ValidationPlan.get(version)
+					.getContentCheckerFactory(ResourceType.of(item));
+			ContentChecker checker = checkerFactory.newInstance(ocf, report,
+					path, mimeType, properties, xrefChecker, version);
+			long start = ValidationMetrics.start();
+			checker.runChecks();
+			if (start != 0) {
+				ValidationMetrics.stop(ValidationMetrics.CONTENT_CHECK
+						+ checker.getClass().getSimpleName(), start);
 			}
 		}
 	}
@@ -410,102 +394,69 @@ public class OPFChecker implements DocumentValidator {
 					|| isDeprecatedBlessedStyleType(mimeType)
 					|| isBlessedImageType(mimeType)) {
 				
-				report.error(path, item.getLineNumber(), item.getColumnNumber(),
-						String.format(Messages.OPF_MIMETYPE_NOT_PERMISSIBLE_IN_SPINE, mimeType));
+				ReportUtil.error(report, path, item.getLineNumber(), item.getColumnNumber(),
+						Messages.OPF_MIMETYPE_NOT_PERMISSIBLE_IN_SPINE, mimeType);
 			
 			} else if (!isBlessedItemType(mimeType, version)
 					&& !isDeprecatedBlessedItemType(mimeType)
 					&& item.getFallback() == null) {
 				
-				report.error(path, item.getLineNumber(), item.getColumnNumber(),
-						String.format(Messages.OPF_SPINE_NONSTANDARD_MIMETYPE_WITHOUT_FALLBACK, mimeType));
+				ReportUtil.error(report, path, item.getLineNumber(), item.getColumnNumber(),
+						Messages.OPF_SPINE_NONSTANDARD_MIMETYPE_WITHOUT_FALLBACK, mimeType);
 			
 			} else if (!isBlessedItemType(mimeType, version)
 					&& !isDeprecatedBlessedItemType(mimeType)
-					&& !new FallbackChecker().checkItemFallbacks(item, opfHandler, true)) {
+					&& !checkItemFallbacks(item, true)) {
 				
-				report.error(path, item.getLineNumber(), item.getColumnNumber(),
-						String.format(Messages.OPF_SPINE_NONSTANDARD_MIMETYPE_WITH_NOTALLOWED_FALLBACK, mimeType));
+				ReportUtil.error(report, path, item.getLineNumber(), item.getColumnNumber(),
+						Messages.OPF_SPINE_NONSTANDARD_MIMETYPE_WITH_NOTALLOWED_FALLBACK, mimeType);
 			}
 		}
 	}
 	
-	class FallbackChecker {
-		private Set<String> checked;
-		
-		public FallbackChecker() {
-			checked = new HashSet<String>();
+	/**
+	 * The fallback graph of the manifest, built the first time it is needed.
+	 */
+	FallbackGraph getFallbackGraph() {
+		if (fallbackGraph == null) {
+			fallbackGraph = new FallbackGraph(opfHandler, version);
 		}
-		
-		protected boolean checkItemFallbacks(OPFItem item, OPFHandler opfHandler, boolean checkFallbackStyle) {
-			String fallback = item.getFallback();			
-			if (fallback != null) {
-				fallback = fallback.trim();
-				if(checked.contains(fallback)) {
-					report.error(path, item.getLineNumber(), item.getColumnNumber(), 
-							Messages.OPF_FALLBACK_CIRCULAR_REF);
-					return false;
-				} else {
-					checked.add(fallback);
-				}
-				
-				OPFItem fallbackItem = opfHandler.getItemById(fallback);
-				if (fallbackItem != null) {
-					String mimeType = fallbackItem.getMimeType();
-					if (mimeType != null) {
-						if (isBlessedItemType(mimeType, version)
-								|| isDeprecatedBlessedItemType(mimeType)) {						
-							return true;
-						}	
-						if (checkItemFallbacks(fallbackItem, opfHandler, checkFallbackStyle)) {
-							return true;						
-						}
-							
-					}
-				}								
-			}
-			if(!checkFallbackStyle) {
-				return false;
-			}
-			
-			String fallbackStyle = item.getFallbackStyle();
-			if (fallbackStyle != null) {
-				OPFItem fallbackStyleItem = opfHandler.getItemById(fallbackStyle);
-				if (fallbackStyleItem != null) {
-					String mimeType = fallbackStyleItem.getMimeType();
-					if (mimeType != null) {
-						if (isBlessedStyleType(mimeType)
-								|| isDeprecatedBlessedStyleType(mimeType))
-							return true;
-					}
-				}
-			}
-			return false;
+		return fallbackGraph;
+	}
+
+	/**
+	 * Whether the fallback chain of the item resolves to a blessed content
+	 * document, or to a blessed style sheet if checkFallbackStyle is true.
+	 * Reports a circular fallback chain unless it contains a blessed content
+	 * document.
+	 */
+	protected boolean checkItemFallbacks(OPFItem item, boolean checkFallbackStyle) {
+		FallbackGraph graph = getFallbackGraph();
+		if (graph.resolvesToItem(item)) {
+			return true;
 		}
-	
-		protected boolean checkImageFallbacks(OPFItem item, OPFHandler opfHandler) {
-			String fallback = item.getFallback();
-			if (fallback != null) {
-				fallback = fallback.trim();
-				if(checked.contains(fallback)) {
-					report.error(path, item.getLineNumber(), item.getColumnNumber(),
-							Messages.OPF_FALLBACK_CIRCULAR_REF);
-					return false;
-				} else {
-					checked.add(fallback);
-				}
-				OPFItem fallbackItem = opfHandler.getItemById(fallback);
-				if (fallbackItem != null) {
-					String mimeType = fallbackItem.getMimeType();
-					if (mimeType != null) {
-						if (isBlessedImageType(mimeType))
-							return true;
-						if (checkImageFallbacks(fallbackItem, opfHandler))
-							return true;
-					}
-				}
-			}
-			return false;
+		reportCircularFallback(graph, item);
+		return checkFallbackStyle && graph.resolvesToStyle(item);
+	}
+
+	/**
+	 * Whether the fallback chain of the item resolves to a blessed image.
+	 * Reports a circular fallback chain unless it contains a blessed image.
+	 */
+	protected boolean checkImageFallbacks(OPFItem item) {
+		FallbackGraph graph = getFallbackGraph();
+		if (graph.resolvesToImage(item)) {
+			return true;
+		}
+		reportCircularFallback(graph, item);
+		return false;
+	}
+
+	private void reportCircularFallback(FallbackGraph graph, OPFItem item) {
+		OPFItem circular = graph.getCircularReference(item);
+		if (circular != null) {
+			report.error(path, circular.getLineNumber(), circular.getColumnNumber(),
+					Messages.OPF_FALLBACK_CIRCULAR_REF);
 		}
 	}
 }
@@ -22,38 +22,18 @@
 
 package com.adobe.epubcheck.opf;
 
-import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.Set;
 
 import com.adobe.epubcheck.api.Report;
-import com.adobe.epubcheck.bitmap.BitmapCheckerFactory;
-import com.adobe.epubcheck.css.CSSCheckerFactory;
-import com.adobe.epubcheck.dtbook.DTBookCheckerFactory;
 import com.adobe.epubcheck.ocf.OCFPackage;
-import com.adobe.epubcheck.ops.OPSCheckerFactory;
-import com.adobe.epubcheck.overlay.OverlayCheckerFactory;
 import com.adobe.epubcheck.util.EPUBVersion;
 import com.adobe.epubcheck.util.GenericResourceProvider;
 import com.adobe.epubcheck.util.Messages;
-import com.adobe.epubcheck.xml.XMLValidator;
+import com.adobe.epubcheck.util.ReportUtil;
 
 public class OPFChecker30 extends OPFChecker implements DocumentValidator {
 
-	private void initContentCheckerFactoryMap() {
-		Hashtable<String, ContentCheckerFactory> map = contentCheckerFactoryMap;
-		map.clear();
-		map.put("application/xhtml+xml", OPSCheckerFactory.getInstance());
-		map.put("application/x-dtbook+xml", DTBookCheckerFactory.getInstance());
-		map.put("image/jpeg", BitmapCheckerFactory.getInstance());
-		map.put("image/gif", BitmapCheckerFactory.getInstance());
-		map.put("image/png", BitmapCheckerFactory.getInstance());
-		map.put("image/svg+xml", OPSCheckerFactory.getInstance());
-		map.put("text/css", CSSCheckerFactory.getInstance());
-		map.put("application/smil+xml", OverlayCheckerFactory.getInstance());
-		contentCheckerFactoryMap = map;
-	}
-
 	public OPFChecker30(OCFPackage ocf, Report report, String path,
 			EPUBVersion version) {
 		super(ocf, report, path, version);
@@ -63,8 +43,6 @@ public class OPFChecker30 extends OPFChecker implements DocumentValidator {
 		this.path = path;
 		this.xrefChecker = new XRefChecker(ocf, report, version);
 		this.version = version;
-		initValidators();
-		initContentCheckerFactoryMap();
 	}
 
 	public OPFChecker30(String path, GenericResourceProvider resourceProvider,
@@ -74,14 +52,6 @@ public class OPFChecker30 extends OPFChecker implements DocumentValidator {
 		this.report = report;
 		this.path = path;
 		this.version = EPUBVersion.VERSION_3;
-		initValidators();
-		initContentCheckerFactoryMap();
-	}
-
-	private void initValidators() {
-		opfValidator = new XMLValidator("schema/30/package-30.rnc");
-		opfSchematronValidator = new XMLValidator(
-				"schema/30/package-30.sch");
 	}
 
 	@Override
@@ -127,12 +97,12 @@ public class OPFChecker30 extends OPFChecker implements DocumentValidator {
 			return;
 
 		if (item.getFallback() == null)
-			report.error(path, item.getLineNumber(), item.getColumnNumber(),
-					String.format(Messages.OPF_SPINE_NONSTANDARD_MIMETYPE_WITHOUT_FALLBACK, mimeType));
+			ReportUtil.error(report, path, item.getLineNumber(), item.getColumnNumber(),
+					Messages.OPF_SPINE_NONSTANDARD_MIMETYPE_WITHOUT_FALLBACK, mimeType);
 
-		else if (!new FallbackChecker().checkItemFallbacks(item, opfHandler, false))
-			report.error(path, item.getLineNumber(), item.getColumnNumber(),
-					String.format(Messages.OPF_SPINE_NONSTANDARD_MIMETYPE_WITH_NOTALLOWED_FALLBACK, mimeType));
+		else if (!checkItemFallbacks(item, false))
+			ReportUtil.error(report, path, item.getLineNumber(), item.getColumnNumber(),
+					Messages.OPF_SPINE_NONSTANDARD_MIMETYPE_WITH_NOTALLOWED_FALLBACK, mimeType);
 	}
 
 	@Override
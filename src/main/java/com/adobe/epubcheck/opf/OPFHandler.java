@@ -35,6 +35,7 @@ import com.adobe.epubcheck.util.FeatureEnum;
 import com.adobe.epubcheck.util.InvalidDateException;
 import com.adobe.epubcheck.util.Messages;
 import com.adobe.epubcheck.util.PathUtil;
+import com.adobe.epubcheck.util.ReportUtil;
 import com.adobe.epubcheck.xml.XMLElement;
 import com.adobe.epubcheck.xml.XMLHandler;
 import com.adobe.epubcheck.xml.XMLParser;
@@ -328,8 +329,8 @@ public class OPFHandler implements XMLHandler {
 					
 					toc = (OPFItem) itemMapById.get(idref);
 					if (toc == null)
-						report.error(path, parser.getLineNumber(), parser.getColumnNumber(),
-								String.format(Messages.OPF_ITEM_WITH_ID_NOT_FOUND, idref));
+						ReportUtil.error(report, path, parser.getLineNumber(), parser.getColumnNumber(),
+								Messages.OPF_ITEM_WITH_ID_NOT_FOUND, idref);
 					else {
 						toc.setNcx(true);
 						if (toc.getMimeType() != null
@@ -357,8 +358,8 @@ public class OPFHandler implements XMLHandler {
 						}
 
 					} else {
-						report.error(path, parser.getLineNumber(), parser.getColumnNumber(),
-								String.format(Messages.OPF_ITEM_WITH_ID_NOT_FOUND, idref));
+						ReportUtil.error(report, path, parser.getLineNumber(), parser.getColumnNumber(),
+								Messages.OPF_ITEM_WITH_ID_NOT_FOUND, idref);
 					}
 				}
 				
@@ -369,8 +370,8 @@ public class OPFHandler implements XMLHandler {
 				}
 			} else if (name.equals("dc-metadata") || name.equals("x-metadata")) {
 				if (!opf12PackageFile)
-					report.error(path, parser.getLineNumber(), parser.getColumnNumber(),
-							String.format(Messages.OPF_DEPRECATED_ELEMENT, name));
+					ReportUtil.error(report, path, parser.getLineNumber(), parser.getColumnNumber(),
+							Messages.OPF_DEPRECATED_ELEMENT, name);
 			}
 			
 		} else if (ns.equals("http://purl.org/dc/elements/1.1/")) {
@@ -392,8 +393,8 @@ public class OPFHandler implements XMLHandler {
 						"role");
 				if (role != null && !role.equals("")) {
 					if (!isValidRole(role))
-						report.error(path, parser.getLineNumber(), parser.getColumnNumber(),
-								String.format(Messages.OPF_DC_ROLE_VALUE_INVALID, role));
+						ReportUtil.error(report, path, parser.getLineNumber(), parser.getColumnNumber(),
+								Messages.OPF_DC_ROLE_VALUE_INVALID, role);
 				}
 			}
 
@@ -493,17 +494,17 @@ public class OPFHandler implements XMLHandler {
 
 				if (!valid) {
 					if (this.version == EPUBVersion.VERSION_3) {
-						report.warning(
+						ReportUtil.warning(report,
 								path,
 								parser.getLineNumber(),
 								parser.getColumnNumber(),
-								String.format(Messages.OPF_EPUB3_META_DATE_INVALID, (dateval == null ? "" : dateval), detail));
+								Messages.OPF_EPUB3_META_DATE_INVALID, (dateval == null ? "" : dateval), detail);
 					} else {
-						report.error(
+						ReportUtil.error(report,
 								path,
 								parser.getLineNumber(),
 								parser.getColumnNumber(),
-								String.format(Messages.OPF_EPUB2_META_DATE_INVALID, (dateval == null ? "" : dateval), detail));
+								Messages.OPF_EPUB2_META_DATE_INVALID, (dateval == null ? "" : dateval), detail);
 					}
 				}
 			} else if (name.equals("title") || name.equals("language")) {
@@ -527,8 +528,8 @@ public class OPFHandler implements XMLHandler {
 				if (version == EPUBVersion.VERSION_2) {
 					String value = (String) e.getPrivateData();
 					if (value == null || value.trim().length() < 1) {
-						report.warning(path, parser.getLineNumber(), parser.getColumnNumber(),
-								String.format(Messages.OPF_EMPTY_ELEMENT, name));
+						ReportUtil.warning(report, path, parser.getLineNumber(), parser.getColumnNumber(),
+								Messages.OPF_EMPTY_ELEMENT, name);
 					}
 				}
 			} else if (name.equals("creator")) {
@@ -35,6 +35,7 @@ import com.adobe.epubcheck.util.HandlerUtil;
 import com.adobe.epubcheck.util.Messages;
 import com.adobe.epubcheck.util.MetaUtils;
 import com.adobe.epubcheck.util.PathUtil;
+import com.adobe.epubcheck.util.ReportUtil;
 import com.adobe.epubcheck.xml.XMLElement;
 import com.adobe.epubcheck.xml.XMLParser;
 
@@ -146,15 +147,15 @@ public class OPFHandler30 extends OPFHandler {
 			return;
 
 		if (OPFChecker30.isCoreMediaType(mimeType)) {
-			report.error(path, parser.getLineNumber(), parser.getColumnNumber(),
-					String.format(Messages.OPF_MIMETYPE_IS_CORE_MEDIATYPE, mimeType));
+			ReportUtil.error(report, path, parser.getLineNumber(), parser.getColumnNumber(),
+					Messages.OPF_MIMETYPE_IS_CORE_MEDIATYPE, mimeType);
 			return;
 		}
 
 		if (xrefChecker != null
 				&& xrefChecker.getBindingHandlerSrc(mimeType) != null) {
-			report.error(path, parser.getLineNumber(), parser.getColumnNumber(),
-					String.format(Messages.OPF_MIMETYPE_HANDLER_ALREADY_ASSIGNED, mimeType));
+			ReportUtil.error(report, path, parser.getLineNumber(), parser.getColumnNumber(),
+					Messages.OPF_MIMETYPE_HANDLER_ALREADY_ASSIGNED, mimeType);
 			return;
 		}
 
@@ -230,8 +231,8 @@ public class OPFHandler30 extends OPFHandler {
 					break;
 				}
 			if (!match)
-				report.error(path, parser.getLineNumber(), parser.getColumnNumber(),
-						String.format(Messages.OPF_ITEM_PROPERTY_NOT_DEFINED, propertyValue, mimeType));
+				ReportUtil.error(report, path, parser.getLineNumber(), parser.getColumnNumber(),
+						Messages.OPF_ITEM_PROPERTY_NOT_DEFINED, propertyValue, mimeType);
 
 		}
 	}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2013 International Digital Publishing Forum
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of
+ *  this software and associated documentation files (the "Software"), to deal in
+ *  the Software without restriction, including without limitation the rights to
+ *  use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ *  the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ *  FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ *  COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ *  IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *  CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.adobe.epubcheck.opf;
+
+import com.adobe.epubcheck.bitmap.BitmapCheckerFactory;
+import com.adobe.epubcheck.css.CSSCheckerFactory;
+import com.adobe.epubcheck.dtbook.DTBookCheckerFactory;
+import com.adobe.epubcheck.nav.NavCheckerFactory;
+import com.adobe.epubcheck.ncx.NCXCheckerFactory;
+import com.adobe.epubcheck.ops.OPSCheckerFactory;
+import com.adobe.epubcheck.overlay.OverlayCheckerFactory;
+import com.adobe.epubcheck.util.EPUBVersion;
+import com.adobe.epubcheck.xml.XMLValidator;
+
+/**
+ * The routing of the resources of a publication to their content checkers
+ * and schemas, built once for each EPUB version.
+ * <p>
+ * Resources are classified by {@link ResourceType}, and the plan of a version
+ * is a table indexed by the ordinal of the type, so that finding the checker
+ * of a resource neither allocates nor hashes. Plans are immutable and shared
+ * by all validations. The package document schemas are compiled the first time
+ * a package document of their version is validated.
+ * </p>
+ */
+public final class ValidationPlan {
+
+	/**
+	 * The kinds of resources routed to a content checker.
+	 */
+	public enum ResourceType {
+		XHTML("application/xhtml+xml"),
+		HTML("text/html"),
+		OEB1_DOCUMENT("text/x-oeb1-document"),
+		SVG("image/svg+xml"),
+		DTBOOK("application/x-dtbook+xml"),
+		JPEG("image/jpeg"),
+		GIF("image/gif"),
+		PNG("image/png"),
+		CSS("text/css"),
+		MEDIA_OVERLAY("application/smil+xml"),
+		NCX(null),
+		NAV(null),
+		OTHER(null);
+
+		private static final ResourceType[] mediaTypes = { XHTML, HTML,
+				OEB1_DOCUMENT, SVG, DTBOOK, JPEG, GIF, PNG, CSS, MEDIA_OVERLAY };
+
+		private final String mimeType;
+
+		private ResourceType(String mimeType) {
+			this.mimeType = mimeType;
+		}
+
+		/**
+		 * The media type of the resources of this type, or null if this type is
+		 * not identified by its media type.
+		 */
+		public String getMimeType() {
+			return mimeType;
+		}
+
+		/**
+		 * The type of a resource with the given media type.
+		 */
+		public static ResourceType of(String mimeType) {
+			if (mimeType != null) {
+				for (int i = 0; i < mediaTypes.length; i++) {
+					if (mediaTypes[i].mimeType.equals(mimeType)) {
+						return mediaTypes[i];
+					}
+				}
+			}
+			return OTHER;
+		}
+
+		/**
+		 * The type of the given manifest item, taking its NCX and navigation
+		 * document flags into account.
+		 */
+		public static ResourceType of(OPFItem item) {
+			if (item.isNcx()) {
+				return NCX;
+			} else if (item.isNav()) {
+				return NAV;
+			}
+			return of(item.getMimeType());
+		}
+	}
+
+	private static final ValidationPlan[] plans = new ValidationPlan[EPUBVersion
+			.values().length];
+
+	static {
+		ContentCheckerFactory[] epub2 = newFactories();
+		epub2[ResourceType.HTML.ordinal()] = OPSCheckerFactory.getInstance();
+		epub2[ResourceType.OEB1_DOCUMENT.ordinal()] = OPSCheckerFactory
+				.getInstance();
+		plans[EPUBVersion.VERSION_2.ordinal()] = new ValidationPlan(
+				EPUBVersion.VERSION_2, epub2);
+
+		ContentCheckerFactory[] epub3 = newFactories();
+		epub3[ResourceType.MEDIA_OVERLAY.ordinal()] = OverlayCheckerFactory
+				.getInstance();
+		plans[EPUBVersion.VERSION_3.ordinal()] = new ValidationPlan(
+				EPUBVersion.VERSION_3, epub3);
+	}
+
+	/**
+	 * The factories common to all versions.
+	 */
+	private static ContentCheckerFactory[] newFactories() {
+		ContentCheckerFactory[] factories = new ContentCheckerFactory[ResourceType
+				.values().length];
+		for (int i = 0; i < factories.length; i++) {
+			factories[i] = GenericContentCheckerFactory.getInstance();
+		}
+		factories[ResourceType.XHTML.ordinal()] = OPSCheckerFactory
+				.getInstance();
+		factories[ResourceType.SVG.ordinal()] = OPSCheckerFactory.getInstance();
+		factories[ResourceType.DTBOOK.ordinal()] = DTBookCheckerFactory
+				.getInstance();
+		factories[ResourceType.JPEG.ordinal()] = BitmapCheckerFactory
+				.getInstance();
+		factories[ResourceType.GIF.ordinal()] = BitmapCheckerFactory
+				.getInstance();
+		factories[ResourceType.PNG.ordinal()] = BitmapCheckerFactory
+				.getInstance();
+		factories[ResourceType.CSS.ordinal()] = CSSCheckerFactory.getInstance();
+		factories[ResourceType.NCX.ordinal()] = NCXCheckerFactory.getInstance();
+		factories[ResourceType.NAV.ordinal()] = NavCheckerFactory.getInstance();
+		return factories;
+	}
+
+	private static class PackageSchemas20 {
+		static final XMLValidator rng = new XMLValidator("schema/20/rng/opf.rng");
+		static final XMLValidator sch = new XMLValidator("schema/20/sch/opf.sch");
+	}
+
+	private static class PackageSchemas30 {
+		static final XMLValidator rnc = new XMLValidator(
+				"schema/30/package-30.rnc");
+		static final XMLValidator sch = new XMLValidator(
+				"schema/30/package-30.sch");
+	}
+
+	private final EPUBVersion version;
+	private final ContentCheckerFactory[] factories;
+
+	private ValidationPlan(EPUBVersion version,
+			ContentCheckerFactory[] factories) {
+		this.version = version;
+		this.factories = factories;
+	}
+
+	/**
+	 * The plan of the given version.
+	 */
+	public static ValidationPlan get(EPUBVersion version) {
+		return plans[version.ordinal()];
+	}
+
+	public EPUBVersion getVersion() {
+		return version;
+	}
+
+	/**
+	 * The factory of the checkers of the given type of resource; never null.
+	 */
+	public ContentCheckerFactory getContentCheckerFactory(ResourceType type) {
+		return factories[type.ordinal()];
+	}
+
+	/**
+	 * The grammar of the package document.
+	 */
+	public XMLValidator getPackageValidator() {
+		return version == EPUBVersion.VERSION_2 ? PackageSchemas20.rng
+				: PackageSchemas30.rnc;
+	}
+
+	/**
+	 * The Schematron rules of the package document.
+	 */
+	public XMLValidator getPackageSchematronValidator() {
+		return version == EPUBVersion.VERSION_2 ? PackageSchemas20.sch
+				: PackageSchemas30.sch;
+	}
+}
@@ -25,11 +25,15 @@ package com.adobe.epubcheck.opf;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
+import org.idpf.epubcheck.util.EncodingSniffer;
+import org.idpf.epubcheck.util.EncodingSniffer.PreludeInputStream;
 import org.xml.sax.Attributes;
 import org.xml.sax.EntityResolver;
 import org.xml.sax.ErrorHandler;
@@ -43,8 +47,24 @@ import com.adobe.epubcheck.util.EPUBVersion;
 import com.adobe.epubcheck.util.FeatureEnum;
 import com.adobe.epubcheck.util.InvalidVersionException;
 
+/**
+ * Retrieves the version of a package document from the <code>version</code>
+ * attribute of its root element.
+ * <p>
+ * The prolog and the root start tag are first scanned directly from the first
+ * bytes of the document. If they do not fit in these bytes, or use any
+ * construct the scanner does not handle (another encoding than UTF-8 or
+ * ASCII, an internal DTD subset, entity references, prefixed names...), the
+ * document is parsed with SAX instead.
+ * </p>
+ */
 public class VersionRetriever implements EntityResolver, ErrorHandler {
 
+	/**
+	 * The number of bytes scanned for the root start tag.
+	 */
+	static final int PROLOG_SIZE = 4096;
+
 	private class OPFhandler extends DefaultHandler {
 		@Override
 		public void startElement(String uri, String localName, String qName,
@@ -84,6 +104,24 @@ public class VersionRetriever implements EntityResolver, ErrorHandler {
 
 	public EPUBVersion retrieveOpfVersion(InputStream inputStream)
 			throws InvalidVersionException {
+		PreludeInputStream prelude;
+		try {
+			prelude = new PreludeInputStream(inputStream, PROLOG_SIZE);
+		} catch (IOException e) {
+			report.error(path, 0, 0, e.getMessage());
+			throw new InvalidVersionException(
+					InvalidVersionException.VERSION_NOT_FOUND);
+		}
+		String result = new PrologScanner(prelude.getPrelude(),
+				prelude.getPreludeLength()).scan();
+		if (result != null) {
+			return toVersion(result);
+		}
+		return parseOpfVersion(prelude);
+	}
+
+	private EPUBVersion parseOpfVersion(InputStream inputStream)
+			throws InvalidVersionException {
 
 		SAXParserFactory factory = SAXParserFactory.newInstance();
 		factory.setNamespaceAware(true);
@@ -104,24 +142,15 @@ public class VersionRetriever implements EntityResolver, ErrorHandler {
 		} catch (ParserConfigurationException e) {
 			report.exception(path, e);
 		} catch (SAXException e) {
-			if (VERSION_3.equals(e.getMessage())) {
-			    report.info(null, FeatureEnum.FORMAT_VERSION, EPUBVersion.VERSION_3.toString());
-				return EPUBVersion.VERSION_3;
-			} else if (VERSION_2.equals(e.getMessage())) {
-                report.info(null, FeatureEnum.FORMAT_VERSION, EPUBVersion.VERSION_2.toString());
-				return EPUBVersion.VERSION_2;
-			} else if (InvalidVersionException.UNSUPPORTED_VERSION.equals(e
-					.getMessage()))
-				throw new InvalidVersionException(
-						InvalidVersionException.UNSUPPORTED_VERSION);
-			else if (InvalidVersionException.VERSION_ATTRIBUTE_NOT_FOUND
-					.equals(e.getMessage()))
-				throw new InvalidVersionException(
-						InvalidVersionException.VERSION_ATTRIBUTE_NOT_FOUND);
-			else if (InvalidVersionException.PACKAGE_ELEMENT_NOT_FOUND.equals(e
-					.getMessage()))
-				throw new InvalidVersionException(
-						InvalidVersionException.PACKAGE_ELEMENT_NOT_FOUND);
+			if (VERSION_3.equals(e.getMessage())
+					|| VERSION_2.equals(e.getMessage())
+					|| InvalidVersionException.UNSUPPORTED_VERSION.equals(e
+							.getMessage())
+					|| InvalidVersionException.VERSION_ATTRIBUTE_NOT_FOUND
+							.equals(e.getMessage())
+					|| InvalidVersionException.PACKAGE_ELEMENT_NOT_FOUND
+							.equals(e.getMessage()))
+				return toVersion(e.getMessage());
 			else
 				report.exception(path, e);
 		} catch (IOException e) {
@@ -131,6 +160,23 @@ public class VersionRetriever implements EntityResolver, ErrorHandler {
 				InvalidVersionException.VERSION_NOT_FOUND);
 	}
 
+	/**
+	 * The version for the given result of the scanner or of the SAX handler.
+	 * 
+	 * @throws InvalidVersionException
+	 *             if the result is not a supported version.
+	 */
+	private EPUBVersion toVersion(String result) throws InvalidVersionException {
+		if (VERSION_3.equals(result)) {
+			report.info(null, FeatureEnum.FORMAT_VERSION, EPUBVersion.VERSION_3.toString());
+			return EPUBVersion.VERSION_3;
+		} else if (VERSION_2.equals(result)) {
+			report.info(null, FeatureEnum.FORMAT_VERSION, EPUBVersion.VERSION_2.toString());
+			return EPUBVersion.VERSION_2;
+		}
+		throw new InvalidVersionException(result);
+	}
+
 	@Override
 	public InputSource resolveEntity(String arg0, String arg1) throws SAXException, IOException {
 		return new InputSource(new StringReader(""));
@@ -154,4 +200,236 @@ public class VersionRetriever implements EntityResolver, ErrorHandler {
 		
 	}
 	
+
+	/**
+	 * Scans the prolog and the root start tag of a document, and returns the
+	 * same results as {@link OPFhandler}, or null if the document must be
+	 * parsed to know the result.
+	 */
+	static class PrologScanner {
+
+		private final byte[] buffer;
+		private final int length;
+		private int pos;
+		private final List<String> names = new ArrayList<String>();
+		private final List<String> values = new ArrayList<String>();
+
+		PrologScanner(byte[] buffer, int length) {
+			this.buffer = buffer;
+			this.length = length;
+		}
+
+		String scan() {
+			String encoding = EncodingSniffer.sniffXML(buffer, length);
+			if (encoding != null && !"UTF-8".equals(encoding)
+					&& !"US-ASCII".equals(encoding)) {
+				return null;
+			}
+			if (EncodingSniffer.detectBOM(buffer, length) != null) {
+				pos = 3; // UTF-8
+			}
+			if (startsWith("<?xml") && isSpace(pos + 5)) {
+				pos += 5;
+				if (!scanAttributes('?') || !names.get(0).equals("version")
+						|| !values.get(0).equals("1.0")) {
+					return null;
+				}
+				for (String name : names) {
+					if (!name.equals("version") && !name.equals("encoding")
+							&& !name.equals("standalone")) {
+						return null;
+					}
+				}
+			}
+			boolean doctype = false;
+			while (true) {
+				skipSpaces();
+				if (pos >= length || buffer[pos] != '<') {
+					return null;
+				}
+				if (startsWith("<?")) {
+					// a processing instruction, whose target cannot be 'xml'
+					if (startsWith("<?xml") || startsWith("<?XML")
+							|| !skipPast("?>")) {
+						return null;
+					}
+				} else if (startsWith("<!--")) {
+					pos += 4;
+					if (!skipPast("--") || pos >= length || buffer[pos++] != '>') {
+						return null;
+					}
+				} else if (startsWith("<!DOCTYPE")) {
+					if (doctype || !skipDoctype()) {
+						return null;
+					}
+					doctype = true;
+				} else if (startsWith("<!")) {
+					return null;
+				} else {
+					break;
+				}
+			}
+
+			// the root start tag
+			pos++;
+			String name = scanName();
+			if (name == null || name.indexOf(':') >= 0 || !scanAttributes('/')) {
+				return null;
+			}
+			if (!"package".equals(name)) {
+				return InvalidVersionException.PACKAGE_ELEMENT_NOT_FOUND;
+			}
+			int index = names.indexOf("version");
+			if (index < 0) {
+				return InvalidVersionException.VERSION_ATTRIBUTE_NOT_FOUND;
+			}
+			String version = values.get(index);
+			if (VERSION_3.equals(version) || VERSION_2.equals(version)) {
+				return version;
+			}
+			return InvalidVersionException.UNSUPPORTED_VERSION;
+		}
+
+		/**
+		 * Scan the attributes of a start tag or XML declaration, up to and
+		 * including its end, which is '>' or the given character followed by
+		 * '>'.
+		 * 
+		 * @return false if the attributes are not simple and well-formed.
+		 */
+		private boolean scanAttributes(char end) {
+			names.clear();
+			values.clear();
+			while (true) {
+				boolean space = skipSpaces();
+				if (pos + 1 < length && buffer[pos] == end
+						&& buffer[pos + 1] == '>') {
+					pos += 2;
+					return end == '/' || !names.isEmpty();
+				}
+				if (pos < length && buffer[pos] == '>' && end == '/') {
+					pos++;
+					return true;
+				}
+				if (!space) {
+					return false;
+				}
+				String name = scanName();
+				// namespace declarations and the reserved xml prefix need no
+				// namespace processing
+				if (name == null || names.contains(name)
+						|| name.indexOf(':') >= 0 && !name.startsWith("xmlns:")
+						&& !name.startsWith("xml:")) {
+					return false;
+				}
+				skipSpaces();
+				if (pos >= length || buffer[pos++] != '=') {
+					return false;
+				}
+				skipSpaces();
+				if (pos >= length) {
+					return false;
+				}
+				byte quote = buffer[pos++];
+				if (quote != '"' && quote != '\'') {
+					return false;
+				}
+				int start = pos;
+				while (pos < length && buffer[pos] != quote) {
+					byte b = buffer[pos];
+					// references, non-ASCII characters and characters changed by
+					// attribute value normalization are left to the parser
+					if (b == '<' || b == '&' || b < 0x20) {
+						return false;
+					}
+					pos++;
+				}
+				if (pos >= length) {
+					return false;
+				}
+				names.add(name);
+				values.add(new String(buffer, start, pos - start));
+				pos++;
+			}
+		}
+
+		private String scanName() {
+			int start = pos;
+			while (pos < length) {
+				byte b = buffer[pos];
+				if (b >= 'a' && b <= 'z' || b >= 'A' && b <= 'Z' || b == '_'
+						|| pos > start
+						&& (b >= '0' && b <= '9' || b == '-' || b == '.' || b == ':')) {
+					pos++;
+				} else {
+					break;
+				}
+			}
+			if (pos == start || pos >= length || buffer[pos] < 0) {
+				return null;
+			}
+			return new String(buffer, start, pos - start);
+		}
+
+		/**
+		 * Skip a document type declaration without internal subset.
+		 */
+		private boolean skipDoctype() {
+			byte quote = 0;
+			for (pos += 9; pos < length; pos++) {
+				byte b = buffer[pos];
+				if (quote != 0) {
+					if (b == quote) {
+						quote = 0;
+					}
+				} else if (b == '"' || b == '\'') {
+					quote = b;
+				} else if (b == '[' || b == '<') {
+					return false;
+				} else if (b == '>') {
+					pos++;
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private boolean skipPast(String marker) {
+			for (; pos < length; pos++) {
+				if (startsWith(marker)) {
+					pos += marker.length();
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private boolean skipSpaces() {
+			int start = pos;
+			while (isSpace(pos)) {
+				pos++;
+			}
+			return pos > start;
+		}
+
+		private boolean isSpace(int index) {
+			if (index >= length) {
+				return false;
+			}
+			byte b = buffer[index];
+			return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+		}
+
+		private boolean startsWith(String marker) {
+			if (pos + marker.length() > length) {
+				return false;
+			}
+			for (int i = 0; i < marker.length(); i++) {
+				if (buffer[pos + i] != marker.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
 }
@@ -29,9 +29,11 @@ import java.util.Set;
 import java.util.Vector;
 
 import com.adobe.epubcheck.api.Report;
+import com.adobe.epubcheck.api.ValidationMetrics;
 import com.adobe.epubcheck.ocf.OCFPackage;
 import com.adobe.epubcheck.util.EPUBVersion;
 import com.adobe.epubcheck.util.Messages;
+import com.adobe.epubcheck.util.ReportUtil;
 
 public class XRefChecker {
 
@@ -220,12 +222,28 @@ public class XRefChecker {
 	}
 
 	public void checkReferences() {
+		ValidationMetrics metrics = ValidationMetrics.getCurrent();
+		if (metrics != null) {
+			recordSizes(metrics);
+		}
+		long start = ValidationMetrics.start();
 		Enumeration<Reference> refs = references.elements();
-		while (refs.hasMoreElements()) {
+		while (refs.hasMoreElements() && !ReportUtil.isCancelled(report)) {
 			Reference ref = (Reference) refs.nextElement();
 			checkReference(ref);
 		}
+		ValidationMetrics.stop(ValidationMetrics.XREF_CHECK, start);
+
+	}
 
+	private void recordSizes(ValidationMetrics metrics) {
+		int anchors = 0;
+		for (Resource res : resources.values()) {
+			anchors += res.anchors.size();
+		}
+		metrics.recordSize(ValidationMetrics.XREF_RESOURCES, resources.size());
+		metrics.recordSize(ValidationMetrics.XREF_ANCHORS, anchors);
+		metrics.recordSize(ValidationMetrics.XREF_REFERENCES, references.size());
 	}
 
 	private void checkReference(Reference ref) {
@@ -233,25 +251,25 @@ public class XRefChecker {
 		if (res == null) {
 			if(ref.refResource.matches("^[^:/?#]+://.*") 
 					&& !(version==EPUBVersion.VERSION_3 && (ref.type==RT_AUDIO || ref.type==RT_VIDEO))) {
-				report.error(
+				ReportUtil.error(report,
 						ref.resource,
 						ref.lineNumber,
 						ref.columnNumber,
-						String.format(Messages.OPF_REMOTE_RESOURCE_NOT_ALLOWED, ref.refResource));
+						Messages.OPF_REMOTE_RESOURCE_NOT_ALLOWED, ref.refResource);
 			} else if (!ocf.hasEntry(ref.refResource) && !ref.refResource.matches("^[^:/?#]+://.*")) {				
-				report.error(
+				ReportUtil.error(report,
 						ref.resource,
 						ref.lineNumber,
 						ref.columnNumber,
-						String.format(Messages.OPF_REF_RESOURCE_MISSING, ref.refResource));
+						Messages.OPF_REF_RESOURCE_MISSING, ref.refResource);
 				
 			} else if (!undeclared.contains(ref.refResource)) {
 				undeclared.add(ref.refResource);
-				report.error(
+				ReportUtil.error(report,
 						ref.resource,
 						ref.lineNumber,
 						ref.columnNumber,
-						String.format(Messages.OPF_REF_RESOURCE_NOT_DECLARED, ref.refResource));
+						Messages.OPF_REF_RESOURCE_NOT_DECLARED, ref.refResource);
 			}
 			return;
 		}
@@ -260,8 +278,8 @@ public class XRefChecker {
 			case RT_SVG_PAINT:
 			case RT_SVG_CLIP_PATH:
 			case RT_SVG_SYMBOL:
-				report.error(ref.resource, ref.lineNumber, ref.columnNumber,
-						String.format(Messages.OPF_FRAGMENT_ID_MISSING, ref.refResource));
+				ReportUtil.error(report, ref.resource, ref.lineNumber, ref.columnNumber,
+						Messages.OPF_FRAGMENT_ID_MISSING, ref.refResource);
 				break;
 			case RT_HYPERLINK:
 				// if mimeType is null, we should have reported an error already
@@ -270,20 +288,20 @@ public class XRefChecker {
 						&& !OPFChecker
 								.isDeprecatedBlessedItemType(res.mimeType)
 						&& !res.hasValidItemFallback)
-					report.error(ref.resource, ref.lineNumber, ref.columnNumber,
-							String.format(Messages.OPF_HYPERLINK_TO_NONSTANDARD_RES, ref.refResource, res.mimeType));
+					ReportUtil.error(report, ref.resource, ref.lineNumber, ref.columnNumber,
+							Messages.OPF_HYPERLINK_TO_NONSTANDARD_RES, ref.refResource, res.mimeType);
 				if (/* !res.mimeType.equals("font/opentype") && */!res.inSpine)
-					report.warning(ref.resource, ref.lineNumber, ref.columnNumber,
-							String.format(Messages.OPF_HYPERLINK_RES_OUTSIDE_SPINE, ref.refResource));
+					ReportUtil.warning(report, ref.resource, ref.lineNumber, ref.columnNumber,
+							Messages.OPF_HYPERLINK_RES_OUTSIDE_SPINE, ref.refResource);
 				break;
 			case RT_IMAGE:
 				// if mimeType is null, we should have reported an error already
 				if (res.mimeType != null
 						&& !OPFChecker.isBlessedImageType(res.mimeType)
 						&& !res.hasValidImageFallback)
-					report.error(ref.resource, ref.lineNumber,
+					ReportUtil.error(report, ref.resource, ref.lineNumber,
 							ref.columnNumber,
-							String.format(Messages.OPF_NONSTANDARD_IMAGE, ref.refResource, res.mimeType));
+							Messages.OPF_NONSTANDARD_IMAGE, ref.refResource, res.mimeType);
 				break;
 			case RT_STYLESHEET:
 				// if mimeType is null, we should have reported an error already
@@ -299,10 +317,8 @@ public class XRefChecker {
 						&& !OPFChecker
 								.isDeprecatedBlessedStyleType(res.mimeType)
 						&& !res.hasValidItemFallback)
-					report.error(ref.resource, ref.lineNumber,
-							ref.columnNumber, String.format(
-									Messages.OPF_NONSTANDARD_STYLESHEET,
-									ref.refResource, res.mimeType));
+					ReportUtil.error(report, ref.resource, ref.lineNumber,
+							ref.columnNumber, Messages.OPF_NONSTANDARD_STYLESHEET, ref.refResource, res.mimeType);
 				break;
 			}
 		} else { //if (ref.fragment == null) {
@@ -320,47 +336,47 @@ public class XRefChecker {
 						&& !OPFChecker
 								.isDeprecatedBlessedItemType(res.mimeType)
 						&& !res.hasValidItemFallback)
-					report.error(ref.resource, ref.lineNumber,
+					ReportUtil.error(report, ref.resource, ref.lineNumber,
 							ref.columnNumber,
-							String.format(Messages.OPF_HYPERLINK_TO_NONSTANDARD_RES, ref.refResource, res.mimeType));
+							Messages.OPF_HYPERLINK_TO_NONSTANDARD_RES, ref.refResource, res.mimeType);
 				if (!res.inSpine)
-					report.warning(ref.resource, ref.lineNumber,
+					ReportUtil.warning(report, ref.resource, ref.lineNumber,
 							ref.columnNumber,
-							String.format(Messages.OPF_HYPERLINK_RES_OUTSIDE_SPINE, ref.refResource));
+							Messages.OPF_HYPERLINK_RES_OUTSIDE_SPINE, ref.refResource);
 				break;
 			case RT_IMAGE:
-				report.error(ref.resource, ref.lineNumber, ref.columnNumber,
-						String.format(Messages.OPF_FRAGMENT_ID_FOR_IMG, ref.refResource));
+				ReportUtil.error(report, ref.resource, ref.lineNumber, ref.columnNumber,
+						Messages.OPF_FRAGMENT_ID_FOR_IMG, ref.refResource);
 				break;
 			case RT_STYLESHEET:
-				report.error(ref.resource, ref.lineNumber, ref.columnNumber,
-						String.format(Messages.OPF_FRAGMENT_ID_FOR_STYLE, ref.refResource));
+				ReportUtil.error(report, ref.resource, ref.lineNumber, ref.columnNumber,
+						Messages.OPF_FRAGMENT_ID_FOR_STYLE, ref.refResource);
 				break;
 			}
 			Anchor anchor = (Anchor) res.anchors.get(ref.fragment);
 			if (anchor == null) {
-				report.error(ref.resource, ref.lineNumber, ref.columnNumber,
-						String.format(Messages.OPF_FRAGMENT_ID_NOT_DEFINED_IN, ref.fragment, ref.refResource));
+				ReportUtil.error(report, ref.resource, ref.lineNumber, ref.columnNumber,
+						Messages.OPF_FRAGMENT_ID_NOT_DEFINED_IN, ref.fragment, ref.refResource);
 				return;
 			} else {
 				switch (ref.type) {
 				case RT_SVG_PAINT:
 				case RT_SVG_CLIP_PATH:
 					if (anchor.type != ref.type)
-						report.error(
+						ReportUtil.error(report,
 								ref.resource,
 								ref.lineNumber,
 								ref.columnNumber,
-								String.format(Messages.OPF_FRAGMENT_ID_DEFINES_INCOMPATIBLE_RES, ref.fragment, ref.refResource));
+								Messages.OPF_FRAGMENT_ID_DEFINES_INCOMPATIBLE_RES, ref.fragment, ref.refResource);
 					break;
 				case RT_SVG_SYMBOL:
 				case RT_HYPERLINK:
 					if (anchor.type != ref.type && anchor.type != RT_GENERIC)
-						report.error(
+						ReportUtil.error(report,
 								ref.resource,
 								ref.lineNumber,
 								ref.columnNumber,
-								String.format(Messages.OPF_FRAGMENT_ID_DEFINES_INCOMPATIBLE_RES, ref.fragment, ref.refResource));
+								Messages.OPF_FRAGMENT_ID_DEFINES_INCOMPATIBLE_RES, ref.fragment, ref.refResource);
 					break;
 				}
 			}
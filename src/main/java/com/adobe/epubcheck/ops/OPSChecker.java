@@ -24,30 +24,37 @@ package com.adobe.epubcheck.ops;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
 
 import com.adobe.epubcheck.api.Report;
 import com.adobe.epubcheck.ocf.OCFPackage;
 import com.adobe.epubcheck.opf.ContentChecker;
 import com.adobe.epubcheck.opf.DocumentValidator;
+import com.adobe.epubcheck.opf.ValidationPlan.ResourceType;
 import com.adobe.epubcheck.opf.XRefChecker;
 import com.adobe.epubcheck.util.EPUBVersion;
 import com.adobe.epubcheck.util.GenericResourceProvider;
-import com.adobe.epubcheck.util.OPSType;
+import com.adobe.epubcheck.xml.IDUniquenessHandler;
 import com.adobe.epubcheck.xml.XMLParser;
 import com.adobe.epubcheck.xml.XMLValidator;
 
 public class OPSChecker implements ContentChecker, DocumentValidator {
 
-	class EpubValidator {
+	static class EpubValidator {
 		XMLValidator xmlValidator = null;
 		XMLValidator schValidator = null;
+		boolean checkIdUniqueness = false;
 
 		public EpubValidator(XMLValidator xmlValidator,
 				XMLValidator schValidator) {
 			this.xmlValidator = xmlValidator;
 			this.schValidator = schValidator;
 		}
+
+		public EpubValidator(XMLValidator xmlValidator,
+				boolean checkIdUniqueness) {
+			this.xmlValidator = xmlValidator;
+			this.checkIdUniqueness = checkIdUniqueness;
+		}
 	}
 
 	OCFPackage ocf;
@@ -68,8 +75,14 @@ public class OPSChecker implements ContentChecker, DocumentValidator {
 
 	String properties;
 
-	static XMLValidator xhtmlValidator_20_NVDL = new XMLValidator(
-			"schema/20/rng/ops20.nvdl");
+	boolean checkIdUniqueness;
+
+	// routes sections as schema/20/rng/ops20.nvdl, see OPSNamespaceRouter
+	static XMLValidator xhtmlValidator_20_ROUTER = new XMLValidator(
+			OPSNamespaceRouter.class.getSimpleName(), new OPSNamespaceRouter(
+					new XMLValidator("schema/20/rng/content-xhtml.rng")
+							.getSchema(), new XMLValidator(
+							"schema/20/rng/ops20.rng").getSchema()));
 	static XMLValidator svgValidator_20_RNG = new XMLValidator(
 			"schema/20/rng/svg11.rng");
 
@@ -82,32 +95,32 @@ public class OPSChecker implements ContentChecker, DocumentValidator {
 			"schema/30/epub-xhtml-30.sch");
 	static XMLValidator svgValidator_30_ISOSCH = new XMLValidator(
 			"schema/30/epub-svg-30.sch");
-	static XMLValidator idUniqueValidator_20_ISOSCH = new XMLValidator(
-			"schema/20/sch/id-unique.sch");
 	
 	
-	private HashMap<OPSType, EpubValidator> epubValidatorMap;
-
-	private void initEpubValidatorMap() {
-		HashMap<OPSType, EpubValidator> map = new HashMap<OPSType, EpubValidator>();
-		map.put(new OPSType("application/xhtml+xml", EPUBVersion.VERSION_2),
-				new EpubValidator(xhtmlValidator_20_NVDL, idUniqueValidator_20_ISOSCH));
-		map.put(new OPSType("application/xhtml+xml", EPUBVersion.VERSION_3),
-				new EpubValidator(xhtmlValidator_30_RNC,
-						xhtmlValidator_30_ISOSCH));
-
-		map.put(new OPSType("image/svg+xml", EPUBVersion.VERSION_2),
-				new EpubValidator(svgValidator_20_RNG, idUniqueValidator_20_ISOSCH));
-		map.put(new OPSType("image/svg+xml", EPUBVersion.VERSION_3),
-				new EpubValidator(svgValidator_30_RNC, svgValidator_30_ISOSCH));
-
-		epubValidatorMap = map;
+	// indexed by EPUBVersion ordinal, then by ResourceType ordinal
+	private static final EpubValidator[][] epubValidators = initEpubValidators();
+
+	private static EpubValidator[][] initEpubValidators() {
+		EpubValidator[][] validators = new EpubValidator[EPUBVersion.values().length][ResourceType
+				.values().length];
+		EpubValidator[] epub2 = validators[EPUBVersion.VERSION_2.ordinal()];
+		// IDs are checked while parsing, see IDUniquenessHandler
+		epub2[ResourceType.XHTML.ordinal()] = new EpubValidator(
+				xhtmlValidator_20_ROUTER, true);
+		epub2[ResourceType.SVG.ordinal()] = new EpubValidator(
+				svgValidator_20_RNG, true);
+
+		EpubValidator[] epub3 = validators[EPUBVersion.VERSION_3.ordinal()];
+		epub3[ResourceType.XHTML.ordinal()] = new EpubValidator(
+				xhtmlValidator_30_RNC, xhtmlValidator_30_ISOSCH);
+		epub3[ResourceType.SVG.ordinal()] = new EpubValidator(
+				svgValidator_30_RNC, svgValidator_30_ISOSCH);
+		return validators;
 	}
 
 	public OPSChecker(OCFPackage ocf, Report report, String path,
 			String mimeType, String properties, XRefChecker xrefChecker,
 			EPUBVersion version) {
-		initEpubValidatorMap();
 		this.ocf = ocf;
 		this.resourceProvider = ocf;
 		this.report = report;
@@ -121,7 +134,6 @@ public class OPSChecker implements ContentChecker, DocumentValidator {
 	public OPSChecker(String path, String mimeType,
 			GenericResourceProvider resourceProvider, Report report,
 			EPUBVersion version) {
-		initEpubValidatorMap();
 		this.resourceProvider = resourceProvider;
 		this.mimeType = mimeType;
 		this.report = report;
@@ -142,17 +154,22 @@ public class OPSChecker implements ContentChecker, DocumentValidator {
 	}
 
 	public boolean validate() {
+		if (ocf == null) {
+			// a single file validation
+			XMLParser.startValidation(report);
+		}
 		XMLValidator rngValidator = null;
 		XMLValidator schValidator = null;
 		int errorsSoFar = report.getErrorCount();
 		int warningsSoFar = report.getWarningCount();
-		OPSType type = new OPSType(mimeType, version);
-		EpubValidator epubValidator = (EpubValidator) epubValidatorMap
-				.get(type);
+		EpubValidator epubValidator = epubValidators[version.ordinal()][ResourceType
+				.of(mimeType).ordinal()];
 		if (epubValidator != null) {
 			rngValidator = epubValidator.xmlValidator;
 			schValidator = epubValidator.schValidator;
 		}
+		checkIdUniqueness = epubValidator != null
+				&& epubValidator.checkIdUniqueness;
 		try {
 			validateAgainstSchemas(rngValidator, schValidator);
 		} catch (IOException e) {
@@ -177,6 +194,9 @@ public class OPSChecker implements ContentChecker, DocumentValidator {
 				opsHandler = new OPSHandler30(ocf, path, mimeType, properties,
 						xrefChecker, opsParser, report, version);
 	
+			if (checkIdUniqueness)
+				opsParser.addXMLHandler(new IDUniquenessHandler(opsParser));
+
 			opsParser.addXMLHandler(opsHandler);
 	
 			if (rngValidator != null)
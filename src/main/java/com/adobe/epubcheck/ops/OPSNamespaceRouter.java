@@ -0,0 +1,411 @@
+/*
+ * Copyright (c) 2013 International Digital Publishing Forum
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of
+ *  this software and associated documentation files (the "Software"), to deal in
+ *  the Software without restriction, including without limitation the rights to
+ *  use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ *  the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ *  FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ *  COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ *  IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *  CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.adobe.epubcheck.ops;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Stack;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.DTDHandler;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import com.thaiopensource.util.PropertyMap;
+import com.thaiopensource.validate.AbstractSchema;
+import com.thaiopensource.validate.Schema;
+import com.thaiopensource.validate.ValidateProperty;
+import com.thaiopensource.validate.Validator;
+
+/**
+ * Validates OPS 2.0 XHTML content documents with the namespace routing rules
+ * of <code>schema/20/rng/ops20.nvdl</code>, compiled in code.
+ * <p>
+ * As with NVDL, the document is split in sections of elements from the same
+ * namespace. XHTML and SVG sections are attached to the XHTML validator, OPS
+ * sections are validated by the OPS schema and the XHTML and SVG islands of
+ * their <code>case</code> and <code>default</code> elements are attached in
+ * place of the switch. Elements from other namespaces are rejected, with the
+ * message used by Jing's NVDL implementation, so that both report the same
+ * errors.
+ * </p>
+ */
+public class OPSNamespaceRouter extends AbstractSchema {
+
+	static final String XHTML_NS = "http://www.w3.org/1999/xhtml";
+	static final String SVG_NS = "http://www.w3.org/2000/svg";
+	static final String OPS_NS = "http://www.idpf.org/2007/ops";
+
+	private static final String REJECT_MESSAGE = "elements from namespace \"{0}\" are not allowed";
+
+	/**
+	 * The modes of ops20.nvdl.
+	 */
+	enum Mode {
+		VALID_OPS, XHTML_CONTENT, XHTML_SVG_ATTACH, BLESSED_XHTML_SVG, ANYTHING;
+
+		// the usage of this mode by the actions defined in it
+		final ModeUsage usage = new ModeUsage(this, null, null);
+	}
+
+	/**
+	 * The mode to use for the child sections of a section, which may depend
+	 * on the local name of the parent element of the child section.
+	 */
+	static final class ModeUsage {
+		final Mode mode;
+		final Mode caseMode;
+		final Mode defaultMode;
+
+		ModeUsage(Mode mode, Mode caseMode, Mode defaultMode) {
+			this.mode = mode;
+			this.caseMode = caseMode;
+			this.defaultMode = defaultMode;
+		}
+
+		Mode getMode(Stack<String> context) {
+			if (!context.isEmpty()) {
+				String parent = context.peek();
+				if (caseMode != null && "case".equals(parent)) {
+					return caseMode;
+				}
+				if (defaultMode != null && "default".equals(parent)) {
+					return defaultMode;
+				}
+			}
+			return mode;
+		}
+	}
+
+	// <unwrap useMode="xhtml-svg-attach"> in the xhtml-content mode
+	static final ModeUsage UNWRAP_OPS = new ModeUsage(Mode.XHTML_SVG_ATTACH,
+			Mode.ANYTHING, null);
+	// <validate schema="ops20.rng"> in the xhtml-content mode
+	static final ModeUsage VALIDATE_OPS = new ModeUsage(Mode.XHTML_CONTENT,
+			Mode.ANYTHING, Mode.BLESSED_XHTML_SVG);
+
+	private final Schema xhtmlSchema;
+	private final Schema opsSchema;
+
+	public OPSNamespaceRouter(Schema xhtmlSchema, Schema opsSchema) {
+		this.xhtmlSchema = xhtmlSchema;
+		this.opsSchema = opsSchema;
+	}
+
+	public Validator createValidator(PropertyMap properties) {
+		return new RouterValidator(properties);
+	}
+
+	/**
+	 * A mode usage and the handler that sections in that mode are attached
+	 * to, if any.
+	 */
+	private static final class Program {
+		final ModeUsage usage;
+		final ContentHandler handler;
+
+		Program(ModeUsage usage, ContentHandler handler) {
+			this.usage = usage;
+			this.handler = handler;
+		}
+	}
+
+	private static final class Section {
+		final String ns;
+		final Section parent;
+		int depth = 0;
+		// local names of the open elements of the section
+		final Stack<String> context = new Stack<String>();
+		final List<Validator> validators = new ArrayList<Validator>();
+		final List<Schema> schemas = new ArrayList<Schema>();
+		final List<ContentHandler> activeHandlers = new ArrayList<ContentHandler>();
+		final List<Program> childPrograms = new ArrayList<Program>();
+
+		Section(String ns, Section parent) {
+			this.ns = ns;
+			this.parent = parent;
+		}
+	}
+
+	private static final class PrefixMapping {
+		final String prefix;
+		final String uri;
+		final PrefixMapping parent;
+
+		PrefixMapping(String prefix, String uri, PrefixMapping parent) {
+			this.prefix = prefix;
+			this.uri = uri;
+			this.parent = parent;
+		}
+	}
+
+	private class RouterValidator extends DefaultHandler implements Validator {
+
+		private final PropertyMap properties;
+		private final ErrorHandler eh;
+		private final Map<Schema, Stack<Validator>> validatorCache = new HashMap<Schema, Stack<Validator>>();
+		// the allow and reject actions, and validated schemas, of the section
+		// being started, which are performed only once per section
+		private final Set<Object> performed = new HashSet<Object>();
+		private Locator locator;
+		private Section currentSection;
+		private PrefixMapping prefixMapping;
+
+		RouterValidator(PropertyMap properties) {
+			this.properties = properties;
+			this.eh = properties.get(ValidateProperty.ERROR_HANDLER);
+			initCurrentSection();
+		}
+
+		private void initCurrentSection() {
+			currentSection = new Section(null, null);
+			currentSection.childPrograms.add(new Program(Mode.VALID_OPS.usage,
+					null));
+		}
+
+		public ContentHandler getContentHandler() {
+			return this;
+		}
+
+		public DTDHandler getDTDHandler() {
+			return null;
+		}
+
+		public void reset() {
+			for (; currentSection != null; currentSection = currentSection.parent) {
+				for (int i = 0; i < currentSection.validators.size(); i++) {
+					releaseValidator(currentSection.schemas.get(i),
+							currentSection.validators.get(i));
+				}
+			}
+			prefixMapping = null;
+			initCurrentSection();
+		}
+
+		@Override
+		public void setDocumentLocator(Locator locator) {
+			this.locator = locator;
+		}
+
+		@Override
+		public void startPrefixMapping(String prefix, String uri)
+				throws SAXException {
+			prefixMapping = new PrefixMapping(prefix, uri, prefixMapping);
+		}
+
+		@Override
+		public void endPrefixMapping(String prefix) throws SAXException {
+			prefixMapping = prefixMapping.parent;
+		}
+
+		@Override
+		public void startElement(String uri, String localName, String qName,
+				Attributes attributes) throws SAXException {
+			if (!uri.equals(currentSection.ns)) {
+				startSection(uri);
+			}
+			currentSection.depth++;
+			currentSection.context.push(localName);
+			for (ContentHandler handler : currentSection.activeHandlers) {
+				handler.startElement(uri, localName, qName, attributes);
+			}
+		}
+
+		@Override
+		public void endElement(String uri, String localName, String qName)
+				throws SAXException {
+			for (ContentHandler handler : currentSection.activeHandlers) {
+				handler.endElement(uri, localName, qName);
+			}
+			currentSection.depth--;
+			currentSection.context.pop();
+			if (currentSection.depth == 0) {
+				endSection();
+			}
+		}
+
+		@Override
+		public void characters(char[] ch, int start, int length)
+				throws SAXException {
+			for (ContentHandler handler : currentSection.activeHandlers) {
+				handler.characters(ch, start, length);
+			}
+		}
+
+		@Override
+		public void ignorableWhitespace(char[] ch, int start, int length)
+				throws SAXException {
+			for (ContentHandler handler : currentSection.activeHandlers) {
+				handler.ignorableWhitespace(ch, start, length);
+			}
+		}
+
+		private void startSection(String ns) throws SAXException {
+			Section section = new Section(ns, currentSection);
+			performed.clear();
+			for (Program program : currentSection.childPrograms) {
+				Mode mode = program.usage.getMode(currentSection.context);
+				route(section, program, mode, ns);
+			}
+			for (Validator validator : section.validators) {
+				initHandler(validator.getContentHandler());
+			}
+			currentSection = section;
+		}
+
+		/**
+		 * Perform the actions of the given mode for a section in the given
+		 * namespace.
+		 */
+		private void route(Section section, Program program, Mode mode, String ns)
+				throws SAXException {
+			boolean xhtmlOrSVG = XHTML_NS.equals(ns) || SVG_NS.equals(ns);
+			switch (mode) {
+			case VALID_OPS:
+				if (XHTML_NS.equals(ns)) {
+					validate(section, xhtmlSchema, Mode.XHTML_CONTENT.usage);
+				} else {
+					reject(section, mode);
+				}
+				break;
+			case XHTML_CONTENT:
+				if (xhtmlOrSVG) {
+					attach(section, program.handler, mode.usage);
+				} else if (OPS_NS.equals(ns)) {
+					// unwrap, then validate the switch itself
+					section.childPrograms.add(new Program(UNWRAP_OPS,
+							program.handler));
+					validate(section, opsSchema, VALIDATE_OPS);
+				} else {
+					reject(section, mode);
+				}
+				break;
+			case XHTML_SVG_ATTACH:
+				if (xhtmlOrSVG) {
+					attach(section, program.handler, mode.usage);
+				} else {
+					allow(section, mode);
+				}
+				break;
+			case BLESSED_XHTML_SVG:
+				if (xhtmlOrSVG) {
+					allow(section, mode);
+				} else {
+					reject(section, mode);
+				}
+				break;
+			case ANYTHING:
+				allow(section, mode);
+				break;
+			}
+		}
+
+		private void attach(Section section, ContentHandler handler,
+				ModeUsage usage) {
+			if (handler != null) {
+				section.activeHandlers.add(handler);
+			}
+			section.childPrograms.add(new Program(usage, handler));
+		}
+
+		private void allow(Section section, Mode mode) {
+			if (performed.add(mode.usage)) {
+				section.childPrograms.add(new Program(mode.usage, null));
+			}
+		}
+
+		private void reject(Section section, Mode mode) throws SAXException {
+			if (performed.add(mode)) {
+				if (eh != null) {
+					eh.error(new SAXParseException(MessageFormat.format(
+							REJECT_MESSAGE, section.ns), locator));
+				}
+				section.childPrograms.add(new Program(mode.usage, null));
+			}
+		}
+
+		private void validate(Section section, Schema schema, ModeUsage usage) {
+			if (performed.add(schema)) {
+				Validator validator = createValidator(schema);
+				section.validators.add(validator);
+				section.schemas.add(schema);
+				section.activeHandlers.add(validator.getContentHandler());
+				section.childPrograms.add(new Program(usage, validator
+						.getContentHandler()));
+			}
+		}
+
+		private void endSection() throws SAXException {
+			for (int i = 0; i < currentSection.validators.size(); i++) {
+				Validator validator = currentSection.validators.get(i);
+				cleanupHandler(validator.getContentHandler());
+				releaseValidator(currentSection.schemas.get(i), validator);
+			}
+			currentSection = currentSection.parent;
+		}
+
+		private void initHandler(ContentHandler handler) throws SAXException {
+			if (locator != null) {
+				handler.setDocumentLocator(locator);
+			}
+			handler.startDocument();
+			for (PrefixMapping pm = prefixMapping; pm != null; pm = pm.parent) {
+				handler.startPrefixMapping(pm.prefix, pm.uri);
+			}
+		}
+
+		private void cleanupHandler(ContentHandler handler) throws SAXException {
+			for (PrefixMapping pm = prefixMapping; pm != null; pm = pm.parent) {
+				handler.endPrefixMapping(pm.prefix);
+			}
+			handler.endDocument();
+		}
+
+		private Validator createValidator(Schema schema) {
+			Stack<Validator> stack = validatorCache.get(schema);
+			if (stack == null || stack.isEmpty()) {
+				return schema.createValidator(properties);
+			}
+			return stack.pop();
+		}
+
+		private void releaseValidator(Schema schema, Validator validator) {
+			validator.reset();
+			Stack<Validator> stack = validatorCache.get(schema);
+			if (stack == null) {
+				stack = new Stack<Validator>();
+				validatorCache.put(schema, stack);
+			}
+			stack.push(validator);
+		}
+	}
+}
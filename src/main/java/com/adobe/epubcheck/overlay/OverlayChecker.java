@@ -33,6 +33,7 @@ import com.adobe.epubcheck.opf.XRefChecker;
 import com.adobe.epubcheck.util.EPUBVersion;
 import com.adobe.epubcheck.util.GenericResourceProvider;
 import com.adobe.epubcheck.util.Messages;
+import com.adobe.epubcheck.util.ReportUtil;
 import com.adobe.epubcheck.xml.XMLParser;
 import com.adobe.epubcheck.xml.XMLValidator;
 
@@ -86,6 +87,10 @@ public class OverlayChecker implements ContentChecker, DocumentValidator {
 	}
 
 	public boolean validate() {
+		if (ocf == null) {
+			// a single file validation
+			XMLParser.startValidation(report);
+		}
 		int errorsSoFar = report.getErrorCount();
 		int warningsSoFar = report.getWarningCount();
 		InputStream in = null;
@@ -101,8 +106,8 @@ public class OverlayChecker implements ContentChecker, DocumentValidator {
 			overlayParser.addXMLHandler(overlayHandler);
 			overlayParser.process();
 		} catch (IOException e) {
-			report.error(path, -1, -1,
-					String.format(Messages.MISSING_FILE, path));
+			ReportUtil.error(report, path, -1, -1,
+					Messages.MISSING_FILE, path);
 		}finally {
 			try {
 				in.close();
@@ -114,4 +119,4 @@ public class OverlayChecker implements ContentChecker, DocumentValidator {
 		return errorsSoFar == report.getErrorCount()
 				&& warningsSoFar == report.getWarningCount();
 	}
-}
+}
@@ -23,28 +23,38 @@
 
 package com.adobe.epubcheck.tool;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.util.HashMap;
 
 import com.adobe.epubcheck.api.EpubCheck;
 import com.adobe.epubcheck.api.EpubCheckFactory;
 import com.adobe.epubcheck.api.Report;
+import com.adobe.epubcheck.api.ValidationMetrics;
 import com.adobe.epubcheck.nav.NavCheckerFactory;
 import com.adobe.epubcheck.opf.DocumentValidator;
 import com.adobe.epubcheck.opf.DocumentValidatorFactory;
 import com.adobe.epubcheck.opf.OPFCheckerFactory;
 import com.adobe.epubcheck.ops.OPSCheckerFactory;
 import com.adobe.epubcheck.overlay.OverlayCheckerFactory;
+import com.adobe.epubcheck.util.AggregatingReportImpl;
 import com.adobe.epubcheck.util.Archive;
-import com.adobe.epubcheck.util.DefaultReportImpl;
+import com.adobe.epubcheck.util.AsyncReportWriter;
+import com.adobe.epubcheck.util.BinaryReportImpl;
 import com.adobe.epubcheck.util.EPUBVersion;
+import com.adobe.epubcheck.util.FailFastReportImpl;
 import com.adobe.epubcheck.util.FeatureEnum;
 import com.adobe.epubcheck.util.FileResourceProvider;
 import com.adobe.epubcheck.util.GenericResourceProvider;
 import com.adobe.epubcheck.util.InvalidVersionException;
+import com.adobe.epubcheck.util.JsonReportImpl;
 import com.adobe.epubcheck.util.Messages;
 import com.adobe.epubcheck.util.OPSType;
 import com.adobe.epubcheck.util.URLResourceProvider;
+import com.adobe.epubcheck.util.ValidationProfile;
 import com.adobe.epubcheck.util.XmlReportImpl;
 
 public class Checker {
@@ -55,7 +65,17 @@ public class Checker {
 	private static boolean expanded = false;
 	private static boolean keep = false;
 	private static boolean quietRun = false;
+	private static int failFast = 0;
+	private static int maxOccurrences = 0;
+	private static boolean timings = false;
+	private static ValidationMetrics metrics;
+	private static File profileOut;
+	private static ValidationProfile profile;
 	private static File fileOut;
+	private static File jsonOut;
+	private static File binOut;
+	private static Closeable reportOut;
+	private static AsyncReportWriter reportWriter;
 
 	private static HashMap<OPSType, String> modeMimeTypeMap;
 	
@@ -127,11 +147,39 @@ public class Checker {
 					Messages.MODE_VERSION_NOT_SUPPORTED, mode, version));
 		}
 
-		DocumentValidator check = factory.newInstance(report, path,
-				resourceProvider, (String) modeMimeTypeMap.get(opsType),
-				version);
-
-		if (check.validate()) {
+		AggregatingReportImpl aggregatingReport = null;
+		if (maxOccurrences > 0) {
+			aggregatingReport = new AggregatingReportImpl(report,
+					maxOccurrences, 0);
+			report = aggregatingReport;
+		}
+		if (failFast > 0) {
+			report = new FailFastReportImpl(report, failFast);
+		}
+		if (profile != null) {
+			profile.start();
+		}
+		ValidationMetrics previousMetrics = metrics != null ? ValidationMetrics
+				.setCurrent(metrics) : null;
+		boolean valid;
+		try {
+			DocumentValidator check = factory.newInstance(report, path,
+					resourceProvider, (String) modeMimeTypeMap.get(opsType),
+					version);
+
+			valid = check.validate();
+		} finally {
+			if (metrics != null) {
+				ValidationMetrics.setCurrent(previousMetrics);
+			}
+			if (aggregatingReport != null) {
+				aggregatingReport.flush();
+			}
+		}
+		flushReport();
+		printTimings();
+		writeProfile(fileName, valid);
+		if (valid) {
 			if (!quietRun) System.out.println(Messages.NO_ERRORS__OR_WARNINGS);
 			return 0;
 		}
@@ -165,11 +213,39 @@ public class Checker {
 					Messages.MODE_VERSION_NOT_SUPPORTED, mode, version));
 		}
 
-		DocumentValidator check = factory.newInstance(report, path,
-				resourceProvider, (String) modeMimeTypeMap.get(opsType),
-				version);
-
-		if (check.validate()) {
+		AggregatingReportImpl aggregatingReport = null;
+		if (maxOccurrences > 0) {
+			aggregatingReport = new AggregatingReportImpl(report,
+					maxOccurrences, 0);
+			report = aggregatingReport;
+		}
+		if (failFast > 0) {
+			report = new FailFastReportImpl(report, failFast);
+		}
+		if (profile != null) {
+			profile.start();
+		}
+		ValidationMetrics previousMetrics = metrics != null ? ValidationMetrics
+				.setCurrent(metrics) : null;
+		boolean valid;
+		try {
+			DocumentValidator check = factory.newInstance(report, path,
+					resourceProvider, (String) modeMimeTypeMap.get(opsType),
+					version);
+
+			valid = check.validate();
+		} finally {
+			if (metrics != null) {
+				ValidationMetrics.setCurrent(previousMetrics);
+			}
+			if (aggregatingReport != null) {
+				aggregatingReport.flush();
+			}
+		}
+		flushReport();
+		printTimings();
+		writeProfile(path, valid);
+		if (valid) {
 			if (!quietRun) System.out.println(Messages.NO_ERRORS__OR_WARNINGS);
 			return 0; 
 		}	
@@ -183,16 +259,23 @@ public class Checker {
 	}
 	
 	public static int run(String[] args) {		
-		Report report;		
+		Report report = null;
 		try {
 			processArguments(args);
 			
 			if (expanded) {
 				Archive epub = new Archive(path, keep);
 
-				// DefaultReport = output on stderr
-				if (fileOut == null) {
-					report = new DefaultReportImpl(epub.getEpubName(), quietRun);
+				if (jsonOut != null) {
+					// JSON Report = -json file.json
+					report = createJsonReport(epub.getEpubName());
+				} else if (binOut != null) {
+					// Binary Report = -bin file.bin
+					report = createBinaryReport(epub.getEpubName());
+				} else if (fileOut == null) {
+					// DefaultReport = output on stderr
+					reportWriter = new AsyncReportWriter(System.err);
+					report = reportWriter.newReport(epub.getEpubName(), quietRun);
 					report.info(null, FeatureEnum.TOOL_NAME, "epubcheck");
 					report.info(null, FeatureEnum.TOOL_VERSION, EpubCheck.version());
 					String toolDate = EpubCheck.buildDate();
@@ -207,25 +290,23 @@ public class Checker {
 				epub.createArchive();
 				
 				EpubCheck check = new EpubCheck(epub.getEpubFile(), report);
-				if (check.validate()) {
+				check.setFailFast(failFast);
+				check.setMaxOccurrences(maxOccurrences);
+				check.setMetrics(metrics);
+				if (profile != null) {
+					profile.start();
+				}
+				boolean valid = check.validate();
+				flushReport();
+				printTimings();
+				writeProfile(epub.getEpubName(), valid);
+				if (valid) {
 					if (!quietRun) System.out.println(Messages.NO_ERRORS__OR_WARNINGS);
 
-					if (report instanceof XmlReportImpl) {
-						if (((XmlReportImpl) report).generate() && !quietRun) {
-				            System.out.println(Messages.CLI_OUTPUT_XML + fileOut);
-						}
-					}
-
 					return 0;
 
 				} else {
 					System.err.println(Messages.THERE_WERE_ERRORS);
-
-					if (report instanceof XmlReportImpl) {
-						if (((XmlReportImpl) report).generate() && !quietRun) {
-				            System.out.println(Messages.CLI_OUTPUT_XML + fileOut);
-						}
-					}
 				}
 
 				if((report.getErrorCount() > 0 || report.getExceptionCount() > 0) && keep) {
@@ -237,12 +318,20 @@ public class Checker {
 				return 1;
 			}
 	
-            if (fileOut == null) {
+            if (jsonOut != null || binOut != null) {
+                report = jsonOut != null ? createJsonReport(path) : createBinaryReport(path);
+                if (mode != null) {
+                    report.info(null, FeatureEnum.EXEC_MODE, String.format(
+                            Messages.SINGLE_FILE, mode, version.toString()));
+                }
+            } else if (fileOut == null) {
     			if (mode != null) {
-    				report = new DefaultReportImpl(path, String.format(
+    				reportWriter = new AsyncReportWriter(System.err);
+    				report = reportWriter.newReport(path, String.format(
     						Messages.SINGLE_FILE, mode, version.toString()), quietRun);
     			} else {
-    				report = new DefaultReportImpl(path, quietRun);
+    				reportWriter = new AsyncReportWriter(System.err);
+    				report = reportWriter.newReport(path, quietRun);
     			}
             } else {
                 report = new XmlReportImpl(fileOut, path, EpubCheck.version());
@@ -252,21 +341,100 @@ public class Checker {
                 }
             }
 			
-			int returnValue = validateFile(path, mode, version, report);
-			if (report instanceof XmlReportImpl) {
-				if (((XmlReportImpl) report).generate() && !quietRun) {
-		            System.out.println(Messages.CLI_OUTPUT_XML + fileOut);
-				}
-			}
-			return returnValue;
+			return validateFile(path, mode, version, report);
 			
 		} catch (Throwable e) {
 			e.printStackTrace();
 			return 1;
+		} finally {
+			// the XML report is generated, and its temporary file deleted,
+			// even if the validation failed
+			if (report instanceof XmlReportImpl) {
+				if (((XmlReportImpl) report).generate() && !quietRun) {
+					System.out.println(Messages.CLI_OUTPUT_XML + fileOut);
+				}
+			}
+			if (reportOut != null) {
+				try {
+					if (report instanceof JsonReportImpl) {
+						((JsonReportImpl) report).summary();
+					} else if (report instanceof BinaryReportImpl) {
+						((BinaryReportImpl) report).end();
+					}
+					reportOut.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+				reportOut = null;
+			}
+			if (reportWriter != null) {
+				try {
+					reportWriter.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+				reportWriter = null;
+			}
 		}
 	
 	}
 
+	private static JsonReportImpl createJsonReport(String ePubName)
+			throws IOException {
+		OutputStreamWriter out = new OutputStreamWriter(new FileOutputStream(
+				jsonOut), "UTF-8");
+		reportOut = out;
+		JsonReportImpl report = new JsonReportImpl(out, ePubName);
+		report.info(null, FeatureEnum.TOOL_NAME, "epubcheck");
+		report.info(null, FeatureEnum.TOOL_VERSION, EpubCheck.version());
+		return report;
+	}
+
+	private static BinaryReportImpl createBinaryReport(String ePubName)
+			throws IOException {
+		// append, so that the results of successive runs build up one file
+		FileOutputStream out = new FileOutputStream(binOut, true);
+		reportOut = out;
+		BinaryReportImpl report = new BinaryReportImpl(out, ePubName);
+		report.info(null, FeatureEnum.TOOL_NAME, "epubcheck");
+		report.info(null, FeatureEnum.TOOL_VERSION, EpubCheck.version());
+		return report;
+	}
+
+	/**
+	 * Print the phase timings of the validation, if requested.
+	 */
+	private static void printTimings() {
+		if (timings) {
+			System.out.println(Messages.CLI_TIMINGS);
+			System.out.print(metrics);
+		}
+	}
+
+	private static void writeProfile(String book, boolean valid) {
+		if (profile != null) {
+			try {
+				profile.write(profileOut, book, valid);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Wait until the messages reported so far are written, so that they
+	 * precede the summary output.
+	 */
+	private static void flushReport() {
+		if (reportWriter != null) {
+			try {
+				reportWriter.flush();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
 	/**
 	 * This method iterates through all of the arguments passed to main to find
 	 * accepted flags and the name of the file to check. This method returns the
@@ -289,7 +457,15 @@ public class Checker {
 		expanded = false;
 		keep = false;
 		quietRun = false;
+		failFast = 0;
+		maxOccurrences = 0;
+		timings = false;
+		metrics = null;
+		profileOut = null;
+		profile = null;
 		fileOut = null;
+		jsonOut = null;
+		binOut = null;
  
 		
 		// Exit if there are no arguments passed to main
@@ -345,11 +521,41 @@ public class Checker {
 			} else if (args[i].equals("-quiet") || args[i].equals("-q")) {				
 				quietRun = true;
 				continue;
+			} else if (args[i].equals("-failfast")) {
+				failFast = 1;
+				if (i + 1 < args.length && args[i + 1].matches("[0-9]+")) {
+					failFast = Integer.parseInt(args[++i]);
+				}
+				continue;
+			} else if (args[i].equals("-aggregate")) {
+				maxOccurrences = AggregatingReportImpl.DEFAULT_MAX_OCCURRENCES;
+				if (i + 1 < args.length && args[i + 1].matches("[0-9]+")) {
+					maxOccurrences = Integer.parseInt(args[++i]);
+				}
+				continue;
+			} else if (args[i].equals("-timings")) {
+				timings = true;
+				continue;
+			} else if ("-profile".equals(args[i])) {
+				if (i + 1 < args.length) {
+					profileOut = new File(args[++i]);
+				}
+				continue;
 			} else if ("-out".equals(args[i])) {   
 	             if (i + 1 < args.length) {
 	                fileOut = new File(args[++i]);
 	             }
 	             continue;
+			} else if ("-json".equals(args[i])) {
+				if (i + 1 < args.length) {
+					jsonOut = new File(args[++i]);
+				}
+				continue;
+			} else if ("-bin".equals(args[i])) {
+				if (i + 1 < args.length) {
+					binOut = new File(args[++i]);
+				}
+				continue;
 			} else if (args[i].equals("-help") || args[i].equals("--help") || args[i].equals("-?")) {
 				displayHelp(); // display help message
 			} else {
@@ -357,6 +563,13 @@ public class Checker {
 			}
 		}
 
+		if (profileOut != null) {
+			profile = new ValidationProfile();
+			metrics = profile.getMetrics();
+		} else if (timings) {
+			metrics = new ValidationMetrics();
+		}
+
 		if (path != null) {
 			StringBuffer sb = new StringBuffer();
 			for (int i = 0; i < path.length(); i++) {
@@ -418,7 +631,13 @@ public class Checker {
 		System.out.println("This tool also accepts the following flags:");
 		System.out.println("-save 	      = saves the epub created from the expanded epub (-mode exp)");
 		System.out.println("-quiet 	      = no message sent to stdout, only errors in stderr");
+		System.out.println("-failfast [N] = stop the validation after N errors (default: 1)");
+		System.out.println("-aggregate [N] = report at most N occurrences of each message per file (default: 10)");
+		System.out.println("-timings      = print the time spent in each validation phase");
+		System.out.println("-profile <file> = append the time, allocations and GC pauses of each phase to file as JSON");
         System.out.println("-out <file>   = ouput an assessment XML document in file (experimental)");
+		System.out.println("-json <file>  = output the results as newline-delimited JSON in file");
+		System.out.println("-bin <file>   = append the results to file in compact binary form");
 		System.out.println("-? or -help   = displays this help message");
 		System.out.println(" ");
 	}
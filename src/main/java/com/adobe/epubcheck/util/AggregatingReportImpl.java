@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2013 International Digital Publishing Forum
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of
+ *  this software and associated documentation files (the "Software"), to deal in
+ *  the Software without restriction, including without limitation the rights to
+ *  use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ *  the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ *  FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ *  COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ *  IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *  CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.adobe.epubcheck.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.adobe.epubcheck.api.CancellableReport;
+import com.adobe.epubcheck.api.MessageReport;
+import com.adobe.epubcheck.api.Report;
+import com.adobe.epubcheck.api.Severity;
+
+/**
+ * A report decorator that limits the repetition of identical messages.
+ * <p>
+ * Messages are identical if they have the same severity, message ID (see
+ * {@link Messages#getId(String)}, or the message text for messages that are
+ * not defined in {@link Messages}) and resource. The first occurrences of a
+ * message, up to a configurable limit, are passed on to the decorated report
+ * with their locations; the following ones are only counted. A total limit
+ * can also be set on the number of messages passed on. {@link #flush()} then
+ * reports, for each message with suppressed occurrences, one hint giving the
+ * number of suppressed occurrences.
+ * </p>
+ * <p>
+ * The counts returned by this report include suppressed messages, so that the
+ * outcome of the validation is not affected. The decorated report only counts
+ * the messages passed on, and the summary hints.
+ * </p>
+ */
+public class AggregatingReportImpl implements MessageReport,
+		CancellableReport {
+
+	public static final int DEFAULT_MAX_OCCURRENCES = 10;
+
+	private final Report report;
+	private final int maxOccurrences;
+	private final int maxMessages;
+	private final Map<Key, Entry> entries = new LinkedHashMap<Key, Entry>();
+	private int passedCount;
+	private int errorCount, warningCount, exceptionCount, hintCount;
+
+	public AggregatingReportImpl(Report report) {
+		this(report, DEFAULT_MAX_OCCURRENCES, 0);
+	}
+
+	/**
+	 * @param report
+	 *            the decorated report.
+	 * @param maxOccurrences
+	 *            the number of occurrences of each message passed on to the
+	 *            decorated report.
+	 * @param maxMessages
+	 *            the total number of messages passed on to the decorated
+	 *            report, or 0 for no limit.
+	 */
+	public AggregatingReportImpl(Report report, int maxOccurrences,
+			int maxMessages) {
+		if (maxOccurrences < 1 || maxMessages < 0) {
+			throw new IllegalArgumentException();
+		}
+		this.report = report;
+		this.maxOccurrences = maxOccurrences;
+		this.maxMessages = maxMessages;
+	}
+
+	public void message(Severity severity, String resource, int line,
+			int column, String pattern, Object... args) {
+		switch (severity) {
+		case ERROR:
+			errorCount++;
+			break;
+		case WARNING:
+			warningCount++;
+			break;
+		case HINT:
+			hintCount++;
+			break;
+		}
+		String id = Messages.getId(pattern);
+		Key key = new Key(severity, id != null ? id : pattern, resource);
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			entry = new Entry(pattern, args);
+			entries.put(key, entry);
+		}
+		entry.count++;
+		if (entry.count <= maxOccurrences
+				&& (maxMessages == 0 || passedCount < maxMessages)) {
+			passedCount++;
+			ReportUtil.message(report, severity, resource, line, column,
+					pattern, args);
+		} else {
+			entry.suppressed++;
+		}
+	}
+
+	public void error(String resource, int line, int column, String message) {
+		message(Severity.ERROR, resource, line, column, message);
+	}
+
+	public void warning(String resource, int line, int column, String message) {
+		message(Severity.WARNING, resource, line, column, message);
+	}
+
+	public void hint(String resource, int line, int column, String message) {
+		message(Severity.HINT, resource, line, column, message);
+	}
+
+	public void exception(String resource, Exception e) {
+		exceptionCount++;
+		report.exception(resource, e);
+	}
+
+	public void info(String resource, FeatureEnum feature, String value) {
+		report.info(resource, feature, value);
+	}
+
+	/**
+	 * Report the number of suppressed occurrences of each message to the
+	 * decorated report, as hints so that its error and warning counts are not
+	 * inflated. This is invoked when the validation is done.
+	 */
+	public void flush() {
+		for (Map.Entry<Key, Entry> e : entries.entrySet()) {
+			Entry entry = e.getValue();
+			if (entry.suppressed > 0) {
+				Key key = e.getKey();
+				ReportUtil.message(report, Severity.HINT, key.resource, -1, -1,
+						Messages.MESSAGES_SUPPRESSED, entry.suppressed,
+						ReportUtil.format(entry.pattern, entry.args));
+				entry.suppressed = 0;
+			}
+		}
+	}
+
+	public boolean isCancelled() {
+		return ReportUtil.isCancelled(report);
+	}
+
+	/**
+	 * The number of times the given message was reported.
+	 * 
+	 * @param pattern
+	 *            the message pattern, or the text of a message not defined in
+	 *            {@link Messages}.
+	 */
+	public int getCount(Severity severity, String pattern, String resource) {
+		String id = Messages.getId(pattern);
+		Entry entry = entries.get(new Key(severity, id != null ? id : pattern,
+				resource));
+		return entry == null ? 0 : entry.count;
+	}
+
+	public int getErrorCount() {
+		return errorCount;
+	}
+
+	public int getWarningCount() {
+		return warningCount;
+	}
+
+	public int getExceptionCount() {
+		return exceptionCount;
+	}
+
+	public int getHintCount() {
+		return hintCount;
+	}
+
+	private static final class Key {
+		final Severity severity;
+		final String id;
+		final String resource;
+		final int hash;
+
+		Key(Severity severity, String id, String resource) {
+			this.severity = severity;
+			this.id = id;
+			this.resource = resource;
+			this.hash = (severity.hashCode() * 31 + (id == null ? 0 : id
+					.hashCode())) * 31
+					+ (resource == null ? 0 : resource.hashCode());
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return severity == other.severity
+					&& (id == null ? other.id == null : id.equals(other.id))
+					&& (resource == null ? other.resource == null : resource
+							.equals(other.resource));
+		}
+	}
+
+	private static final class Entry {
+		final String pattern;
+		final Object[] args;
+		int count;
+		int suppressed;
+
+		Entry(String pattern, Object[] args) {
+			this.pattern = pattern;
+			this.args = args;
+		}
+	}
+}
@@ -0,0 +1,387 @@
+/*
+ * Copyright (c) 2013 International Digital Publishing Forum
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of
+ *  this software and associated documentation files (the "Software"), to deal in
+ *  the Software without restriction, including without limitation the rights to
+ *  use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ *  the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ *  FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ *  COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ *  IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *  CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.adobe.epubcheck.util;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.adobe.epubcheck.api.MessageReport;
+import com.adobe.epubcheck.api.Severity;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * Writes the messages of one or more reports from a single background thread.
+ * <p>
+ * Reports created by {@link #newReport(String, String, boolean)} count their
+ * messages on the calling thread and queue them, unformatted, for the writer
+ * thread. The writer thread formats the messages as {@link DefaultReportImpl}
+ * does and writes them through a large buffer, which is flushed whenever the
+ * queue runs empty. Messages are written in the order they were queued, so the
+ * messages of each book keep their order when several books are validated
+ * concurrently.
+ * </p>
+ * <p>
+ * {@link #flush()} waits until all the messages queued so far are written;
+ * {@link #close()} must be invoked when done to stop the writer thread.
+ * Messages reported after {@link #close()} are counted but not written.
+ * </p>
+ */
+public class AsyncReportWriter implements Closeable {
+
+	private static final int QUEUE_CAPACITY = 8192;
+	private static final int BUFFER_SIZE = 64 * 1024;
+	// how long to wait on a full queue before checking the writer thread
+	private static final long PUT_TIMEOUT_MILLIS = 100;
+	private static final String LINE_SEPARATOR = System
+			.getProperty("line.separator");
+	private static final Event CLOSE = new Event(null, null, null, null, 0,
+			0, null, null);
+
+	private final BlockingQueue<Event> queue = new ArrayBlockingQueue<Event>(
+			QUEUE_CAPACITY);
+	private final Writer out;
+	private final boolean closeOut;
+	private final Thread thread;
+	private volatile IOException failure;
+	private volatile boolean closed;
+
+	/**
+	 * Create a writer for the given stream, which is flushed but not closed
+	 * when this writer is closed.
+	 */
+	public AsyncReportWriter(OutputStream out) {
+		this(new OutputStreamWriter(out), false);
+	}
+
+	/**
+	 * Create a writer for the given character stream.
+	 * 
+	 * @param closeOut
+	 *            whether to close the stream when this writer is closed.
+	 */
+	public AsyncReportWriter(Writer out, boolean closeOut) {
+		this.out = new BufferedWriter(out, BUFFER_SIZE);
+		this.closeOut = closeOut;
+		this.thread = new Thread(new Runnable() {
+			public void run() {
+				write();
+			}
+		}, "epubcheck-report-writer");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Create a report writing through this writer, with the same output as
+	 * {@link DefaultReportImpl#DefaultReportImpl(String, String, boolean)}.
+	 */
+	public BookReport newReport(String ePubName, String info, boolean quiet) {
+		return new BookReport(ePubName, info, quiet);
+	}
+
+	public BookReport newReport(String ePubName, boolean quiet) {
+		return new BookReport(ePubName, null, quiet);
+	}
+
+	/**
+	 * Wait until all the messages queued so far are written and flushed.
+	 * 
+	 * @throws IOException
+	 *             if writing failed.
+	 */
+	public void flush() throws IOException {
+		synchronized (this) {
+			if (closed) {
+				checkFailure();
+				return;
+			}
+		}
+		Event marker = new Event(null, null, null, null, 0, 0, null,
+				new CountDownLatch(1));
+		if (put(marker)) {
+			await(marker.done);
+		}
+		checkFailure();
+	}
+
+	/**
+	 * Write the remaining messages and stop the writer thread.
+	 * 
+	 * @throws IOException
+	 *             if writing failed.
+	 */
+	public void close() throws IOException {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+		}
+		put(CLOSE);
+		Uninterruptibles.joinUninterruptibly(thread);
+		checkFailure();
+	}
+
+	private void checkFailure() throws IOException {
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Queue the given event, waiting for space in the queue while the writer
+	 * thread is running. Interrupting the calling thread does not drop the
+	 * event; its interrupt status is restored once the event is queued.
+	 * 
+	 * @return false if the writer thread has stopped, in which case the event
+	 *         is dropped and the failure is thrown by the next
+	 *         {@link #flush()} or {@link #close()}.
+	 */
+	private boolean put(Event event) {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					if (queue.offer(event, PUT_TIMEOUT_MILLIS,
+							TimeUnit.MILLISECONDS)) {
+						return true;
+					}
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+				if (!thread.isAlive()) {
+					if (failure == null) {
+						failure = new IOException(
+								"the report writer thread has stopped");
+					}
+					return false;
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Wait for the given marker to be released, or the writer thread to stop.
+	 */
+	private void await(CountDownLatch done) {
+		while (thread.isAlive()) {
+			if (Uninterruptibles.awaitUninterruptibly(done, PUT_TIMEOUT_MILLIS,
+					TimeUnit.MILLISECONDS)) {
+				return;
+			}
+		}
+	}
+
+	private void write() {
+		try {
+			while (true) {
+				Event event = queue.poll();
+				if (event == null) {
+					flushOut();
+					event = queue.take();
+				}
+				if (event == CLOSE) {
+					flushOut();
+					break;
+				}
+				if (event.done != null) {
+					flushOut();
+					event.done.countDown();
+					continue;
+				}
+				if (event.label == null) {
+					// a console line, written after the preceding messages
+					flushOut();
+					System.out.println(event.pattern);
+					continue;
+				}
+				if (failure == null) {
+					try {
+						out.write(event.format());
+						out.write(LINE_SEPARATOR);
+					} catch (IOException e) {
+						failure = e;
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			// stop writing
+		} finally {
+			if (closeOut) {
+				try {
+					out.close();
+				} catch (IOException e) {
+					if (failure == null) {
+						failure = e;
+					}
+				}
+			}
+		}
+	}
+
+	private void flushOut() {
+		try {
+			out.flush();
+		} catch (IOException e) {
+			if (failure == null) {
+				failure = e;
+			}
+		}
+	}
+
+	/**
+	 * A queued message, a flush marker, whose latch is released once the
+	 * preceding messages are written and flushed, or a line for the standard
+	 * output, which has no label.
+	 */
+	private static final class Event {
+		final String label;
+		final String ePubName;
+		final String resource;
+		final int line;
+		final int column;
+		final String pattern;
+		final Object[] args;
+		final CountDownLatch done;
+
+		Event(String label, String ePubName, String resource, String pattern,
+				int line, int column, Object[] args, CountDownLatch done) {
+			this.label = label;
+			this.ePubName = ePubName;
+			this.resource = resource;
+			this.line = line;
+			this.column = column;
+			this.pattern = pattern;
+			this.args = args;
+			this.done = done;
+		}
+
+		String format() {
+			return DefaultReportImpl.formatLine(label, ePubName, resource,
+					line, column,
+					ReportUtil.normalizeSpace(ReportUtil.format(pattern, args)));
+		}
+	}
+
+	/**
+	 * A report queuing its messages on the enclosing writer.
+	 */
+	public class BookReport implements MessageReport {
+
+		private final String ePubName;
+		private final boolean quiet;
+		private int errorCount, warningCount, exceptionCount, hintCount;
+
+		BookReport(String ePubName, String info, boolean quiet) {
+			this.ePubName = ePubName;
+			this.quiet = quiet;
+			if (info != null) {
+				queue("WARNING", "", 0, 0, info, null);
+			}
+		}
+
+		private void queue(String label, String resource, int line,
+				int column, String pattern, Object[] args) {
+			if (closed) {
+				return;
+			}
+			put(new Event(label, ePubName, resource, pattern, line, column,
+					args, null));
+		}
+
+		public void message(Severity severity, String resource, int line,
+				int column, String pattern, Object... args) {
+			switch (severity) {
+			case ERROR:
+				errorCount++;
+				queue("ERROR", resource, line, column, pattern, args);
+				break;
+			case WARNING:
+				warningCount++;
+				queue("WARNING", resource, line, column, pattern, args);
+				break;
+			case HINT:
+				hintCount++;
+				if (!quiet) {
+					queue("HINT", resource, line, column, pattern, args);
+				}
+				break;
+			}
+		}
+
+		public void error(String resource, int line, int column, String message) {
+			message(Severity.ERROR, resource, line, column, message);
+		}
+
+		public void warning(String resource, int line, int column,
+				String message) {
+			message(Severity.WARNING, resource, line, column, message);
+		}
+
+		public void hint(String resource, int line, int column, String message) {
+			message(Severity.HINT, resource, line, column, message);
+		}
+
+		public void exception(String resource, Exception e) {
+			exceptionCount++;
+			queue("EXCEPTION", resource, 0, 0, e.getMessage(), null);
+		}
+
+		public void info(String resource, FeatureEnum feature, String value) {
+			if (feature == FeatureEnum.FORMAT_VERSION && !quiet
+					&& !closed) {
+				put(new Event(null, ePubName, resource, String.format(
+						Messages.VALIDATING_VERSION_MESSAGE, value), 0, 0,
+						null, null));
+			}
+		}
+
+		public int getErrorCount() {
+			return errorCount;
+		}
+
+		public int getWarningCount() {
+			return warningCount;
+		}
+
+		public int getExceptionCount() {
+			return exceptionCount;
+		}
+
+		public int getHintCount() {
+			return hintCount;
+		}
+	}
+}
@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2013 International Digital Publishing Forum
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of
+ *  this software and associated documentation files (the "Software"), to deal in
+ *  the Software without restriction, including without limitation the rights to
+ *  use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ *  the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ *  FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ *  COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ *  IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *  CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.adobe.epubcheck.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.adobe.epubcheck.api.MessageReport;
+import com.adobe.epubcheck.api.Severity;
+
+/**
+ * A report writing a compact binary record of the validation of a book, which
+ * {@link BinaryReportReader} converts back to the other report formats.
+ * <p>
+ * The record of a book is a section starting with a header (the
+ * {@link #MAGIC} bytes, a format version and the book name) and ending with
+ * the message counts. Sections are self-contained, so the records of a batch
+ * run can be appended to one file, one book after the other.
+ * </p>
+ * <p>
+ * Numbers are written as unsigned varints. Strings (resource paths, message
+ * IDs, message arguments and texts) are written as a reference to a string
+ * table scoped to the section: 0 stands for null, 1 is followed by a new
+ * string (its UTF-8 length and bytes) which is appended to the table, and
+ * <i>n</i> &gt; 1 refers to the (<i>n</i> - 2)th string of the table. Messages
+ * defined in {@link Messages} are recorded by ID and arguments, others by
+ * text.
+ * </p>
+ */
+public class BinaryReportImpl implements MessageReport {
+
+	public static final byte[] MAGIC = { 'E', 'P', 'C', 'B' };
+	public static final int VERSION = 1;
+
+	static final int ERROR = 1;
+	static final int WARNING = 2;
+	static final int HINT = 3;
+	static final int EXCEPTION = 4;
+	static final int INFO = 5;
+	static final int END = 6;
+
+	private static final int FLUSH_THRESHOLD = 8192;
+
+	private final OutputStream out;
+	private final Map<String, Integer> strings = new HashMap<String, Integer>();
+	private byte[] buffer = new byte[2 * FLUSH_THRESHOLD];
+	private int length;
+	private IOException failure;
+	private boolean ended;
+	private int errorCount, warningCount, exceptionCount, hintCount;
+
+	/**
+	 * Start the section of a book.
+	 * 
+	 * @param out
+	 *            the stream, which is flushed but never closed by this report.
+	 * @param ePubName
+	 *            the name of the book.
+	 */
+	public BinaryReportImpl(OutputStream out, String ePubName) {
+		this.out = out;
+		for (byte b : MAGIC) {
+			writeByte(b);
+		}
+		writeVarint(VERSION);
+		writeString(ePubName);
+	}
+
+	public void message(Severity severity, String resource, int line,
+			int column, String pattern, Object... args) {
+		switch (severity) {
+		case ERROR:
+			errorCount++;
+			writeByte(ERROR);
+			break;
+		case WARNING:
+			warningCount++;
+			writeByte(WARNING);
+			break;
+		case HINT:
+			hintCount++;
+			writeByte(HINT);
+			break;
+		}
+		writeString(resource);
+		writeVarint(Math.max(line, 0));
+		writeVarint(Math.max(column, 0));
+		String id = Messages.getId(pattern);
+		writeString(id);
+		if (id == null) {
+			writeString(pattern);
+		}
+		int argc = args == null ? 0 : args.length;
+		writeVarint(argc);
+		for (int i = 0; i < argc; i++) {
+			writeString(args[i] == null ? null : args[i].toString());
+		}
+		endRecord();
+	}
+
+	public void error(String resource, int line, int column, String message) {
+		message(Severity.ERROR, resource, line, column, message);
+	}
+
+	public void warning(String resource, int line, int column, String message) {
+		message(Severity.WARNING, resource, line, column, message);
+	}
+
+	public void hint(String resource, int line, int column, String message) {
+		message(Severity.HINT, resource, line, column, message);
+	}
+
+	public void exception(String resource, Exception e) {
+		exceptionCount++;
+		writeByte(EXCEPTION);
+		writeString(resource);
+		writeString(e.getMessage());
+		endRecord();
+	}
+
+	public void info(String resource, FeatureEnum feature, String value) {
+		writeByte(INFO);
+		writeString(resource);
+		writeString(feature.name());
+		writeString(value);
+		endRecord();
+	}
+
+	public int getErrorCount() {
+		return errorCount;
+	}
+
+	public int getWarningCount() {
+		return warningCount;
+	}
+
+	public int getExceptionCount() {
+		return exceptionCount;
+	}
+
+	public int getHintCount() {
+		return hintCount;
+	}
+
+	/**
+	 * End the section of the book with its message counts, and flush. Nothing
+	 * may be reported after this.
+	 * 
+	 * @throws IOException
+	 *             if writing this or any previous record failed.
+	 */
+	public void end() throws IOException {
+		if (!ended) {
+			ended = true;
+			writeByte(END);
+			writeVarint(errorCount);
+			writeVarint(warningCount);
+			writeVarint(exceptionCount);
+			writeVarint(hintCount);
+			writeBuffer();
+			if (failure == null) {
+				try {
+					out.flush();
+				} catch (IOException e) {
+					failure = e;
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	private void endRecord() {
+		if (length >= FLUSH_THRESHOLD) {
+			writeBuffer();
+		}
+	}
+
+	private void writeBuffer() {
+		if (length > 0 && failure == null) {
+			try {
+				out.write(buffer, 0, length);
+			} catch (IOException e) {
+				failure = e;
+			}
+		}
+		length = 0;
+	}
+
+	private void writeString(String s) {
+		if (s == null) {
+			writeVarint(0);
+			return;
+		}
+		Integer index = strings.get(s);
+		if (index != null) {
+			writeVarint(index + 2);
+			return;
+		}
+		strings.put(s, strings.size());
+		writeVarint(1);
+		writeVarint(utf8Length(s));
+		ensureCapacity(3 * s.length());
+		for (int i = 0; i < s.length(); i++) {
+			int c = s.charAt(i);
+			if (c < 0x80) {
+				buffer[length++] = (byte) c;
+			} else if (c < 0x800) {
+				buffer[length++] = (byte) (0xC0 | (c >> 6));
+				buffer[length++] = (byte) (0x80 | (c & 0x3F));
+			} else if (Character.isHighSurrogate((char) c) && i + 1 < s.length()
+					&& Character.isLowSurrogate(s.charAt(i + 1))) {
+				int cp = Character.toCodePoint((char) c, s.charAt(++i));
+				buffer[length++] = (byte) (0xF0 | (cp >> 18));
+				buffer[length++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+				buffer[length++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+				buffer[length++] = (byte) (0x80 | (cp & 0x3F));
+			} else if (isSurrogate((char) c)) {
+				buffer[length++] = '?';
+			} else {
+				buffer[length++] = (byte) (0xE0 | (c >> 12));
+				buffer[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				buffer[length++] = (byte) (0x80 | (c & 0x3F));
+			}
+		}
+	}
+
+	/**
+	 * The length of the UTF-8 encoding of s, with unpaired surrogates encoded as
+	 * '?'.
+	 */
+	private static int utf8Length(String s) {
+		int n = 0;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c < 0x80) {
+				n += 1;
+			} else if (c < 0x800) {
+				n += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+					&& Character.isLowSurrogate(s.charAt(i + 1))) {
+				n += 4;
+				i++;
+			} else if (isSurrogate(c)) {
+				n += 1;
+			} else {
+				n += 3;
+			}
+		}
+		return n;
+	}
+
+	private static boolean isSurrogate(char c) {
+		return c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE;
+	}
+
+	private void writeVarint(int value) {
+		ensureCapacity(5);
+		while ((value & ~0x7F) != 0) {
+			buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[length++] = (byte) value;
+	}
+
+	private void writeByte(int b) {
+		ensureCapacity(1);
+		buffer[length++] = (byte) b;
+	}
+
+	private void ensureCapacity(int n) {
+		if (length + n > buffer.length) {
+			byte[] larger = new byte[Math.max(buffer.length * 2, length + n)];
+			System.arraycopy(buffer, 0, larger, 0, length);
+			buffer = larger;
+		}
+	}
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2013 International Digital Publishing Forum
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of
+ *  this software and associated documentation files (the "Software"), to deal in
+ *  the Software without restriction, including without limitation the rights to
+ *  use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ *  the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ *  FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ *  COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ *  IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *  CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.adobe.epubcheck.util;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.adobe.epubcheck.api.EpubCheck;
+import com.adobe.epubcheck.api.Report;
+import com.adobe.epubcheck.api.Severity;
+
+/**
+ * Reads the records written by {@link BinaryReportImpl}, and replays them to
+ * other reports.
+ * <p>
+ * Typical use iterates over the books of the stream:
+ * </p>
+ * 
+ * <pre>
+ * String book;
+ * while ((book = reader.nextBook()) != null) {
+ * 	Report report = new XmlReportImpl(file, book, version);
+ * 	reader.replay(report);
+ * 	report.generate();
+ * }
+ * </pre>
+ */
+public class BinaryReportReader {
+
+	private final DataInputStream in;
+	private final List<String> strings = new ArrayList<String>();
+	private int[] counts;
+
+	public BinaryReportReader(InputStream in) {
+		this.in = new DataInputStream(in instanceof BufferedInputStream ? in
+				: new BufferedInputStream(in));
+	}
+
+	/**
+	 * Read the header of the next book section.
+	 * 
+	 * @return the name of the book, or null at the end of the stream.
+	 * @throws IOException
+	 *             if the stream is not in the expected format, or if the
+	 *             records of the previous book were not replayed.
+	 */
+	public String nextBook() throws IOException {
+		if (counts == null && !strings.isEmpty()) {
+			throw new IOException("The records of the previous book were not replayed");
+		}
+		int b = in.read();
+		if (b == -1) {
+			return null;
+		}
+		byte[] magic = new byte[BinaryReportImpl.MAGIC.length];
+		magic[0] = (byte) b;
+		in.readFully(magic, 1, magic.length - 1);
+		for (int i = 0; i < magic.length; i++) {
+			if (magic[i] != BinaryReportImpl.MAGIC[i]) {
+				throw new IOException("Not a binary report");
+			}
+		}
+		int version = readVarint();
+		if (version != BinaryReportImpl.VERSION) {
+			throw new IOException("Unsupported binary report version " + version);
+		}
+		strings.clear();
+		counts = null;
+		return readString();
+	}
+
+	/**
+	 * Replay the records of the current book to the given report. Messages are
+	 * delivered unformatted if the report is a
+	 * {@link com.adobe.epubcheck.api.MessageReport}.
+	 * 
+	 * @throws IOException
+	 *             if the stream is truncated or not in the expected format.
+	 */
+	public void replay(Report report) throws IOException {
+		while (true) {
+			int type = in.read();
+			switch (type) {
+			case BinaryReportImpl.ERROR:
+				replayMessage(report, Severity.ERROR);
+				break;
+			case BinaryReportImpl.WARNING:
+				replayMessage(report, Severity.WARNING);
+				break;
+			case BinaryReportImpl.HINT:
+				replayMessage(report, Severity.HINT);
+				break;
+			case BinaryReportImpl.EXCEPTION: {
+				String resource = readString();
+				report.exception(resource, new Exception(readString()));
+				break;
+			}
+			case BinaryReportImpl.INFO: {
+				String resource = readString();
+				FeatureEnum feature = FeatureEnum.valueOf(readString());
+				report.info(resource, feature, readString());
+				break;
+			}
+			case BinaryReportImpl.END:
+				counts = new int[4];
+				for (int i = 0; i < counts.length; i++) {
+					counts[i] = readVarint();
+				}
+				return;
+			case -1:
+				throw new EOFException("Truncated binary report");
+			default:
+				throw new IOException("Unknown record type " + type);
+			}
+		}
+	}
+
+	/**
+	 * The error, warning, exception and hint counts recorded at the end of the
+	 * last replayed book.
+	 */
+	public int[] getCounts() {
+		return counts;
+	}
+
+	private void replayMessage(Report report, Severity severity)
+			throws IOException {
+		String resource = readString();
+		int line = readVarint();
+		int column = readVarint();
+		String id = readString();
+		String pattern = id != null ? Messages.getPattern(id) : readString();
+		if (pattern == null) {
+			pattern = id;
+		}
+		Object[] args = new Object[readVarint()];
+		for (int i = 0; i < args.length; i++) {
+			args[i] = readString();
+		}
+		ReportUtil.message(report, severity, resource, line, column, pattern,
+				args);
+	}
+
+	private String readString() throws IOException {
+		int ref = readVarint();
+		if (ref == 0) {
+			return null;
+		} else if (ref == 1) {
+			byte[] bytes = new byte[readVarint()];
+			in.readFully(bytes);
+			String s = new String(bytes, "UTF-8");
+			strings.add(s);
+			return s;
+		} else if (ref - 2 < strings.size()) {
+			return strings.get(ref - 2);
+		}
+		throw new IOException("Invalid string reference " + ref);
+	}
+
+	private int readVarint() throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = in.read();
+			if (b == -1) {
+				throw new EOFException("Truncated binary report");
+			}
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Invalid varint");
+	}
+
+	/**
+	 * Convert a binary report file to text on the standard output, or to one
+	 * XML report per book in a directory.
+	 * <p>
+	 * Usage: <code>BinaryReportReader &lt;file&gt; [-xml &lt;dir&gt;]</code>
+	 * </p>
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1 && !(args.length == 3 && "-xml".equals(args[1]))) {
+			System.err.println("Usage: BinaryReportReader <file> [-xml <dir>]");
+			System.exit(1);
+		}
+		File xmlDir = args.length == 3 ? new File(args[2]) : null;
+		InputStream in = new FileInputStream(args[0]);
+		try {
+			BinaryReportReader reader = new BinaryReportReader(in);
+			PrintWriter out = new PrintWriter(System.out);
+			String book;
+			while ((book = reader.nextBook()) != null) {
+				if (xmlDir != null) {
+					String name = new File(book).getName();
+					XmlReportImpl report = new XmlReportImpl(new File(xmlDir,
+							name + ".xml"), book, EpubCheck.version());
+					reader.replay(report);
+					report.generate();
+				} else {
+					out.println(book);
+					reader.replay(new WriterReportImpl(out));
+				}
+			}
+			out.flush();
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2013 International Digital Publishing Forum
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of
+ *  this software and associated documentation files (the "Software"), to deal in
+ *  the Software without restriction, including without limitation the rights to
+ *  use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ *  the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ *  FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ *  COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ *  IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *  CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.adobe.epubcheck.util;
+
+import com.adobe.epubcheck.api.MessageReport;
+import com.adobe.epubcheck.api.Severity;
+
+/**
+ * A report that only counts messages. Messages delivered in structured form
+ * are never formatted, so this report is suitable when only the outcome of the
+ * validation is needed.
+ */
+public class CountingReportImpl implements MessageReport {
+
+	private int errorCount, warningCount, exceptionCount, hintCount;
+
+	public void message(Severity severity, String resource, int line,
+			int column, String pattern, Object... args) {
+		switch (severity) {
+		case ERROR:
+			errorCount++;
+			break;
+		case WARNING:
+			warningCount++;
+			break;
+		case HINT:
+			hintCount++;
+			break;
+		}
+	}
+
+	public void error(String resource, int line, int column, String message) {
+		errorCount++;
+	}
+
+	public void warning(String resource, int line, int column, String message) {
+		warningCount++;
+	}
+
+	public void hint(String resource, int line, int column, String message) {
+		hintCount++;
+	}
+
+	public void exception(String resource, Exception e) {
+		exceptionCount++;
+	}
+
+	public void info(String resource, FeatureEnum feature, String value) {
+	}
+
+	public int getErrorCount() {
+		return errorCount;
+	}
+
+	public int getWarningCount() {
+		return warningCount;
+	}
+
+	public int getExceptionCount() {
+		return exceptionCount;
+	}
+
+	public int getHintCount() {
+		return hintCount;
+	}
+
+}
@@ -21,9 +21,10 @@
  */
 package com.adobe.epubcheck.util;
 
-import com.adobe.epubcheck.api.Report;
+import com.adobe.epubcheck.api.MessageReport;
+import com.adobe.epubcheck.api.Severity;
 
-public class DefaultReportImpl implements Report {
+public class DefaultReportImpl implements MessageReport {
 
     private static boolean DEBUG = false;
 	private String ePubName;
@@ -49,31 +50,33 @@ public class DefaultReportImpl implements Report {
 		hintCount = 0;
 	}
 
+	/**
+	 * Format a message line, as output by this report.
+	 */
+	static String formatLine(String label, String ePubName, String resource,
+			int line, int column, String message) {
+		return label + ": "
+				+ ePubName
+				+ (resource == null ? "" : "/" + resource)
+				+ (line <= 0 ? "" : "(" + line
+						+ (column <= 0 ? "" : "," + column) + ")") + ": "
+				+ message;
+	}
+
 	private String fixMessage(String message) {
-		if (message == null) return "";
-		return message.replaceAll("[\\s]+", " ");
+		return ReportUtil.normalizeSpace(message);
 	}
 
 	public void error(String resource, int line, int column, String message) {
 		errorCount++;
-		message = fixMessage(message);
-		System.err.println("ERROR: "
-				+ ePubName
-				+ (resource == null ? "" : "/" + resource)
-				+ (line <= 0 ? "" : "(" + line
-						+ (column <= 0 ? "" : "," + column) + ")") + ": "
-				+ message);
+		System.err.println(formatLine("ERROR", ePubName, resource, line,
+				column, fixMessage(message)));
 	}
 
 	public void warning(String resource, int line, int column, String message) {
 		warningCount++;
-		message = fixMessage(message);
-		System.err.println("WARNING: "
-				+ ePubName
-				+ (resource == null ? "" : "/" + resource)
-				+ (line <= 0 ? "" : "(" + line
-						+ (column <= 0 ? "" : "," + column) + ")") + ": "
-				+ message);
+		System.err.println(formatLine("WARNING", ePubName, resource, line,
+				column, fixMessage(message)));
 	}
 
 	public void exception(String resource, Exception e) {
@@ -124,12 +127,28 @@ public class DefaultReportImpl implements Report {
 	public void hint(String resource, int line, int column, String message) {
 		hintCount++;
     	if(!quiet) {
-	    	System.err.println("HINT: " + ePubName
-			+ (resource == null ? "" : "/" + resource)
-			+ (line <= 0 ? "" : "(" + line
-					+ (column <= 0 ? "" : "," + column) + ")") + ": "
-			+ fixMessage(message));
+	    	System.err.println(formatLine("HINT", ePubName, resource, line,
+	    			column, fixMessage(message)));
     	}
     }
 
+	public void message(Severity severity, String resource, int line,
+			int column, String pattern, Object... args) {
+		switch (severity) {
+		case ERROR:
+			error(resource, line, column, ReportUtil.format(pattern, args));
+			break;
+		case WARNING:
+			warning(resource, line, column, ReportUtil.format(pattern, args));
+			break;
+		case HINT:
+			if (quiet) {
+				hintCount++;
+			} else {
+				hint(resource, line, column, ReportUtil.format(pattern, args));
+			}
+			break;
+		}
+	}
+
 }
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2013 International Digital Publishing Forum
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of
+ *  this software and associated documentation files (the "Software"), to deal in
+ *  the Software without restriction, including without limitation the rights to
+ *  use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ *  the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ *  FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ *  COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ *  IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *  CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.adobe.epubcheck.util;
+
+import com.adobe.epubcheck.api.CancellableReport;
+import com.adobe.epubcheck.api.MessageReport;
+import com.adobe.epubcheck.api.Report;
+import com.adobe.epubcheck.api.Severity;
+
+/**
+ * A report decorator that requests the validation to stop once a number of
+ * errors (including exceptions) has been reported.
+ * <p>
+ * All messages are passed on to the decorated report. Checkers poll
+ * {@link ReportUtil#isCancelled(Report)}, which sees this report through other
+ * decorators implementing {@link CancellableReport}, between their phases, and before
+ * each resource they check, and return early once the limit is reached, so
+ * the decorated report holds a partial result.
+ * </p>
+ */
+public class FailFastReportImpl implements MessageReport, CancellableReport {
+
+	private final Report report;
+	private final int maxErrors;
+	private boolean limitReached;
+
+	/**
+	 * @param report
+	 *            the decorated report.
+	 * @param maxErrors
+	 *            the number of errors after which validation stops.
+	 */
+	public FailFastReportImpl(Report report, int maxErrors) {
+		if (maxErrors < 1) {
+			throw new IllegalArgumentException();
+		}
+		this.report = report;
+		this.maxErrors = maxErrors;
+	}
+
+	/**
+	 * Whether the error limit has been reached.
+	 */
+	public boolean isLimitReached() {
+		return limitReached;
+	}
+
+	public boolean isCancelled() {
+		return limitReached || ReportUtil.isCancelled(report);
+	}
+
+	private void checkLimit() {
+		if (!limitReached
+				&& report.getErrorCount() + report.getExceptionCount() >= maxErrors) {
+			limitReached = true;
+			ReportUtil.hint(report, null, -1, -1, Messages.FAIL_FAST_LIMIT_REACHED,
+					maxErrors);
+		}
+	}
+
+	public void message(Severity severity, String resource, int line,
+			int column, String pattern, Object... args) {
+		ReportUtil.message(report, severity, resource, line, column, pattern,
+				args);
+		if (severity == Severity.ERROR) {
+			checkLimit();
+		}
+	}
+
+	public void error(String resource, int line, int column, String message) {
+		report.error(resource, line, column, message);
+		checkLimit();
+	}
+
+	public void warning(String resource, int line, int column, String message) {
+		report.warning(resource, line, column, message);
+	}
+
+	public void hint(String resource, int line, int column, String message) {
+		report.hint(resource, line, column, message);
+	}
+
+	public void exception(String resource, Exception e) {
+		report.exception(resource, e);
+		checkLimit();
+	}
+
+	public void info(String resource, FeatureEnum feature, String value) {
+		report.info(resource, feature, value);
+	}
+
+	public int getErrorCount() {
+		return report.getErrorCount();
+	}
+
+	public int getWarningCount() {
+		return report.getWarningCount();
+	}
+
+	public int getExceptionCount() {
+		return report.getExceptionCount();
+	}
+
+	public int getHintCount() {
+		return report.getHintCount();
+	}
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright (c) 2013 International Digital Publishing Forum
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of
+ *  this software and associated documentation files (the "Software"), to deal in
+ *  the Software without restriction, including without limitation the rights to
+ *  use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ *  the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ *  FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ *  COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ *  IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *  CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.adobe.epubcheck.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Formatter;
+import java.util.Locale;
+
+import com.adobe.epubcheck.api.MessageReport;
+import com.adobe.epubcheck.api.Severity;
+
+/**
+ * A report writing newline-delimited JSON, one object per line.
+ * <p>
+ * Each message, exception and info value is written as an object with an
+ * <code>event</code> property (<code>message</code>, <code>exception</code> or
+ * <code>info</code>), the book name, and the properties of the event:
+ * <code>severity</code>, <code>id</code> (see {@link Messages#getId(String)}),
+ * <code>resource</code>, <code>line</code>, <code>column</code> and
+ * <code>message</code> for messages, <code>feature</code> and
+ * <code>value</code> for info values. Absent properties are omitted.
+ * {@link #summary()} writes a final <code>summary</code> object with the
+ * message counts of the book.
+ * </p>
+ * <p>
+ * Lines are built in a reused buffer, formatting and escaping messages in
+ * place, and are written to the underlying writer in blocks of whole lines,
+ * so several reports can share one writer to stream the results of a batch
+ * run.
+ * </p>
+ */
+public class JsonReportImpl implements MessageReport {
+
+	private static final int FLUSH_THRESHOLD = 8192;
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final Writer out;
+	private final String ePubName;
+	private final Formatter formatter;
+	private char[] buffer = new char[2 * FLUSH_THRESHOLD];
+	private int length;
+	private IOException failure;
+	private int errorCount, warningCount, exceptionCount, hintCount;
+
+	/**
+	 * @param out
+	 *            the writer, which is flushed but never closed by this report.
+	 * @param ePubName
+	 *            the name of the book, written in each event.
+	 */
+	public JsonReportImpl(Writer out, String ePubName) {
+		this.out = out;
+		this.ePubName = ePubName;
+		this.formatter = new Formatter(new Appendable() {
+			public Appendable append(CharSequence csq) {
+				appendEscaped(csq, 0, csq.length());
+				return this;
+			}
+
+			public Appendable append(CharSequence csq, int start, int end) {
+				appendEscaped(csq, start, end);
+				return this;
+			}
+
+			public Appendable append(char c) {
+				appendEscaped(c);
+				return this;
+			}
+		}, Locale.ENGLISH);
+	}
+
+	public void message(Severity severity, String resource, int line,
+			int column, String pattern, Object... args) {
+		switch (severity) {
+		case ERROR:
+			errorCount++;
+			break;
+		case WARNING:
+			warningCount++;
+			break;
+		case HINT:
+			hintCount++;
+			break;
+		}
+		startEvent("message");
+		appendProperty("severity", severity.name());
+		appendProperty("id", Messages.getId(pattern));
+		appendProperty("resource", resource);
+		appendProperty("line", line);
+		appendProperty("column", column);
+		appendName("message");
+		append('"');
+		if (args == null || args.length == 0) {
+			appendEscaped(pattern == null ? "" : pattern, 0,
+					pattern == null ? 0 : pattern.length());
+		} else {
+			formatter.format(pattern, args);
+		}
+		append('"');
+		endEvent();
+	}
+
+	public void error(String resource, int line, int column, String message) {
+		message(Severity.ERROR, resource, line, column, message);
+	}
+
+	public void warning(String resource, int line, int column, String message) {
+		message(Severity.WARNING, resource, line, column, message);
+	}
+
+	public void hint(String resource, int line, int column, String message) {
+		message(Severity.HINT, resource, line, column, message);
+	}
+
+	public void exception(String resource, Exception e) {
+		exceptionCount++;
+		startEvent("exception");
+		appendProperty("resource", resource);
+		appendProperty("message", e.getMessage());
+		endEvent();
+	}
+
+	public void info(String resource, FeatureEnum feature, String value) {
+		startEvent("info");
+		appendProperty("resource", resource);
+		appendProperty("feature", feature.name());
+		appendProperty("value", value);
+		endEvent();
+	}
+
+	public int getErrorCount() {
+		return errorCount;
+	}
+
+	public int getWarningCount() {
+		return warningCount;
+	}
+
+	public int getExceptionCount() {
+		return exceptionCount;
+	}
+
+	public int getHintCount() {
+		return hintCount;
+	}
+
+	/**
+	 * Write the summary object of the book, and flush.
+	 * 
+	 * @throws IOException
+	 *             if writing this or any previous event failed.
+	 */
+	public void summary() throws IOException {
+		startEvent("summary");
+		appendName("errors");
+		appendInt(errorCount);
+		appendName("warnings");
+		appendInt(warningCount);
+		appendName("exceptions");
+		appendInt(exceptionCount);
+		appendName("hints");
+		appendInt(hintCount);
+		endEvent();
+		flush();
+	}
+
+	/**
+	 * Write the buffered events and flush the underlying writer.
+	 * 
+	 * @throws IOException
+	 *             if writing this or any previous event failed.
+	 */
+	public void flush() throws IOException {
+		writeBuffer();
+		if (failure == null) {
+			try {
+				synchronized (out) {
+					out.flush();
+				}
+			} catch (IOException e) {
+				failure = e;
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	private void startEvent(String event) {
+		append('{');
+		appendName("event");
+		appendString(event);
+		appendProperty("book", ePubName);
+	}
+
+	private void endEvent() {
+		append('}');
+		append('\n');
+		if (length >= FLUSH_THRESHOLD) {
+			writeBuffer();
+		}
+	}
+
+	private void writeBuffer() {
+		if (length > 0 && failure == null) {
+			try {
+				synchronized (out) {
+					out.write(buffer, 0, length);
+				}
+			} catch (IOException e) {
+				failure = e;
+			}
+		}
+		length = 0;
+	}
+
+	private void appendName(String name) {
+		if (buffer[length - 1] != '{') {
+			append(',');
+		}
+		append('"');
+		appendEscaped(name, 0, name.length());
+		append('"');
+		append(':');
+	}
+
+	private void appendProperty(String name, String value) {
+		if (value != null) {
+			appendName(name);
+			appendString(value);
+		}
+	}
+
+	private void appendProperty(String name, int value) {
+		if (value > 0) {
+			appendName(name);
+			appendInt(value);
+		}
+	}
+
+	private void appendString(String value) {
+		append('"');
+		appendEscaped(value, 0, value.length());
+		append('"');
+	}
+
+	private void appendInt(int value) {
+		if (value < 0) {
+			append('-');
+			value = -value;
+		}
+		ensureCapacity(10);
+		int start = length;
+		do {
+			buffer[length++] = (char) ('0' + value % 10);
+			value /= 10;
+		} while (value > 0);
+		// digits were written least significant first
+		for (int i = start, j = length - 1; i < j; i++, j--) {
+			char c = buffer[i];
+			buffer[i] = buffer[j];
+			buffer[j] = c;
+		}
+	}
+
+	private void appendEscaped(CharSequence csq, int start, int end) {
+		for (int i = start; i < end; i++) {
+			appendEscaped(csq.charAt(i));
+		}
+	}
+
+	private void appendEscaped(char c) {
+		switch (c) {
+		case '"':
+			append('\\');
+			append('"');
+			break;
+		case '\\':
+			append('\\');
+			append('\\');
+			break;
+		case '\n':
+			append('\\');
+			append('n');
+			break;
+		case '\r':
+			append('\\');
+			append('r');
+			break;
+		case '\t':
+			append('\\');
+			append('t');
+			break;
+		default:
+			if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+				ensureCapacity(6);
+				append('\\');
+				append('u');
+				append(HEX[(c >> 12) & 0xF]);
+				append(HEX[(c >> 8) & 0xF]);
+				append(HEX[(c >> 4) & 0xF]);
+				append(HEX[c & 0xF]);
+			} else {
+				append(c);
+			}
+		}
+	}
+
+	private void append(char c) {
+		if (length == buffer.length) {
+			ensureCapacity(1);
+		}
+		buffer[length++] = c;
+	}
+
+	private void ensureCapacity(int n) {
+		if (length + n > buffer.length) {
+			char[] larger = new char[Math.max(buffer.length * 2, length + n)];
+			System.arraycopy(buffer, 0, larger, 0, length);
+			buffer = larger;
+		}
+	}
+}
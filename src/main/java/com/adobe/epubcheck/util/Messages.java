@@ -22,6 +22,12 @@
 
 package com.adobe.epubcheck.util;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
 public class Messages {
 
 	public static String FULL_EPUB = "File is validated as a complete epub archive.";
@@ -104,6 +110,9 @@ public class Messages {
 	public static String XML_VERSION_NOT_SUPPORTED = "Your system doesn't support xml version verification. Make sure your xml files are conformant to XML 1.0";
 
 	public static String EXTERNAL_ENTITIES_NOT_ALLOWED = "External entities are not allowed. External entity declaration found: ";
+
+	public static String CATALOG_NOT_LOADED = "Catalog %1$s could not be loaded, and its entries are ignored: %2$s";
+	public static String EXTERNAL_ENTITY_NOT_RESOLVED = "External entity %1$s could not be resolved: it is not in the catalog, and fetching is disabled or over budget. It is read as empty.";
 	
 	public static String CSS_STRING_PARSE_ERROR = "An error occurred while parsing CSS for %1$s.";
 	
@@ -222,7 +231,60 @@ public class Messages {
 	public static String OCF_CONTAINERXML_FULLPATH_ATTR_EMPTY = "attribute \"full-path\" on element \"rootfile\" must not be empty";
 
 	public static String CLI_OUTPUT_XML = "Assessment XML document was saved in: ";
+	public static String CLI_TIMINGS = "Time spent in each validation phase:";
 	
 	public static String NCX_BAD_UID = "meta@dtb:uid content \'%1$s\' should conform to unique-identifier in content.opf: \'%2$s\'";
 
+	public static String OCF_ITEM_NOT_DECLARED = "item (%1$s) exists in the zip file, but is not declared in the OPF file";
+
+	public static String FAIL_FAST_LIMIT_REACHED = "Validation stopped after %1$s errors";
+
+	public static String MESSAGES_SUPPRESSED = "%1$s more occurrences of this message were suppressed: %2$s";
+
+
+	/**
+	 * Get the identifier of a message pattern, that is the name of the
+	 * constant of this class holding it.
+	 * <p>
+	 * The lookup is by identity, so it succeeds for the constant itself (as
+	 * passed unformatted to a {@link com.adobe.epubcheck.api.MessageReport}
+	 * or to the plain report methods), but not for a formatted message.
+	 * </p>
+	 * 
+	 * @return the identifier, or null if the pattern is not one of the
+	 *         constants of this class.
+	 */
+	public static String getId(String pattern) {
+		return pattern == null ? null : IdHolder.IDS.get(pattern);
+	}
+
+	/**
+	 * Get the message pattern with the given identifier.
+	 * 
+	 * @return the pattern, or null if there is no such constant.
+	 * @see #getId(String)
+	 */
+	public static String getPattern(String id) {
+		return id == null ? null : IdHolder.PATTERNS.get(id);
+	}
+
+	private static class IdHolder {
+		static final Map<String, String> IDS = new IdentityHashMap<String, String>();
+		static final Map<String, String> PATTERNS = new HashMap<String, String>();
+		static {
+			for (Field field : Messages.class.getFields()) {
+				int mod = field.getModifiers();
+				if (Modifier.isStatic(mod) && field.getType() == String.class) {
+					try {
+						String pattern = (String) field.get(null);
+						IDS.put(pattern, field.getName());
+						PATTERNS.put(field.getName(), pattern);
+					} catch (IllegalAccessException e) {
+						throw new IllegalStateException(e);
+					}
+				}
+			}
+		}
+	}
+
 }
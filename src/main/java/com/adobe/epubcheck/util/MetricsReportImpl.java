@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2013 International Digital Publishing Forum
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of
+ *  this software and associated documentation files (the "Software"), to deal in
+ *  the Software without restriction, including without limitation the rights to
+ *  use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ *  the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ *  FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ *  COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ *  IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *  CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.adobe.epubcheck.util;
+
+import com.adobe.epubcheck.api.CancellableReport;
+import com.adobe.epubcheck.api.MessageReport;
+import com.adobe.epubcheck.api.Report;
+import com.adobe.epubcheck.api.Severity;
+import com.adobe.epubcheck.api.ValidationMetrics;
+
+/**
+ * A report decorator that notifies the registered
+ * {@link com.adobe.epubcheck.api.MetricsListener}s of each message, and
+ * passes it on to the decorated report.
+ */
+public class MetricsReportImpl implements MessageReport, CancellableReport {
+
+	private final Report report;
+
+	public MetricsReportImpl(Report report) {
+		this.report = report;
+	}
+
+	public void message(Severity severity, String resource, int line,
+			int column, String pattern, Object... args) {
+		ValidationMetrics.messageReported(severity);
+		ReportUtil.message(report, severity, resource, line, column, pattern,
+				args);
+	}
+
+	public void error(String resource, int line, int column, String message) {
+		ValidationMetrics.messageReported(Severity.ERROR);
+		report.error(resource, line, column, message);
+	}
+
+	public void warning(String resource, int line, int column, String message) {
+		ValidationMetrics.messageReported(Severity.WARNING);
+		report.warning(resource, line, column, message);
+	}
+
+	public void hint(String resource, int line, int column, String message) {
+		ValidationMetrics.messageReported(Severity.HINT);
+		report.hint(resource, line, column, message);
+	}
+
+	public void exception(String resource, Exception e) {
+		ValidationMetrics.exceptionReported();
+		report.exception(resource, e);
+	}
+
+	public void info(String resource, FeatureEnum feature, String value) {
+		report.info(resource, feature, value);
+	}
+
+	public int getErrorCount() {
+		return report.getErrorCount();
+	}
+
+	public int getWarningCount() {
+		return report.getWarningCount();
+	}
+
+	public int getExceptionCount() {
+		return report.getExceptionCount();
+	}
+
+	public int getHintCount() {
+		return report.getHintCount();
+	}
+
+	public boolean isCancelled() {
+		return ReportUtil.isCancelled(report);
+	}
+}
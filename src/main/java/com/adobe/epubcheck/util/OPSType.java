@@ -44,6 +44,6 @@ public class OPSType {
 	}
 
 	public int hashCode() {
-		return (int) (mimeType.hashCode() * version.ordinal());
+		return 31 * mimeType.hashCode() + version.ordinal();
 	}
 }
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2013 International Digital Publishing Forum
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of
+ *  this software and associated documentation files (the "Software"), to deal in
+ *  the Software without restriction, including without limitation the rights to
+ *  use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ *  the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ *  FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ *  COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ *  IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *  CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.adobe.epubcheck.util;
+
+import com.adobe.epubcheck.api.CancellableReport;
+import com.adobe.epubcheck.api.MessageReport;
+import com.adobe.epubcheck.api.Report;
+import com.adobe.epubcheck.api.Severity;
+
+/**
+ * Delivers messages to a {@link Report}, in structured form if the report is a
+ * {@link MessageReport}, and formatted otherwise.
+ */
+public final class ReportUtil {
+
+	private ReportUtil() {
+
+	}
+
+	public static void error(Report report, String resource, int line,
+			int column, String pattern, Object... args) {
+		message(report, Severity.ERROR, resource, line, column, pattern, args);
+	}
+
+	public static void warning(Report report, String resource, int line,
+			int column, String pattern, Object... args) {
+		message(report, Severity.WARNING, resource, line, column, pattern,
+				args);
+	}
+
+	public static void hint(Report report, String resource, int line,
+			int column, String pattern, Object... args) {
+		message(report, Severity.HINT, resource, line, column, pattern, args);
+	}
+
+	public static void message(Report report, Severity severity,
+			String resource, int line, int column, String pattern,
+			Object... args) {
+		if (report instanceof MessageReport) {
+			((MessageReport) report).message(severity, resource, line, column,
+					pattern, args);
+			return;
+		}
+		String message = format(pattern, args);
+		switch (severity) {
+		case ERROR:
+			report.error(resource, line, column, message);
+			break;
+		case WARNING:
+			report.warning(resource, line, column, message);
+			break;
+		case HINT:
+			report.hint(resource, line, column, message);
+			break;
+		}
+	}
+
+	/**
+	 * Whether the validation reported to the given report should stop, as
+	 * requested by a {@link CancellableReport} such as
+	 * {@link FailFastReportImpl}, possibly behind other decorators.
+	 */
+	public static boolean isCancelled(Report report) {
+		return report instanceof CancellableReport
+				&& ((CancellableReport) report).isCancelled();
+	}
+
+	/**
+	 * Format a message pattern with its arguments. The pattern is returned as
+	 * is if there are no arguments, as messages reported without arguments
+	 * may be free text, which all the reports pass through unchanged.
+	 */
+	public static String format(String pattern, Object... args) {
+		if (args == null || args.length == 0) {
+			return pattern;
+		}
+		return String.format(pattern, args);
+	}
+
+	/**
+	 * Replace every run of whitespace in the message by a single space, as
+	 * <code>message.replaceAll("[\\s]+", " ")</code> would, but without
+	 * compiling a pattern, and without copying messages that need no change.
+	 * 
+	 * @return the normalized message, or the empty string if message is null.
+	 */
+	public static String normalizeSpace(String message) {
+		if (message == null) {
+			return "";
+		}
+		int len = message.length();
+		int i = 0;
+		for (; i < len; i++) {
+			char c = message.charAt(i);
+			if (isSpace(c)
+					&& (c != ' ' || (i + 1 < len && isSpace(message
+							.charAt(i + 1))))) {
+				break;
+			}
+		}
+		if (i == len) {
+			return message;
+		}
+		StringBuilder sb = new StringBuilder(len);
+		sb.append(message, 0, i);
+		boolean inSpace = false;
+		for (; i < len; i++) {
+			char c = message.charAt(i);
+			if (isSpace(c)) {
+				if (!inSpace) {
+					sb.append(' ');
+					inSpace = true;
+				}
+			} else {
+				sb.append(c);
+				inSpace = false;
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * The characters of the regex class <code>\s</code>.
+	 */
+	private static boolean isSpace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\013'
+				|| c == '\f' || c == '\r';
+	}
+}
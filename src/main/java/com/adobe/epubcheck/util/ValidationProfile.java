@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2013 International Digital Publishing Forum
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of
+ *  this software and associated documentation files (the "Software"), to deal in
+ *  the Software without restriction, including without limitation the rights to
+ *  use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ *  the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ *  FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ *  COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ *  IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *  CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.adobe.epubcheck.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import com.adobe.epubcheck.api.ValidationMetrics;
+
+/**
+ * Profiles the validation of books: the time and the bytes allocated in each
+ * phase, the peak number of entries of the cross-reference and package
+ * structures, and the garbage collections run while validating.
+ * <p>
+ * The profile of each book is written as one JSON object per line:
+ * </p>
+ * 
+ * <pre>
+ * {"book":"book.epub","valid":true,"timeNanos":...,"allocationTracking":true,
+ *  "phases":[{"phase":"OCF parsing","count":1,"timeNanos":...,"allocatedBytes":...},...],
+ *  "peakSizes":{"XRefChecker references":...,...},
+ *  "gc":[{"collector":"PS Scavenge","count":2,"timeMillis":5},...]}
+ * </pre>
+ * <p>
+ * Garbage collections are counted for the whole JVM, so they include those
+ * caused by other threads.
+ * </p>
+ */
+public class ValidationProfile {
+
+	private final ValidationMetrics metrics = new ValidationMetrics();
+	private final List<GarbageCollectorMXBean> collectors;
+	private final long[] gcCounts;
+	private final long[] gcTimes;
+	private long start;
+
+	public ValidationProfile() {
+		metrics.setTrackAllocations(true);
+		collectors = ManagementFactory.getGarbageCollectorMXBeans();
+		gcCounts = new long[collectors.size()];
+		gcTimes = new long[collectors.size()];
+		start();
+	}
+
+	/**
+	 * The metrics to bind to the validating thread.
+	 */
+	public ValidationMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Reset the metrics and take a snapshot of the garbage collection
+	 * counters before validating a book.
+	 */
+	public void start() {
+		metrics.reset();
+		for (int i = 0; i < gcCounts.length; i++) {
+			GarbageCollectorMXBean collector = collectors.get(i);
+			gcCounts[i] = collector.getCollectionCount();
+			gcTimes[i] = collector.getCollectionTime();
+		}
+		start = System.nanoTime();
+	}
+
+	/**
+	 * The profile of the book validated since {@link #start()}, as a single
+	 * line JSON object.
+	 */
+	public String toJson(String book, boolean valid) {
+		long time = System.nanoTime() - start;
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\"book\":");
+		appendString(sb, book);
+		sb.append(",\"valid\":").append(valid);
+		sb.append(",\"timeNanos\":").append(time);
+		sb.append(",\"allocationTracking\":").append(
+				metrics.isTrackingAllocations());
+		sb.append(",\"phases\":[");
+		List<String> phases = metrics.getPhases();
+		for (int i = 0; i < phases.size(); i++) {
+			String phase = phases.get(i);
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append("{\"phase\":");
+			appendString(sb, phase);
+			sb.append(",\"count\":").append(metrics.getCount(phase));
+			sb.append(",\"timeNanos\":").append(metrics.getTime(phase));
+			sb.append(",\"allocatedBytes\":").append(
+					metrics.getAllocatedBytes(phase));
+			sb.append('}');
+		}
+		sb.append("],\"peakSizes\":{");
+		List<String> structures = metrics.getStructures();
+		for (int i = 0; i < structures.size(); i++) {
+			String structure = structures.get(i);
+			if (i > 0) {
+				sb.append(',');
+			}
+			appendString(sb, structure);
+			sb.append(':').append(metrics.getPeakSize(structure));
+		}
+		sb.append("},\"gc\":[");
+		for (int i = 0; i < gcCounts.length; i++) {
+			GarbageCollectorMXBean collector = collectors.get(i);
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append("{\"collector\":");
+			appendString(sb, collector.getName());
+			sb.append(",\"count\":").append(
+					collector.getCollectionCount() - gcCounts[i]);
+			sb.append(",\"timeMillis\":").append(
+					collector.getCollectionTime() - gcTimes[i]);
+			sb.append('}');
+		}
+		sb.append("]}");
+		return sb.toString();
+	}
+
+	/**
+	 * Append the profile of the book validated since {@link #start()} to the
+	 * given file.
+	 */
+	public void write(File file, String book, boolean valid) throws IOException {
+		String json = toJson(book, valid);
+		Writer out = new OutputStreamWriter(new FileOutputStream(file, true),
+				"UTF-8");
+		try {
+			out.write(json);
+			out.write('\n');
+		} finally {
+			out.close();
+		}
+	}
+
+	private static void appendString(StringBuilder sb, String value) {
+		sb.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			} else if (c < 0x20) {
+				sb.append(String.format("\\u%04x", (int) c));
+			} else {
+				sb.append(c);
+			}
+		}
+		sb.append('"');
+	}
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2013 International Digital Publishing Forum
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of
+ *  this software and associated documentation files (the "Software"), to deal in
+ *  the Software without restriction, including without limitation the rights to
+ *  use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ *  the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ *  FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ *  COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ *  IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *  CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.adobe.epubcheck.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.adobe.epubcheck.api.MetricsListener;
+import com.adobe.epubcheck.api.Severity;
+import com.adobe.epubcheck.api.ValidationMetrics;
+
+/**
+ * A {@link MetricsListener} that accumulates counters and histograms over all
+ * the validations run in this JVM, and exposes them as a JMX MXBean.
+ * <p>
+ * Long-running services call {@link #register()} once; the statistics are
+ * then published under {@link #OBJECT_NAME} in the platform MBean server.
+ * </p>
+ */
+public class ValidationStats implements MetricsListener, ValidationStatsMXBean {
+
+	public static final String OBJECT_NAME = "com.adobe.epubcheck:type=ValidationStats";
+
+	/**
+	 * The upper bounds of the histogram buckets, in milliseconds.
+	 */
+	public static final long[] HISTOGRAM_BOUNDS = { 1, 10, 100, 1000, 10000 };
+
+	private static ValidationStats registered;
+
+	private final AtomicLong booksValidated = new AtomicLong();
+	private final AtomicLong validBooks = new AtomicLong();
+	private final AtomicLong bytesInflated = new AtomicLong();
+	private final AtomicLong errors = new AtomicLong();
+	private final AtomicLong warnings = new AtomicLong();
+	private final AtomicLong hints = new AtomicLong();
+	private final AtomicLong exceptions = new AtomicLong();
+	private final AtomicLongArray bookTimes = newHistogram();
+	private final ConcurrentMap<String, AtomicLong> documentsParsed = new ConcurrentHashMap<String, AtomicLong>();
+	private final ConcurrentMap<String, AtomicLong> phaseCounts = new ConcurrentHashMap<String, AtomicLong>();
+	private final ConcurrentMap<String, AtomicLong> phaseTimes = new ConcurrentHashMap<String, AtomicLong>();
+	private final ConcurrentMap<String, AtomicLongArray> phaseHistograms = new ConcurrentHashMap<String, AtomicLongArray>();
+
+	/**
+	 * Create a listener and register it both with {@link ValidationMetrics}
+	 * and in the platform MBean server, unless this was already done.
+	 * 
+	 * @return the registered statistics.
+	 */
+	public static synchronized ValidationStats register() throws JMException {
+		if (registered == null) {
+			ValidationStats stats = new ValidationStats();
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			server.registerMBean(stats, new ObjectName(OBJECT_NAME));
+			ValidationMetrics.addListener(stats);
+			registered = stats;
+		}
+		return registered;
+	}
+
+	/**
+	 * Undo {@link #register()}.
+	 */
+	public static synchronized void unregister() throws JMException {
+		if (registered != null) {
+			ValidationMetrics.removeListener(registered);
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(
+					new ObjectName(OBJECT_NAME));
+			registered = null;
+		}
+	}
+
+	public void bookValidated(String name, boolean valid, long nanos) {
+		booksValidated.incrementAndGet();
+		if (valid) {
+			validBooks.incrementAndGet();
+		}
+		record(bookTimes, nanos);
+	}
+
+	public void phaseTimed(String phase, long nanos) {
+		increment(phaseCounts, phase, 1);
+		increment(phaseTimes, phase, nanos);
+		AtomicLongArray histogram = phaseHistograms.get(phase);
+		if (histogram == null) {
+			phaseHistograms.putIfAbsent(phase, newHistogram());
+			histogram = phaseHistograms.get(phase);
+		}
+		record(histogram, nanos);
+	}
+
+	public void documentParsed(String mediaType) {
+		increment(documentsParsed, mediaType, 1);
+	}
+
+	public void bytesInflated(String resource, long size) {
+		if (size > 0) {
+			bytesInflated.addAndGet(size);
+		}
+	}
+
+	public void messageReported(Severity severity) {
+		switch (severity) {
+		case ERROR:
+			errors.incrementAndGet();
+			break;
+		case WARNING:
+			warnings.incrementAndGet();
+			break;
+		case HINT:
+			hints.incrementAndGet();
+			break;
+		}
+	}
+
+	public void exceptionReported() {
+		exceptions.incrementAndGet();
+	}
+
+	private static void increment(ConcurrentMap<String, AtomicLong> map,
+			String key, long delta) {
+		AtomicLong value = map.get(key);
+		if (value == null) {
+			map.putIfAbsent(key, new AtomicLong());
+			value = map.get(key);
+		}
+		value.addAndGet(delta);
+	}
+
+	private static AtomicLongArray newHistogram() {
+		return new AtomicLongArray(HISTOGRAM_BOUNDS.length + 1);
+	}
+
+	private static void record(AtomicLongArray histogram, long nanos) {
+		long millis = nanos / 1000000;
+		int bucket = 0;
+		while (bucket < HISTOGRAM_BOUNDS.length
+				&& millis >= HISTOGRAM_BOUNDS[bucket]) {
+			bucket++;
+		}
+		histogram.incrementAndGet(bucket);
+	}
+
+	private static long[] toArray(AtomicLongArray histogram) {
+		long[] result = new long[histogram.length()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = histogram.get(i);
+		}
+		return result;
+	}
+
+	private static Map<String, Long> toMap(
+			ConcurrentMap<String, AtomicLong> map, long divisor) {
+		Map<String, Long> result = new TreeMap<String, Long>();
+		for (Map.Entry<String, AtomicLong> entry : map.entrySet()) {
+			result.put(entry.getKey(), entry.getValue().get() / divisor);
+		}
+		return result;
+	}
+
+	public long getBooksValidated() {
+		return booksValidated.get();
+	}
+
+	public long getValidBooks() {
+		return validBooks.get();
+	}
+
+	public long[] getBookTimeHistogram() {
+		return toArray(bookTimes);
+	}
+
+	public long getBytesInflated() {
+		return bytesInflated.get();
+	}
+
+	public Map<String, Long> getDocumentsParsed() {
+		return toMap(documentsParsed, 1);
+	}
+
+	public long getSchemasCompiled() {
+		AtomicLong count = phaseCounts.get(ValidationMetrics.SCHEMA_COMPILATION);
+		return count == null ? 0 : count.get();
+	}
+
+	public Map<String, Long> getPhaseCounts() {
+		return toMap(phaseCounts, 1);
+	}
+
+	public Map<String, Long> getPhaseTimes() {
+		return toMap(phaseTimes, 1000000);
+	}
+
+	public Map<String, long[]> getPhaseHistograms() {
+		Map<String, long[]> result = new TreeMap<String, long[]>();
+		for (Map.Entry<String, AtomicLongArray> entry : phaseHistograms
+				.entrySet()) {
+			result.put(entry.getKey(), toArray(entry.getValue()));
+		}
+		return result;
+	}
+
+	public long getErrors() {
+		return errors.get();
+	}
+
+	public long getWarnings() {
+		return warnings.get();
+	}
+
+	public long getHints() {
+		return hints.get();
+	}
+
+	public long getExceptions() {
+		return exceptions.get();
+	}
+
+	public void reset() {
+		booksValidated.set(0);
+		validBooks.set(0);
+		bytesInflated.set(0);
+		errors.set(0);
+		warnings.set(0);
+		hints.set(0);
+		exceptions.set(0);
+		for (int i = 0; i < bookTimes.length(); i++) {
+			bookTimes.set(i, 0);
+		}
+		documentsParsed.clear();
+		phaseCounts.clear();
+		phaseTimes.clear();
+		phaseHistograms.clear();
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2013 International Digital Publishing Forum
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of
+ *  this software and associated documentation files (the "Software"), to deal in
+ *  the Software without restriction, including without limitation the rights to
+ *  use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ *  the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ *  FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ *  COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ *  IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *  CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.adobe.epubcheck.util;
+
+import java.util.Map;
+
+/**
+ * The management interface of {@link ValidationStats}.
+ * <p>
+ * Histograms count durations in the buckets bounded by
+ * {@link ValidationStats#HISTOGRAM_BOUNDS}, in milliseconds; the last bucket
+ * counts the durations above the last bound.
+ * </p>
+ */
+public interface ValidationStatsMXBean {
+
+	public long getBooksValidated();
+
+	public long getValidBooks();
+
+	public long[] getBookTimeHistogram();
+
+	public long getBytesInflated();
+
+	public Map<String, Long> getDocumentsParsed();
+
+	/**
+	 * The number of schemas compiled, from the schema compilation phase.
+	 */
+	public long getSchemasCompiled();
+
+	public Map<String, Long> getPhaseCounts();
+
+	/**
+	 * The total time spent in each phase, in milliseconds.
+	 */
+	public Map<String, Long> getPhaseTimes();
+
+	public Map<String, long[]> getPhaseHistograms();
+
+	public long getErrors();
+
+	public long getWarnings();
+
+	public long getHints();
+
+	public long getExceptions();
+
+	public void reset();
+}
@@ -23,9 +23,10 @@ package com.adobe.epubcheck.util;
 
 import java.io.PrintWriter;
 
-import com.adobe.epubcheck.api.Report;
+import com.adobe.epubcheck.api.MessageReport;
+import com.adobe.epubcheck.api.Severity;
 
-public class WriterReportImpl implements Report {
+public class WriterReportImpl implements MessageReport {
 
 	private PrintWriter out;
 
@@ -55,8 +56,7 @@ public class WriterReportImpl implements Report {
 	}
 
 	private String fixMessage(String message) {
-		if (message == null) return "";
-		return message.replaceAll("[\\s]+", " ");
+		return ReportUtil.normalizeSpace(message);
 	}
 
 	public void error(String resource, int line, int column, String message) {
@@ -120,4 +120,23 @@ public class WriterReportImpl implements Report {
 		
 	}
 
+	public void message(Severity severity, String resource, int line,
+			int column, String pattern, Object... args) {
+		switch (severity) {
+		case ERROR:
+			error(resource, line, column, ReportUtil.format(pattern, args));
+			break;
+		case WARNING:
+			warning(resource, line, column, ReportUtil.format(pattern, args));
+			break;
+		case HINT:
+			if (quiet) {
+				hintCount++;
+			} else {
+				hint(resource, line, column, ReportUtil.format(pattern, args));
+			}
+			break;
+		}
+	}
+
 }
@@ -1,24 +1,50 @@
 package com.adobe.epubcheck.util;
 
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.PrintWriter;
-import java.io.UnsupportedEncodingException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.LinkedHashSet;
-import java.util.List;
 import java.util.Set;
 
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import com.adobe.epubcheck.api.Report;
 import com.adobe.epubcheck.util.EPUBVersion;
 
 
-public class XmlReportImpl implements Report {
+/**
+ * A report generating a JHOVE XML document.
+ * <p>
+ * Messages are written with StAX as they are reported, to a temporary file
+ * holding the content of the <code>messages</code> element, so that memory use
+ * does not depend on the number of messages. {@link #generate()} then writes
+ * the document, copying the messages after the header which depends on the
+ * whole validation.
+ * </p>
+ */
+public class XmlReportImpl implements Report, Closeable {
+    private static final String ENCODING = "UTF-8";
+    private static final int MESSAGE_IDENT = 3;
+    private static final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+
     private File outputFile;
-    private PrintWriter out;
+    private OutputStream out;
+    private XMLStreamWriter writer;
+
+    private File messagesFile;
+    private OutputStream messagesOut;
+    private XMLStreamWriter messagesWriter;
+    private Exception messagesFailure;
     
     private boolean withDocumentMD = false;
     
@@ -52,10 +78,7 @@ public class XmlReportImpl implements Report {
     private boolean hasFixedLayout;
     private boolean hasScripts;
     
-    private List<String> warns = new ArrayList<String>(); 
-    private List<String> errors = new ArrayList<String>(); 
-    private List<String> exceptions = new ArrayList<String>();
-    private List<String> hints = new ArrayList<String>();
+    private int warningCount, errorCount, exceptionCount, hintCount;
     
     
     public XmlReportImpl( File out, String ePubName, String versionEpubCheck ) {
@@ -70,50 +93,54 @@ public class XmlReportImpl implements Report {
     
     @Override
     public void error(String resource, int line, int column, String message) {
-        errors.add((resource == null ? "" : "/" + resource) +
+        errorCount++;
+        writeMessage("ERROR: ", (resource == null ? "" : "/" + resource) +
                 (line <= 0 ? "" : "(" + line + ")") + ": " + message );
 
     }
 
     @Override
     public void exception(String resource, Exception e) {
-        exceptions.add((resource == null ? "" : "/" + resource) +
+        exceptionCount++;
+        writeMessage("EXCEPTION: ", (resource == null ? "" : "/" + resource) +
                 e.getMessage());
 
     }
 
     @Override
     public void warning(String resource, int line, int column, String message) {
-        warns.add((resource == null ? "" : "/" + resource) +
+        warningCount++;
+        writeMessage("WARN: ", (resource == null ? "" : "/" + resource) +
                 (line <= 0 ? "" : "(" + line + ")") + ": " + message );
 
     }
 
     @Override
     public void hint(String resource, int line, int column, String message) {
-    	hints.add((resource == null ? "" : "/" + resource) +
+        hintCount++;
+        writeMessage("HINT: ", (resource == null ? "" : "/" + resource) +
                 (line <= 0 ? "" : "(" + line + ")") + ": " + message );
     	
     }
     
     @Override
     public int getErrorCount() {
-        return errors.size();
+        return errorCount;
     }
 
     @Override
     public int getExceptionCount() {
-        return exceptions.size();
+        return exceptionCount;
     }
 
     @Override
     public int getWarningCount() {
-        return warns.size();
+        return warningCount;
     }
 
     @Override
     public int getHintCount() {
-        return hints.size();
+        return hintCount;
     }
 
     @Override
@@ -173,22 +200,57 @@ public class XmlReportImpl implements Report {
         }
     }
     
+    /**
+     * Write a message element to the temporary messages file, creating it 
+     * on the first message. 
+     */
+    private void writeMessage(String type, String message) {
+        if (messagesFailure != null) return;
+        try {
+            if (messagesWriter == null) {
+                messagesFile = File.createTempFile("epubcheck", ".xml");
+                messagesOut = new BufferedOutputStream(new FileOutputStream(messagesFile));
+                messagesWriter = outputFactory.createXMLStreamWriter(messagesOut, ENCODING);
+            }
+            writeIdent(messagesWriter, MESSAGE_IDENT);
+            messagesWriter.writeStartElement("message");
+            messagesWriter.writeCharacters(type + (message == null ? "" : message.trim()));
+            messagesWriter.writeEndElement();
+            messagesWriter.writeCharacters("\n");
+        } catch (IOException e) {
+            messagesFailure = e;
+        } catch (XMLStreamException e) {
+            messagesFailure = e;
+        }
+    }
+    
     public boolean generate() {
-        // Quick and dirty XML generation...
         out = null;
         int ident = 0;
         boolean generationOk = false;
         
         try {
-            out = new PrintWriter(outputFile, "UTF-8");
-            out.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
-            output(ident++, 
-              "<jhove xmlns=\"http://hul.harvard.edu/ois/xml/ns/jhove\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"" +
-              // " xsi:schemaLocation=\"http://hul.harvard.edu/ois/xml/ns/jhove jhove.xsd\"" + 
-              " name=\"" + encodeContent(epubCheckName) + "\" release=\"" + epubCheckVersion + 
-              "\" date=\"" + epubCheckDate +"\">");
+            if (messagesFailure != null) {
+                throw messagesFailure;
+            }
+            closeMessages();
+            out = new BufferedOutputStream(new FileOutputStream(outputFile));
+            writer = outputFactory.createXMLStreamWriter(out, ENCODING);
+            writer.writeStartDocument(ENCODING, "1.0");
+            writer.writeCharacters("\n");
+            startElement(ident++, "jhove");
+            writer.writeDefaultNamespace("http://hul.harvard.edu/ois/xml/ns/jhove");
+            writer.writeNamespace("xsi", "http://www.w3.org/2001/XMLSchema-instance");
+            // xsi:schemaLocation="http://hul.harvard.edu/ois/xml/ns/jhove jhove.xsd"
+            writer.writeAttribute("name", epubCheckName);
+            writer.writeAttribute("release", epubCheckVersion);
+            writer.writeAttribute("date", epubCheckDate);
+            writer.writeCharacters("\n");
             generateElement(ident, "date", fromTime(System.currentTimeMillis()));
-            output(ident++, "<repInfo uri=\"" + encodeContent(getNameFromPath(ePubName)) + "\">");
+            startElement(ident++, "repInfo");
+            String uri = getNameFromPath(ePubName);
+            writer.writeAttribute("uri", uri == null ? "" : uri);
+            writer.writeCharacters("\n");
             generateElement(ident, "created", creationDate);
             generateElement(ident, "lastModified", lastModifiedDate);
             if (formatName == null) {
@@ -197,35 +259,26 @@ public class XmlReportImpl implements Report {
               generateElement(ident, "format", formatName); //application/epub+zip
             }
             generateElement(ident, "version", formatVersion);
-            if (exceptions.isEmpty() && errors.isEmpty()) {
+            if (exceptionCount == 0 && errorCount == 0) {
               generateElement(ident, "status", "Well-formed");
             } else {
               generateElement(ident, "status", "Not well-formed");
             }
-            if (!warns.isEmpty() || !exceptions.isEmpty() || !errors.isEmpty() || !hints.isEmpty()) {
-              output(ident++, "<messages>");
-              for (String w : warns) {
-                generateElement(ident, "message", "WARN: " + encodeContent(w));
-              }
-              for (String e : errors) {
-                generateElement(ident, "message", "ERROR: " + encodeContent(e));
-              }
-              for (String e : exceptions) {
-                generateElement(ident, "message", "EXCEPTION: " + encodeContent(e));
-              }
-              for (String e : hints) {
-                  generateElement(ident, "message", "HINT: " + encodeContent(e));
-              }
-              output(--ident, "</messages>");
+            if (messagesFile != null) {
+              startElement(ident++, "messages");
+              writer.writeCharacters("\n");
+              copyMessages();
+              endElement(--ident);
             }
             generateElement(ident, "mimeType", formatName);
-            output(ident++, "<properties>");
+            startElement(ident++, "properties");
+            writer.writeCharacters("\n");
             
             generateProperty(ident, "PageCount", pagesCount);
             generateProperty(ident, "CharacterCount", charsCount);
             generateProperty(ident, "Language", language, "String");
 
-            output(ident++, "<property><name>Info</name><values arity=\"List\" type=\"Property\">");
+            startListProperty(ident++, "Info");
             generateProperty(ident, "Identifier", identifier, "String");
             generateProperty(ident, "CreationDate", creationDate, "Date");
             generateProperty(ident, "ModDate", lastModifiedDate, "Date");
@@ -247,32 +300,32 @@ public class XmlReportImpl implements Report {
               String[] cs = rights.toArray(new String[0]);
               generateProperty(ident, "Rights", cs, "String");
             }
-            output(--ident, "</values></property>");
+            endListProperty(--ident);
 
             if (!embeddedFonts.isEmpty() || !refFonts.isEmpty()) {
-              output(ident++, "<property><name>Fonts</name><values arity=\"List\" type=\"Property\">");
+              startListProperty(ident++, "Fonts");
               
               for (String f : embeddedFonts) {
-                  output(ident++, "<property><name>Font</name><values arity=\"List\" type=\"Property\">");
-                  generateProperty(ident, "FontName", encodeContent(getNameFromPath(f)), "String");
+                  startListProperty(ident++, "Font");
+                  generateProperty(ident, "FontName", getNameFromPath(f), "String");
                   generateProperty(ident, "FontFile", true);
-                  output(--ident, "</values></property>");
+                  endListProperty(--ident);
               }
               for (String f : refFonts) {
-                  output(ident++, "<property><name>Font</name><values arity=\"List\" type=\"Property\">");
-                  generateProperty(ident, "FontName", encodeContent(getNameFromPath(f)), "String");
+                  startListProperty(ident++, "Font");
+                  generateProperty(ident, "FontName", getNameFromPath(f), "String");
                   generateProperty(ident, "FontFile", false);
-                  output(--ident, "</values></property>");
+                  endListProperty(--ident);
               }
-              output(--ident, "</values></property>");
+              endListProperty(--ident);
             }
             
             if (!references.isEmpty()) {
-              output(ident++, "<property><name>References</name><values arity=\"List\" type=\"Property\">");
+              startListProperty(ident++, "References");
               for (String r : references) {
-                  generateProperty(ident, "Reference", encodeContent(r), "String");
+                  generateProperty(ident, "Reference", r, "String");
               }
-              output(--ident, "</values></property>");
+              endListProperty(--ident);
             }
             
             if (hasEncryption) generateProperty(ident, "hasEncryption", hasEncryption);
@@ -283,38 +336,106 @@ public class XmlReportImpl implements Report {
             if (hasScripts) generateProperty(ident, "hasScripts", hasScripts);
 
             if (withDocumentMD) {
-              output(ident++, "<property><name>DocumentMDMetadata</name><values arity=\"Scalar\" type=\"Object\"><value>");
+              writeIdent(writer, ident++);
+              writer.writeStartElement("property");
+              writer.writeStartElement("name");
+              writer.writeCharacters("DocumentMDMetadata");
+              writer.writeEndElement();
+              writer.writeStartElement("values");
+              writer.writeAttribute("arity", "Scalar");
+              writer.writeAttribute("type", "Object");
+              writer.writeStartElement("value");
+              writer.writeCharacters("\n");
               generateDocumentMD(ident);
-              output(--ident, "</value></values></property>");
+              writeIdent(writer, --ident);
+              writer.writeEndElement();
+              writer.writeEndElement();
+              writer.writeEndElement();
+              writer.writeCharacters("\n");
             }
-            output(--ident, "</properties>");
-            output(--ident, "</repInfo>");
-            output(--ident, "</jhove>");
+            endElement(--ident);
+            endElement(--ident);
+            endElement(--ident);
+            writer.writeEndDocument();
+            writer.flush();
             generationOk = true;
-        } catch (FileNotFoundException e) {
-            System.err.println("FileNotFound error: " + e.getMessage());
-        } catch (UnsupportedEncodingException e) {
-            System.err.println("FileNotFound error: " + e.getMessage());
+        } catch (Exception e) {
+            System.err.println("XML report generation error: " + e.getMessage());
         } finally {
-            out.close();
+            try {
+                if (writer != null) writer.close();
+                if (out != null) out.close();
+            } catch (Exception e) {
+                System.err.println("XML report generation error: " + e.getMessage());
+            }
+            close();
         }
         return generationOk;
     }
 
-    private void generateDocumentMD(int ident) {
-      output(ident++, "<docmd:document xmlns:docmd=\"http://www.fcla.edu/docmd\">");
+    /**
+     * Close and delete the temporary messages file. This is done by
+     * {@link #generate()}, and must be invoked on reports that are not
+     * generated.
+     */
+    public void close() {
+        try {
+            closeMessages();
+        } catch (Exception e) {
+            // the file is deleted anyway
+        } finally {
+            messagesWriter = null;
+            if (messagesFile != null) {
+                messagesFile.delete();
+                messagesFile = null;
+            }
+        }
+    }
+
+    private void closeMessages() throws XMLStreamException, IOException {
+        if (messagesWriter != null) {
+            try {
+                messagesWriter.close();
+            } finally {
+                messagesWriter = null;
+                messagesOut.close();
+            }
+        }
+    }
+
+    /**
+     * Copy the content of the temporary messages file as is to the output.
+     */
+    private void copyMessages() throws XMLStreamException, IOException {
+        writer.flush();
+        InputStream in = new FileInputStream(messagesFile);
+        try {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private void generateDocumentMD(int ident) throws XMLStreamException {
+      startElement(ident++, "docmd:document");
+      writer.writeAttribute("xmlns:docmd", "http://www.fcla.edu/docmd");
+      writer.writeCharacters("\n");
 
       generateElement(ident, "docmd:PageCount", pagesCount);
       generateElement(ident, "docmd:CharacterCount", charsCount);
       generateElement(ident, "docmd:Language", language);
       for (String f : embeddedFonts) {
-          output(ident, "<docmd:Font FontName=\"" + encodeContent(getNameFromPath(f)) + "\" isEmbedded=\"true\" />");
+          generateFont(ident, f, true);
       }
       for (String f : refFonts) {
-          output(ident, "<docmd:Font FontName=\"" + encodeContent(getNameFromPath(f)) + "\" isEmbedded=\"false\" />");
+          generateFont(ident, f, false);
       }
       for (String r : references) {
-          generateElement(ident, "docmd:Reference", encodeContent(r));
+          generateElement(ident, "docmd:Reference", r);
       }
       //if (hasEncryption) generateElement(ident, "docmd:Features", "hasEncryption");
       //if (hasSignatures) generateElement(ident, "docmd:Features", "hasSignatures");
@@ -323,86 +444,102 @@ public class XmlReportImpl implements Report {
       if (hasFixedLayout) generateElement(ident, "docmd:Features", "hasFixedLayout");
       if (hasScripts) generateElement(ident, "docmd:Features", "hasScripts");
 
-      output(--ident, "</docmd:document>");
+      endElement(--ident);
+    }
+
+    private void generateFont(int ident, String font, boolean embedded) throws XMLStreamException {
+        String name = getNameFromPath(font);
+        writeIdent(writer, ident);
+        writer.writeEmptyElement("docmd:Font");
+        writer.writeAttribute("FontName", name == null ? "" : name);
+        writer.writeAttribute("isEmbedded", embedded ? "true" : "false");
+        writer.writeCharacters("\n");
     }
     
-    private void output(int ident, String value) {
+    private static void writeIdent(XMLStreamWriter writer, int ident) throws XMLStreamException {
         char[] spaces = new char[ident];
         Arrays.fill(spaces, ' ');
-        out.print(spaces);
-        out.println(value);
+        writer.writeCharacters(spaces, 0, ident);
+    }
+
+    /**
+     * Write the start tag of an element on a new line; the caller completes
+     * the line.
+     */
+    private void startElement(int ident, String name) throws XMLStreamException {
+        writeIdent(writer, ident);
+        writer.writeStartElement(name);
+    }
+
+    private void endElement(int ident) throws XMLStreamException {
+        writeIdent(writer, ident);
+        writer.writeEndElement();
+        writer.writeCharacters("\n");
+    }
+
+    private void startListProperty(int ident, String name) throws XMLStreamException {
+        writeIdent(writer, ident);
+        writer.writeStartElement("property");
+        writer.writeStartElement("name");
+        writer.writeCharacters(name);
+        writer.writeEndElement();
+        writer.writeStartElement("values");
+        writer.writeAttribute("arity", "List");
+        writer.writeAttribute("type", "Property");
+        writer.writeCharacters("\n");
+    }
+
+    private void endListProperty(int ident) throws XMLStreamException {
+        writeIdent(writer, ident);
+        writer.writeEndElement();
+        writer.writeEndElement();
+        writer.writeCharacters("\n");
     }
     
-    private void generateElement(int ident, String name, String value) {
+    private void generateElement(int ident, String name, String value) throws XMLStreamException {
         if (value == null || value.trim().length() == 0) return;
-        StringBuilder sb = new StringBuilder();
-        sb.append('<').append(name).append('>');
-        sb.append(encodeContent(value.trim()));
-        sb.append("</").append(name).append('>');
-        output(ident, sb.toString());
+        writeIdent(writer, ident);
+        writer.writeStartElement(name);
+        writer.writeCharacters(value.trim());
+        writer.writeEndElement();
+        writer.writeCharacters("\n");
     }
-    private void generateElement(int ident, String name, long value) {
+    private void generateElement(int ident, String name, long value) throws XMLStreamException {
         if (value == 0) return;
         generateElement(ident, name, Long.toString(value));
     }
 
-    private void generateProperty(int ident, String name, String[] value, String type) {
+    private void generateProperty(int ident, String name, String[] value, String type) throws XMLStreamException {
       if (value == null || value.length == 0) return;
-      StringBuilder sb = new StringBuilder();
-      sb.append("<property><name>").append(name).append("</name>");
-      sb.append("<values arity=\"").append(value.length==1?"Scalar":"Array").append("\" type=\"").append(type).append("\">");
+      writeIdent(writer, ident);
+      writer.writeStartElement("property");
+      writer.writeStartElement("name");
+      writer.writeCharacters(name);
+      writer.writeEndElement();
+      writer.writeStartElement("values");
+      writer.writeAttribute("arity", value.length==1?"Scalar":"Array");
+      writer.writeAttribute("type", type);
       for (String v:value) {
-        sb.append("<value>").append(encodeContent(v)).append("</value>");
+        writer.writeStartElement("value");
+        writer.writeCharacters(v == null ? "" : v);
+        writer.writeEndElement();
       }
-      sb.append("</values></property>");
-      output(ident, sb.toString());
+      writer.writeEndElement();
+      writer.writeEndElement();
+      writer.writeCharacters("\n");
     }
-    private void generateProperty(int ident, String name, String value, String type) {
+    private void generateProperty(int ident, String name, String value, String type) throws XMLStreamException {
       if (value == null || value.trim().length() == 0) return;
-      StringBuilder sb = new StringBuilder();
-      sb.append("<property><name>").append(name).append("</name><values arity=\"Scalar\" type=\"").append(type).append("\">");
-      sb.append("<value>").append(encodeContent(value)).append("</value>");
-      sb.append("</values></property>");
-      output(ident, sb.toString());
+      generateProperty(ident, name, new String[] { value }, type);
     }
-    private void generateProperty(int ident, String name, long value) {
+    private void generateProperty(int ident, String name, long value) throws XMLStreamException {
         if (value == 0) return;
         generateProperty(ident, name, Long.toString(value), "Long");
     }
-    private void generateProperty(int ident, String name, boolean value) {
+    private void generateProperty(int ident, String name, boolean value) throws XMLStreamException {
         generateProperty(ident, name, value?"true":"false", "Boolean");
     }
    
-    /**
-     *   Encodes a content String in XML-clean form, converting characters
-     *   to entities as necessary.  The null string will be
-     *   converted to an empty string.
-     */
-    private static String encodeContent(String content) {
-        if (content == null) {
-            content = "";
-        }
-        StringBuilder buffer = new StringBuilder(content);
-
-        int n = 0;
-        while ((n = buffer.indexOf("&", n)) > -1) {
-            buffer.insert(n + 1, "amp;");
-            n += 5;
-        }
-        n = 0;
-        while ((n = buffer.indexOf("<", n)) > -1) {
-            buffer.replace(n, n + 1, "&lt;");
-            n += 4;
-        }
-        n = 0;
-        while ((n = buffer.indexOf(">", n)) > -1) {
-            buffer.replace(n, n + 1, "&gt;");
-            n += 4;
-        }
-
-        return buffer.toString();
-    }
-    
     /** Transform time into ISO 8601 string. */
     public static String fromTime(final long time) {
         Date date = new Date(time);
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2013 International Digital Publishing Forum
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of
+ *  this software and associated documentation files (the "Software"), to deal in
+ *  the Software without restriction, including without limitation the rights to
+ *  use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ *  the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ *  FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ *  COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ *  IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *  CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.adobe.epubcheck.xml;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+
+/**
+ * Fetches the external entities that are not in the bundled catalog.
+ * <p>
+ * Fetching is off unless the <code>epubcheck.offline</code> system property
+ * is set to <code>false</code>. The {@link #MAX_CACHED_ENTITIES} entities
+ * used last are kept in memory, and fetched entities are kept in the
+ * directory named by <code>epubcheck.fetch.cache</code> if set, where
+ * they are also looked up when offline. At most
+ * <code>epubcheck.fetch.budget</code> entities are fetched per validation
+ * run, each with the <code>epubcheck.fetch.timeout</code> connect and read
+ * timeout in milliseconds.
+ * </p>
+ * <p>
+ * The budget is counted per thread, and {@link #resetBudget()} starts a new
+ * run on the current thread, which {@link XMLParser#startValidation} does for
+ * each validation, so that the budget is not used up by the
+ * earlier validations of a long-running process.
+ * </p>
+ */
+public class EntityFetcher {
+
+	public static final String OFFLINE_PROPERTY = "epubcheck.offline";
+	public static final String CACHE_PROPERTY = "epubcheck.fetch.cache";
+	public static final String BUDGET_PROPERTY = "epubcheck.fetch.budget";
+	public static final String TIMEOUT_PROPERTY = "epubcheck.fetch.timeout";
+
+	public static final int DEFAULT_BUDGET = 16;
+	public static final int DEFAULT_TIMEOUT = 5000;
+	public static final int MAX_CACHED_ENTITIES = 64;
+
+	private static volatile EntityFetcher defaultFetcher;
+
+	private final boolean offline;
+	private final File cacheDirectory;
+	private final int budgetPerRun;
+	private final ThreadLocal<AtomicInteger> budget = new ThreadLocal<AtomicInteger>() {
+		@Override
+		protected AtomicInteger initialValue() {
+			return new AtomicInteger(budgetPerRun);
+		}
+	};
+	private final int timeout;
+	// the entities used last, guarded by itself
+	private final Map<String, byte[]> fetched = new LinkedHashMap<String, byte[]>(
+			16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+			return size() > MAX_CACHED_ENTITIES;
+		}
+	};
+
+	/**
+	 * @param offline
+	 *            whether entities are only looked up in the cache
+	 * @param cacheDirectory
+	 *            the directory where fetched entities are stored, or null
+	 * @param budget
+	 *            the maximum number of entities fetched per run
+	 * @param timeout
+	 *            the connect and read timeout in milliseconds
+	 */
+	public EntityFetcher(boolean offline, File cacheDirectory, int budget,
+			int timeout) {
+		this.offline = offline;
+		this.cacheDirectory = cacheDirectory;
+		this.budgetPerRun = budget;
+		this.timeout = timeout;
+	}
+
+	/**
+	 * The fetcher configured by the system properties, created on first use.
+	 */
+	public static EntityFetcher getDefault() {
+		EntityFetcher fetcher = defaultFetcher;
+		if (fetcher == null) {
+			String cache = System.getProperty(CACHE_PROPERTY);
+			fetcher = new EntityFetcher(
+					!"false".equalsIgnoreCase(System.getProperty(OFFLINE_PROPERTY)),
+					cache != null ? new File(cache) : null,
+					Integer.getInteger(BUDGET_PROPERTY, DEFAULT_BUDGET),
+					Integer.getInteger(TIMEOUT_PROPERTY, DEFAULT_TIMEOUT));
+			defaultFetcher = fetcher;
+		}
+		return fetcher;
+	}
+
+	/**
+	 * Replace the default fetcher, or let it be created again from the system
+	 * properties if null.
+	 */
+	public static void setDefault(EntityFetcher fetcher) {
+		defaultFetcher = fetcher;
+	}
+
+	/**
+	 * Start a new run on the current thread, restoring its full budget.
+	 */
+	public void resetBudget() {
+		budget.get().set(budgetPerRun);
+	}
+
+	/**
+	 * The number of entities that can still be fetched in the current run of
+	 * the current thread.
+	 */
+	public int getRemainingBudget() {
+		return Math.max(budget.get().get(), 0);
+	}
+
+	/**
+	 * The contents of the entity with the given HTTP(S) system identifier, or
+	 * null if it is not cached and cannot be fetched, offline or because the
+	 * budget is spent.
+	 * 
+	 * @throws IOException
+	 *             if fetching the entity failed
+	 */
+	public byte[] fetch(String systemId) throws IOException {
+		byte[] bytes;
+		synchronized (fetched) {
+			bytes = fetched.get(systemId);
+		}
+		if (bytes != null) {
+			return bytes;
+		}
+		File cacheFile = cacheDirectory != null ? new File(cacheDirectory,
+				Hashing.sha1().hashString(systemId, Charsets.UTF_8).toString())
+				: null;
+		if (cacheFile != null && cacheFile.isFile()) {
+			bytes = Files.toByteArray(cacheFile);
+		} else {
+			if (offline || budget.get().getAndDecrement() <= 0) {
+				return null;
+			}
+			URLConnection connection = new URL(systemId).openConnection();
+			connection.setConnectTimeout(timeout);
+			connection.setReadTimeout(timeout);
+			InputStream in = connection.getInputStream();
+			try {
+				bytes = ByteStreams.toByteArray(in);
+			} finally {
+				in.close();
+			}
+			if (cacheFile != null) {
+				store(cacheFile, bytes);
+			}
+		}
+		synchronized (fetched) {
+			byte[] previous = fetched.get(systemId);
+			if (previous != null) {
+				return previous;
+			}
+			fetched.put(systemId, bytes);
+		}
+		return bytes;
+	}
+
+	private static void store(File cacheFile, byte[] bytes) {
+		try {
+			File directory = cacheFile.getParentFile();
+			if (!directory.isDirectory() && !directory.mkdirs()) {
+				return;
+			}
+			File temp = File.createTempFile("entity", ".tmp", directory);
+			Files.write(bytes, temp);
+			if (!temp.renameTo(cacheFile)) {
+				temp.delete();
+			}
+		} catch (IOException e) {
+			// the cache is best effort
+		}
+	}
+}
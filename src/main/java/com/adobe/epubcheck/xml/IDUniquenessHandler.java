@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2013 International Digital Publishing Forum
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of
+ *  this software and associated documentation files (the "Software"), to deal in
+ *  the Software without restriction, including without limitation the rights to
+ *  use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ *  the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ *  FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ *  COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ *  IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *  CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.adobe.epubcheck.xml;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.adobe.epubcheck.api.Report;
+
+/**
+ * Reports the elements whose <code>id</code> attribute value is not unique
+ * in the document, as the <code>id-unique.sch</code> Schematron pattern
+ * does, but while the document is parsed.
+ * <p>
+ * Every element sharing its ID with another element is reported, at the
+ * location of its start tag. The first element with a given ID is reported
+ * when the second one is found.
+ * </p>
+ */
+public class IDUniquenessHandler implements XMLHandler {
+
+	private static final String MESSAGE = "assertion failed: Duplicate ID '%1$s'";
+
+	private final XMLParser parser;
+	private final Report report;
+	private final String path;
+	private final Map<String, Occurrence> ids = new HashMap<String, Occurrence>();
+
+	private static class Occurrence {
+		final int lineNumber;
+		final int columnNumber;
+		boolean duplicated;
+
+		Occurrence(int lineNumber, int columnNumber) {
+			this.lineNumber = lineNumber;
+			this.columnNumber = columnNumber;
+		}
+	}
+
+	public IDUniquenessHandler(XMLParser parser) {
+		this.parser = parser;
+		this.report = parser.getReport();
+		this.path = parser.getResourceName();
+	}
+
+	public void startElement() {
+		String id = parser.getCurrentElement().getAttribute("id");
+		if (id == null) {
+			return;
+		}
+		int lineNumber = parser.getLineNumber();
+		int columnNumber = parser.getColumnNumber();
+		Occurrence first = ids.get(id);
+		if (first == null) {
+			ids.put(id, new Occurrence(lineNumber, columnNumber));
+			return;
+		}
+		String message = String.format(MESSAGE, id);
+		if (!first.duplicated) {
+			first.duplicated = true;
+			report.error(path, first.lineNumber, first.columnNumber, message);
+		}
+		report.error(path, lineNumber, columnNumber, message);
+	}
+
+	public void endElement() {
+	}
+
+	public void characters(char[] chars, int start, int length) {
+	}
+
+	public void ignorableWhitespace(char[] chars, int start, int length) {
+	}
+
+	public void processingInstruction(String target, String data) {
+	}
+}
@@ -0,0 +1,350 @@
+/*
+ * Copyright (c) 2013 International Digital Publishing Forum
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of
+ *  this software and associated documentation files (the "Software"), to deal in
+ *  the Software without restriction, including without limitation the rights to
+ *  use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ *  the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ *  FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ *  COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ *  IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *  CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.adobe.epubcheck.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+/**
+ * Composes several Schematron schemas into one, so that a document is
+ * validated against all of them with a single tree and transformation.
+ * <p>
+ * The patterns of a Schematron schema are evaluated independently of each
+ * other, so the composed schema has the namespace declarations, variables
+ * and patterns of all the schemas, in order. The messages are the ones of the
+ * original patterns. Includes are resolved against the location of the
+ * schema where they appear.
+ * </p>
+ * <p>
+ * A namespace has a single prefix in the composed schema, the one of the
+ * first schema binding it, and a prefix bound to another namespace in an
+ * earlier schema is renamed. The expressions of the later schema, and of the
+ * schemas it includes, are rewritten with the prefixes of the composed schema.
+ * </p>
+ */
+final class SchematronComposer {
+
+	static final String NAMESPACE = "http://purl.oclc.org/dsdl/schematron";
+
+	/**
+	 * The attributes holding XPath expressions in Schematron schemas.
+	 */
+	private static final Set<String> EXPRESSIONS = new HashSet<String>(
+			Arrays.asList("context", "test", "select", "value", "path",
+					"subject"));
+
+	private SchematronComposer() {
+	}
+
+	/**
+	 * The composition of the Schematron schemas at the given locations.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the schemas cannot be composed, because they declare a
+	 *             variable or a pattern with the same name or use different
+	 *             query languages.
+	 */
+	static InputSource compose(URL[] schemas) throws Exception {
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(true);
+
+		Document composed = factory.newDocumentBuilder().newDocument();
+		Element root = composed.createElementNS(NAMESPACE, "schema");
+		composed.appendChild(root);
+		String queryBinding = null;
+
+		List<Node> namespaces = new ArrayList<Node>();
+		List<Node> variables = new ArrayList<Node>();
+		List<Node> patterns = new ArrayList<Node>();
+		Map<String, String> prefixes = new HashMap<String, String>();
+		Set<String> names = new HashSet<String>();
+
+		for (URL schema : schemas) {
+			Element schemaRoot = factory.newDocumentBuilder()
+					.parse(schema.toExternalForm()).getDocumentElement();
+			if (!NAMESPACE.equals(schemaRoot.getNamespaceURI())
+					|| !"schema".equals(schemaRoot.getLocalName())) {
+				throw new IllegalArgumentException("Not a Schematron schema: "
+						+ schema);
+			}
+			queryBinding = composeQueryBinding(queryBinding,
+					schemaRoot.getAttribute("queryBinding"), schema);
+			Map<String, String> renamed = composeNamespaces(composed,
+					schemaRoot, prefixes, namespaces);
+
+			for (Node child = schemaRoot.getFirstChild(); child != null; child = child
+					.getNextSibling()) {
+				if (child.getNodeType() != Node.ELEMENT_NODE
+						|| !NAMESPACE.equals(child.getNamespaceURI())) {
+					continue;
+				}
+				Element element = (Element) composed.importNode(child, true);
+				String name = element.getLocalName();
+				if ("ns".equals(name)) {
+					continue;
+				} else if ("let".equals(name)) {
+					checkUnique(names, "let " + element.getAttribute("name"),
+							schema);
+					rename(element, renamed);
+					variables.add(element);
+				} else if ("pattern".equals(name)) {
+					if (element.hasAttribute("id")) {
+						checkUnique(names,
+								"pattern " + element.getAttribute("id"), schema);
+					}
+					rename(element, renamed);
+					patterns.add(element);
+				} else if ("include".equals(name)) {
+					patterns.add(include(factory, composed, element, schema,
+							renamed));
+				} else if (!"title".equals(name) && !"p".equals(name)) {
+					throw new IllegalArgumentException("Cannot compose "
+							+ name + " elements of " + schema);
+				}
+			}
+		}
+
+		if (queryBinding.length() > 0) {
+			root.setAttribute("queryBinding", queryBinding);
+		}
+		for (Node node : namespaces) {
+			root.appendChild(node);
+		}
+		for (Node node : variables) {
+			root.appendChild(node);
+		}
+		for (Node node : patterns) {
+			root.appendChild(node);
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		TransformerFactory.newInstance().newTransformer()
+				.transform(new DOMSource(composed), new StreamResult(out));
+		InputSource source = new InputSource(new ByteArrayInputStream(
+				out.toByteArray()));
+		source.setSystemId(schemas[0].toExternalForm());
+		return source;
+	}
+
+	/**
+	 * Adds the namespace declarations of a schema to the composed ones, and
+	 * returns the prefixes of the schema to rename in its expressions. The
+	 * Schematron compiler keeps one prefix per namespace, so a namespace
+	 * keeps the prefix it was first bound to, and a prefix already bound to
+	 * another namespace is given a new name.
+	 */
+	private static Map<String, String> composeNamespaces(Document composed,
+			Element schemaRoot, Map<String, String> prefixes,
+			List<Node> namespaces) {
+		Map<String, String> declared = new LinkedHashMap<String, String>();
+		for (Node child = schemaRoot.getFirstChild(); child != null; child = child
+				.getNextSibling()) {
+			if (child.getNodeType() == Node.ELEMENT_NODE
+					&& NAMESPACE.equals(child.getNamespaceURI())
+					&& "ns".equals(child.getLocalName())) {
+				declared.put(((Element) child).getAttribute("prefix"),
+						((Element) child).getAttribute("uri"));
+			}
+		}
+
+		Map<String, String> renamed = new HashMap<String, String>();
+		for (Map.Entry<String, String> ns : declared.entrySet()) {
+			String prefix = ns.getKey();
+			String uri = ns.getValue();
+			String bound = prefixes.get(prefix);
+			if (uri.equals(bound)) {
+				continue;
+			}
+			String existing = null;
+			for (Map.Entry<String, String> binding : prefixes.entrySet()) {
+				if (binding.getValue().equals(uri)) {
+					existing = binding.getKey();
+				}
+			}
+			if (existing == null) {
+				existing = prefix;
+				for (int i = 1; prefixes.containsKey(existing) || i > 1
+						&& declared.containsKey(existing); i++) {
+					existing = prefix + i;
+				}
+				prefixes.put(existing, uri);
+				Element element = composed.createElementNS(NAMESPACE, "ns");
+				element.setAttribute("uri", uri);
+				element.setAttribute("prefix", existing);
+				namespaces.add(element);
+			}
+			if (!existing.equals(prefix)) {
+				renamed.put(prefix, existing);
+			}
+		}
+		return renamed;
+	}
+
+	/**
+	 * The element referenced by an include, resolved against the schema where
+	 * it appears. It is copied in the composed schema when some of its
+	 * prefixes are renamed.
+	 */
+	private static Element include(DocumentBuilderFactory factory,
+			Document composed, Element include, URL schema,
+			Map<String, String> renamed) throws Exception {
+		URL href = new URL(schema, include.getAttribute("href"));
+		if (renamed.isEmpty()) {
+			include.setAttribute("href", href.toExternalForm());
+			return include;
+		}
+		Element element = (Element) composed.importNode(factory
+				.newDocumentBuilder().parse(href.toExternalForm())
+				.getDocumentElement(), true);
+		NodeList includes = element.getElementsByTagNameNS(NAMESPACE,
+				"include");
+		for (int i = includes.getLength() - 1; i >= 0; i--) {
+			Element nested = (Element) includes.item(i);
+			nested.getParentNode().replaceChild(
+					include(factory, composed, nested, href, renamed), nested);
+		}
+		rename(element, renamed);
+		return element;
+	}
+
+	/**
+	 * Renames the prefixes of the expressions of the element and of its
+	 * descendants.
+	 */
+	private static void rename(Element element, Map<String, String> renamed) {
+		if (renamed.isEmpty()) {
+			return;
+		}
+		NamedNodeMap attributes = element.getAttributes();
+		for (int i = 0; i < attributes.getLength(); i++) {
+			Node attribute = attributes.item(i);
+			if (attribute.getNamespaceURI() == null
+					&& EXPRESSIONS.contains(attribute.getNodeName())) {
+				attribute.setNodeValue(renamePrefixes(
+						attribute.getNodeValue(), renamed));
+			}
+		}
+		for (Node child = element.getFirstChild(); child != null; child = child
+				.getNextSibling()) {
+			if (child.getNodeType() == Node.ELEMENT_NODE
+					&& NAMESPACE.equals(child.getNamespaceURI())) {
+				rename((Element) child, renamed);
+			}
+		}
+	}
+
+	/**
+	 * Renames the prefixes of the qualified names of an XPath expression,
+	 * leaving its string literals and axis names unchanged.
+	 */
+	static String renamePrefixes(String expression, Map<String, String> renamed) {
+		StringBuilder result = new StringBuilder(expression.length());
+		int i = 0;
+		while (i < expression.length()) {
+			char c = expression.charAt(i);
+			if (c == '\'' || c == '"') {
+				int end = expression.indexOf(c, i + 1);
+				end = end < 0 ? expression.length() : end + 1;
+				result.append(expression, i, end);
+				i = end;
+			} else if (isNameStart(c)) {
+				int end = i + 1;
+				while (end < expression.length()
+						&& isNameChar(expression.charAt(end))) {
+					end++;
+				}
+				String name = expression.substring(i, end);
+				String prefix = renamed.get(name);
+				boolean qualified = end + 1 < expression.length()
+						&& expression.charAt(end) == ':'
+						&& expression.charAt(end + 1) != ':';
+				result.append(prefix != null && qualified ? prefix : name);
+				i = end;
+			} else {
+				result.append(c);
+				i++;
+			}
+		}
+		return result.toString();
+	}
+
+	private static boolean isNameStart(char c) {
+		return Character.isLetter(c) || c == '_';
+	}
+
+	private static boolean isNameChar(char c) {
+		return Character.isLetterOrDigit(c) || c == '_' || c == '-'
+				|| c == '.';
+	}
+
+	/**
+	 * XSLT 2.0 is chosen over the default XSLT 1.0 binding, as the XPath 1.0
+	 * expressions of Schematron schemas are also XPath 2.0 expressions.
+	 */
+	private static String composeQueryBinding(String composed,
+			String queryBinding, URL schema) {
+		if (composed == null || composed.equals(queryBinding)) {
+			return queryBinding;
+		}
+		if (isXSLT1(composed) && queryBinding.equals("xslt2")) {
+			return queryBinding;
+		}
+		if (composed.equals("xslt2") && isXSLT1(queryBinding)) {
+			return composed;
+		}
+		throw new IllegalArgumentException("Cannot compose the query binding "
+				+ queryBinding + " of " + schema + " with " + composed);
+	}
+
+	private static boolean isXSLT1(String queryBinding) {
+		return queryBinding.length() == 0 || queryBinding.equals("xslt");
+	}
+
+	private static void checkUnique(Set<String> names, String name, URL schema) {
+		if (!names.add(name)) {
+			throw new IllegalArgumentException("Duplicate " + name + " in "
+					+ schema);
+		}
+	}
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2013 International Digital Publishing Forum
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of
+ *  this software and associated documentation files (the "Software"), to deal in
+ *  the Software without restriction, including without limitation the rights to
+ *  use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ *  the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ *  FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ *  COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ *  IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *  CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.adobe.epubcheck.xml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * The <code>system</code> and <code>public</code> entries of OASIS XML
+ * catalogs, mapping external identifiers to local copies of the resources.
+ * <p>
+ * The relative URIs of the entries are resolved against the location of their
+ * catalog. Entries of catalogs added first take precedence.
+ * </p>
+ */
+public class XMLCatalog {
+
+	public static final String NAMESPACE = "urn:oasis:names:tc:entity:xmlns:xml:catalog";
+
+	private final Map<String, String> systemEntries = new HashMap<String, String>();
+	private final Map<String, String> publicEntries = new HashMap<String, String>();
+
+	/**
+	 * Add the entries of the catalog at the given location.
+	 */
+	public void add(URL catalog) throws IOException, SAXException {
+		InputStream in = catalog.openStream();
+		try {
+			InputSource source = new InputSource(in);
+			source.setSystemId(catalog.toExternalForm());
+			SAXParserFactory factory = SAXParserFactory.newInstance();
+			factory.setNamespaceAware(true);
+			factory.setValidating(false);
+			factory.newSAXParser().parse(source, new CatalogHandler(catalog));
+		} catch (ParserConfigurationException e) {
+			throw new SAXException(e);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * The location of the local copy of the resource with the given
+	 * identifiers, or null if the catalog has no entry for them. System
+	 * entries are preferred to public entries.
+	 */
+	public String resolve(String publicId, String systemId) {
+		String location = systemId != null ? systemEntries.get(systemId) : null;
+		if (location == null && publicId != null) {
+			location = publicEntries.get(publicId);
+		}
+		return location;
+	}
+
+	private class CatalogHandler extends DefaultHandler {
+
+		private final URL base;
+
+		CatalogHandler(URL base) {
+			this.base = base;
+		}
+
+		@Override
+		public InputSource resolveEntity(String publicId, String systemId) {
+			// never fetch the catalog DTD
+			return new InputSource(new StringReader(""));
+		}
+
+		@Override
+		public void startElement(String uri, String localName, String qName,
+				Attributes attributes) throws SAXException {
+			if (!NAMESPACE.equals(uri)) {
+				return;
+			}
+			if ("system".equals(localName)) {
+				addEntry(systemEntries, attributes.getValue("systemId"),
+						attributes.getValue("uri"));
+			} else if ("public".equals(localName)) {
+				addEntry(publicEntries, attributes.getValue("publicId"),
+						attributes.getValue("uri"));
+			}
+		}
+
+		private void addEntry(Map<String, String> entries, String id, String uri)
+				throws SAXException {
+			if (id == null || uri == null || entries.containsKey(id)) {
+				return;
+			}
+			try {
+				entries.put(id, new URL(base, uri).toExternalForm());
+			} catch (MalformedURLException e) {
+				throw new SAXException(e);
+			}
+		}
+	}
+}
@@ -22,20 +22,27 @@
 
 package com.adobe.epubcheck.xml;
 
-import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringReader;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.Hashtable;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
+import org.idpf.epubcheck.util.EncodingSniffer;
+import org.idpf.epubcheck.util.EncodingSniffer.PreludeInputStream;
 import org.xml.sax.Attributes;
 import org.xml.sax.ContentHandler;
 import org.xml.sax.DTDHandler;
@@ -43,8 +50,6 @@ import org.xml.sax.ErrorHandler;
 import org.xml.sax.InputSource;
 import org.xml.sax.Locator;
 import org.xml.sax.SAXException;
-import org.xml.sax.SAXNotRecognizedException;
-import org.xml.sax.SAXNotSupportedException;
 import org.xml.sax.SAXParseException;
 import org.xml.sax.XMLReader;
 import org.xml.sax.ext.DeclHandler;
@@ -54,9 +59,13 @@ import org.xml.sax.helpers.AttributesImpl;
 import org.xml.sax.helpers.DefaultHandler;
 
 import com.adobe.epubcheck.api.Report;
+import com.adobe.epubcheck.api.ValidationMetrics;
 import com.adobe.epubcheck.util.EPUBVersion;
 import com.adobe.epubcheck.util.Messages;
+import com.adobe.epubcheck.util.ReportUtil;
 import com.adobe.epubcheck.util.ResourceUtil;
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
 import com.thaiopensource.util.PropertyMapBuilder;
 import com.thaiopensource.validate.ValidateProperty;
 import com.thaiopensource.validate.Validator;
@@ -75,10 +84,27 @@ public class XMLParser extends DefaultHandler implements LexicalHandler, DeclHan
 	Locator2 documentLocator;
 	EPUBVersion version;
 	static String zipRoot = "file:///epub-root/";
-	static Hashtable<String, String> systemIdMap;
+	/**
+	 * System property listing additional XML catalogs, separated by the
+	 * platform path separator.
+	 */
+	public static final String CATALOG_PROPERTY = "epubcheck.catalog";
+	static XMLCatalog catalog;
+	// the catalogs of the epubcheck.catalog property that failed to load
+	static final Map<String, String> catalogFailures = new LinkedHashMap<String, String>();
+	// contents of the catalog DTDs and entity sets, read once
+	private static final ConcurrentMap<String, byte[]> dtdCache = new ConcurrentHashMap<String, byte[]>();
+	// declarations of the catalog DTDs used as external subsets, flattened
+	private static final ConcurrentMap<String, byte[]> dtdDeclsCache = new ConcurrentHashMap<String, byte[]>();
 	HashSet<String> entities = new HashSet<String>();
 	String mimeType;
 	boolean firstStartDTDInvocation = true;
+	// the catalog location of the external subset, until it is resolved
+	String subsetLocation;
+	// the declarations of the external subset, while they are recorded
+	String recordedLocation;
+	StringBuilder subsetDecls;
+	int subsetMessageCount;
 
 	public XMLParser(InputStream resourceIn, String entryName, String mimeType,
 			Report report, EPUBVersion version) {
@@ -113,23 +139,35 @@ public class XMLParser extends DefaultHandler implements LexicalHandler, DeclHan
 			reader.setContentHandler(this);
 			reader.setEntityResolver(this);
 			reader.setErrorHandler(this);
-			
-			try {
-				reader.setProperty(SAXPROP_LEXICAL_HANDLER, this);
-				reader.setProperty(SAXPROP_DECL_HANDLER, this);
-			} catch (SAXNotRecognizedException e) {
-				e.printStackTrace();
-			} catch (SAXNotSupportedException e) {
-				e.printStackTrace();
-			}
+			// the entity and DOCTYPE checks need both handlers
+			reader.setProperty(SAXPROP_LEXICAL_HANDLER, this);
+			reader.setProperty(SAXPROP_DECL_HANDLER, this);
 		} catch (ParserConfigurationException e) {
-			e.printStackTrace();
+			throw new IllegalStateException(e);
 		} catch (SAXException e) {
-			e.printStackTrace();
+			throw new IllegalStateException(e);
 		}
 	}
 	
 
+	/**
+	 * Start a validation on the current thread. This restores the fetch
+	 * budget of the default {@link EntityFetcher}, and warns about the
+	 * catalogs listed in the <code>epubcheck.catalog</code> system property
+	 * that could not be loaded.
+	 * 
+	 * @param report
+	 *            the report of the validation.
+	 */
+	public static void startValidation(Report report) {
+		EntityFetcher.getDefault().resetBudget();
+		for (Map.Entry<String, String> failure : catalogFailures.entrySet()) {
+			ReportUtil.warning(report, null, -1, -1,
+					Messages.CATALOG_NOT_LOADED, failure.getKey(),
+					failure.getValue());
+		}
+	}
+
 	public void addXMLHandler(XMLHandler handler) {
 		if (handler != null)
 			contentHandlers.add(handler);
@@ -150,16 +188,20 @@ public class XMLParser extends DefaultHandler implements LexicalHandler, DeclHan
 	}
 
 	public void process() {
+		if (ValidationMetrics.hasListeners()) {
+			ValidationMetrics.documentParsed(mimeType);
+		}
 		InputStream in = resourceIn;
 		try {
 			//System.err.println("DEBUG XMLParser#process on" + resource);
-			if (!in.markSupported()) in = new BufferedInputStream(in);
+			PreludeInputStream prelude = new PreludeInputStream(in);
+			in = prelude;
 
-			String encoding = sniffEncoding(in);
+			String encoding = EncodingSniffer.sniffXML(prelude.getPrelude(), prelude.getPreludeLength());
 			if (encoding != null && !encoding.equals("UTF-8")
 					&& !encoding.equals("UTF-16")) {
-				report.error(resource, 0, 0, 
-						String.format(Messages.UTF_NOT_SUPPORTED, encoding));						
+				ReportUtil.error(report, resource, 0, 0, 
+						Messages.UTF_NOT_SUPPORTED, encoding);						
 			}
 			
 			InputSource ins = new InputSource(in);
@@ -188,11 +230,20 @@ public class XMLParser extends DefaultHandler implements LexicalHandler, DeclHan
 		
 		//System.out.println("DEBUG XMLParser#resolveEntity ==> "+ publicId + ", " + systemId + ", " );
 		
-		String resourcePath = systemIdMap.get(systemId);
+		String location = catalog.resolve(publicId, systemId);
+		boolean subset = location != null && location.equals(subsetLocation);
+		subsetLocation = null;
 										
-		if (resourcePath != null) {
-			InputStream resourceStream = ResourceUtil.getResourceStream(resourcePath);
-			InputSource source = new InputSource(resourceStream);
+		if (location != null) {
+			byte[] bytes = subset ? dtdDeclsCache.get(location) : null;
+			if (bytes == null) {
+				bytes = getDTDBytes(location);
+				if (subset) {
+					// record the declarations, see startEntity
+					recordedLocation = location;
+				}
+			}
+			InputSource source = new InputSource(new ByteArrayInputStream(bytes));
 			source.setPublicId(publicId);
 			source.setSystemId(systemId);
 			return source;
@@ -200,15 +251,20 @@ public class XMLParser extends DefaultHandler implements LexicalHandler, DeclHan
 			//special case
 			return new InputSource(new StringReader(""));
 			
-		} else {
-			//check for a system prop that turns off online fetching
-			//the default is to attempt online fetching, as this has been the default forever
-			boolean offline = Boolean.parseBoolean(System.getProperty("epubcheck.offline"));
-			//System.out.println("offline value is " + offline);
-			if(systemId.startsWith("http:") && offline) {
+		} else if (systemId.startsWith("http:") || systemId.startsWith("https:")) {
+			//fetched only if allowed, see EntityFetcher; else resolved as empty
+			byte[] bytes = EntityFetcher.getDefault().fetch(systemId);
+			if (bytes == null) {
+				ReportUtil.warning(report, resource, getLineNumber(), getColumnNumber(),
+						Messages.EXTERNAL_ENTITY_NOT_RESOLVED, systemId);
 				return new InputSource(new StringReader(""));
-			}		
-			//else return null and let the caller try to fetch the goods
+			}
+			InputSource source = new InputSource(new ByteArrayInputStream(bytes));
+			source.setPublicId(publicId);
+			source.setSystemId(systemId);
+			return source;
+		} else {
+			//return null and let the caller try to resolve the goods
 			return null;
 		}
 	}
@@ -216,8 +272,32 @@ public class XMLParser extends DefaultHandler implements LexicalHandler, DeclHan
 
 
 
+	/**
+	 * The bytes of a DTD or entity set mapped by the catalog. The bytes are
+	 * shared and must not be modified.
+	 */
+	static byte[] getDTDBytes(String location) throws IOException {
+		byte[] bytes = dtdCache.get(location);
+		if (bytes == null) {
+			InputStream in = new URL(location).openStream();
+			try {
+				bytes = ByteStreams.toByteArray(in);
+			} finally {
+				in.close();
+			}
+			byte[] cached = dtdCache.putIfAbsent(location, bytes);
+			if (cached != null) {
+				bytes = cached;
+			}
+		}
+		return bytes;
+	}
+
 	public void notationDecl(String name, String publicId, String systemId)
 			throws SAXException {
+		// not recorded, see startEntity
+		stopRecording();
+		declaredOutsideSubset();
 		int len = validatorDTDHandlers.size();
 		for (int i = 0; i < len; i++) {
 			((DTDHandler) validatorDTDHandlers.elementAt(i)).notationDecl(name,
@@ -227,6 +307,8 @@ public class XMLParser extends DefaultHandler implements LexicalHandler, DeclHan
 
 	public void unparsedEntityDecl(String name, String publicId,
 			String systemId, String notationName) throws SAXException {
+		stopRecording();
+		declaredOutsideSubset();
 		int len = validatorDTDHandlers.size();
 		for (int i = 0; i < len; i++) {
 			((DTDHandler) validatorDTDHandlers.elementAt(i))
@@ -306,6 +388,7 @@ public class XMLParser extends DefaultHandler implements LexicalHandler, DeclHan
 
 	public void processingInstruction(String arg0, String arg1)
 			throws SAXException {
+		stopRecording();
 		int vlen = validatorContentHandlers.size();
 		for (int i = 0; i < vlen; i++) {
 			((ContentHandler) validatorContentHandlers.elementAt(i))
@@ -428,6 +511,13 @@ public class XMLParser extends DefaultHandler implements LexicalHandler, DeclHan
 	}
 
 	public void endEntity(String ent) throws SAXException {
+		if (subsetDecls != null && ent.equals("[dtd]")) {
+			if (subsetMessageCount == getMessageCount()) {
+				dtdDeclsCache.putIfAbsent(recordedLocation, subsetDecls
+						.toString().getBytes(Charsets.UTF_8));
+			}
+			stopRecording();
+		}
 	}
 
 	public void startCDATA() throws SAXException {
@@ -436,6 +526,9 @@ public class XMLParser extends DefaultHandler implements LexicalHandler, DeclHan
 	public void startDTD(String root, String publicId, String systemId)
 			throws SAXException {
 		handleDocTypeUserInfo(root, publicId, systemId);
+		if (systemId != null) {
+			subsetLocation = catalog.resolve(publicId, systemId);
+		}
 	}
 			
 	private void handleDocTypeUserInfo(String root, String publicId, String systemId) {
@@ -499,28 +592,129 @@ public class XMLParser extends DefaultHandler implements LexicalHandler, DeclHan
 	
 	boolean matchDoctypeId(String expected, String given, String messageParam) {
 		if(given != null && !expected.equals(given)){
-			report.warning(resource, 0, 0, String.format(
-					Messages.IRREGULAR_DOCTYPE, given, messageParam));
+			ReportUtil.warning(report, resource, 0, 0, Messages.IRREGULAR_DOCTYPE, given, messageParam);
 			return false;
 		}
 		return true;
 	}
 
 	public void startEntity(String ent) throws SAXException {
-		if (!entities.contains(ent) && !ent.equals("[dtd]"))
+		if (ent.equals("[dtd]")) {
+			if (recordedLocation != null) {
+				subsetDecls = new StringBuilder();
+				subsetMessageCount = getMessageCount();
+			}
+		} else if (!entities.contains(ent))
 			report.error(resource, getLineNumber(), getColumnNumber(),
 					"Entity '" + ent + "' is undeclared");
 	}
 
+	/*
+	 * The declarations of a catalog DTD used as the external subset of a
+	 * document with no internal subset are recorded in a flat DTD, with the
+	 * parameter entities expanded. Documents with the same DOCTYPE then read
+	 * that DTD instead: it gives the same declarations to the parser and to
+	 * the handlers below, but needs neither the DTD modules nor the entity
+	 * sets. The DTD is only recorded if no message was reported while
+	 * parsing the external subset.
+	 */
+
+	/**
+	 * The recorded declarations of the given catalog DTD, or null.
+	 */
+	static byte[] getDTDDecls(String location) {
+		return dtdDeclsCache.get(location);
+	}
+
+	private int getMessageCount() {
+		return report.getErrorCount() + report.getWarningCount()
+				+ report.getHintCount() + report.getExceptionCount();
+	}
+
+	private void declaredOutsideSubset() {
+		// declarations of the internal subset may change the external one
+		if (subsetDecls == null) {
+			subsetLocation = null;
+		}
+	}
+
+	private void stopRecording() {
+		subsetDecls = null;
+		recordedLocation = null;
+	}
+
+	private static void appendLiteral(StringBuilder sb, String value) {
+		sb.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '&' || c == '%' || c == '<' || c == '\t'
+					|| c == '\n' || c == '\r') {
+				sb.append("&#").append((int) c).append(';');
+			} else {
+				sb.append(c);
+			}
+		}
+		sb.append('"');
+	}
+
+	private static void appendExternalId(StringBuilder sb, String publicId,
+			String systemId) {
+		if (publicId != null) {
+			sb.append(" PUBLIC ");
+			appendLiteral(sb, publicId);
+		} else {
+			sb.append(" SYSTEM");
+		}
+		sb.append(' ').append(systemId.indexOf('"') < 0 ? '"' : '\'')
+				.append(systemId)
+				.append(systemId.indexOf('"') < 0 ? '"' : '\'');
+	}
+
+	private static void appendEntityName(StringBuilder sb, String name) {
+		sb.append("<!ENTITY ");
+		if (name.startsWith("%")) {
+			sb.append("% ").append(name.substring(1));
+		} else {
+			sb.append(name);
+		}
+	}
+
 	public void attributeDecl(String name, String name2, String type,
 			String mode, String value) throws SAXException {
+		if (subsetDecls != null) {
+			subsetDecls.append("<!ATTLIST ").append(name).append(' ')
+					.append(name2).append(' ').append(type);
+			if (mode != null) {
+				subsetDecls.append(' ').append(mode);
+			}
+			if (value != null) {
+				subsetDecls.append(' ');
+				appendLiteral(subsetDecls, value);
+			}
+			subsetDecls.append(">\n");
+		} else {
+			declaredOutsideSubset();
+		}
 	}
 
 	public void elementDecl(String name, String model) throws SAXException {
+		if (subsetDecls != null) {
+			subsetDecls.append("<!ELEMENT ").append(name).append(' ')
+					.append(model).append(">\n");
+		} else {
+			declaredOutsideSubset();
+		}
 	}
 
 	public void externalEntityDecl(String name, String publicId, String systemId)
 			throws SAXException {
+		if (subsetDecls != null) {
+			appendEntityName(subsetDecls, name);
+			appendExternalId(subsetDecls, publicId, systemId);
+			subsetDecls.append(">\n");
+		} else {
+			declaredOutsideSubset();
+		}
 		if (version == EPUBVersion.VERSION_3) {
 			report.error(resource, getLineNumber(), getColumnNumber(),
 					Messages.EXTERNAL_ENTITIES_NOT_ALLOWED + name);
@@ -531,6 +725,14 @@ public class XMLParser extends DefaultHandler implements LexicalHandler, DeclHan
 
 	public void internalEntityDecl(String name, String value)
 			throws SAXException {
+		if (subsetDecls != null) {
+			appendEntityName(subsetDecls, name);
+			subsetDecls.append(' ');
+			appendLiteral(subsetDecls, value);
+			subsetDecls.append(">\n");
+		} else {
+			declaredOutsideSubset();
+		}
 		entities.add(name);
 	}
 
@@ -562,126 +764,24 @@ public class XMLParser extends DefaultHandler implements LexicalHandler, DeclHan
 		return resource;
 	}
 
-	static final byte[][] utf16magic = { { (byte) 0xFE, (byte) 0xFF },
-		{ (byte) 0xFF, (byte) 0xFE }, { 0, 0x3C, 0, 0x3F },
-		{ 0x3C, 0, 0x3F, 0 } };
-
-static final byte[][] ucs4magic = { { 0, 0, (byte) 0xFE, (byte) 0xFF },
-		{ (byte) 0xFF, (byte) 0xFE, 0, 0 },
-		{ 0, 0, (byte) 0xFF, (byte) 0xFE },
-		{ (byte) 0xFE, (byte) 0xFF, 0, 0 }, { 0, 0, 0, 0x3C },
-		{ 0, 0, 0x3C, 0 }, { 0, 0x3C, 0, 0 }, { 0x3C, 0, 0, 0 } };
-
-static final byte[] utf8magic = { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
-
-static final byte[] ebcdicmagic = { 0x4C, 0x6F, (byte) 0xA7, (byte) 0x94 };
-
-static boolean matchesMagic(byte[] magic, byte[] buffer) {
-	for (int i = 0; i < magic.length; i++)
-		if (buffer[i] != magic[i])
-			return false;
-	return true;
-}
-
-static String sniffEncoding(InputStream in) throws IOException {
-	// see http://www.w3.org/TR/REC-xml/#sec-guessing
-	byte[] buffer = new byte[256];
-	in.mark(buffer.length);
-	int len = in.read(buffer);
-	in.reset();
-	if (len < 4)
-		return null;
-	for (int k = 0; k < utf16magic.length; k++)
-		if (matchesMagic(utf16magic[k], buffer))
-			return "UTF-16";
-	for (int k = 0; k < ucs4magic.length; k++)
-		if (matchesMagic(ucs4magic[k], buffer))
-			return "UCS-4";
-	if (matchesMagic(utf8magic, buffer))
-		return "UTF-8";
-	if (matchesMagic(ebcdicmagic, buffer))
-		return "EBCDIC";
-
-	// some ASCII-compatible encoding; read ASCII
-	int asciiLen = 0;
-	while (asciiLen < len) {
-		int c = buffer[asciiLen] & 0xFF;
-		if (c == 0 || c > 0x7F)
-			break;
-		asciiLen++;
-	}
-
-	// read it into a String
-	String header = new String(buffer, 0, asciiLen, "ASCII");
-	int encIndex = header.indexOf("encoding=");
-	if (encIndex < 0)
-		return null; // probably UTF-8
-
-	encIndex += 9;
-	if (encIndex >= header.length())
-		return null; // encoding did not fit!
-
-	char quote = header.charAt(encIndex);
-	if (quote != '"' && quote != '\'')
-		return null; // confused...
-
-	int encEnd = header.indexOf(quote, encIndex + 1);
-	if (encEnd < 0)
-		return null; // encoding did not fit!
-
-	String encoding = header.substring(encIndex + 1, encEnd);
-	return encoding.toUpperCase();
-}
-	
 	static {
-		Hashtable<String, String> map = new Hashtable<String, String>();
-
-		// OEB 1.2
-		map.put("http://openebook.org/dtds/oeb-1.2/oebpkg12.dtd",				 
-				ResourceUtil.getResourcePath("schema/20/dtd/oebpkg12.dtd"));
-		map.put("http://http://idpf.org/dtds/oeb-1.2/oebpkg12.dtd",				 
-				ResourceUtil.getResourcePath("schema/20/dtd/oebpkg12.dtd"));
-		map.put("http://openebook.org/dtds/oeb-1.2/oeb12.ent",
-				ResourceUtil.getResourcePath("schema/20/dtd/oeb12.dtdinc"));
-		
-		//2.0 dtd, probably never published
-		map.put("http://www.idpf.org/dtds/2007/opf.dtd",
-				ResourceUtil.getResourcePath("schema/20/dtd/opf20.dtd"));
-		//xhtml 1.1				 				
-		map.put("http://www.w3.org/TR/xhtml1/DTD/xhtml1-transitional.dtd",
-				ResourceUtil.getResourcePath("schema/20/dtd/xhtml1-transitional.dtd"));
-		map.put("http://www.w3.org/TR/xhtml1/DTD/xhtml1-strict.dtd",
-				ResourceUtil.getResourcePath("schema/20/dtd/xhtml1-strict.dtd"));
-		map.put("http://www.w3.org/TR/xhtml1/DTD/xhtml-lat1.ent",
-				ResourceUtil.getResourcePath("schema/20/dtd/xhtml-lat1.dtdinc"));
-		map.put("http://www.w3.org/TR/xhtml1/DTD/xhtml-symbol.ent",
-				ResourceUtil.getResourcePath("schema/20/dtd/xhtml-symbol.dtdinc"));
-		map.put("http://www.w3.org/TR/xhtml1/DTD/xhtml-special.ent",
-				ResourceUtil.getResourcePath("schema/20/dtd/xhtml-special.dtdinc"));
-		//svg 1.1
-		map.put("http://www.w3.org/Graphics/SVG/1.1/DTD/svg11.dtd",
-				ResourceUtil.getResourcePath("schema/20/dtd/svg11.dtd"));
-		//dtbook
-		map.put("http://www.daisy.org/z3986/2005/dtbook-2005-2.dtd",
-				ResourceUtil.getResourcePath("schema/20/dtd/dtbook-2005-2.dtd"));
-		//ncx
-		map.put("http://www.daisy.org/z3986/2005/ncx-2005-1.dtd",
-				ResourceUtil.getResourcePath("schema/20/dtd/ncx-2005-1.dtd"));
-		
-		//xhtml 1.1: just reference the character entities, as we validate with rng
-		map.put("http://www.w3.org/TR/xhtml11/DTD/xhtml11.dtd",				 
-				ResourceUtil.getResourcePath("schema/20/dtd/xhtml11-ent.dtd"));
-		map.put("http://www.w3.org/MarkUp/DTD/xhtml11.dtd",
-				ResourceUtil.getResourcePath("schema/20/dtd/xhtml11-ent.dtd"));
-		
-		// non-resolved names; Saxon (which schematron requires and registers as
-		// preferred parser, it seems) passes us those (bad, bad!), work around it
-		map.put("xhtml-lat1.ent",
-				ResourceUtil.getResourcePath("dtd/xhtml-lat1.dtdinc"));
-		map.put("xhtml-symbol.ent",
-				ResourceUtil.getResourcePath("dtd/xhtml-symbol.dtdinc"));
-		map.put("xhtml-special.ent",
-				ResourceUtil.getResourcePath("dtd/xhtml-special.dtdinc"));
-		systemIdMap = map;
+		catalog = new XMLCatalog();
+		try {
+			catalog.add(ResourceUtil.getResourceURL(ResourceUtil
+					.getResourcePath("schema/20/dtd/epub20-catalog.xml")));
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+		String catalogFiles = System.getProperty(CATALOG_PROPERTY);
+		if (catalogFiles != null) {
+			for (String catalogFile : catalogFiles.split(File.pathSeparator)) {
+				try {
+					catalog.add(new File(catalogFile).toURI().toURL());
+				} catch (Exception e) {
+					// reported by startValidation
+					catalogFailures.put(catalogFile, e.getMessage());
+				}
+			}
+		}
 	}
 }
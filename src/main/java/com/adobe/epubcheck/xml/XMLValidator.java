@@ -43,6 +43,7 @@ import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 
+import com.adobe.epubcheck.api.ValidationMetrics;
 import com.adobe.epubcheck.util.ResourceUtil;
 import com.thaiopensource.resolver.Identifier;
 import com.thaiopensource.resolver.Input;
@@ -180,15 +181,48 @@ public class XMLValidator {
 
 	}
 
+	/**
+	 * Wrap a schema that is not read from a schema file, such as a schema
+	 * implemented in code.
+	 * 
+	 * @param schemaName
+	 *            a name identifying the schema, in place of a schema file
+	 */
+	public XMLValidator(String schemaName, Schema schema) {
+		this.schemaName = schemaName;
+		this.schema = schema;
+	}
+
 	public XMLValidator(String schemaName) {
+		this(new String[] { schemaName });
+	}
+
+	/**
+	 * Compile a validator for all the given Schematron schemas, which
+	 * validates documents with a single tree and transformation.
+	 * 
+	 * @see SchematronComposer
+	 */
+	public XMLValidator(String... schemaNames) {
+		String schemaName = schemaNames[0];
+		long start = ValidationMetrics.start();
 		try {
-			String resourcePath = ResourceUtil.getResourcePath(schemaName);
-			URL systemIdURL = ResourceUtil.getResourceURL(resourcePath);
-			if (systemIdURL == null) {
-				throw new RuntimeException("Could not find resource "
-						+ resourcePath);
+			URL[] systemIdURLs = new URL[schemaNames.length];
+			for (int i = 0; i < schemaNames.length; i++) {
+				String resourcePath = ResourceUtil
+						.getResourcePath(schemaNames[i]);
+				systemIdURLs[i] = ResourceUtil.getResourceURL(resourcePath);
+				if (systemIdURLs[i] == null) {
+					throw new RuntimeException("Could not find resource "
+							+ resourcePath);
+				}
+			}
+			InputSource schemaSource;
+			if (schemaNames.length == 1) {
+				schemaSource = new InputSource(systemIdURLs[0].toString());
+			} else {
+				schemaSource = SchematronComposer.compose(systemIdURLs);
 			}
-			InputSource schemaSource = new InputSource(systemIdURL.toString());
 			PropertyMapBuilder mapBuilder = new PropertyMapBuilder();
 			mapBuilder.put(ValidateProperty.RESOLVER,
 					BasicResolver.getInstance());
@@ -215,6 +249,12 @@ public class XMLValidator {
 		} catch (Exception e) {
 			e.printStackTrace();
 			throw new Error("Internal error: " + e + " " + schemaName);
+		} finally {
+			ValidationMetrics.stop(ValidationMetrics.SCHEMA_COMPILATION, start);
 		}
 	}
+
+	public Schema getSchema() {
+		return schema;
+	}
 }
@@ -0,0 +1,351 @@
+/*
+ * Copyright (c) 2013 International Digital Publishing Forum
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of
+ *  this software and associated documentation files (the "Software"), to deal in
+ *  the Software without restriction, including without limitation the rights to
+ *  use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ *  the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ *  FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ *  COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ *  IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *  CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package org.idpf.epubcheck.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * Detects the character encoding of XML and CSS resources from the 
+ * first bytes of their byte stream.
+ * <p>
+ * The detection methods work on a byte array prelude and do not allocate.
+ * {@link PreludeInputStream} reads that prelude once, and then serves it
+ * back to the consumer of the stream, so that resource loaders do not need
+ * to mark and reset or unread the stream.
+ * </p>
+ */
+public final class EncodingSniffer {
+	
+	/**
+	 * The number of bytes read ahead for encoding detection. 
+	 */
+	public static final int PRELUDE_SIZE = 256;
+	
+	private static final byte[] XML_ENCODING = {'e','n','c','o','d','i','n','g','='};
+	
+	/**
+	 * The byte order marks recognized by {@link EncodingSniffer#detectBOM(byte[], int)}.
+	 */
+	public enum BOM {
+		UTF_32BE("UTF-32BE", 4),
+		UTF_32LE("UTF-32LE", 4),
+		UTF_8("UTF-8", 3),
+		UTF_16BE("UTF-16BE", 2),
+		UTF_16LE("UTF-16LE", 2);
+		
+		private final String charset;
+		private final int length;
+		
+		private BOM(String charset, int length) {
+			this.charset = charset;
+			this.length = length;
+		}
+		
+		/**
+		 * The name of the character set signaled by this BOM.
+		 */
+		public String getCharset() {
+			return charset;
+		}
+		
+		/**
+		 * The length in bytes of this BOM.
+		 */
+		public int getLength() {
+			return length;
+		}
+		
+		/**
+		 * The number of bytes used by a code unit in the signaled character set.
+		 */
+		public int getCodeUnitLength() {
+			return this == UTF_8 ? 1 : length;
+		}
+		
+		/**
+		 * Whether the most significant byte of a code unit comes first.
+		 */
+		public boolean isBigEndian() {
+			return this == UTF_32BE || this == UTF_16BE;
+		}
+	}
+	
+	private EncodingSniffer() {
+		
+	}
+	
+	/**
+	 * Detect a byte order mark at the start of the given buffer.
+	 * 
+	 * @param buffer the prelude bytes
+	 * @param len the number of valid bytes in the buffer
+	 * @return the BOM, or null if the buffer does not start with a known BOM.
+	 */
+	public static BOM detectBOM(final byte[] buffer, final int len) {
+		int b0 = len > 0 ? buffer[0] & 0xFF : -1;
+		int b1 = len > 1 ? buffer[1] & 0xFF : -1;
+		int b2 = len > 2 ? buffer[2] & 0xFF : -1;
+		int b3 = len > 3 ? buffer[3] & 0xFF : -1;
+		
+		if (b0 == 0x00 && b1 == 0x00 && b2 == 0xFE && b3 == 0xFF) {
+			return BOM.UTF_32BE;
+		} else if (b0 == 0xFF && b1 == 0xFE && b2 == 0x00 && b3 == 0x00) {
+			return BOM.UTF_32LE;
+		} else if (b0 == 0xEF && b1 == 0xBB && b2 == 0xBF) {
+			return BOM.UTF_8;
+		} else if (b0 == 0xFE && b1 == 0xFF) {
+			return BOM.UTF_16BE;
+		} else if (b0 == 0xFF && b1 == 0xFE) {
+			return BOM.UTF_16LE;
+		}
+		return null;
+	}
+	
+	/**
+	 * Guess the encoding of an XML document from its first bytes, as described
+	 * in <a href="http://www.w3.org/TR/REC-xml/#sec-guessing">Appendix F of the XML
+	 * specification</a>.
+	 * 
+	 * @param buffer the prelude bytes
+	 * @param len the number of valid bytes in the buffer
+	 * @return "UTF-16", "UCS-4", "UTF-8" or "EBCDIC" when detected from a BOM or from the
+	 *         encoding of the first characters, else the upper-cased value of the 
+	 *         encoding declaration, or null if there is none (probably UTF-8).
+	 */
+	public static String sniffXML(final byte[] buffer, final int len) {
+		if (len < 4) {
+			return null;
+		}
+		int b0 = buffer[0] & 0xFF;
+		int b1 = buffer[1] & 0xFF;
+		int b2 = buffer[2] & 0xFF;
+		int b3 = buffer[3] & 0xFF;
+		
+		if ((b0 == 0xFE && b1 == 0xFF) || (b0 == 0xFF && b1 == 0xFE)
+				|| (b0 == 0x00 && b1 == 0x3C && b2 == 0x00 && b3 == 0x3F)
+				|| (b0 == 0x3C && b1 == 0x00 && b2 == 0x3F && b3 == 0x00)) {
+			return "UTF-16";
+		}
+		if ((b0 == 0x00 && b1 == 0x00 && ((b2 == 0xFE && b3 == 0xFF) || (b2 == 0xFF && b3 == 0xFE)))
+				|| (b2 == 0x00 && b3 == 0x00 && ((b0 == 0xFF && b1 == 0xFE) || (b0 == 0xFE && b1 == 0xFF)))
+				|| isUCS4LessThan(b0, b1, b2, b3)) {
+			return "UCS-4";
+		}
+		if (b0 == 0xEF && b1 == 0xBB && b2 == 0xBF) {
+			return "UTF-8";
+		}
+		if (b0 == 0x4C && b1 == 0x6F && b2 == 0xA7 && b3 == 0x94) {
+			return "EBCDIC";
+		}
+		
+		// some ASCII-compatible encoding; look in the ASCII prefix
+		int asciiLen = 0;
+		while (asciiLen < len) {
+			int c = buffer[asciiLen] & 0xFF;
+			if (c == 0 || c > 0x7F) {
+				break;
+			}
+			asciiLen++;
+		}
+		
+		int encIndex = indexOf(buffer, asciiLen, XML_ENCODING, 0);
+		if (encIndex < 0) {
+			return null; // probably UTF-8
+		}
+		encIndex += XML_ENCODING.length;
+		if (encIndex >= asciiLen) {
+			return null; // encoding did not fit!
+		}
+		
+		byte quote = buffer[encIndex];
+		if (quote != '"' && quote != '\'') {
+			return null; // confused...
+		}
+		
+		int encEnd = encIndex + 1;
+		while (encEnd < asciiLen && buffer[encEnd] != quote) {
+			encEnd++;
+		}
+		if (encEnd >= asciiLen) {
+			return null; // encoding did not fit!
+		}
+		
+		char[] encoding = new char[encEnd - encIndex - 1];
+		for (int i = 0; i < encoding.length; i++) {
+			char ch = (char) buffer[encIndex + 1 + i];
+			encoding[i] = (ch >= 'a' && ch <= 'z') ? (char) (ch - ('a' - 'A')) : ch;
+		}
+		return new String(encoding);
+	}
+	
+	/**
+	 * '&lt;' in one of the four UCS-4 byte orders.
+	 */
+	private static boolean isUCS4LessThan(int b0, int b1, int b2, int b3) {
+		return (b0 | b1 | b2 | b3) == 0x3C 
+				&& (b0 == 0 ? 1 : 0) + (b1 == 0 ? 1 : 0) + (b2 == 0 ? 1 : 0) + (b3 == 0 ? 1 : 0) == 3;
+	}
+	
+	/**
+	 * The index of the first occurrence of pattern in the first len bytes 
+	 * of buffer, starting at from, or -1. 
+	 */
+	static int indexOf(final byte[] buffer, final int len, final byte[] pattern, final int from) {
+		outer:
+		for (int i = from; i <= len - pattern.length; i++) {
+			for (int k = 0; k < pattern.length; k++) {
+				if (buffer[i + k] != pattern[k]) {
+					continue outer;
+				}
+			}
+			return i;
+		}
+		return -1;
+	}
+	
+	/**
+	 * An InputStream that reads the first {@link EncodingSniffer#PRELUDE_SIZE} 
+	 * bytes (or more if requested) of the underlying stream into a buffer on 
+	 * construction. The prelude is available for encoding detection, and reads are served 
+	 * from it before being passed through to the underlying stream.
+	 */
+	public static class PreludeInputStream extends FilterInputStream {
+		private final byte[] prelude;
+		private final int preludeLength;
+		private final BOM bom;
+		private int pos;
+		
+		public PreludeInputStream(final InputStream in) throws IOException {
+			this(in, PRELUDE_SIZE);
+		}
+		
+		public PreludeInputStream(final InputStream in, final int size) throws IOException {
+			super(in);
+			this.prelude = new byte[size];
+			this.preludeLength = ByteStreams.read(in, prelude, 0, size);
+			this.bom = detectBOM(prelude, preludeLength);
+		}
+		
+		/**
+		 * The prelude buffer. Only the first {@link #getPreludeLength()} bytes are valid.
+		 */
+		public final byte[] getPrelude() {
+			return prelude;
+		}
+		
+		/**
+		 * The number of bytes read into the prelude buffer.
+		 */
+		public final int getPreludeLength() {
+			return preludeLength;
+		}
+		
+		/**
+		 * The BOM at the start of the stream, or null if there is none.
+		 */
+		public final BOM getBOM() {
+			return bom;
+		}
+		
+		/**
+		 * The offset in the prelude of the first byte after the BOM, if any. 
+		 */
+		public final int getContentOffset() {
+			return bom == null ? 0 : bom.getLength();
+		}
+		
+		/**
+		 * Skip past the BOM, if any. This must be invoked before the stream is read.
+		 */
+		public final void skipBOM() {
+			if (pos == 0) {
+				pos = getContentOffset();
+			}
+		}
+		
+		/**
+		 * Create a Reader over this stream, past the BOM, using the charset signaled by the BOM 
+		 * if present, and the given charset otherwise.  
+		 */
+		public final Reader newReader(final String charset) throws UnsupportedEncodingException {
+			skipBOM();
+			return new InputStreamReader(this, bom != null ? bom.getCharset() : charset);
+		}
+		
+		@Override
+		public int read() throws IOException {
+			if (pos < preludeLength) {
+				return prelude[pos++] & 0xFF;
+			}
+			return in.read();
+		}
+		
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (pos < preludeLength) {
+				int n = Math.min(len, preludeLength - pos);
+				System.arraycopy(prelude, pos, b, off, n);
+				pos += n;
+				return n;
+			}
+			return in.read(b, off, len);
+		}
+		
+		@Override
+		public long skip(long n) throws IOException {
+			if (pos < preludeLength) {
+				int k = (int) Math.min(n, preludeLength - pos);
+				pos += k;
+				return k;
+			}
+			return in.skip(n);
+		}
+		
+		@Override
+		public int available() throws IOException {
+			return (preludeLength - pos) + in.available();
+		}
+		
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+		
+		@Override
+		public synchronized void mark(int readlimit) {
+			
+		}
+		
+		@Override
+		public synchronized void reset() throws IOException {
+			throw new IOException("mark/reset not supported");
+		}
+	}
+}
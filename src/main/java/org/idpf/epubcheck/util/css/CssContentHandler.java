@@ -41,6 +41,43 @@ public interface CssContentHandler {
 	public void selectors(List<CssSelector> selectors);
 	public void declaration(CssDeclaration declaration);
 
+	/**
+	 * An optional extension of CssContentHandler that lets the parser know
+	 * which parts of the grammar tree the handler actually consumes. The parser
+	 * uses this to avoid building constructs that would never be read. Handlers
+	 * that do not implement this interface receive the complete tree.
+	 */
+	public interface CssContentFilter {
+		
+		/**
+		 * Whether {@link CssContentHandler#selectors(List)} should be invoked. If
+		 * false, selectors are still checked for syntax errors but no selector
+		 * tree is built.
+		 */
+		public boolean wantsSelectors();
+		
+		/**
+		 * Whether the full list of value components should be built for declarations 
+		 * with the given property name. If false, the declaration passed to 
+		 * {@link CssContentHandler#declaration(CssDeclaration)} only carries its URI
+		 * components. The property name is interned, and ASCII characters in the name 
+		 * are lowercase.
+		 */
+		public boolean wantsComponents(String propertyName);
+		
+		/**
+		 * A filter that requests the complete tree.
+		 */
+		public static final CssContentFilter ALL = new CssContentFilter() {
+			public boolean wantsSelectors() {
+				return true;
+			}
+			public boolean wantsComponents(String propertyName) {
+				return true;
+			}
+		};
+	}
+	
 	/**
 	 * A default, do-nothing implementation of CssContentHandler.
 	 */
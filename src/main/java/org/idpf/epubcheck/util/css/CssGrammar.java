@@ -53,6 +53,7 @@ import com.google.common.base.Joiner;
 import com.google.common.base.Objects;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 
@@ -195,6 +196,8 @@ public class CssGrammar {
 	 * A CSS URI.
 	 */
 	public final static class CssURI extends CssAtomicConstruct {
+		private String uriString; //built on first request
+		
 		public CssURI(final String value, final CssLocation location) {
 			super(Type.URI, value, location);
 		}		
@@ -203,6 +206,13 @@ public class CssGrammar {
 		 * The URI string itself (leading/trailing whitespace+quotes stripped, url function removed)
 		 */
 		public String toUriString() {
+			if (uriString == null) {
+				uriString = buildUriString();
+			}
+			return uriString;
+		}
+		
+		private String buildUriString() {
 			StringBuilder builder = new StringBuilder();
 			boolean inStart = false;
 			
@@ -379,13 +389,13 @@ public class CssGrammar {
 	 * and optionally a name.
 	 */
 	static abstract class CssComposedConstruct extends CssConstruct {
-		final List<CssConstruct> components;
+		List<CssConstruct> components;
 		final Optional<String> name;
 				
 		public CssComposedConstruct(final Type type, final String name, final CssLocation location) {
 			super(type, location);
-			this.components = Lists.newArrayList();	
-			this.name = name != null ? Optional.of(name) : absent;
+			this.components = NO_COMPONENTS;	
+			this.name = name != null ? Optional.of(name) : ABSENT;
 		}
 		
 		public CssComposedConstruct(final Type type,  final CssLocation location) {
@@ -399,6 +409,17 @@ public class CssGrammar {
 			return components;
 		}
 		
+		/**
+		 * Append a component. The backing list is allocated on first use, so
+		 * constructs that never receive components do not carry an empty list.
+		 */
+		final void add(final CssConstruct cc) {
+			if (components == NO_COMPONENTS) {
+				components = Lists.newArrayListWithCapacity(4);
+			}
+			components.add(cc);
+		}
+		
 		public Optional<String> getName() {
 			return name;
 		}
@@ -412,7 +433,8 @@ public class CssGrammar {
 					.toString();
 		}	
 		
-		final Optional<String> absent = Optional.absent();
+		static final Optional<String> ABSENT = Optional.absent();
+		static final List<CssConstruct> NO_COMPONENTS = ImmutableList.of();
 	}
 	
 	/**
@@ -691,7 +713,7 @@ public class CssGrammar {
 				return null;
 			}
 			
-			seq.components.add(seqItem);
+			seq.add(seqItem);
 			
 			CssToken next = iter.peek(FILTER_NONE);
 			while(next.type != CssToken.Type.S 
@@ -703,7 +725,7 @@ public class CssGrammar {
 					//errors already issued
 					return null;
 				}		
-				seq.components.add(seqItem);
+				seq.add(seqItem);
 				next = iter.peek(FILTER_NONE);
 			}			
 			return seq;
@@ -743,7 +765,7 @@ public class CssGrammar {
 				//note, for now, "from" and "to" keywords become type selectors above, 
 				//this handles only the percentage TODO FIX				
 				CssSelector sel = new CssSelector(start.location);
-				sel.components.add(new CssQuantity(start.chars, CssQuantity.Unit.PERCENTAGE, start.location));
+				sel.add(new CssQuantity(start.chars, CssQuantity.Unit.PERCENTAGE, start.location));
 				return sel;
 				
 			}  else {
@@ -844,7 +866,7 @@ public class CssGrammar {
 					if (cc == null) {
 						return null;
 					} else {
-						function.components.add(cc);
+						function.add(cc);
 					}
 					tk = iter.next();
 				}
@@ -863,7 +885,7 @@ public class CssGrammar {
 				if (cc == null || !ContextRestrictions.PSEUDO_NEGATION.apply(cc)) {
 					return null;
 				} else {
-					negation.components.add(cc);
+					negation.add(cc);
 					iter.next();
 				}								
 				return negation;			
@@ -879,19 +901,19 @@ public class CssGrammar {
 				//factory method has issued errors
 				return null;
 			}
-			cas.components.add(cts);
+			cas.add(cts);
 			
 			CssToken next = iter.next(); // ']' or string matcher
 			if(!MATCH_CLOSESQUAREBRACKET.apply(next)) {
 				if(MATCH_ATTRIBUTE_SELECTOR_MATCHERS.apply(next)) {
 					CssAttributeMatchSelector casm = createAttributeMatchSelector(next, iter, err);
-					cas.components.add(casm); 
+					cas.add(casm); 
 					
 					next = iter.next();
 					CssConstruct val = CssConstructFactory.create(next, iter, MATCH_CLOSESQUAREBRACKET, 
 							ContextRestrictions.ATTRIBUTE_SELECTOR_VALUE);
 					if(val != null) {
-						cas.components.add(val);
+						cas.add(val);
 					} else {
 						err.error(new CssGrammarException(
 								CssErrorCode.GRAMMAR_EXPECTING_TOKEN, next.location, next.chars, 
@@ -1007,7 +1029,7 @@ public class CssGrammar {
 					if (cc == null || !permitted.apply(cc)) {
 						return null;
 					} else {
-						function.components.add(cc);
+						function.add(cc);
 					}
 					tk = iter.next();
 				}
@@ -1097,7 +1119,7 @@ public class CssGrammar {
 					if (cc == null || !permitted.apply(cc)) {
 						return null;
 					} else {
-						group.components.add(cc);
+						group.add(cc);
 					}
 					tk = iter.next();
 				}
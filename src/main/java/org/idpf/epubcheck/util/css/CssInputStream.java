@@ -25,165 +25,92 @@ package org.idpf.epubcheck.util.css;
 import static org.idpf.epubcheck.util.css.CssScanner.QUOTES;
 import static org.idpf.epubcheck.util.css.CssScanner.TERMINATOR;
 
-import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.PushbackInputStream;
-import java.util.List;
-import java.util.Map;
+
+import org.idpf.epubcheck.util.EncodingSniffer;
+import org.idpf.epubcheck.util.EncodingSniffer.BOM;
+import org.idpf.epubcheck.util.EncodingSniffer.PreludeInputStream;
 
 import com.google.common.base.Optional;
-import com.google.common.base.Strings;
-import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Lists;
-import com.google.common.io.ByteStreams;
-import com.google.common.primitives.Bytes;
 
 /**
  * An InputStream for CSS files that detects and skips past BOMs, and
  * peeks for @charset rules.
+ * <p>Both the BOM and the @charset rule are matched directly in the prelude
+ * read by {@link PreludeInputStream}.</p>  
  * @author mgylling
  */
-public class CssInputStream extends PushbackInputStream {
+public class CssInputStream extends PreludeInputStream {
 	Optional<String> bom = Optional.absent();
 	Optional<String> charset = Optional.absent(); 	
-	static final int MAX_PUSHBACK = 256; 
-	static final Map<String, byte[]> boms = new ImmutableMap.Builder<String, byte[]>()
-			.put("UTF-32BE", new byte[]{(byte)0x00, (byte)0x00, (byte)0xFE, (byte)0xFF})
-			.put("UTF-32LE", new byte[]{(byte)0xFE, (byte)0xFF, (byte)0x00, (byte)0x00})
-			.put("UTF-8",  	 new byte[]{(byte)0xEF, (byte)0xBB, (byte)0xBF})
-			.put("UTF-16BE", new byte[]{(byte)0xFE, (byte)0xFF})
-			.put("UTF-16LE", new byte[]{(byte)0xFF, (byte)0xFE})			
-			.build();
+	static final int MAX_PRELUDE = EncodingSniffer.PRELUDE_SIZE; 
+	private static final byte[] CHARSET_RULE = {'@','c','h','a','r','s','e','t'};
 	private boolean debug = false;
 		
 	public CssInputStream(final InputStream in) throws IOException {
-		super(in instanceof BufferedInputStream 
-				? in : new BufferedInputStream(in), MAX_PUSHBACK);
-		        				
-        String enc = getBOM();
-        if(!Strings.isNullOrEmpty(enc)) {
-    		this.bom = Optional.of(enc);
-    	} 
+		super(in, MAX_PRELUDE + 4);
+		
+		if(getBOM() != null) {
+			this.bom = Optional.of(getBOM().getCharset());
+		} 
+		skipBOM();
         
-        enc = getCssCharset(enc);
-    	if(!Strings.isNullOrEmpty(enc)) {
-    		this.charset = Optional.of(enc);
-    	}
+		String enc = matchCharsetRule();
+		if(enc != null && enc.length() > 0) {
+			this.charset = Optional.of(enc);
+		}
     	
-    	if(debug) {
-    		String s = bom.isPresent() ? bom.get() : " none.";
-    		System.out.println("detected BOM: " + s);
-    		s = charset.isPresent() ? charset.get() : " none.";
-    		System.out.println("detected charset: " + s);
-    	}
+		if(debug) {
+			String s = bom.isPresent() ? bom.get() : " none.";
+			System.out.println("detected BOM: " + s);
+			s = charset.isPresent() ? charset.get() : " none.";
+			System.out.println("detected charset: " + s);
+		}
     	        
 	}
 	
-	private final String getBOM() throws IOException {
-		byte[] data = new byte[4];
-		int read, unread;
-		read = ByteStreams.read(this, data, 0, data.length);
-        String key = map(data);
-        unread = key == null ? read : data.length - boms.get(key).length;
-        if (unread > 0) {
-            unread(data, read - unread, unread);
-        }
-        return key;
-	}
-	
-	private final String getCssCharset(final String bom) throws IOException {
-		/*
-		 * Because each char can be represented by 1-4 bytes, and because
-		 * there can be any amount of whitespace between @charset and the 
-		 * open quote, this is fiddly.
-		 * 
-		 * We read maximally four bytes at a time (required to decode UTF32 to a single char)
-		 */
+	/**
+	 * Match <code>@charset "..."</code> in the prelude, after the BOM. Each 
+	 * character is matched on the low-order byte of its code unit, which is 
+	 * sufficient for the ASCII-only rule syntax.
+	 */
+	private String matchCharsetRule() {
 		
-		String enc = bom != null ? bom : "UTF-8";
+		BOM bom = getBOM();
+		byte[] head = getPrelude();
+		int len = bom != null ? bom.getCodeUnitLength() : 1;
+		int lowByte = bom != null && bom.isBigEndian() ? len - 1 : 0;
+		int start = getContentOffset();
+		int end = Math.min(getPreludeLength(), start + MAX_PRELUDE);
 		
-		int len = 1;
-		if(enc.startsWith("UTF-16")) {
-			len = 2;
-		} else if(enc.startsWith("UTF-32")) {
-			len = 4;
-		} 
-		
-		Endian endian = null;
-		if(len != 1) {
-			endian = enc.endsWith("BE") ? Endian.BIG : Endian.LITTLE;
-		}
-					
-		String value = null;
-		List<Byte> unread = Lists.newArrayList(); //all bytes read
-		StringBuilder sbuf = new StringBuilder(); //all chars read
+		int chars = 0;
 		char openQuote = 0;
-		int openQuotePos = -1;
-		byte[] bbuf;
+		int valueStart = -1;
 		
-		while(true) {
-			bbuf = new byte[len];
-			for (int i = 0; i < len; i++) {
-				int b = read();
-				if(b == -1) {
-					break;
+		for (int i = start; i + len <= end; i += len) {
+			char cur = (char) (head[i + lowByte] & 0xFF);
+			if (chars < CHARSET_RULE.length) {
+				if (cur != CHARSET_RULE[chars]) {
+					return null;
 				}
-				unread.add((byte)b);
-				bbuf[i] = (byte)b;
-			}
-			
-			if(unread.size() == MAX_PUSHBACK) {
-				break;
-			}
-			
-			if(len == 1 || endian == Endian.LITTLE) {
-				sbuf.append((char)bbuf[0]);
-			} else {
-				sbuf.append((char)bbuf[len-1] );
-			} 
-						
-			char cur = sbuf.charAt(sbuf.length()-1);
-			if((sbuf.length() == 1 && cur != '@') 
-					|| (TERMINATOR.matches(cur)) 					 
-					|| (sbuf.length() == 8 
-						&& !sbuf.toString().equals("@charset"))) {			
-				break;
-			} else if (openQuote == 0 && QUOTES.matches(cur)) {
-				openQuote = cur;
-				openQuotePos = sbuf.length();
-			} else if (openQuote == cur) {	
-				if(QUOTES.matches(cur)) {
-					value = sbuf.substring(openQuotePos, sbuf.length()-1);
-				}	
-				break;
+			} else if (TERMINATOR.matches(cur)) {
+				return null;
+			} else if (openQuote == 0) {
+				if (QUOTES.matches(cur)) {
+					openQuote = cur;
+					valueStart = i + len;
+				}
+			} else if (cur == openQuote) {
+				char[] value = new char[(i - valueStart) / len];
+				for (int k = 0; k < value.length; k++) {
+					value[k] = (char) (head[valueStart + k * len + lowByte] & 0xFF);
+				}
+				return new String(value);
 			}
-			
+			chars++;
 		}
-		
-		unread(Bytes.toArray(unread));
-		return value;
-	}
-
-	private static String map(byte[] data) {
-        for (String name : boms.keySet()) {        	
-        	byte[] bom = boms.get(name);
-        	boolean match = true;
-        	for (int i = 0; i < bom.length; i++) {
-                if (data[i] != bom[i]) {
-                	match = false;
-                    break;
-                }
-            }
-        	if(match) {
-        		return name;
-        	}
-        }
-        return null;
-    }
-	   
-	private enum Endian {
-		LITTLE, BIG
+		return null;
 	}
 	
 	/**
@@ -40,9 +40,11 @@ import static org.idpf.epubcheck.util.css.CssTokenList.Filters.FILTER_S_CMNT_CDO
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
+import java.util.Collections;
 import java.util.List;
 import java.util.NoSuchElementException;
 
+import org.idpf.epubcheck.util.css.CssContentHandler.CssContentFilter;
 import org.idpf.epubcheck.util.css.CssExceptions.CssException;
 import org.idpf.epubcheck.util.css.CssExceptions.CssGrammarException;
 import org.idpf.epubcheck.util.css.CssGrammar.CssAtRule;
@@ -67,6 +69,7 @@ import com.google.common.collect.Lists;
  */
 public final class CssParser {
 	final boolean debug = false;
+	private CssContentFilter filter = CssContentFilter.ALL;
 
 	/*
 	 * TODOs
@@ -91,6 +94,7 @@ public final class CssParser {
 			throws IOException, CssException {
 		
 		CssTokenIterator iter = scan(reader, systemID, err);
+		filter = getFilter(doc);
 
 		doc.startDocument();
 
@@ -126,6 +130,7 @@ public final class CssParser {
 	 */
 	public void parseStyleAttribute(final Reader reader, String systemID, final CssErrorHandler err, final CssContentHandler doc) throws IOException, CssException {		
 		CssTokenIterator iter = scan(reader, systemID, err);	
+		filter = getFilter(doc);
 		doc.startDocument();
 		while (iter.hasNext()) {									
 			CssToken tk = iter.next();
@@ -152,6 +157,10 @@ public final class CssParser {
 		doc.endDocument();
 	}
 	
+	private static CssContentFilter getFilter(CssContentHandler doc) {
+		return doc instanceof CssContentFilter ? (CssContentFilter) doc : CssContentFilter.ALL;
+	}
+	
 	private CssTokenIterator scan(Reader reader, String systemID, CssErrorHandler err) throws IOException, CssException {
 		
 		final CssTokenList tokens = new CssTokenList();
@@ -184,10 +193,12 @@ public final class CssParser {
 			}
 			if (debug) {
 				checkState(iter.last.getChar() == '{');
-				checkState(!selectors.isEmpty());
+				checkState(!selectors.isEmpty() || !filter.wantsSelectors());
 			}
 
-			doc.selectors(selectors);
+			if (filter.wantsSelectors()) {
+				doc.selectors(selectors);
+			}
 
 			handleDeclarationBlock(iter.next(), iter, doc, err);
 
@@ -267,6 +278,8 @@ public final class CssParser {
 		}
 
 		CssDeclaration declaration = new CssDeclaration(name.getChars(), name.location);
+		boolean retainAll = filter.wantsComponents(declaration.name.get());
+		boolean hasValue = false;
 
 		try {
 			if (!MATCH_COLON.apply(iter.next())) {
@@ -283,7 +296,7 @@ public final class CssParser {
 			while (true) {
 				CssToken value = iter.next();				
 				if (MATCH_SEMI_CLOSEBRACE.apply(value)) {
-					if (declaration.components.size() < 1) {
+					if (!hasValue) {
 						err.error(new CssGrammarException(GRAMMAR_EXPECTING_TOKEN,
 								iter.last.location, value.getChar(), Messages
 										.get("a_property_value")));
@@ -292,11 +305,12 @@ public final class CssParser {
 						return declaration;
 					}
 				} else {					
-					if (!handlePropertyValue(declaration, value, iter, isStyleAttribute)) {
+					if (!handlePropertyValue(declaration, value, iter, isStyleAttribute, retainAll)) {
 						err.error(new CssGrammarException(GRAMMAR_UNEXPECTED_TOKEN,
 								iter.last.location, iter.last.getChars()));
 						return null;
 					} else {
+						hasValue = true;
 						if(isStyleAttribute && !iter.hasNext()) {
 							return declaration;
 						}
@@ -313,11 +327,13 @@ public final class CssParser {
 
 	/**
 	 * Append property value components to declaration.value, return false if
-	 * fail with iter.last at the the token which caused the fail.
+	 * fail with iter.last at the the token which caused the fail. If retainAll 
+	 * is false, only URI components are appended.
 	 */
 	private boolean handlePropertyValue(CssDeclaration declaration, CssToken start,
-			CssTokenIterator iter, boolean isStyleAttribute) {
+			CssTokenIterator iter, boolean isStyleAttribute, boolean retainAll) {
 		// we dont worry about EOF here, throw to caller
+		int count = 0;
 		while (true) {
 			
 			if (start.type == CssToken.Type.IMPORTANT) {
@@ -329,7 +345,10 @@ public final class CssParser {
 				if (cc == null) {
 					return false; 
 				} else {
-					declaration.components.add(cc);
+					count++;
+					if (retainAll || cc.type == CssConstruct.Type.URI) {
+						declaration.add(cc);
+					}
 				}
 			}
 			
@@ -338,10 +357,7 @@ public final class CssParser {
 			if ((isStyleAttribute && !iter.hasNext()) 
 					|| (MATCH_SEMI.apply(iter.peek()))
 					|| (!isStyleAttribute && MATCH_CLOSEBRACE.apply(iter.peek()))) {
-				if(declaration.components.size() > 0) {
-					return true;	
-				}
-				return false;
+				return count > 0;
 			} else {
 				start = iter.next();
 			}
@@ -352,18 +368,21 @@ public final class CssParser {
 	 * With start inparam being the first significant token in a selector, build
 	 * the selector group (aka comma separated selectors), expected return when
 	 * iter.last is '{'. On error, issue to errorlistener, and return
-	 * (caller will forward).
+	 * (caller will forward). If the content filter does not want selectors, 
+	 * the syntax is checked but no tree is built.
 	 * 
-	 * @return A syntactically valid CssSelector list, or null if fail.
+	 * @return A syntactically valid CssSelector list (empty if not built), or null if fail.
 	 * @throws CssException
 	 */
 	private List<CssSelector> handleSelectors(CssToken start, CssTokenIterator iter,
 			CssErrorHandler err) throws CssException {
 		
-		List<CssSelector> selectors = Lists.newArrayList();
+		boolean build = filter.wantsSelectors();
+		List<CssSelector> selectors = build ? Lists.<CssSelector>newArrayList() 
+				: Collections.<CssSelector>emptyList();
 		boolean end = false;						
 		while(true) { // comma loop 		
-			CssSelector selector = new CssSelector(start.location);			
+			CssSelector selector = build ? new CssSelector(start.location) : null;			
 			while (true) { //combinator loop 				
 				CssSimpleSelectorSequence seq = CssSelectorConstructFactory
 						.createSimpleSelectorSequence(start, iter, err);		
@@ -371,7 +390,9 @@ public final class CssParser {
 					//errors already issued
 					return null; 
 				}
-				selector.components.add(seq);
+				if (build) {
+					selector.add(seq);
+				}
 				int idx = iter.index();								
 				start = iter.next();
 				if(MATCH_OPENBRACE.apply(start)) {
@@ -383,17 +404,23 @@ public final class CssParser {
 				CssSelectorCombinator comb = 
 						CssSelectorConstructFactory.createCombinator(start, iter, err);
 				if(comb != null) {
-					selector.components.add(comb);
+					if (build) {
+						selector.add(comb);
+					}
 					start = iter.next();
 				} else if (iter.list.get(idx+1).type == CssToken.Type.S) {					
-					selector.components.add(new CssSelectorCombinator(' ', start.location));
+					if (build) {
+						selector.add(new CssSelectorCombinator(' ', start.location));
+					}
 				} else {
 					err.error(new CssGrammarException(GRAMMAR_UNEXPECTED_TOKEN,
 							iter.last.location, iter.last.chars));
 					return null;
 				}
 			} //combinator loop 
-			selectors.add(selector);
+			if (build) {
+				selectors.add(selector);
+			}
 			if(end) break;
 			if(debug) {
 				checkState(MATCH_COMMA.apply(start));												
@@ -450,7 +477,7 @@ public final class CssParser {
 						}						
 						return;
 					} else {
-						atRule.components.add(param);
+						atRule.add(param);
 					}
 				}
 			}
@@ -63,13 +63,11 @@ public class CssSource  {
 	
 	public Reader newReader() {		
 		String enc = "utf-8";
-		if (stream.bom.isPresent()) {
-			enc = stream.bom.get();
-		} else if (stream.charset.isPresent()) {
+		if (stream.charset.isPresent()) {
 			enc = stream.charset.get();
 		}
 		try {
-			return new BufferedReader(new InputStreamReader(stream, enc));
+			return new BufferedReader(stream.newReader(enc));
 		} catch (UnsupportedEncodingException e) {
 			//TODO log/errout
 			return new BufferedReader(new InputStreamReader(stream));
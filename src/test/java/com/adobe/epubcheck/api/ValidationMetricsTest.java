@@ -0,0 +1,56 @@
+package com.adobe.epubcheck.api;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import com.adobe.epubcheck.util.ValidationReport;
+
+public class ValidationMetricsTest {
+
+	@Test
+	public void testDisabled() {
+		assertNull(ValidationMetrics.getCurrent());
+		assertEquals(0, ValidationMetrics.start());
+	}
+
+	@Test
+	public void testBinding() {
+		ValidationMetrics metrics = new ValidationMetrics();
+		assertNull(ValidationMetrics.setCurrent(metrics));
+		try {
+			assertSame(metrics, ValidationMetrics.getCurrent());
+			long start = ValidationMetrics.start();
+			assertTrue(start != 0);
+			ValidationMetrics.stop("test", start);
+			ValidationMetrics.stop("test", ValidationMetrics.start());
+		} finally {
+			assertSame(metrics, ValidationMetrics.setCurrent(null));
+		}
+		assertNull(ValidationMetrics.getCurrent());
+		ValidationMetrics.stop("test", 1);
+		assertEquals(2, metrics.getCount("test"));
+		assertEquals(0, metrics.getCount("other"));
+	}
+
+	@Test
+	public void testEpubCheck() {
+		File epub = new File(getClass().getResource(
+				"/30/epub/valid/lorem.epub").getPath());
+		ValidationMetrics metrics = new ValidationMetrics();
+		EpubCheck check = new EpubCheck(epub, new ValidationReport("test"));
+		check.setMetrics(metrics);
+		assertTrue(check.validate());
+		assertNull(ValidationMetrics.getCurrent());
+		assertEquals(1, metrics.getCount(ValidationMetrics.HEADER_CHECK));
+		assertEquals(1, metrics.getCount(ValidationMetrics.OCF_PARSING));
+		assertEquals(1, metrics.getCount(ValidationMetrics.OPF_VALIDATION));
+		assertEquals(1, metrics.getCount(ValidationMetrics.XREF_CHECK));
+		assertTrue(metrics.getCount(ValidationMetrics.CONTENT_CHECK
+				+ "NavChecker") > 0);
+		assertTrue(metrics.getTime(ValidationMetrics.OPF_VALIDATION) > 0);
+	}
+
+}
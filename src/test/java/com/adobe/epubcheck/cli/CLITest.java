@@ -11,6 +11,9 @@ import java.net.URL;
 
 import org.junit.Test;
 
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
 import com.adobe.epubcheck.tool.Checker;
 
 public class CLITest {
@@ -81,6 +84,33 @@ public class CLITest {
 		if(xmlOut1.exists()) xmlOut1.delete();
 	}
 	
+	@Test
+	public void testOutputJSONCreation() throws Exception {
+		File jsonOut = new File("outfile.json");
+		if(jsonOut.exists()) jsonOut.delete();
+		
+		assertEquals(1, run(new String[]{epubPath + "invalid/lorem-xht-sch-1.epub", "-json", "outfile.json"}));	
+		
+		assertTrue(jsonOut.exists());
+		String json = Files.toString(jsonOut, Charsets.UTF_8);
+		assertTrue(json.contains("\"severity\":\"ERROR\""));
+		assertTrue(json.endsWith("\"errors\":1,\"warnings\":0,\"exceptions\":0,\"hints\":0}\n"));
+		if(jsonOut.exists()) jsonOut.delete();
+	}
+	
+	@Test
+	public void testAggregate() throws Exception {
+		File jsonOut = new File("outfile-aggregate.json");
+		if(jsonOut.exists()) jsonOut.delete();
+		
+		assertEquals(1, run(new String[]{epubPath + "invalid/issue176.epub", "-aggregate", "1", "-json", "outfile-aggregate.json"}));
+		
+		String json = Files.toString(jsonOut, Charsets.UTF_8);
+		assertTrue(json.contains("\"severity\":\"HINT\",\"id\":\"MESSAGES_SUPPRESSED\""));
+		assertTrue(json.endsWith("\"errors\":1,\"warnings\":0,\"exceptions\":0,\"hints\":1}\n"));
+		if(jsonOut.exists()) jsonOut.delete();
+	}
+	
 	@Test
 	public void testOutputXMLCreation_ModeExpanded() {
 		File xmlOut2 = new File("outfile2.xml");
@@ -89,6 +119,7 @@ public class CLITest {
 		assertEquals(1, run(new String[]{expPath + "invalid/lorem-xhtml-rng-1/", "-mode", "exp", "-out", "outfile2.xml"}));	
 		
 		assertTrue(xmlOut2.exists());
+		assertTrue(xmlOut2.length() > 0);
 		if(xmlOut2.exists()) xmlOut2.delete();
 	}
 	
@@ -0,0 +1,31 @@
+package com.adobe.epubcheck.ocf;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class OCFEntryIndexTest {
+
+	@Test
+	public void testHasEntriesUnder() {
+		OCFEntryIndex index = new OCFEntryIndex(Arrays.asList("mimetype",
+				"OEBPS/content.opf", "OEBPS/images/cover.jpg",
+				"META-INF/container.xml"));
+		assertTrue(index.hasEntriesUnder("OEBPS/"));
+		assertTrue(index.hasEntriesUnder("OEBPS/images/"));
+		assertTrue(index.hasEntriesUnder("META-INF/"));
+		assertFalse(index.hasEntriesUnder("OEBPS/fonts/"));
+		assertFalse(index.hasEntriesUnder("z/"));
+		assertFalse(new OCFEntryIndex(Arrays.<String> asList())
+				.hasEntriesUnder("OEBPS/"));
+	}
+
+	@Test
+	public void testIsASCII() {
+		assertTrue(OCFEntryIndex.isASCII("OEBPS/chapter 1.xhtml"));
+		assertFalse(OCFEntryIndex.isASCII("OEBPS/caf\u00e9.xhtml"));
+	}
+
+}
@@ -97,4 +97,35 @@ public class OCFFilenameCheckerTest {
 		testValidateDocument("http://www% .google.ro", "",
 				EPUBVersion.VERSION_2);
 	}
+
+	@Test
+	public void testValidateDocumentTest007() {
+		testValidateDocument("a b?c", " ?", EPUBVersion.VERSION_2);
+		assertEquals(1, testReport.getErrorCount());
+		assertEquals(1, testReport.getWarningCount());
+	}
+
+	@Test
+	public void testValidateDocumentTest008() {
+		testValidateDocument("abc\u007Fdef", "", EPUBVersion.VERSION_3);
+		assertEquals(1, testReport.getErrorCount());
+		testValidateDocument("abc\u007Fdef", "", EPUBVersion.VERSION_2);
+		assertEquals(0, testReport.getErrorCount());
+	}
+
+	@Test
+	public void testValidateDocumentTest009() {
+		// U+F0000, in the Supplementary Private Use Area-A
+		testValidateDocument("abc\uDB80\uDC00", "\uDB80\uDC00",
+				EPUBVersion.VERSION_3);
+		assertEquals(1, testReport.getErrorCount());
+		assertEquals(1, testReport.getWarningCount());
+	}
+
+	@Test
+	public void testValidateDocumentTest010() {
+		testValidateDocument("chapter1.xhtml", "", EPUBVersion.VERSION_3);
+		assertEquals(0, testReport.getErrorCount());
+		assertEquals(0, testReport.getWarningCount());
+	}
 }
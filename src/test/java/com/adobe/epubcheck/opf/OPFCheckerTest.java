@@ -196,6 +196,13 @@ public class OPFCheckerTest {
 				EPUBVersion.VERSION_3);
 	}
 
+	@Test
+	public void testValidateDocumentFallbackCycleEntry() {
+		// the chain of c1 ends in the c2/c3 cycle, the chain of d1 resolves
+		testValidateDocument("invalid/fallback-cycle-entry.opf", 2, 0, 0,
+				EPUBVersion.VERSION_3);
+	}
+
 	@Test
 	public void testValidateDocumentFallback002() {
 		testValidateDocument("invalid/fallback-002.opf", 1, 0, 0,
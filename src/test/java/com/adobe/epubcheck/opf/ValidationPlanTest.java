@@ -0,0 +1,57 @@
+package com.adobe.epubcheck.opf;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.adobe.epubcheck.bitmap.BitmapCheckerFactory;
+import com.adobe.epubcheck.css.CSSCheckerFactory;
+import com.adobe.epubcheck.nav.NavCheckerFactory;
+import com.adobe.epubcheck.ncx.NCXCheckerFactory;
+import com.adobe.epubcheck.opf.ValidationPlan.ResourceType;
+import com.adobe.epubcheck.ops.OPSCheckerFactory;
+import com.adobe.epubcheck.overlay.OverlayCheckerFactory;
+import com.adobe.epubcheck.util.EPUBVersion;
+import com.adobe.epubcheck.util.OPSType;
+
+public class ValidationPlanTest {
+
+	@Test
+	public void testResourceTypes() {
+		assertEquals(ResourceType.XHTML, ResourceType.of("application/xhtml+xml"));
+		assertEquals(ResourceType.MEDIA_OVERLAY, ResourceType.of("application/smil+xml"));
+		assertEquals(ResourceType.OTHER, ResourceType.of("application/x-unknown"));
+		assertEquals(ResourceType.OTHER, ResourceType.of((String) null));
+	}
+
+	@Test
+	public void testEpub2() {
+		ValidationPlan plan = ValidationPlan.get(EPUBVersion.VERSION_2);
+		assertSame(EPUBVersion.VERSION_2, plan.getVersion());
+		assertSame(OPSCheckerFactory.getInstance(), plan.getContentCheckerFactory(ResourceType.XHTML));
+		assertSame(OPSCheckerFactory.getInstance(), plan.getContentCheckerFactory(ResourceType.OEB1_DOCUMENT));
+		assertSame(NCXCheckerFactory.getInstance(), plan.getContentCheckerFactory(ResourceType.NCX));
+		assertSame(CSSCheckerFactory.getInstance(), plan.getContentCheckerFactory(ResourceType.CSS));
+		assertSame(GenericContentCheckerFactory.getInstance(), plan.getContentCheckerFactory(ResourceType.MEDIA_OVERLAY));
+		assertSame(GenericContentCheckerFactory.getInstance(), plan.getContentCheckerFactory(ResourceType.OTHER));
+	}
+
+	@Test
+	public void testEpub3() {
+		ValidationPlan plan = ValidationPlan.get(EPUBVersion.VERSION_3);
+		assertSame(OPSCheckerFactory.getInstance(), plan.getContentCheckerFactory(ResourceType.SVG));
+		assertSame(BitmapCheckerFactory.getInstance(), plan.getContentCheckerFactory(ResourceType.PNG));
+		assertSame(NavCheckerFactory.getInstance(), plan.getContentCheckerFactory(ResourceType.NAV));
+		assertSame(OverlayCheckerFactory.getInstance(), plan.getContentCheckerFactory(ResourceType.MEDIA_OVERLAY));
+		assertSame(GenericContentCheckerFactory.getInstance(), plan.getContentCheckerFactory(ResourceType.HTML));
+	}
+
+	@Test
+	public void testOPSTypeHashCode() {
+		OPSType xhtml2 = new OPSType("xhtml", EPUBVersion.VERSION_2);
+		assertEquals(xhtml2.hashCode(), new OPSType("xhtml", EPUBVersion.VERSION_2).hashCode());
+		assertTrue(xhtml2.hashCode() != new OPSType("svg", EPUBVersion.VERSION_2).hashCode());
+		assertTrue(xhtml2.hashCode() != new OPSType("xhtml", EPUBVersion.VERSION_3).hashCode());
+	}
+
+}
@@ -0,0 +1,83 @@
+package com.adobe.epubcheck.opf;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+
+import org.junit.Test;
+
+import com.adobe.epubcheck.util.EPUBVersion;
+import com.adobe.epubcheck.util.InvalidVersionException;
+import com.adobe.epubcheck.util.Messages;
+import com.adobe.epubcheck.util.ValidationReport;
+
+public class VersionRetrieverTest {
+
+	private static String scan(String xml) {
+		try {
+			byte[] bytes = xml.getBytes("UTF-8");
+			return new VersionRetriever.PrologScanner(bytes, bytes.length).scan();
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static EPUBVersion retrieve(byte[] bytes) throws InvalidVersionException {
+		ValidationReport report = new ValidationReport("test.opf", Messages.OPV_VERSION_TEST);
+		return new VersionRetriever("test.opf", report)
+				.retrieveOpfVersion(new ByteArrayInputStream(bytes));
+	}
+
+	@Test
+	public void testScanVersion() {
+		assertEquals("3.0", scan("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+				+ "<package xmlns=\"http://www.idpf.org/2007/opf\" version=\"3.0\" unique-identifier=\"uid\">"));
+		assertEquals("2.0", scan("<package version='2.0'/>"));
+		assertEquals("3.0", scan("<package xmlns=\"http://www.idpf.org/2007/opf\" "
+				+ "xml:lang=\"en\" version=\"3.0\">"));
+	}
+
+	@Test
+	public void testScanSkipsProlog() {
+		assertEquals("3.0", scan("\ufeff<?xml version=\"1.0\"?>\n<!-- a comment -->\n"
+				+ "<?pi data?>\n<!DOCTYPE package PUBLIC \"-//x//y\" \"a>b.dtd\">\n"
+				+ "<package version=\"3.0\">"));
+	}
+
+	@Test
+	public void testScanErrors() {
+		assertEquals(InvalidVersionException.PACKAGE_ELEMENT_NOT_FOUND,
+				scan("<html version=\"3.0\">"));
+		assertEquals(InvalidVersionException.VERSION_ATTRIBUTE_NOT_FOUND,
+				scan("<package xmlns=\"http://www.idpf.org/2007/opf\">"));
+		assertEquals(InvalidVersionException.UNSUPPORTED_VERSION,
+				scan("<package version=\" 3.0\">"));
+	}
+
+	@Test
+	public void testScanFallsBack() {
+		assertNull(scan("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><package version=\"3.0\">"));
+		assertNull(scan("<!DOCTYPE package [<!ENTITY v \"3.0\">]><package version=\"&v;\">"));
+		assertNull(scan("<opf:package xmlns:opf=\"http://www.idpf.org/2007/opf\" version=\"3.0\">"));
+		assertNull(scan("<package xmlns:a=\"urn:a\" a:b=\"c\" version=\"3.0\">"));
+		assertNull(scan("<!-- unterminated -- comment --><package version=\"3.0\">"));
+		assertNull(scan("<package version=\"3.0\""));
+		assertNull(scan("<package version=\"3.0\" version=\"2.0\">"));
+	}
+
+	@Test
+	public void testRetrieveFallback() throws Exception {
+		assertEquals(EPUBVersion.VERSION_3,
+				retrieve("<opf:package xmlns:opf=\"http://www.idpf.org/2007/opf\" version=\"3.0\"/>"
+						.getBytes("UTF-16")));
+		assertEquals(EPUBVersion.VERSION_2,
+				retrieve("<!DOCTYPE package [<!ENTITY v \"2.0\">]><package version=\"&v;\"/>"
+						.getBytes("UTF-8")));
+	}
+
+	@Test(expected = InvalidVersionException.class)
+	public void testRetrieveUnsupported() throws Exception {
+		retrieve("<package version=\"1.0\"/>".getBytes("UTF-8"));
+	}
+}
@@ -314,8 +314,9 @@ public class OPSCheckerTest {
 	
 	@Test
 	public void testValidateXHTML_UnresolvedDTD() {
+		// the DTD is not fetched, which is a warning
 		testValidateDocument("ops/invalid/unresolved-entity.xhtml",
-				"application/xhtml+xml", 1, 1, 0, EPUBVersion.VERSION_2);
+				"application/xhtml+xml", 0, 2, 0, EPUBVersion.VERSION_2);
 	}
 	
 	@Test
@@ -324,6 +325,26 @@ public class OPSCheckerTest {
 				"application/xhtml+xml", 2, 0, 0, EPUBVersion.VERSION_2);
 	}
 	
+	@Test
+	public void testValidateXHTML_DupeIDMultiple() {
+		testValidateDocument("ops/invalid/dupe-id-multiple.xhtml",
+				"application/xhtml+xml", 5, 0, 0, EPUBVersion.VERSION_2);
+	}
+	
+	@Test
+	public void testValidateXHTML_OPSSwitch20() {
+		testValidateDocument("ops/valid/ops-switch.xhtml",
+				"application/xhtml+xml", 0, 0, 0, EPUBVersion.VERSION_2);
+	}
+	
+	@Test
+	public void testValidateXHTML_InvalidOPSSwitch20() {
+		// foreign namespace, MathML in default, misplaced default content,
+		// and two errors for the switch without default
+		testValidateDocument("ops/invalid/ops-switch.xhtml",
+				"application/xhtml+xml", 5, 0, 0, EPUBVersion.VERSION_2);
+	}
+	
 	@Test
 	public void testValidateXHTML_httpequiv1() {
 		testValidateDocument("xhtml/invalid/http-equiv-1.xhtml",
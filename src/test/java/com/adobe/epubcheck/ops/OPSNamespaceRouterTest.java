@@ -0,0 +1,165 @@
+package com.adobe.epubcheck.ops;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.XMLReader;
+
+import com.adobe.epubcheck.util.ResourceUtil;
+import com.adobe.epubcheck.xml.XMLCatalog;
+import com.adobe.epubcheck.xml.XMLValidator;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import com.thaiopensource.util.PropertyMapBuilder;
+import com.thaiopensource.validate.Schema;
+import com.thaiopensource.validate.ValidateProperty;
+import com.thaiopensource.validate.Validator;
+
+/**
+ * Checks that the namespace router reports the same errors as the NVDL
+ * schema it replaces, on all the EPUB 2 XHTML test documents.
+ */
+public class OPSNamespaceRouterTest {
+
+	private static final File FIXTURES = new File("src/test/resources/20");
+
+	private static XMLCatalog catalog;
+
+	@BeforeClass
+	public static void setUpCatalog() throws IOException, SAXException {
+		catalog = new XMLCatalog();
+		catalog.add(ResourceUtil.getResourceURL(ResourceUtil
+				.getResourcePath("schema/20/dtd/epub20-catalog.xml")));
+	}
+
+	@Test
+	public void testSameResultsAsNVDL() throws Exception {
+		Map<String, byte[]> documents = new LinkedHashMap<String, byte[]>();
+		collectDocuments(FIXTURES, documents);
+		assertTrue(documents.size() > 50);
+
+		Schema nvdl = new XMLValidator("schema/20/rng/ops20.nvdl").getSchema();
+		Schema router = OPSChecker.xhtmlValidator_20_ROUTER.getSchema();
+		int invalid = 0;
+		for (Map.Entry<String, byte[]> document : documents.entrySet()) {
+			List<String> expected = validate(nvdl, document.getValue());
+			assertEquals(document.getKey(), expected,
+					validate(router, document.getValue()));
+			if (!expected.isEmpty()) {
+				invalid++;
+			}
+		}
+		assertTrue(invalid > 0);
+	}
+
+	private static void collectDocuments(File directory,
+			Map<String, byte[]> documents) throws IOException {
+		for (File file : directory.listFiles()) {
+			if (file.isDirectory()) {
+				collectDocuments(file, documents);
+			} else if (isXHTML(file.getName())) {
+				documents.put(file.getPath(), Files.toByteArray(file));
+			} else if (file.getName().endsWith(".epub")) {
+				ZipFile zip;
+				try {
+					zip = new ZipFile(file);
+				} catch (IOException e) {
+					continue; // some fixtures are broken on purpose
+				}
+				try {
+					Enumeration<? extends ZipEntry> entries = zip.entries();
+					while (entries.hasMoreElements()) {
+						ZipEntry entry = entries.nextElement();
+						if (isXHTML(entry.getName())) {
+							InputStream in = zip.getInputStream(entry);
+							try {
+								documents.put(file.getPath() + "!/" + entry.getName(),
+										ByteStreams.toByteArray(in));
+							} finally {
+								in.close();
+							}
+						}
+					}
+				} finally {
+					zip.close();
+				}
+			}
+		}
+	}
+
+	private static boolean isXHTML(String name) {
+		return name.endsWith(".xhtml") || name.endsWith(".html")
+				|| name.endsWith(".htm");
+	}
+
+	private static List<String> validate(Schema schema, byte[] document)
+			throws Exception {
+		final List<String> errors = new ArrayList<String>();
+		ErrorHandler errorHandler = new ErrorHandler() {
+
+			public void warning(SAXParseException exception) {
+				add("warning", exception);
+			}
+
+			public void error(SAXParseException exception) {
+				add("error", exception);
+			}
+
+			public void fatalError(SAXParseException exception) {
+				add("fatal", exception);
+			}
+
+			private void add(String severity, SAXParseException exception) {
+				errors.add(severity + " " + exception.getLineNumber() + ":"
+						+ exception.getColumnNumber() + " "
+						+ exception.getMessage());
+			}
+		};
+		PropertyMapBuilder properties = new PropertyMapBuilder();
+		properties.put(ValidateProperty.ERROR_HANDLER, errorHandler);
+		Validator validator = schema.createValidator(properties.toPropertyMap());
+
+		SAXParserFactory factory = SAXParserFactory.newInstance();
+		factory.setNamespaceAware(true);
+		XMLReader reader = factory.newSAXParser().getXMLReader();
+		reader.setContentHandler(validator.getContentHandler());
+		reader.setErrorHandler(errorHandler);
+		reader.setEntityResolver(new EntityResolver() {
+
+			public InputSource resolveEntity(String publicId, String systemId) {
+				String location = catalog.resolve(publicId, systemId);
+				if (location != null) {
+					return new InputSource(location);
+				}
+				return new InputSource(new StringReader(""));
+			}
+		});
+		try {
+			reader.parse(new InputSource(new ByteArrayInputStream(document)));
+		} catch (SAXParseException e) {
+			// already reported as fatal
+		}
+		return errors;
+	}
+}
@@ -0,0 +1,60 @@
+package com.adobe.epubcheck.util;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.adobe.epubcheck.api.Severity;
+
+public class AggregatingReportImplTest {
+
+	@Test
+	public void testMaxOccurrences() {
+		ValidationReport target = new ValidationReport("test");
+		AggregatingReportImpl report = new AggregatingReportImpl(target, 3, 0);
+		for (int i = 0; i < 100; i++) {
+			ReportUtil.warning(report, "a.xhtml", i + 1, 1, Messages.OPF_HYPERLINK_RES_OUTSIDE_SPINE, "b" + i + ".xhtml");
+			ReportUtil.warning(report, "c.xhtml", i + 1, 1, Messages.OPF_HYPERLINK_RES_OUTSIDE_SPINE, "b" + i + ".xhtml");
+		}
+		report.error("a.xhtml", 1, 1, "ad hoc");
+		report.error("a.xhtml", 2, 1, "ad hoc");
+		report.error("a.xhtml", 3, 1, "other");
+
+		assertEquals(200, report.getWarningCount());
+		assertEquals(3, report.getErrorCount());
+		assertEquals(100, report.getCount(Severity.WARNING, Messages.OPF_HYPERLINK_RES_OUTSIDE_SPINE, "a.xhtml"));
+		assertEquals(2, report.getCount(Severity.ERROR, "ad hoc", "a.xhtml"));
+		assertEquals(6, target.getWarningCount());
+		assertEquals(3, target.getErrorCount());
+		assertEquals(3, target.warningList.get(4).line);
+
+		report.flush();
+		assertEquals(6, target.getWarningCount());
+		assertEquals(2, target.getHintCount());
+		assertEquals("97 more occurrences of this message were suppressed: hyperlink to resource outside spine 'b0.xhtml'",
+				target.hintList.get(0).message);
+		assertEquals("a.xhtml", target.hintList.get(0).resource);
+		assertEquals("c.xhtml", target.hintList.get(1).resource);
+		assertEquals(3, target.getErrorCount());
+
+		// nothing more to report
+		report.flush();
+		assertEquals(2, target.getHintCount());
+	}
+
+	@Test
+	public void testMaxMessages() {
+		ValidationReport target = new ValidationReport("test");
+		AggregatingReportImpl report = new AggregatingReportImpl(target, 10, 5);
+		for (int i = 0; i < 10; i++) {
+			report.error("r" + i, 1, 1, "error");
+		}
+		assertEquals(10, report.getErrorCount());
+		assertEquals(5, target.getErrorCount());
+		report.flush();
+		assertEquals(5, target.getErrorCount());
+		assertEquals(5, target.getHintCount());
+		assertEquals("1 more occurrences of this message were suppressed: error", target.hintList.get(4).message);
+	}
+
+}
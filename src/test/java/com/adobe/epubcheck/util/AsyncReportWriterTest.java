@@ -0,0 +1,127 @@
+package com.adobe.epubcheck.util;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+public class AsyncReportWriterTest {
+
+	@Test
+	public void testFormat() throws Exception {
+		StringWriter out = new StringWriter();
+		AsyncReportWriter writer = new AsyncReportWriter(out, true);
+		AsyncReportWriter.BookReport report = writer.newReport("book.epub", false);
+		ReportUtil.error(report, "a.xhtml", 3, 4, Messages.MISSING_FILE, "b.xhtml");
+		report.warning(null, 0, 0, "some\n  warning");
+		report.hint("a.xhtml", 1, 0, "hint");
+		writer.flush();
+		String nl = System.getProperty("line.separator");
+		assertEquals("ERROR: book.epub/a.xhtml(3,4): File b.xhtml is missing in the package." + nl
+				+ "WARNING: book.epub: some warning" + nl
+				+ "HINT: book.epub/a.xhtml(1): hint" + nl, out.toString());
+		assertEquals(1, report.getErrorCount());
+		assertEquals(1, report.getWarningCount());
+		assertEquals(1, report.getHintCount());
+		writer.close();
+	}
+
+	@Test
+	public void testQuiet() throws Exception {
+		StringWriter out = new StringWriter();
+		AsyncReportWriter writer = new AsyncReportWriter(out, true);
+		AsyncReportWriter.BookReport report = writer.newReport("book.epub", true);
+		report.hint("a.xhtml", 1, 0, "hint");
+		writer.close();
+		assertEquals("", out.toString());
+		assertEquals(1, report.getHintCount());
+	}
+
+	@Test(timeout = 10000)
+	public void testReportAfterClose() throws Exception {
+		StringWriter out = new StringWriter();
+		AsyncReportWriter writer = new AsyncReportWriter(out, true);
+		AsyncReportWriter.BookReport report = writer.newReport("book.epub", false);
+		writer.close();
+		// more messages than the queue holds
+		for (int i = 0; i < 10000; i++) {
+			report.error(null, 0, 0, "late");
+		}
+		writer.flush();
+		assertEquals("", out.toString());
+		assertEquals(10000, report.getErrorCount());
+	}
+
+	@Test
+	public void testReportWhileInterrupted() throws Exception {
+		StringWriter out = new StringWriter();
+		AsyncReportWriter writer = new AsyncReportWriter(out, true);
+		AsyncReportWriter.BookReport report = writer.newReport("book.epub", false);
+		Thread.currentThread().interrupt();
+		report.error(null, 0, 0, "error");
+		assertTrue(Thread.interrupted());
+		writer.close();
+		assertEquals("ERROR: book.epub: error" + System.getProperty("line.separator"),
+				out.toString());
+	}
+
+	@Test
+	public void testVersionInfoOrder() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		PrintStream console = new PrintStream(bytes, true);
+		PrintStream stdout = System.out;
+		System.setOut(console);
+		try {
+			AsyncReportWriter writer = new AsyncReportWriter(console);
+			AsyncReportWriter.BookReport report = writer.newReport("book.epub", false);
+			report.error(null, 0, 0, "first");
+			report.info(null, FeatureEnum.FORMAT_VERSION, "3.0");
+			report.error(null, 0, 0, "second");
+			writer.close();
+		} finally {
+			System.setOut(stdout);
+		}
+		String nl = System.getProperty("line.separator");
+		assertEquals("ERROR: book.epub: first" + nl
+				+ String.format(Messages.VALIDATING_VERSION_MESSAGE, "3.0") + nl
+				+ "ERROR: book.epub: second" + nl, bytes.toString());
+	}
+
+	@Test
+	public void testOrderPerBook() throws Exception {
+		StringWriter out = new StringWriter();
+		final AsyncReportWriter writer = new AsyncReportWriter(out, true);
+		final int count = 5000;
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			final AsyncReportWriter.BookReport report = writer.newReport("book" + i, false);
+			threads[i] = new Thread() {
+				public void run() {
+					for (int k = 0; k < count; k++) {
+						report.error(null, 0, 0, Integer.toString(k));
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		writer.close();
+
+		int[] next = new int[threads.length];
+		for (String line : out.toString().split("\\r?\\n")) {
+			// ERROR: book<i>: <k>
+			int book = line.charAt(11) - '0';
+			int k = Integer.parseInt(line.substring(14));
+			assertEquals(next[book]++, k);
+		}
+		for (int n : next) {
+			assertEquals(count, n);
+		}
+	}
+
+}
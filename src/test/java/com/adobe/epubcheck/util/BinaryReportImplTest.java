@@ -0,0 +1,76 @@
+package com.adobe.epubcheck.util;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+
+import org.junit.Test;
+
+import com.adobe.epubcheck.api.EpubCheck;
+
+public class BinaryReportImplTest {
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryReportImpl report = new BinaryReportImpl(out, "first.epub");
+		report.info(null, FeatureEnum.FORMAT_VERSION, "3.0");
+		ReportUtil.error(report, "a.xhtml", 12, 3, Messages.MISSING_FILE, "b.xhtml");
+		ReportUtil.error(report, "a.xhtml", 300, 0, Messages.MISSING_FILE, "b.xhtml");
+		report.warning(null, -1, -1, "ad hoc é中𝄞");
+		report.hint("a.xhtml", 1, 1, Messages.OPF_SPINE_ONLY_NON_LINEAR);
+		report.exception("c.xhtml", new RuntimeException("oops"));
+		report.end();
+		// append a second book
+		report = new BinaryReportImpl(out, "second.epub");
+		report.warning("a.xhtml", 1, 1, "other");
+		report.end();
+
+		BinaryReportReader reader = new BinaryReportReader(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals("first.epub", reader.nextBook());
+		ValidationReport first = new ValidationReport("first.epub");
+		reader.replay(first);
+		assertArrayEquals(new int[] { 2, 1, 1, 1 }, reader.getCounts());
+		assertEquals(2, first.getErrorCount());
+		assertEquals("File b.xhtml is missing in the package.", first.errorList.get(1).message);
+		assertEquals("a.xhtml", first.errorList.get(1).resource);
+		assertEquals(300, first.errorList.get(1).line);
+		assertEquals(3, first.errorList.get(0).column);
+		assertEquals("ad hoc é中𝄞", first.warningList.get(0).message);
+		assertNull(first.warningList.get(0).resource);
+		assertEquals(Messages.OPF_SPINE_ONLY_NON_LINEAR, first.hintList.get(0).message);
+		assertEquals(1, first.getExceptionCount());
+
+		assertEquals("second.epub", reader.nextBook());
+		ValidationReport second = new ValidationReport("second.epub");
+		reader.replay(second);
+		assertEquals("other", second.warningList.get(0).message);
+		assertNull(reader.nextBook());
+	}
+
+	@Test
+	public void testEpub() throws Exception {
+		String path = "/30/epub/invalid/fallback-cycle.epub";
+		File file = new File(this.getClass().getResource(path).toURI());
+		ValidationReport expected = new ValidationReport(path);
+		new EpubCheck(file, expected).validate();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryReportImpl report = new BinaryReportImpl(out, path);
+		new EpubCheck(file, report).validate();
+		report.end();
+
+		BinaryReportReader reader = new BinaryReportReader(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(path, reader.nextBook());
+		ValidationReport actual = new ValidationReport(path);
+		reader.replay(actual);
+		assertEquals(expected.getErrorCount(), actual.getErrorCount());
+		for (int i = 0; i < expected.getErrorCount(); i++) {
+			assertEquals(expected.errorList.get(i).message, actual.errorList.get(i).message);
+			assertEquals(expected.errorList.get(i).line, actual.errorList.get(i).line);
+		}
+	}
+
+}
@@ -0,0 +1,618 @@
+/*
+ * Copyright (c) 2013 International Digital Publishing Forum
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of
+ *  this software and associated documentation files (the "Software"), to deal in
+ *  the Software without restriction, including without limitation the rights to
+ *  use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ *  the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ *  FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ *  COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ *  IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *  CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.adobe.epubcheck.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Generates valid synthetic EPUB 2 or EPUB 3 publications for load tests.
+ * <p>
+ * The size of the publication grows independently along several axes: the
+ * number of chapters, the number of paragraphs per chapter, the number of
+ * links and of additional IDs per chapter, the number of rules in the
+ * stylesheet, the number of inline styles per chapter, the number of images,
+ * the depth of the navigation document (or NCX) and the number of chapters
+ * with a media overlay (EPUB 3 only).
+ * </p>
+ * <p>
+ * The publication is streamed to a ZIP output, one entry at a time; only the
+ * package document and the navigation document, whose size is linear in the
+ * number of items, are built in memory. Link targets are chosen with a seeded
+ * random generator and all entries have the same modification time, so the
+ * same options always produce the same bytes.
+ * </p>
+ */
+public class EpubGenerator {
+
+	private static final String LOREM = "Lorem ipsum dolor sit amet, consectetur adipiscing elit. "
+			+ "Aliquam vel purus mauris, ut auctor massa. Pellentesque non nunc risus. "
+			+ "Fusce a massa augue. Nunc erat ante, auctor id varius ac, vestibulum non purus.";
+
+	// a 1x1 PNG image
+	private static final byte[] PNG = {
+			// signature
+			(byte) 0x89, 0x50, 0x4E, 0x47, 0x0D, 0x0A, 0x1A, 0x0A,
+			// IHDR
+			0x00, 0x00, 0x00, 0x0D, 0x49, 0x48, 0x44, 0x52, 0x00,
+			0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x01, 0x08, 0x04,
+			0x00, 0x00, 0x00, (byte) 0xB5, 0x1C, 0x0C, 0x02,
+			// IDAT
+			0x00, 0x00, 0x00, 0x0B, 0x49, 0x44, 0x41, 0x54, 0x78,
+			(byte) 0xDA, 0x63, 0x64, 0x60, 0x00, 0x00, 0x00, 0x06, 0x00,
+			0x02, 0x30, (byte) 0x81, (byte) 0xD0, 0x2F,
+			// IEND
+			0x00, 0x00, 0x00, 0x00, 0x49, 0x45, 0x4E, 0x44, (byte) 0xAE,
+			0x42, 0x60, (byte) 0x82
+	};
+
+	// a silent MPEG audio frame
+	private static final byte[] MP3 = new byte[417];
+	static {
+		MP3[0] = (byte) 0xFF;
+		MP3[1] = (byte) 0xFB;
+		MP3[2] = (byte) 0x90;
+	}
+
+	private final EPUBVersion version;
+	private int chapters = 10;
+	private int paragraphs = 20;
+	private int links = 10;
+	private int ids = 0;
+	private int cssRules = 20;
+	private int inlineStyles = 0;
+	private int images = 0;
+	private int navDepth = 1;
+	private int mediaOverlays = 0;
+	private long seed = 0;
+
+	private ZipOutputStream zip;
+	private Writer writer;
+	private long time;
+
+	public EpubGenerator(EPUBVersion version) {
+		this.version = version;
+	}
+
+	public EPUBVersion getVersion() {
+		return version;
+	}
+
+	/**
+	 * Set the number of chapters, each a content document in the spine.
+	 */
+	public void setChapters(int chapters) {
+		this.chapters = checkPositive(chapters);
+	}
+
+	/**
+	 * Set the number of paragraphs per chapter. Each paragraph has an ID.
+	 */
+	public void setParagraphs(int paragraphs) {
+		this.paragraphs = checkPositive(paragraphs);
+	}
+
+	/**
+	 * Set the number of links per chapter, each to a paragraph of a random
+	 * chapter.
+	 */
+	public void setLinks(int links) {
+		this.links = checkNotNegative(links);
+	}
+
+	/**
+	 * Set the number of IDs per chapter in addition to the paragraph IDs.
+	 */
+	public void setIds(int ids) {
+		this.ids = checkNotNegative(ids);
+	}
+
+	/**
+	 * Set the number of rules of the stylesheet shared by all chapters.
+	 */
+	public void setCssRules(int cssRules) {
+		this.cssRules = checkNotNegative(cssRules);
+	}
+
+	/**
+	 * Set the number of paragraphs per chapter with a <code>style</code>
+	 * attribute.
+	 */
+	public void setInlineStyles(int inlineStyles) {
+		this.inlineStyles = checkNotNegative(inlineStyles);
+	}
+
+	/**
+	 * Set the total number of images, distributed over the chapters.
+	 */
+	public void setImages(int images) {
+		this.images = checkNotNegative(images);
+	}
+
+	/**
+	 * Set the depth of the table of contents. Chapters are nested in chains
+	 * of the given length.
+	 */
+	public void setNavDepth(int navDepth) {
+		this.navDepth = checkPositive(navDepth);
+	}
+
+	/**
+	 * Set the number of chapters with a media overlay. Ignored for EPUB 2.
+	 */
+	public void setMediaOverlays(int mediaOverlays) {
+		this.mediaOverlays = checkNotNegative(mediaOverlays);
+	}
+
+	/**
+	 * Set the seed of the random generator used to choose link targets.
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	private static int checkPositive(int value) {
+		if (value < 1) {
+			throw new IllegalArgumentException("value must be positive: "
+					+ value);
+		}
+		return value;
+	}
+
+	private static int checkNotNegative(int value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("value must not be negative: "
+					+ value);
+		}
+		return value;
+	}
+
+	/**
+	 * Generate the publication to the given file.
+	 */
+	public void generate(File file) throws IOException {
+		OutputStream out = new FileOutputStream(file);
+		try {
+			generate(out);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Generate the publication to the given stream, which is not closed.
+	 */
+	public void generate(OutputStream out) throws IOException {
+		// the modification time of all the entries, for reproducible output;
+		// ZIP times are local times, so this is midnight in the default time
+		// zone and the stored date does not depend on it
+		time = new GregorianCalendar(2014, Calendar.JANUARY, 1)
+				.getTimeInMillis();
+		zip = new ZipOutputStream(out);
+		writer = new OutputStreamWriter(zip, "UTF-8");
+		try {
+			writeMimetype();
+			beginEntry("META-INF/container.xml");
+			writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+					+ "<container xmlns=\"urn:oasis:names:tc:opendocument:xmlns:container\" version=\"1.0\">\n"
+					+ "  <rootfiles>\n"
+					+ "    <rootfile full-path=\"EPUB/package.opf\" media-type=\"application/oebps-package+xml\"/>\n"
+					+ "  </rootfiles>\n" + "</container>\n");
+			endEntry();
+
+			writeStylesheet();
+			for (int i = 0; i < images; i++) {
+				beginEntry("EPUB/" + image(i));
+				zip.write(PNG);
+				endEntry();
+			}
+			int overlays = getOverlayCount();
+			if (overlays > 0) {
+				beginEntry("EPUB/audio.mp3");
+				zip.write(MP3);
+				endEntry();
+			}
+
+			Random random = new Random(seed);
+			for (int i = 0; i < chapters; i++) {
+				writeChapter(i, random);
+				if (i < overlays) {
+					writeOverlay(i);
+				}
+			}
+
+			if (version == EPUBVersion.VERSION_2) {
+				writeNcx();
+			} else {
+				writeNav();
+			}
+			writePackage();
+			zip.finish();
+		} finally {
+			writer.flush();
+			zip = null;
+			writer = null;
+		}
+	}
+
+	private int getOverlayCount() {
+		return version == EPUBVersion.VERSION_2 ? 0 : Math.min(mediaOverlays,
+				chapters);
+	}
+
+	private static String chapter(int i) {
+		return String.format("chapter_%05d.xhtml", i);
+	}
+
+	private static String overlay(int i) {
+		return String.format("overlay_%05d.smil", i);
+	}
+
+	private static String image(int i) {
+		return String.format("image_%05d.png", i);
+	}
+
+	private static String clock(long seconds) {
+		return String.format("%d:%02d:%02d.000", seconds / 3600,
+				seconds / 60 % 60, seconds % 60);
+	}
+
+	private void writeMimetype() throws IOException {
+		byte[] mimetype = "application/epub+zip".getBytes("US-ASCII");
+		ZipEntry entry = new ZipEntry("mimetype");
+		entry.setTime(time);
+		entry.setMethod(ZipEntry.STORED);
+		entry.setSize(mimetype.length);
+		CRC32 crc = new CRC32();
+		crc.update(mimetype);
+		entry.setCrc(crc.getValue());
+		zip.putNextEntry(entry);
+		zip.write(mimetype);
+		zip.closeEntry();
+	}
+
+	private void beginEntry(String name) throws IOException {
+		ZipEntry entry = new ZipEntry(name);
+		entry.setTime(time);
+		zip.putNextEntry(entry);
+	}
+
+	private void endEntry() throws IOException {
+		writer.flush();
+		zip.closeEntry();
+	}
+
+	private void writeStylesheet() throws IOException {
+		beginEntry("EPUB/style.css");
+		writer.write("body { margin: 0 5%; }\n");
+		for (int i = 0; i < cssRules; i++) {
+			writer.write(".c" + i + " { margin: 0 0 " + (i % 3)
+					+ "em 0; color: #" + String.format("%06x", i * 2654435 & 0xFFFFFF)
+					+ "; }\n");
+		}
+		endEntry();
+	}
+
+	private void writeChapter(int index, Random random) throws IOException {
+		beginEntry("EPUB/" + chapter(index));
+		writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		if (version == EPUBVersion.VERSION_2) {
+			writer.write("<!DOCTYPE html PUBLIC \"-//W3C//DTD XHTML 1.1//EN\" "
+					+ "\"http://www.w3.org/TR/xhtml11/DTD/xhtml11.dtd\">\n"
+					+ "<html xmlns=\"http://www.w3.org/1999/xhtml\" xml:lang=\"la\">\n");
+		} else {
+			writer.write("<html xmlns=\"http://www.w3.org/1999/xhtml\" "
+					+ "xmlns:epub=\"http://www.idpf.org/2007/ops\" xml:lang=\"la\" lang=\"la\">\n");
+		}
+		writer.write("<head>\n<title>Chapter " + index + "</title>\n"
+				+ "<link rel=\"stylesheet\" type=\"text/css\" href=\"style.css\"/>\n"
+				+ "</head>\n<body>\n");
+		String section = version == EPUBVersion.VERSION_2 ? "div" : "section";
+		writer.write("<" + section + " id=\"ch" + index + "\">\n<h1>Chapter "
+				+ index + "</h1>\n");
+
+		// spread images, links and additional IDs over the paragraphs
+		int chapterImages = images / chapters
+				+ (index < images % chapters ? 1 : 0);
+		int imageIndex = index;
+		for (int p = 0; p < paragraphs; p++) {
+			for (int k = p; k < chapterImages; k += paragraphs) {
+				writer.write("<p><img src=\"" + image(imageIndex)
+						+ "\" alt=\"Figure\"/></p>\n");
+				imageIndex += chapters;
+			}
+			writer.write("<p id=\"p" + p + "\" class=\"c"
+					+ (cssRules == 0 ? 0 : p % cssRules) + "\"");
+			if (p < inlineStyles) {
+				writer.write(" style=\"text-indent: " + (p % 5) + "em\"");
+			}
+			writer.write(">");
+			writer.write(LOREM);
+			for (int k = p; k < links; k += paragraphs) {
+				writer.write(" <a href=\"" + chapter(random.nextInt(chapters))
+						+ "#p" + random.nextInt(paragraphs) + "\">link " + k
+						+ "</a>");
+			}
+			for (int k = p; k < ids; k += paragraphs) {
+				writer.write(" <span id=\"s" + k + "\">id " + k + "</span>");
+			}
+			writer.write("</p>\n");
+		}
+		writer.write("</" + section + ">\n</body>\n</html>\n");
+		endEntry();
+	}
+
+	private void writeOverlay(int index) throws IOException {
+		beginEntry("EPUB/" + overlay(index));
+		writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+				+ "<smil xmlns=\"http://www.w3.org/ns/SMIL\" "
+				+ "xmlns:epub=\"http://www.idpf.org/2007/ops\" version=\"3.0\">\n"
+				+ "<body>\n<seq id=\"seq\" epub:textref=\"" + chapter(index)
+				+ "#ch" + index + "\">\n");
+		for (int p = 0; p < paragraphs; p++) {
+			writer.write("<par id=\"par" + p + "\"><text src=\""
+					+ chapter(index) + "#p" + p
+					+ "\"/><audio src=\"audio.mp3\" clipBegin=\"" + clock(p)
+					+ "\" clipEnd=\"" + clock(p + 1) + "\"/></par>\n");
+		}
+		writer.write("</seq>\n</body>\n</smil>\n");
+		endEntry();
+	}
+
+	private void writeNav() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+				+ "<html xmlns=\"http://www.w3.org/1999/xhtml\" "
+				+ "xmlns:epub=\"http://www.idpf.org/2007/ops\" xml:lang=\"la\" lang=\"la\">\n"
+				+ "<head>\n<title>Contents</title>\n</head>\n<body>\n"
+				+ "<nav epub:type=\"toc\">\n<h1>Contents</h1>\n<ol>\n");
+		int current = 0;
+		for (int i = 0; i < chapters; i++) {
+			int level = i % navDepth + 1;
+			if (level == 1) {
+				closeNavLevels(sb, current);
+			} else {
+				sb.append("<ol>\n");
+			}
+			sb.append("<li><a href=\"").append(chapter(i))
+					.append("\">Chapter ").append(i).append("</a>");
+			current = level;
+		}
+		closeNavLevels(sb, current);
+		sb.append("</ol>\n</nav>\n</body>\n</html>\n");
+		beginEntry("EPUB/nav.xhtml");
+		writer.write(sb.toString());
+		endEntry();
+	}
+
+	private static void closeNavLevels(StringBuilder sb, int levels) {
+		for (int k = levels; k > 0; k--) {
+			sb.append("</li>\n");
+			if (k > 1) {
+				sb.append("</ol>\n");
+			}
+		}
+	}
+
+	private void writeNcx() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+				+ "<ncx xmlns=\"http://www.daisy.org/z3986/2005/ncx/\" version=\"2005-1\">\n"
+				+ "<head>\n<meta name=\"dtb:uid\" content=\"").append(getIdentifier())
+				.append("\"/>\n<meta name=\"dtb:depth\" content=\"")
+				.append(Math.min(navDepth, chapters))
+				.append("\"/>\n<meta name=\"dtb:totalPageCount\" content=\"0\"/>\n"
+						+ "<meta name=\"dtb:maxPageNumber\" content=\"0\"/>\n</head>\n"
+						+ "<docTitle><text>Synthetic Publication</text></docTitle>\n<navMap>\n");
+		int current = 0;
+		for (int i = 0; i < chapters; i++) {
+			int level = i % navDepth + 1;
+			if (level == 1) {
+				for (int k = current; k > 0; k--) {
+					sb.append("</navPoint>\n");
+				}
+			}
+			sb.append("<navPoint id=\"np").append(i).append("\" playOrder=\"")
+					.append(i + 1).append("\"><navLabel><text>Chapter ")
+					.append(i).append("</text></navLabel><content src=\"")
+					.append(chapter(i)).append("\"/>\n");
+			current = level;
+		}
+		for (int k = current; k > 0; k--) {
+			sb.append("</navPoint>\n");
+		}
+		sb.append("</navMap>\n</ncx>\n");
+		beginEntry("EPUB/toc.ncx");
+		writer.write(sb.toString());
+		endEntry();
+	}
+
+	private String getIdentifier() {
+		return String.format("urn:uuid:00000000-0000-4000-8000-%012x",
+				seed & 0xFFFFFFFFFFFFL);
+	}
+
+	private void writePackage() throws IOException {
+		boolean epub3 = version == EPUBVersion.VERSION_3;
+		int overlays = getOverlayCount();
+		StringBuilder sb = new StringBuilder();
+		sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+				+ "<package xmlns=\"http://www.idpf.org/2007/opf\" version=\"")
+				.append(epub3 ? "3.0" : "2.0")
+				.append("\" unique-identifier=\"uid\">\n"
+						+ "<metadata xmlns:dc=\"http://purl.org/dc/elements/1.1/\">\n"
+						+ "<dc:identifier id=\"uid\">").append(getIdentifier())
+				.append("</dc:identifier>\n"
+						+ "<dc:title>Synthetic Publication</dc:title>\n"
+						+ "<dc:language>la</dc:language>\n");
+		if (epub3) {
+			sb.append("<meta property=\"dcterms:modified\">2014-01-01T00:00:00Z</meta>\n");
+			if (overlays > 0) {
+				for (int i = 0; i < overlays; i++) {
+					sb.append("<meta refines=\"#mo").append(i)
+							.append("\" property=\"media:duration\">")
+							.append(clock(paragraphs)).append("</meta>\n");
+				}
+				sb.append("<meta property=\"media:duration\">")
+						.append(clock((long) paragraphs * overlays))
+						.append("</meta>\n");
+			}
+		}
+		sb.append("</metadata>\n<manifest>\n");
+		if (epub3) {
+			sb.append("<item id=\"nav\" href=\"nav.xhtml\" properties=\"nav\" "
+					+ "media-type=\"application/xhtml+xml\"/>\n");
+		} else {
+			sb.append("<item id=\"ncx\" href=\"toc.ncx\" "
+					+ "media-type=\"application/x-dtbncx+xml\"/>\n");
+		}
+		sb.append("<item id=\"css\" href=\"style.css\" media-type=\"text/css\"/>\n");
+		if (overlays > 0) {
+			sb.append("<item id=\"audio\" href=\"audio.mp3\" media-type=\"audio/mpeg\"/>\n");
+		}
+		for (int i = 0; i < images; i++) {
+			sb.append("<item id=\"img").append(i).append("\" href=\"")
+					.append(image(i)).append("\" media-type=\"image/png\"/>\n");
+		}
+		for (int i = 0; i < chapters; i++) {
+			sb.append("<item id=\"ch").append(i).append("\" href=\"")
+					.append(chapter(i))
+					.append("\" media-type=\"application/xhtml+xml\"");
+			if (i < overlays) {
+				sb.append(" media-overlay=\"mo").append(i).append("\"");
+			}
+			sb.append("/>\n");
+			if (i < overlays) {
+				sb.append("<item id=\"mo").append(i).append("\" href=\"")
+						.append(overlay(i))
+						.append("\" media-type=\"application/smil+xml\"/>\n");
+			}
+		}
+		sb.append("</manifest>\n<spine").append(epub3 ? "" : " toc=\"ncx\"")
+				.append(">\n");
+		for (int i = 0; i < chapters; i++) {
+			sb.append("<itemref idref=\"ch").append(i).append("\"/>\n");
+		}
+		sb.append("</spine>\n</package>\n");
+		beginEntry("EPUB/package.opf");
+		writer.write(sb.toString());
+		endEntry();
+	}
+
+	public static void main(String[] args) throws IOException {
+		EPUBVersion version = EPUBVersion.VERSION_3;
+		String path = null;
+		Map<String, String> options = new LinkedHashMap<String, String>();
+		EpubGenerator generator = null;
+		try {
+			for (int i = 0; i < args.length; i++) {
+				if ("-v".equals(args[i]) && i + 1 < args.length) {
+					String v = args[++i];
+					if (v.equals("2") || v.equals("2.0")) {
+						version = EPUBVersion.VERSION_2;
+					} else if (v.equals("3") || v.equals("3.0")) {
+						version = EPUBVersion.VERSION_3;
+					} else {
+						throw new IllegalArgumentException("unsupported version: " + v);
+					}
+				} else if (args[i].startsWith("-") && i + 1 < args.length) {
+					options.put(args[i], args[++i]);
+				} else if (args[i].startsWith("-") || path != null) {
+					throw new IllegalArgumentException("unexpected argument: " + args[i]);
+				} else {
+					path = args[i];
+				}
+			}
+			if (path == null) {
+				throw new IllegalArgumentException("no output file specified");
+			}
+			generator = new EpubGenerator(version);
+			for (Map.Entry<String, String> option : options.entrySet()) {
+				String name = option.getKey();
+				if (name.equals("-seed")) {
+					generator.setSeed(parseNumber(name, option.getValue(),
+							Long.MIN_VALUE, Long.MAX_VALUE));
+					continue;
+				}
+				int value = (int) parseNumber(name, option.getValue(),
+						Integer.MIN_VALUE, Integer.MAX_VALUE);
+				if (name.equals("-chapters")) {
+					generator.setChapters(value);
+				} else if (name.equals("-paragraphs")) {
+					generator.setParagraphs(value);
+				} else if (name.equals("-links")) {
+					generator.setLinks(value);
+				} else if (name.equals("-ids")) {
+					generator.setIds(value);
+				} else if (name.equals("-css")) {
+					generator.setCssRules(value);
+				} else if (name.equals("-styles")) {
+					generator.setInlineStyles(value);
+				} else if (name.equals("-images")) {
+					generator.setImages(value);
+				} else if (name.equals("-navdepth")) {
+					generator.setNavDepth(value);
+				} else if (name.equals("-overlays")) {
+					generator.setMediaOverlays(value);
+				} else {
+					throw new IllegalArgumentException("unknown option: " + name);
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: EpubGenerator [-v 2|3] [-chapters N] [-paragraphs N] [-links N]"
+					+ " [-ids N] [-css N] [-styles N] [-images N] [-navdepth N] [-overlays N]"
+					+ " [-seed N] <file.epub>");
+			System.exit(1);
+		}
+		generator.generate(new File(path));
+	}
+
+	private static long parseNumber(String option, String value, long min,
+			long max) {
+		long number;
+		try {
+			number = Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("not a number for " + option
+					+ ": " + value);
+		}
+		if (number < min || number > max) {
+			throw new IllegalArgumentException("value out of range for "
+					+ option + ": " + value);
+		}
+		return number;
+	}
+}
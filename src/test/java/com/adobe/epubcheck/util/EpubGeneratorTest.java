@@ -0,0 +1,90 @@
+package com.adobe.epubcheck.util;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+import com.adobe.epubcheck.api.EpubCheck;
+
+public class EpubGeneratorTest {
+
+	private EpubGenerator newGenerator(EPUBVersion version) {
+		EpubGenerator generator = new EpubGenerator(version);
+		generator.setChapters(7);
+		generator.setParagraphs(5);
+		generator.setLinks(12);
+		generator.setIds(8);
+		generator.setCssRules(30);
+		generator.setInlineStyles(3);
+		generator.setImages(9);
+		generator.setNavDepth(3);
+		generator.setMediaOverlays(2);
+		generator.setSeed(42);
+		return generator;
+	}
+
+	private void testValid(EPUBVersion version) throws IOException {
+		File file = File.createTempFile("generated", ".epub");
+		try {
+			newGenerator(version).generate(file);
+			ValidationReport report = new ValidationReport(file.getName());
+			assertTrue(report.toString(), new EpubCheck(file, report).validate());
+			assertEquals(0, report.getExceptionCount());
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testValidEPUB3() throws IOException {
+		testValid(EPUBVersion.VERSION_3);
+	}
+
+	@Test
+	public void testValidEPUB2() throws IOException {
+		testValid(EPUBVersion.VERSION_2);
+	}
+
+	@Test
+	public void testReproducible() throws IOException {
+		ByteArrayOutputStream first = new ByteArrayOutputStream();
+		newGenerator(EPUBVersion.VERSION_3).generate(first);
+		ByteArrayOutputStream second = new ByteArrayOutputStream();
+		newGenerator(EPUBVersion.VERSION_3).generate(second);
+		assertTrue(Arrays.equals(first.toByteArray(), second.toByteArray()));
+
+		EpubGenerator generator = newGenerator(EPUBVersion.VERSION_3);
+		generator.setSeed(43);
+		ByteArrayOutputStream other = new ByteArrayOutputStream();
+		generator.generate(other);
+		assertFalse(Arrays.equals(first.toByteArray(), other.toByteArray()));
+	}
+
+	@Test
+	public void testTimeZone() throws IOException {
+		TimeZone timeZone = TimeZone.getDefault();
+		try {
+			TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+			ByteArrayOutputStream utc = new ByteArrayOutputStream();
+			newGenerator(EPUBVersion.VERSION_3).generate(utc);
+			TimeZone.setDefault(TimeZone.getTimeZone("Pacific/Auckland"));
+			ByteArrayOutputStream auckland = new ByteArrayOutputStream();
+			newGenerator(EPUBVersion.VERSION_3).generate(auckland);
+			assertTrue(Arrays.equals(utc.toByteArray(), auckland.toByteArray()));
+		} finally {
+			TimeZone.setDefault(timeZone);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoChapter() {
+		new EpubGenerator(EPUBVersion.VERSION_3).setChapters(0);
+	}
+
+}
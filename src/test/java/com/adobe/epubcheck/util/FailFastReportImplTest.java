@@ -0,0 +1,60 @@
+package com.adobe.epubcheck.util;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import com.adobe.epubcheck.api.EpubCheck;
+import com.adobe.epubcheck.api.Report;
+
+public class FailFastReportImplTest {
+
+	@Test
+	public void testLimit() {
+		ValidationReport target = new ValidationReport("test");
+		FailFastReportImpl report = new FailFastReportImpl(target, 2);
+		report.warning("a.xhtml", 1, 1, "warning");
+		report.error("a.xhtml", 2, 1, "error");
+		assertFalse(ReportUtil.isCancelled(report));
+		ReportUtil.error(report, "a.xhtml", 3, 1, Messages.OPF_FILE_MISSING, "b.opf");
+		assertTrue(ReportUtil.isCancelled(report));
+		assertEquals(2, report.getErrorCount());
+		assertEquals(1, report.getHintCount());
+		assertEquals("Validation stopped after 2 errors", target.hintList.get(0).message);
+
+		// messages reported after the limit are still passed on, once
+		report.exception("a.xhtml", new Exception());
+		assertEquals(1, report.getHintCount());
+		assertEquals(1, report.getExceptionCount());
+	}
+
+	@Test
+	public void testDecorated() {
+		ValidationReport target = new ValidationReport("test");
+		Report report = new MetricsReportImpl(new AggregatingReportImpl(
+				new FailFastReportImpl(target, 1), 10, 0));
+		assertFalse(ReportUtil.isCancelled(report));
+		report.error("a.xhtml", 1, 1, "error");
+		assertTrue(ReportUtil.isCancelled(report));
+	}
+
+	@Test
+	public void testEpubCheck() {
+		File epub = new File(getClass().getResource(
+				"/30/epub/invalid/fallback-cycle.epub").getPath());
+		ValidationReport full = new ValidationReport("full");
+		new EpubCheck(epub, full).validate();
+		assertTrue(full.getErrorCount() > 1);
+
+		ValidationReport partial = new ValidationReport("partial");
+		EpubCheck check = new EpubCheck(epub, partial);
+		check.setFailFast(1);
+		assertFalse(check.validate());
+		assertTrue(partial.getErrorCount() >= 1);
+		assertTrue(partial.getErrorCount() < full.getErrorCount());
+		assertEquals(1, partial.getHintCount());
+	}
+
+}
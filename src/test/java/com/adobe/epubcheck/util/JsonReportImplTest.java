@@ -0,0 +1,59 @@
+package com.adobe.epubcheck.util;
+
+import static org.junit.Assert.*;
+
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import com.adobe.epubcheck.api.Severity;
+
+public class JsonReportImplTest {
+
+	@Test
+	public void testEvents() throws Exception {
+		StringWriter out = new StringWriter();
+		JsonReportImpl report = new JsonReportImpl(out, "test.epub");
+		report.info(null, FeatureEnum.FORMAT_VERSION, "3.0");
+		ReportUtil.error(report, "a.xhtml", 12, 3, Messages.MISSING_FILE, "b \"c\".xhtml");
+		report.warning(null, 0, 0, "line\nbreak\\\u0001");
+		report.message(Severity.HINT, "a.xhtml", 1, 0, Messages.OPF_SPINE_ONLY_NON_LINEAR);
+		report.exception("a.xhtml", new RuntimeException("oops"));
+		assertEquals("", out.toString());
+		report.summary();
+
+		String[] lines = out.toString().split("\n");
+		assertEquals(6, lines.length);
+		assertEquals("{\"event\":\"info\",\"book\":\"test.epub\",\"feature\":\"FORMAT_VERSION\",\"value\":\"3.0\"}", lines[0]);
+		assertEquals("{\"event\":\"message\",\"book\":\"test.epub\",\"severity\":\"ERROR\",\"id\":\"MISSING_FILE\","
+				+ "\"resource\":\"a.xhtml\",\"line\":12,\"column\":3,"
+				+ "\"message\":\"File b \\\"c\\\".xhtml is missing in the package.\"}", lines[1]);
+		assertEquals("{\"event\":\"message\",\"book\":\"test.epub\",\"severity\":\"WARNING\","
+				+ "\"message\":\"line\\nbreak\\\\\\u0001\"}", lines[2]);
+		assertEquals("{\"event\":\"message\",\"book\":\"test.epub\",\"severity\":\"HINT\",\"id\":\"OPF_SPINE_ONLY_NON_LINEAR\","
+				+ "\"resource\":\"a.xhtml\",\"line\":1,\"message\":\"" + Messages.OPF_SPINE_ONLY_NON_LINEAR + "\"}", lines[3]);
+		assertEquals("{\"event\":\"exception\",\"book\":\"test.epub\",\"resource\":\"a.xhtml\",\"message\":\"oops\"}", lines[4]);
+		assertEquals("{\"event\":\"summary\",\"book\":\"test.epub\",\"errors\":1,\"warnings\":1,\"exceptions\":1,\"hints\":1}", lines[5]);
+	}
+
+	@Test
+	public void testLargeOutput() throws Exception {
+		StringWriter out = new StringWriter();
+		JsonReportImpl report = new JsonReportImpl(out, "test.epub");
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 20000; i++) {
+			sb.append('x');
+		}
+		String longMessage = sb.toString();
+		for (int i = 0; i < 1000; i++) {
+			report.error("a.xhtml", i + 1, 1, i == 500 ? longMessage : "error");
+		}
+		report.summary();
+		String[] lines = out.toString().split("\n");
+		assertEquals(1001, lines.length);
+		assertTrue(lines[500].contains("\"line\":501,"));
+		assertTrue(lines[500].endsWith(longMessage + "\"}"));
+		assertTrue(lines[1000].contains("\"errors\":1000"));
+	}
+
+}
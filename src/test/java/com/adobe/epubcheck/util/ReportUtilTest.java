@@ -0,0 +1,91 @@
+package com.adobe.epubcheck.util;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import com.adobe.epubcheck.api.EpubCheck;
+import com.adobe.epubcheck.api.MessageReport;
+import com.adobe.epubcheck.api.Severity;
+
+public class ReportUtilTest {
+
+	@Test
+	public void testNormalizeSpace() {
+		String[] messages = { "", "a", "a b", " a  b ", "a\tb", "a\r\nb",
+				"\n", "a \u000B\fb", "  ", "a b c\n" };
+		for (String message : messages) {
+			assertEquals(message.replaceAll("[\\s]+", " "),
+					ReportUtil.normalizeSpace(message));
+		}
+		assertEquals("", ReportUtil.normalizeSpace(null));
+		String clean = "nothing to do here";
+		assertSame(clean, ReportUtil.normalizeSpace(clean));
+	}
+
+	@Test
+	public void testFormat() {
+		assertSame(Messages.MISSING_FILE, ReportUtil.format(Messages.MISSING_FILE));
+		assertEquals("File a.xhtml is missing in the package.",
+				ReportUtil.format(Messages.MISSING_FILE, "a.xhtml"));
+		assertEquals("100%% done", ReportUtil.format("100%% done"));
+		assertEquals("100% of a", ReportUtil.format("100%% of %1$s", "a"));
+	}
+
+	@Test
+	public void testGetId() {
+		assertEquals("MISSING_FILE", Messages.getId(Messages.MISSING_FILE));
+		assertNull(Messages.getId(new String(Messages.MISSING_FILE)));
+		assertNull(Messages.getId(null));
+	}
+
+	@Test
+	public void testMessageReport() {
+		RecordingReport report = new RecordingReport();
+		ReportUtil.warning(report, "a.xhtml", 1, 2, Messages.MISSING_FILE, "b.xhtml");
+		assertEquals(Severity.WARNING, report.severity);
+		assertSame(Messages.MISSING_FILE, report.pattern);
+		assertArrayEquals(new Object[] { "b.xhtml" }, report.args);
+		assertEquals(0, report.getWarningCount());
+	}
+
+	@Test
+	public void testPlainReport() {
+		ValidationReport report = new ValidationReport("test");
+		ReportUtil.error(report, "a.xhtml", 1, 2, Messages.MISSING_FILE, "b.xhtml");
+		ReportUtil.hint(report, null, 0, 0, Messages.MISSING_FILE, "c.xhtml");
+		assertEquals(1, report.getErrorCount());
+		assertEquals(1, report.getHintCount());
+		assertEquals("File b.xhtml is missing in the package.", report.errorList.get(0).message);
+	}
+
+	@Test
+	public void testCountingReport() throws Exception {
+		String path = "/30/epub/invalid/fallback-cycle.epub";
+		File file = new File(this.getClass().getResource(path).toURI());
+		ValidationReport expected = new ValidationReport(path);
+		new EpubCheck(file, expected).validate();
+		CountingReportImpl counting = new CountingReportImpl();
+		new EpubCheck(file, counting).validate();
+		assertEquals(expected.getErrorCount(), counting.getErrorCount());
+		assertEquals(expected.getWarningCount(), counting.getWarningCount());
+		assertEquals(expected.getHintCount(), counting.getHintCount());
+	}
+
+	private static class RecordingReport extends CountingReportImpl implements MessageReport {
+		Severity severity;
+		String pattern;
+		Object[] args;
+
+		@Override
+		public void message(Severity severity, String resource, int line,
+				int column, String pattern, Object... args) {
+			this.severity = severity;
+			this.pattern = pattern;
+			this.args = args;
+		}
+	}
+
+}
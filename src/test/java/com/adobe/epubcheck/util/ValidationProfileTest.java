@@ -0,0 +1,70 @@
+package com.adobe.epubcheck.util;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import com.adobe.epubcheck.api.EpubCheck;
+import com.adobe.epubcheck.api.ValidationMetrics;
+
+public class ValidationProfileTest {
+
+	private ValidationMetrics validate(ValidationProfile profile) {
+		File epub = new File(getClass().getResource(
+				"/30/epub/valid/lorem.epub").getPath());
+		EpubCheck check = new EpubCheck(epub, new ValidationReport("test"));
+		check.setMetrics(profile.getMetrics());
+		profile.start();
+		assertTrue(check.validate());
+		return profile.getMetrics();
+	}
+
+	@Test
+	public void testPeakSizes() {
+		ValidationMetrics metrics = validate(new ValidationProfile());
+		assertEquals(2, metrics.getPeakSize(ValidationMetrics.OPF_ITEMS));
+		assertEquals(1, metrics.getPeakSize(ValidationMetrics.OPF_SPINE_ITEMS));
+		assertEquals(2, metrics.getPeakSize(ValidationMetrics.XREF_RESOURCES));
+		assertTrue(metrics.getPeakSize(ValidationMetrics.XREF_REFERENCES) > 0);
+		metrics.recordSize(ValidationMetrics.OPF_ITEMS, 1);
+		assertEquals(2, metrics.getPeakSize(ValidationMetrics.OPF_ITEMS));
+	}
+
+	@Test
+	public void testAllocations() {
+		Assume.assumeTrue(ValidationMetrics.isAllocationTrackingSupported());
+		ValidationMetrics metrics = validate(new ValidationProfile());
+		assertTrue(metrics.isTrackingAllocations());
+		assertTrue(metrics.getAllocatedBytes(ValidationMetrics.OPF_VALIDATION) > 0);
+	}
+
+	@Test
+	public void testNotTracked() {
+		ValidationMetrics metrics = new ValidationMetrics();
+		ValidationMetrics.setCurrent(metrics);
+		try {
+			ValidationMetrics.stop("test", ValidationMetrics.start());
+		} finally {
+			ValidationMetrics.setCurrent(null);
+		}
+		assertEquals(1, metrics.getCount("test"));
+		assertEquals(0, metrics.getAllocatedBytes("test"));
+	}
+
+	@Test
+	public void testJson() {
+		ValidationProfile profile = new ValidationProfile();
+		validate(profile);
+		String json = profile.toJson("a \"quoted\" name", true);
+		assertTrue(json.startsWith("{\"book\":\"a \\\"quoted\\\" name\",\"valid\":true,"));
+		assertTrue(json.contains("{\"phase\":\"OPF validation\",\"count\":1,"));
+		assertTrue(json.contains("\"peakSizes\":{\"OPFHandler items\":2,"));
+		assertTrue(json.contains("\"gc\":["));
+		assertFalse(json.contains("\n"));
+		assertTrue(json.endsWith("]}"));
+	}
+
+}
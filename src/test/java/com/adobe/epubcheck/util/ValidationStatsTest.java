@@ -0,0 +1,82 @@
+package com.adobe.epubcheck.util;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.adobe.epubcheck.api.EpubCheck;
+import com.adobe.epubcheck.api.ValidationMetrics;
+
+public class ValidationStatsTest {
+
+	@After
+	public void tearDown() throws Exception {
+		ValidationStats.unregister();
+	}
+
+	@Test
+	public void testRegister() throws Exception {
+		ValidationStats stats = ValidationStats.register();
+		assertSame(stats, ValidationStats.register());
+		assertTrue(ValidationMetrics.hasListeners());
+
+		ValidationReport report = new ValidationReport("fallback-cycle");
+		File epub = new File(getClass().getResource(
+				"/30/epub/invalid/fallback-cycle.epub").getPath());
+		assertFalse(new EpubCheck(epub, report).validate());
+
+		assertEquals(1, stats.getBooksValidated());
+		assertEquals(0, stats.getValidBooks());
+		assertEquals(report.getErrorCount(), stats.getErrors());
+		assertEquals(report.getWarningCount(), stats.getWarnings());
+		assertTrue(stats.getBytesInflated() > 0);
+		assertEquals(Long.valueOf(1), stats.getDocumentsParsed().get("opf"));
+		assertEquals(Long.valueOf(1),
+				stats.getPhaseCounts().get(ValidationMetrics.OPF_VALIDATION));
+		long[] histogram = stats.getBookTimeHistogram();
+		assertEquals(ValidationStats.HISTOGRAM_BOUNDS.length + 1, histogram.length);
+		long total = 0;
+		for (long count : histogram) {
+			total += count;
+		}
+		assertEquals(1, total);
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(ValidationStats.OBJECT_NAME);
+		assertEquals(1L, server.getAttribute(name, "BooksValidated"));
+		server.invoke(name, "reset", null, null);
+		assertEquals(0, stats.getBooksValidated());
+		assertTrue(stats.getPhaseCounts().isEmpty());
+	}
+
+	@Test
+	public void testException() throws Exception {
+		ValidationStats stats = ValidationStats.register();
+		ValidationReport target = new ValidationReport("test");
+		new MetricsReportImpl(target).exception("a.xhtml", new Exception());
+		assertEquals(1, stats.getExceptions());
+		assertEquals(0, stats.getErrors());
+		assertEquals(1, target.getExceptionCount());
+	}
+
+	@Test
+	public void testUnregister() throws Exception {
+		ValidationStats stats = ValidationStats.register();
+		ValidationStats.unregister();
+		assertFalse(ValidationMetrics.hasListeners());
+		assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(
+				new ObjectName(ValidationStats.OBJECT_NAME)));
+		File epub = new File(getClass().getResource(
+				"/30/epub/valid/lorem.epub").getPath());
+		new EpubCheck(epub, new ValidationReport("lorem")).validate();
+		assertEquals(0, stats.getBooksValidated());
+	}
+
+}
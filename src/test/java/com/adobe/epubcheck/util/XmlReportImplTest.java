@@ -0,0 +1,56 @@
+package com.adobe.epubcheck.util;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+
+public class XmlReportImplTest {
+
+	@Test
+	public void testMessages() throws Exception {
+		File file = File.createTempFile("report", ".xml");
+		file.deleteOnExit();
+		XmlReportImpl report = new XmlReportImpl(file, "/path/to/test.epub", "3.0");
+		report.info(null, FeatureEnum.FORMAT_NAME, "application/epub+zip");
+		report.info(null, FeatureEnum.FONT_EMBEDDED, "fonts/a&b.otf");
+		for (int i = 0; i < 1000; i++) {
+			report.warning("a.xhtml", i, 0, "warning <" + i + "> & more");
+		}
+		report.error(null, 0, 0, "error");
+		report.hint("b.xhtml", 1, 1, "hint");
+		assertEquals(1000, report.getWarningCount());
+		assertEquals(1, report.getErrorCount());
+		assertEquals(1, report.getHintCount());
+		assertTrue(report.generate());
+
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(true);
+		Document doc = factory.newDocumentBuilder().parse(file);
+		NodeList messages = doc.getElementsByTagName("message");
+		assertEquals(1002, messages.getLength());
+		assertEquals("WARN: /a.xhtml(7): warning <7> & more", messages.item(7).getTextContent());
+		assertEquals("ERROR: : error", messages.item(1000).getTextContent());
+		assertEquals("HINT: /b.xhtml(1): hint", messages.item(1001).getTextContent());
+		assertEquals("Not well-formed", doc.getElementsByTagName("status").item(0).getTextContent());
+		assertEquals("test.epub", doc.getElementsByTagName("repInfo").item(0).getAttributes().getNamedItem("uri").getNodeValue());
+		assertEquals("a&b.otf", doc.getElementsByTagName("value").item(0).getTextContent());
+	}
+
+	@Test
+	public void testNoMessages() throws Exception {
+		File file = File.createTempFile("report", ".xml");
+		file.deleteOnExit();
+		XmlReportImpl report = new XmlReportImpl(file, "test.epub", "3.0");
+		assertTrue(report.generate());
+		Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(file);
+		assertEquals(0, doc.getElementsByTagName("messages").getLength());
+		assertEquals("Well-formed", doc.getElementsByTagName("status").item(0).getTextContent());
+	}
+
+}
@@ -0,0 +1,127 @@
+package com.adobe.epubcheck.xml;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class EntityFetcherTest {
+
+	private static final byte[] ENTITY = "<!ENTITY test \"test\">".getBytes();
+
+	private HttpServer server;
+	private AtomicInteger requests = new AtomicInteger();
+	private String baseURL;
+	private File cacheDirectory;
+
+	@Before
+	public void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				requests.incrementAndGet();
+				exchange.sendResponseHeaders(200, ENTITY.length);
+				OutputStream out = exchange.getResponseBody();
+				out.write(ENTITY);
+				out.close();
+			}
+		});
+		server.start();
+		baseURL = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+		cacheDirectory = Files.createTempDir();
+	}
+
+	@After
+	public void tearDown() {
+		server.stop(0);
+		for (File file : cacheDirectory.listFiles()) {
+			file.delete();
+		}
+		cacheDirectory.delete();
+	}
+
+	@Test
+	public void testOffline() throws IOException {
+		EntityFetcher fetcher = new EntityFetcher(true, null, 10, 1000);
+		assertNull(fetcher.fetch(baseURL + "a.ent"));
+		assertEquals(0, requests.get());
+	}
+
+	@Test
+	public void testFetchOnce() throws IOException {
+		EntityFetcher fetcher = new EntityFetcher(false, null, 10, 1000);
+		assertArrayEquals(ENTITY, fetcher.fetch(baseURL + "a.ent"));
+		assertArrayEquals(ENTITY, fetcher.fetch(baseURL + "a.ent"));
+		assertEquals(1, requests.get());
+		assertEquals(9, fetcher.getRemainingBudget());
+	}
+
+	@Test
+	public void testBudget() throws IOException {
+		EntityFetcher fetcher = new EntityFetcher(false, null, 1, 1000);
+		assertNotNull(fetcher.fetch(baseURL + "a.ent"));
+		assertNull(fetcher.fetch(baseURL + "b.ent"));
+		assertEquals(1, requests.get());
+		assertEquals(0, fetcher.getRemainingBudget());
+	}
+
+	@Test
+	public void testBudgetPerRun() throws Exception {
+		final EntityFetcher fetcher = new EntityFetcher(false, null, 1, 1000);
+		assertNotNull(fetcher.fetch(baseURL + "a.ent"));
+		assertEquals(0, fetcher.getRemainingBudget());
+
+		// other threads have their own budget
+		final AtomicInteger remaining = new AtomicInteger(-1);
+		Thread thread = new Thread() {
+			public void run() {
+				remaining.set(fetcher.getRemainingBudget());
+			}
+		};
+		thread.start();
+		thread.join();
+		assertEquals(1, remaining.get());
+
+		fetcher.resetBudget();
+		assertEquals(1, fetcher.getRemainingBudget());
+		assertNotNull(fetcher.fetch(baseURL + "b.ent"));
+		assertEquals(2, requests.get());
+	}
+
+	@Test
+	public void testMemoryCacheBounded() throws IOException {
+		EntityFetcher fetcher = new EntityFetcher(false, null, 100, 1000);
+		for (int i = 0; i <= EntityFetcher.MAX_CACHED_ENTITIES; i++) {
+			fetcher.fetch(baseURL + i + ".ent");
+		}
+		int fetched = requests.get();
+		fetcher.fetch(baseURL + EntityFetcher.MAX_CACHED_ENTITIES + ".ent");
+		assertEquals(fetched, requests.get());
+		// the entity used least recently was dropped
+		fetcher.fetch(baseURL + "0.ent");
+		assertEquals(fetched + 1, requests.get());
+	}
+
+	@Test
+	public void testCacheDirectory() throws IOException {
+		new EntityFetcher(false, cacheDirectory, 10, 1000).fetch(baseURL + "a.ent");
+		assertEquals(1, cacheDirectory.listFiles().length);
+
+		EntityFetcher offline = new EntityFetcher(true, cacheDirectory, 10, 1000);
+		assertArrayEquals(ENTITY, offline.fetch(baseURL + "a.ent"));
+		assertNull(offline.fetch(baseURL + "b.ent"));
+		assertEquals(1, requests.get());
+	}
+}
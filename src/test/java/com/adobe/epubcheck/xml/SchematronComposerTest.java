@@ -0,0 +1,155 @@
+package com.adobe.epubcheck.xml;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+public class SchematronComposerTest {
+
+	private File directory;
+
+	@Before
+	public void setUp() {
+		directory = Files.createTempDir();
+	}
+
+	@After
+	public void tearDown() {
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	private URL schema(String name, String content) throws IOException {
+		File file = new File(directory, name);
+		Files.write("<schema xmlns=\"" + SchematronComposer.NAMESPACE + "\">"
+				+ content + "</schema>", file, Charsets.UTF_8);
+		return file.toURI().toURL();
+	}
+
+	private static String pattern(String id) {
+		return "<pattern id=\"" + id + "\"><rule context=\"h:p\"><assert test=\"true()\">"
+				+ id + "</assert></rule></pattern>";
+	}
+
+	@Test
+	public void testCompose() throws Exception {
+		URL first = schema("first.sch", "<ns prefix=\"h\" uri=\"http://www.w3.org/1999/xhtml\"/>"
+				+ "<let name=\"v\" value=\"1\"/>" + pattern("a") + "<include href=\"inc.sch\"/>");
+		URL second = schema("second.sch", "<title>second</title>"
+				+ "<ns prefix=\"h\" uri=\"http://www.w3.org/1999/xhtml\"/>" + pattern("b"));
+		Element root = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+				.parse(SchematronComposer.compose(new URL[] { first, second }))
+				.getDocumentElement();
+		assertEquals(1, root.getElementsByTagName("ns").getLength());
+		assertEquals(1, root.getElementsByTagName("let").getLength());
+		assertEquals(0, root.getElementsByTagName("title").getLength());
+		NodeList patterns = root.getElementsByTagName("pattern");
+		assertEquals(2, patterns.getLength());
+		assertEquals("a", ((Element) patterns.item(0)).getAttribute("id"));
+		assertEquals("b", ((Element) patterns.item(1)).getAttribute("id"));
+		assertEquals(new URL(first, "inc.sch").toExternalForm(),
+				((Element) root.getElementsByTagName("include").item(0)).getAttribute("href"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDuplicatePattern() throws Exception {
+		SchematronComposer.compose(new URL[] { schema("first.sch", pattern("a")),
+				schema("second.sch", pattern("a")) });
+	}
+
+	private static Element compose(URL... schemas) throws Exception {
+		return DocumentBuilderFactory.newInstance().newDocumentBuilder()
+				.parse(SchematronComposer.compose(schemas)).getDocumentElement();
+	}
+
+	private static String context(Element root, int pattern) {
+		return ((Element) ((Element) root.getElementsByTagName("pattern").item(pattern))
+				.getElementsByTagName("rule").item(0)).getAttribute("context");
+	}
+
+	@Test
+	public void testNamespaceWithTwoPrefixes() throws Exception {
+		Element root = compose(
+				schema("first.sch", "<ns prefix=\"h\" uri=\"http://www.w3.org/1999/xhtml\"/>"
+						+ pattern("a")),
+				schema("second.sch", "<ns prefix=\"html\" uri=\"http://www.w3.org/1999/xhtml\"/>"
+						+ "<let name=\"v\" value=\"//html:a\"/>"
+						+ "<pattern id=\"b\"><rule context=\"html:body//html:nav\">"
+						+ "<assert test=\"count(.//html:ol) = 1\"><value-of select=\"html:a\"/></assert>"
+						+ "</rule></pattern>"));
+		NodeList namespaces = root.getElementsByTagName("ns");
+		assertEquals(1, namespaces.getLength());
+		assertEquals("h", ((Element) namespaces.item(0)).getAttribute("prefix"));
+		assertEquals("//h:a",
+				((Element) root.getElementsByTagName("let").item(0)).getAttribute("value"));
+		assertEquals("h:body//h:nav", context(root, 1));
+		assertEquals("count(.//h:ol) = 1",
+				((Element) root.getElementsByTagName("assert").item(1)).getAttribute("test"));
+		assertEquals("h:a",
+				((Element) root.getElementsByTagName("value-of").item(0)).getAttribute("select"));
+	}
+
+	@Test
+	public void testPrefixWithTwoNamespaces() throws Exception {
+		Files.write("<pattern xmlns=\"" + SchematronComposer.NAMESPACE + "\" id=\"c\">"
+				+ "<rule context=\"h:g\"><assert test=\"true()\">c</assert></rule></pattern>",
+				new File(directory, "inc.sch"), Charsets.UTF_8);
+		Element root = compose(
+				schema("first.sch", "<ns prefix=\"h\" uri=\"http://www.w3.org/1999/xhtml\"/>"
+						+ pattern("a")),
+				schema("second.sch", "<ns prefix=\"h\" uri=\"http://www.w3.org/2000/svg\"/>"
+						+ "<ns prefix=\"h1\" uri=\"http://www.w3.org/1998/Math/MathML\"/>"
+						+ "<pattern id=\"b\"><rule context=\"h:svg/h1:math\">"
+						+ "<assert test=\"true()\">b</assert></rule></pattern>"
+						+ "<include href=\"inc.sch\"/>"));
+		NodeList namespaces = root.getElementsByTagName("ns");
+		assertEquals(3, namespaces.getLength());
+		assertEquals("h2", ((Element) namespaces.item(1)).getAttribute("prefix"));
+		assertEquals("http://www.w3.org/2000/svg",
+				((Element) namespaces.item(1)).getAttribute("uri"));
+		assertEquals("h1", ((Element) namespaces.item(2)).getAttribute("prefix"));
+		assertEquals("h:p", context(root, 0));
+		assertEquals("h2:svg/h1:math", context(root, 1));
+		assertEquals("h2:g", context(root, 2));
+		assertEquals(0, root.getElementsByTagName("include").getLength());
+	}
+
+	@Test
+	public void testRenamePrefixes() {
+		Map<String, String> renamed = new HashMap<String, String>();
+		renamed.put("html", "h");
+		assertEquals("ancestor::h:nav[@epub:type='html:nav']/html",
+				SchematronComposer.renamePrefixes(
+						"ancestor::html:nav[@epub:type='html:nav']/html", renamed));
+		assertEquals("count(xhtml:p) + $h:x + \"html:\"",
+				SchematronComposer.renamePrefixes("count(xhtml:p) + $html:x + \"html:\"",
+						renamed));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testQueryBindings() throws Exception {
+		URL first = schema("first.sch", pattern("a"));
+		File second = new File(directory, "second.sch");
+		Files.write("<schema xmlns=\"" + SchematronComposer.NAMESPACE
+				+ "\" queryBinding=\"exslt\">" + pattern("b") + "</schema>", second,
+				Charsets.UTF_8);
+		SchematronComposer.compose(new URL[] { first, second.toURI().toURL() });
+	}
+}
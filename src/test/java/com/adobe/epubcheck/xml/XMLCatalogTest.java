@@ -0,0 +1,56 @@
+package com.adobe.epubcheck.xml;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+import com.adobe.epubcheck.util.ResourceUtil;
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+public class XMLCatalogTest {
+
+	@Test
+	public void testBundledCatalog() throws IOException, SAXException {
+		XMLCatalog catalog = new XMLCatalog();
+		catalog.add(ResourceUtil.getResourceURL(ResourceUtil
+				.getResourcePath("schema/20/dtd/epub20-catalog.xml")));
+		String location = catalog.resolve("-//W3C//DTD XHTML 1.1//EN",
+				"http://www.w3.org/TR/xhtml11/DTD/xhtml11.dtd");
+		assertNotNull(location);
+		assertTrue(location.endsWith("schema/20/dtd/xhtml11-ent.dtd"));
+		assertNull(catalog.resolve(null, "http://example.org/unknown.dtd"));
+	}
+
+	@Test
+	public void testPublicEntriesAndPrecedence() throws IOException, SAXException {
+		File directory = Files.createTempDir();
+		File first = new File(directory, "first.xml");
+		File second = new File(directory, "second.xml");
+		try {
+			Files.write("<!DOCTYPE catalog PUBLIC \"-//OASIS//DTD XML Catalogs V1.1//EN\" "
+					+ "\"http://www.oasis-open.org/committees/entity/release/1.1/catalog.dtd\">"
+					+ "<catalog xmlns=\"" + XMLCatalog.NAMESPACE + "\">"
+					+ "<public publicId=\"-//TEST//a\" uri=\"dtd/a.dtd\"/></catalog>",
+					first, Charsets.UTF_8);
+			Files.write("<catalog xmlns=\"" + XMLCatalog.NAMESPACE + "\">"
+					+ "<public publicId=\"-//TEST//a\" uri=\"b.dtd\"/>"
+					+ "<system systemId=\"http://example.org/a.dtd\" uri=\"c.dtd\"/></catalog>",
+					second, Charsets.UTF_8);
+			XMLCatalog catalog = new XMLCatalog();
+			catalog.add(first.toURI().toURL());
+			catalog.add(second.toURI().toURL());
+			assertEquals(new File(directory, "dtd/a.dtd").toURI().toURL().toExternalForm(),
+					catalog.resolve("-//TEST//a", "http://example.org/b.dtd"));
+			assertTrue(catalog.resolve("-//TEST//a", "http://example.org/a.dtd").endsWith("/c.dtd"));
+		} finally {
+			first.delete();
+			second.delete();
+			directory.delete();
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package com.adobe.epubcheck.xml;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+
+import org.junit.Test;
+
+import com.adobe.epubcheck.ops.OPSChecker;
+import com.adobe.epubcheck.util.EPUBVersion;
+import com.adobe.epubcheck.util.FileResourceProvider;
+import com.adobe.epubcheck.util.ValidationReport;
+
+public class XMLParserTest {
+
+	private static final String DOCTYPE = "<!DOCTYPE html PUBLIC \"-//W3C//DTD XHTML 1.1//EN\" "
+			+ "\"http://www.w3.org/TR/xhtml11/DTD/xhtml11.dtd\"";
+
+	private String parse(String doctype, String text, ValidationReport report)
+			throws UnsupportedEncodingException {
+		String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + doctype
+				+ "\n<html xmlns=\"http://www.w3.org/1999/xhtml\"><head><title>t</title></head>"
+				+ "<body><p>" + text + "</p></body></html>";
+		XMLParser parser = new XMLParser(new ByteArrayInputStream(
+				xml.getBytes("UTF-8")), "test.xhtml", "application/xhtml+xml",
+				report, EPUBVersion.VERSION_2);
+		final StringBuilder chars = new StringBuilder();
+		parser.addXMLHandler(new XMLHandler() {
+			public void characters(char[] ch, int start, int length) {
+				chars.append(ch, start, length);
+			}
+
+			public void ignorableWhitespace(char[] ch, int start, int length) {
+			}
+
+			public void startElement() {
+			}
+
+			public void endElement() {
+			}
+
+			public void processingInstruction(String target, String data) {
+			}
+		});
+		parser.process();
+		return chars.toString();
+	}
+
+	@Test
+	public void testSubsetDeclarations() throws Exception {
+		String location = XMLParser.catalog.resolve(
+				"-//W3C//DTD XHTML 1.1//EN",
+				"http://www.w3.org/TR/xhtml11/DTD/xhtml11.dtd");
+		ValidationReport report = new ValidationReport("test");
+		// the title, then the paragraph
+		String text = "tt\u00e9<\u00a0\u2014\"";
+		assertEquals(text, parse(DOCTYPE + ">",
+				"t&eacute;&lt;&nbsp;&mdash;&quot;", report));
+		assertNotNull(XMLParser.getDTDDecls(location));
+
+		// the recorded declarations are used
+		assertEquals(text, parse(DOCTYPE + ">",
+				"t&eacute;&lt;&nbsp;&mdash;&quot;", report));
+		assertEquals(0, report.getWarningCount());
+		assertEquals(0, report.getErrorCount());
+	}
+
+	@Test
+	public void testCatalogFailure() {
+		XMLParser.catalogFailures.put("missing.xml", "not found");
+		try {
+			ValidationReport report = new ValidationReport("test");
+			XMLParser.startValidation(report);
+			assertEquals(1, report.getWarningCount());
+			assertEquals("Catalog missing.xml could not be loaded, and its entries are ignored: not found",
+					report.warningList.get(0).message);
+		} finally {
+			XMLParser.catalogFailures.remove("missing.xml");
+		}
+	}
+
+	@Test
+	public void testSingleFileBudget() throws Exception {
+		EntityFetcher fetcher = new EntityFetcher(false, null, 2, 1000);
+		EntityFetcher.setDefault(fetcher);
+		try {
+			try {
+				fetcher.fetch("http://127.0.0.1:1/a.ent");
+			} catch (IOException e) {
+				// nothing listens on port 1, but the budget is used
+			}
+			assertEquals(1, fetcher.getRemainingBudget());
+			String path = getClass().getResource(
+					"/20/single/ops/valid/issue215.xhtml").getPath();
+			new OPSChecker(path, "application/xhtml+xml",
+					new FileResourceProvider(path), new ValidationReport(path),
+					EPUBVersion.VERSION_2).validate();
+			assertEquals(2, fetcher.getRemainingBudget());
+		} finally {
+			EntityFetcher.setDefault(null);
+		}
+	}
+
+	@Test
+	public void testInternalSubset() throws Exception {
+		ValidationReport report = new ValidationReport("test");
+		assertEquals("tbar\u00e9", parse(DOCTYPE
+				+ " [<!ENTITY foo \"bar\">]>", "&foo;&eacute;", report));
+		assertEquals(0, report.getErrorCount());
+	}
+
+}
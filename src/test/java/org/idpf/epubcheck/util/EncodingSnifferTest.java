@@ -0,0 +1,80 @@
+package org.idpf.epubcheck.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+
+import org.idpf.epubcheck.util.EncodingSniffer.BOM;
+import org.idpf.epubcheck.util.EncodingSniffer.PreludeInputStream;
+import org.junit.Test;
+
+import com.google.common.io.CharStreams;
+
+public class EncodingSnifferTest {
+
+	@Test
+	public void testXMLDeclaration() throws Exception {
+		assertEquals("ISO-8859-1", sniff("<?xml version='1.0' encoding='iso-8859-1'?><a/>"));
+		assertEquals("UTF-8", sniff("<?xml version=\"1.0\" encoding=\"UTF-8\"?><a/>"));
+	}
+	
+	@Test
+	public void testXMLNoDeclaration() throws Exception {
+		assertNull(sniff("<a/>"));
+		assertNull(sniff("<?xml version='1.0'?><a/>"));
+		assertNull(sniff("<a"));
+	}
+	
+	@Test
+	public void testXMLMalformedDeclaration() throws Exception {
+		assertNull(sniff("<?xml version='1.0' encoding=UTF-8?><a/>"));
+		assertNull(sniff("<?xml version='1.0' encoding='UTF-8"));
+	}
+	
+	@Test
+	public void testXMLMagic() throws Exception {
+		assertEquals("UTF-16", sniff(new byte[]{(byte)0xFE, (byte)0xFF, 0x00, 0x3C}));
+		assertEquals("UTF-16", sniff(new byte[]{0x3C, 0x00, 0x3F, 0x00}));
+		assertEquals("UCS-4", sniff(new byte[]{0x00, 0x00, 0x00, 0x3C}));
+		assertEquals("UTF-8", sniff(new byte[]{(byte)0xEF, (byte)0xBB, (byte)0xBF, 0x3C}));
+		assertEquals("EBCDIC", sniff(new byte[]{0x4C, 0x6F, (byte)0xA7, (byte)0x94}));
+	}
+	
+	@Test
+	public void testBOM() throws Exception {
+		assertEquals(BOM.UTF_8, EncodingSniffer.detectBOM(new byte[]{(byte)0xEF, (byte)0xBB, (byte)0xBF}, 3));
+		assertEquals(BOM.UTF_16LE, EncodingSniffer.detectBOM(new byte[]{(byte)0xFF, (byte)0xFE, 0x40, 0x00}, 4));
+		assertEquals(BOM.UTF_32LE, EncodingSniffer.detectBOM(new byte[]{(byte)0xFF, (byte)0xFE, 0x00, 0x00}, 4));
+		assertNull(EncodingSniffer.detectBOM(new byte[]{(byte)0xEF, (byte)0xBB}, 2));
+	}
+	
+	@Test
+	public void testPreludeStream() throws Exception {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			sb.append("0123456789");
+		}
+		byte[] content = sb.toString().getBytes("UTF-8");
+		byte[] bytes = new byte[content.length + 3];
+		bytes[0] = (byte) 0xEF; bytes[1] = (byte) 0xBB; bytes[2] = (byte) 0xBF;
+		System.arraycopy(content, 0, bytes, 3, content.length);
+		
+		PreludeInputStream in = new PreludeInputStream(new ByteArrayInputStream(bytes));
+		assertEquals(EncodingSniffer.PRELUDE_SIZE, in.getPreludeLength());
+		assertEquals(BOM.UTF_8, in.getBOM());
+		Reader reader = in.newReader("ISO-8859-1");
+		assertEquals(sb.toString(), CharStreams.toString(reader));
+	}
+	
+	private String sniff(String s) throws IOException {
+		return sniff(s.getBytes("ASCII"));
+	}
+	
+	private String sniff(byte[] bytes) throws IOException {
+		PreludeInputStream in = new PreludeInputStream(new ByteArrayInputStream(bytes));
+		return EncodingSniffer.sniffXML(in.getPrelude(), in.getPreludeLength());
+	}
+}
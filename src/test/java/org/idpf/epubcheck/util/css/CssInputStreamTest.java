@@ -4,14 +4,19 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.Arrays;
 
 import org.idpf.epubcheck.util.css.CssInputStream;
 import org.idpf.epubcheck.util.css.CssSource;
 import org.junit.Test;
 
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+
 public class CssInputStreamTest {
 	public static final String PATH_TEST_BASE = "src/test/resources/css/";
 	
@@ -101,6 +106,25 @@ public class CssInputStreamTest {
 		assertFalse(cis.charset.isPresent());
 	}
 	
+	@Test
+	public void test100() throws Exception {
+		//the charset rule is not consumed, the BOM is 
+		CssInputStream cis = exec("bom-charset15.css");
+		byte[] expected = Files.toByteArray(file("bom-charset15.css"));
+		byte[] actual = ByteStreams.toByteArray(cis);
+		assertEquals(expected.length - 3, actual.length);
+		assertTrue(Arrays.equals(Arrays.copyOfRange(expected, 3, expected.length), actual));
+	}
+	
+	@Test
+	public void test110() throws Exception {		
+		CssInputStream cis = new CssInputStream(new ByteArrayInputStream(
+				new byte[]{(byte)0xFF, (byte)0xFE, 0x00, 0x00, 0x40, 0x00, 0x00, 0x00}));
+		assertTrue(cis.bom.isPresent());
+		assertEquals("UTF-32LE", cis.bom.get());
+		assertEquals(0x40, cis.read());
+	}
+	
 	private CssInputStream exec(String file) throws IOException {
 		File f = file(file);
 		CssSource cs = new CssSource(f.getName(), new FileInputStream(f));
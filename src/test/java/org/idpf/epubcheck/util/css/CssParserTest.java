@@ -14,6 +14,7 @@ import java.io.StringReader;
 import java.util.List;
 
 import org.idpf.epubcheck.util.css.CssContentHandler;
+import org.idpf.epubcheck.util.css.CssContentHandler.CssContentFilter;
 import org.idpf.epubcheck.util.css.CssErrorHandler;
 import org.idpf.epubcheck.util.css.CssExceptions;
 import org.idpf.epubcheck.util.css.CssLocation;
@@ -1206,6 +1207,33 @@ public class CssParserTest {
 		assertEquals(0, handler.errors.size());		
 	}
 	
+	@Test
+	public void testFilteredHandler001() throws Exception {
+		String s = "p > a:hover, .x span { color: red; background: #fff url(a.png) no-repeat; position: fixed } "
+				+ "b { color : }";
+		FilteredHandlerImpl handler = new FilteredHandlerImpl("position");
+		new CssParser().parse(new StringReader(s), CssLocation.NO_SID, handler, handler);
+		assertEquals(0, handler.selectors.size());
+		assertEquals(3, handler.declarations.size());
+		assertEquals(0, handler.declarations.get(0).getComponents().size());
+		assertEquals(1, handler.declarations.get(1).getComponents().size());
+		assertTrue(handler.declarations.get(1).getComponents().get(0).type == CssConstruct.Type.URI);
+		assertEquals(1, handler.declarations.get(2).getComponents().size());
+		assertEquals("fixed", handler.declarations.get(2).getComponents().get(0).toCssString());
+		//syntax errors are still reported for unbuilt constructs
+		assertEquals(exec(s).errors.size(), handler.errors.size());
+	}
+	
+	@Test
+	public void testFilteredHandler002() throws Exception {
+		String s = "p >> a { color: red }";
+		FilteredHandlerImpl handler = new FilteredHandlerImpl("color");
+		new CssParser().parse(new StringReader(s), CssLocation.NO_SID, handler, handler);
+		assertTrue(handler.errors.size() > 0);
+		assertEquals(exec(s).errors.size(), handler.errors.size());
+		assertEquals(0, handler.declarations.size());
+	}
+	
 	HandlerImpl exec(String css, boolean debug) throws IOException, CssException {		
 		HandlerImpl handler = new HandlerImpl(debug);
 		new CssParser().parse(new StringReader(css), CssLocation.NO_SID, handler, handler);
@@ -1333,6 +1361,23 @@ public class CssParserTest {
 		
 	}
 	
+	
+	static class FilteredHandlerImpl extends HandlerImpl implements CssContentFilter {
+		final String property;
+		
+		FilteredHandlerImpl(String property) {
+			super(false);
+			this.property = property;
+		}
+
+		public boolean wantsSelectors() {
+			return false;
+		}
+
+		public boolean wantsComponents(String propertyName) {
+			return propertyName.equals(property);
+		}
+	}
 		
 	static final CssLocation loc = new CssLocation(1, 1, 1, CssLocation.NO_SID);
 	static final List<CssScannerException> err = Lists.newArrayList();